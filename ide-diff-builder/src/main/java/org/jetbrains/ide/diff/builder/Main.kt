@@ -5,6 +5,7 @@ import com.sampullara.cli.Argument
 import org.jetbrains.ide.diff.builder.cli.BuildApiAnnotationsCommand
 import org.jetbrains.ide.diff.builder.cli.IdeDiffCommand
 import org.jetbrains.ide.diff.builder.cli.IdeRepositoryIndexCommand
+import org.jetbrains.ide.diff.builder.cli.MergeApiReportsCommand
 
 private fun usage(): Nothing {
   System.err.println("""
@@ -20,7 +21,8 @@ private fun usage(): Nothing {
 private val AVAILABLE_COMMANDS = listOf(
     IdeDiffCommand(),
     IdeRepositoryIndexCommand(),
-    BuildApiAnnotationsCommand()
+    BuildApiAnnotationsCommand(),
+    MergeApiReportsCommand()
 )
 
 fun main(args: Array<String>) {
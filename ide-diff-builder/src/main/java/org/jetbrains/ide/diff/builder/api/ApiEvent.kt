@@ -4,9 +4,31 @@ import com.jetbrains.plugin.structure.intellij.version.IdeVersion
 
 /**
  * Base class for all events associated with API.
+ *
+ * Events are ordered by [ideVersion], and [IntroducedIn] precedes
+ * [RemovedIn] of the same version. Versions that are equal by [IdeVersion.compareTo],
+ * like `181.1` and `IU-181.1`, are ordered by their presentations, so that
+ * the order is consistent with [equals] and sorted sets keep both events.
  */
-sealed class ApiEvent {
+sealed class ApiEvent : Comparable<ApiEvent> {
   abstract val ideVersion: IdeVersion
+
+  final override fun compareTo(other: ApiEvent): Int {
+    val versionComparison = ideVersion.compareTo(other.ideVersion)
+    if (versionComparison != 0) {
+      return versionComparison
+    }
+    val kindComparison = getKindOrder().compareTo(other.getKindOrder())
+    if (kindComparison != 0) {
+      return kindComparison
+    }
+    return ideVersion.asString().compareTo(other.ideVersion.asString())
+  }
+
+  private fun getKindOrder() = when (this) {
+    is IntroducedIn -> 0
+    is RemovedIn -> 1
+  }
 }
 
 /**
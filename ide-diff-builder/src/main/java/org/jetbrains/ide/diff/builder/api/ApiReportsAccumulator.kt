@@ -0,0 +1,38 @@
+package org.jetbrains.ide.diff.builder.api
+
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import org.jetbrains.ide.diff.builder.signatures.ApiSignature
+import java.util.*
+
+/**
+ * Accumulates [ApiReport]s of consecutive IDE diffs into one report.
+ *
+ * Unlike [merging] [ApiReportsMerger] the accumulated report with
+ * every next diff, [appending] [append] a report only adds its events
+ * to the index of signatures, so accumulating N diffs takes
+ * time proportional to their total size.
+ *
+ * Signatures of obfuscated-like packages are skipped, as in the [ApiReportsMerger].
+ */
+class ApiReportsAccumulator {
+
+  private val apiSignatureToEvents = hashMapOf<ApiSignature, MutableSet<ApiEvent>>()
+
+  /**
+   * Adds events of the [apiReport] to the accumulated events.
+   */
+  fun append(apiReport: ApiReport) {
+    for ((signature, events) in apiReport.apiSignatureToEvents) {
+      if (!ApiReportsMerger.isBuggySignature(signature)) {
+        apiSignatureToEvents.getOrPut(signature) { TreeSet() } += events
+      }
+    }
+  }
+
+  /**
+   * Returns the report of all the accumulated events built for [ideVersion].
+   * The report is backed by this accumulator, so it reflects further appended reports.
+   */
+  fun toApiReport(ideVersion: IdeVersion) = ApiReport(ideVersion, apiSignatureToEvents)
+
+}
@@ -1,16 +1,29 @@
 package org.jetbrains.ide.diff.builder.api
 
+import com.google.common.collect.Iterators
+import com.jetbrains.plugin.structure.base.utils.closeAll
 import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import org.jetbrains.ide.diff.builder.persistence.ApiReportReader
+import org.jetbrains.ide.diff.builder.persistence.ApiReportWriter
 import org.jetbrains.ide.diff.builder.signatures.ApiSignature
+import java.io.Closeable
+import java.nio.file.Path
+import java.util.*
 
 /**
  * Merges multiple [ApiReport]s into one, fixing ambiguity in history of [ApiEvent]s, if necessary.
+ *
+ * The reports are merged as sequences sorted by [ApiSignature]s,
+ * so every signature is processed once, and the reports saved
+ * to disk can be [merged] [mergeApiReports] without reading them entirely.
  */
 class ApiReportsMerger {
 
-  private fun isBuggySignature(signature: ApiSignature): Boolean {
-    val className = signature.externalPresentation.substringBefore(" ")
-    return IdeDiffBuilder.hasObfuscatedLikePackage(className)
+  companion object {
+    internal fun isBuggySignature(signature: ApiSignature): Boolean {
+      val className = signature.externalPresentation.substringBefore(" ")
+      return IdeDiffBuilder.hasObfuscatedLikePackage(className)
+    }
   }
 
   fun mergeApiReports(resultIdeVersion: IdeVersion, reports: List<ApiReport>): ApiReport {
@@ -21,19 +34,89 @@ class ApiReportsMerger {
       return reports.single().copy(ideBuildNumber = resultIdeVersion)
     }
 
-    val apiSignatureToEvents = hashMapOf<ApiSignature, MutableSet<ApiEvent>>()
-    val processedSignatures = hashSetOf<ApiSignature>()
-    for (report in reports) {
-      for ((signature, _) in report.asSequence()) {
-        if (!isBuggySignature(signature) && processedSignatures.add(signature)) {
-          val mergedEvents = reports.flatMap { it[signature] }.distinct().sortedBy { it.ideVersion }
-          for (event in mergedEvents) {
-            apiSignatureToEvents.getOrPut(signature) { hashSetOf() } += event
+    val apiSignatureToEvents = hashMapOf<ApiSignature, Set<ApiEvent>>()
+    for ((signature, events) in mergeSortedSignatures(reports.map { it.asSortedSequence() })) {
+      apiSignatureToEvents[signature] = events
+    }
+    return ApiReport(resultIdeVersion, apiSignatureToEvents)
+  }
+
+  /**
+   * Merges reports saved to [reportPaths] and saves
+   * the result report of [resultIdeVersion] to [resultPath].
+   *
+   * The reports are read and merged as [sorted sequences] [ApiReportReader.readSortedSignatures],
+   * so only one package of each report is kept in memory at a time.
+   * The result is the same as that of merging the reports read entirely.
+   */
+  fun mergeApiReports(resultIdeVersion: IdeVersion, reportPaths: List<Path>, resultPath: Path) {
+    val readers = arrayListOf<ApiReportReader>()
+    Closeable { readers.closeAll() }.use {
+      for (reportPath in reportPaths) {
+        readers += ApiReportReader(reportPath)
+      }
+      val sortedSignatures = readers.map { it.readSortedSignatures() }
+      ApiReportWriter(resultPath, resultIdeVersion).use { writer ->
+        val mergedSignatures = if (sortedSignatures.size == 1) {
+          groupEvents(sortedSignatures.single().iterator())
+        } else {
+          mergeSortedSignatures(sortedSignatures)
+        }
+        for ((signature, events) in mergedSignatures) {
+          for (event in events) {
+            writer.appendSignature(signature, event)
           }
         }
       }
     }
-    return ApiReport(resultIdeVersion, apiSignatureToEvents)
   }
 
-}
\ No newline at end of file
+  private fun ApiReport.asSortedSequence(): Sequence<Pair<ApiSignature, ApiEvent>> =
+      apiSignatureToEvents.keys
+          .sorted()
+          .asSequence()
+          .flatMap { signature -> apiSignatureToEvents.getValue(signature).sorted().asSequence().map { signature to it } }
+
+  /**
+   * Merges the [sortedReports] by a k-way merge, which keeps only the current
+   * element of each report in a heap, into one sequence of signatures
+   * and their events sorted by [ApiSignature]s.
+   * The events of every signature are united and sorted.
+   */
+  private fun mergeSortedSignatures(
+      sortedReports: List<Sequence<Pair<ApiSignature, ApiEvent>>>
+  ): Sequence<Pair<ApiSignature, Set<ApiEvent>>> {
+    val merged = Iterators.mergeSorted(
+        sortedReports.map { it.iterator() },
+        compareBy<Pair<ApiSignature, ApiEvent>>({ it.first }, { it.second })
+    )
+    return groupEvents(merged).filterNot { (signature, _) -> isBuggySignature(signature) }
+  }
+
+  /**
+   * Groups consecutive events of the same signatures
+   * of the [sortedSignatures] into sorted sets.
+   */
+  private fun groupEvents(sortedSignatures: Iterator<Pair<ApiSignature, ApiEvent>>): Sequence<Pair<ApiSignature, Set<ApiEvent>>> {
+    val iterator = Iterators.peekingIterator(sortedSignatures)
+    var previousSignature: ApiSignature? = null
+    return generateSequence {
+      if (!iterator.hasNext()) {
+        return@generateSequence null
+      }
+      val (signature, firstEvent) = iterator.next()
+      require(previousSignature == null || previousSignature!! < signature) {
+        "Signatures must be sorted: $previousSignature precedes $signature"
+      }
+      previousSignature = signature
+
+      val events = TreeSet<ApiEvent>()
+      events += firstEvent
+      while (iterator.hasNext() && iterator.peek().first.compareTo(signature) == 0) {
+        events += iterator.next().second
+      }
+      signature to events
+    }
+  }
+
+}
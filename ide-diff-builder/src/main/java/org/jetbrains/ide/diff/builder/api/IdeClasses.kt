@@ -0,0 +1,33 @@
+package org.jetbrains.ide.diff.builder.api
+
+import com.jetbrains.plugin.structure.base.utils.closeAll
+import com.jetbrains.plugin.structure.base.utils.closeLogged
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.ide.Ide
+import com.jetbrains.plugin.structure.intellij.classes.plugin.IdePluginClassesLocations
+import java.io.Closeable
+
+/**
+ * Class files of the [ide] [read] [IdeDiffBuilder.readIdeClasses] for building diffs:
+ * - [ideResolver] - classes of the IDE itself
+ * - [bundledPluginsResolver] - classes of the plugins bundled into the IDE
+ *
+ * The classes are read once and may be shared by
+ * concurrent diffs of the [ide] with several other IDEs.
+ * They must be closed after use.
+ */
+class IdeClasses internal constructor(
+    val ide: Ide,
+    internal val ideResolver: Resolver,
+    internal val bundledPluginsResolver: Resolver,
+    private val bundledPluginsClassesLocations: List<IdePluginClassesLocations>
+) : Closeable {
+
+  override fun toString() = ide.version.toString()
+
+  override fun close() {
+    ideResolver.closeLogged()
+    bundledPluginsClassesLocations.closeAll()
+  }
+
+}
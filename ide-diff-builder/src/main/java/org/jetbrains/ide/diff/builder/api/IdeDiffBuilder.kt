@@ -1,5 +1,7 @@
 package org.jetbrains.ide.diff.builder.api
 
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
 import com.jetbrains.plugin.structure.base.utils.closeAll
 import com.jetbrains.plugin.structure.classes.jdk.JdkResolverCreator
 import com.jetbrains.plugin.structure.classes.resolvers.CacheResolver
@@ -12,10 +14,11 @@ import com.jetbrains.plugin.structure.intellij.classes.locator.CompileServerExte
 import com.jetbrains.plugin.structure.intellij.classes.plugin.IdePluginClassesFinder
 import com.jetbrains.plugin.structure.intellij.classes.plugin.IdePluginClassesLocations
 import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
+import com.jetbrains.pluginverifier.misc.closeOnException
+import com.jetbrains.pluginverifier.misc.singletonOrEmpty
 import com.jetbrains.pluginverifier.parameters.jdk.JdkPath
 import com.jetbrains.pluginverifier.results.presentation.toFullJavaClassName
 import com.jetbrains.pluginverifier.verifiers.*
-import com.jetbrains.pluginverifier.verifiers.logic.hierarchy.ClassParentsVisitor
 import org.jetbrains.ide.diff.builder.signatures.ApiSignature
 import org.jetbrains.ide.diff.builder.signatures.getJavaPackageName
 import org.jetbrains.ide.diff.builder.signatures.toSignature
@@ -25,12 +28,21 @@ import org.objectweb.asm.tree.MethodNode
 import org.slf4j.LoggerFactory
 import java.io.Closeable
 import java.nio.file.Path
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
 import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * Builder of [ApiReport] by APIs difference of two IDEs.
+ *
+ * Classes of the IDEs are compared on the [forkJoinPool],
+ * which may be shared by several diffs built concurrently.
  */
-class IdeDiffBuilder(private val interestingPackages: List<String>, private val jdkPath: JdkPath) {
+class IdeDiffBuilder(
+    private val interestingPackages: List<String>,
+    private val jdkPath: JdkPath,
+    private val forkJoinPool: ForkJoinPool
+) {
 
   companion object {
     private val LOG = LoggerFactory.getLogger(IdeDiffBuilder::class.java)
@@ -40,6 +52,17 @@ class IdeDiffBuilder(private val interestingPackages: List<String>, private val
      */
     private val IGNORED_PLUGIN_IDS = setOf("org.jetbrains.kotlin", "org.jetbrains.android")
 
+    /**
+     * Maximum number of classes whose overridable methods are cached.
+     */
+    private const val OVERRIDABLE_METHODS_CACHE_SIZE = 4096L
+
+    /**
+     * Memory budget, in bytes, of the classes of each IDE's resolver cached
+     * while the IDE is open, so the classes are read once for both diffs with its neighbours.
+     */
+    private const val IDE_CLASSES_CACHE_WEIGHT = 64L * 1024 * 1024
+
     private val knownObfuscatedPackages = listOf(
         "a",
         "b",
@@ -64,15 +87,28 @@ class IdeDiffBuilder(private val interestingPackages: List<String>, private val
     return buildIdeDiff(oldIde, newIde)
   }
 
-  fun buildIdeDiff(oldIde: Ide, newIde: Ide): ApiReport {
+  fun buildIdeDiff(oldIde: Ide, newIde: Ide): ApiReport =
+      readIdeClasses(oldIde).use { oldIdeClasses ->
+        readIdeClasses(newIde).use { newIdeClasses ->
+          buildIdeDiff(oldIdeClasses, newIdeClasses)
+        }
+      }
+
+  /**
+   * Builds the [ApiReport] by the IDEs' classes, which
+   * may be shared by several diffs built concurrently.
+   */
+  fun buildIdeDiff(oldIdeClasses: IdeClasses, newIdeClasses: IdeClasses): ApiReport {
     val introducedData = hashSetOf<ApiSignature>()
     val removedData = hashSetOf<ApiSignature>()
+    val newIdeVersion = newIdeClasses.ide.version
     return JdkResolverCreator.createJdkResolver(Resolver.ReadMode.SIGNATURES, jdkPath.jdkPath.toFile()).use { jdkResolver ->
-      appendIdeCoreData(oldIde, newIde, jdkResolver, introducedData, removedData)
-      appendBundledPluginsData(oldIde, newIde, jdkResolver, introducedData, removedData)
+      val cachedJdkResolver = CacheResolver(jdkResolver)
+      appendData(oldIdeClasses.ideResolver, newIdeClasses.ideResolver, cachedJdkResolver, introducedData, removedData)
+      appendData(oldIdeClasses.bundledPluginsResolver, newIdeClasses.bundledPluginsResolver, cachedJdkResolver, introducedData, removedData)
       val apiSignatureToEvents = hashMapOf<ApiSignature, MutableSet<ApiEvent>>()
-      val introducedIn = IntroducedIn(newIde.version)
-      val removedIn = RemovedIn(newIde.version)
+      val introducedIn = IntroducedIn(newIdeVersion)
+      val removedIn = RemovedIn(newIdeVersion)
 
       for (signature in introducedData) {
         apiSignatureToEvents.getOrPut(signature) { hashSetOf() } += introducedIn
@@ -81,42 +117,38 @@ class IdeDiffBuilder(private val interestingPackages: List<String>, private val
         apiSignatureToEvents.getOrPut(signature) { hashSetOf() } += removedIn
       }
 
-      ApiReport(newIde.version, apiSignatureToEvents)
+      ApiReport(newIdeVersion, apiSignatureToEvents)
     }
   }
 
-  private fun appendIdeCoreData(
-      oldIde: Ide,
-      newIde: Ide,
-      jdkResolver: Resolver,
-      introducedData: MutableSet<ApiSignature>,
-      removedData: MutableSet<ApiSignature>
-  ) {
-    IdeResolverCreator.createIdeResolver(Resolver.ReadMode.SIGNATURES, oldIde).use { oldIdeResolver ->
-      IdeResolverCreator.createIdeResolver(Resolver.ReadMode.SIGNATURES, newIde).use { newIdeResolver ->
-        appendData(oldIdeResolver, newIdeResolver, jdkResolver, introducedData, removedData)
-      }
+  /**
+   * Reads class files of the [ide] and its bundled plugins,
+   * which are compared by [buildIdeDiff].
+   *
+   * The classes found are cached, so they are
+   * read once for all the diffs of the [ide].
+   */
+  fun readIdeClasses(ide: Ide): IdeClasses {
+    val bundledPluginsClassesLocations = readBundledPluginsClassesLocations(ide)
+    return Closeable { bundledPluginsClassesLocations.closeAll() }.closeOnException {
+      val bundledPluginsResolver = UnionResolver.create(bundledPluginsClassesLocations.map { it.getPluginClassesResolver() })
+      val ideResolver = IdeResolverCreator.createIdeResolver(Resolver.ReadMode.SIGNATURES, ide)
+      IdeClasses(ide, createIdeClassesCache(ideResolver), createIdeClassesCache(bundledPluginsResolver), bundledPluginsClassesLocations)
     }
   }
 
-  private fun appendBundledPluginsData(
-      oldIde: Ide,
-      newIde: Ide,
-      jdkResolver: Resolver,
-      introducedData: MutableSet<ApiSignature>,
-      removedData: MutableSet<ApiSignature>
-  ) {
-    val oldPluginClassLocations = readBundledPluginsClassesLocations(oldIde)
-    Closeable { oldPluginClassLocations.closeAll() }.use {
-      val newPluginClassLocations = readBundledPluginsClassesLocations(newIde)
-      Closeable { newPluginClassLocations.closeAll() }.use {
-        val oldAllPluginsResolver = oldPluginClassLocations.map { it.getPluginClassesResolver() }.let { UnionResolver.create(it) }
-        val newAllPluginsResolver = newPluginClassLocations.map { it.getPluginClassesResolver() }.let { UnionResolver.create(it) }
-        appendData(oldAllPluginsResolver, newAllPluginsResolver, jdkResolver, introducedData, removedData)
-      }
-    }
-  }
+  private fun createIdeClassesCache(resolver: Resolver) =
+      CacheResolver(resolver, IDE_CLASSES_CACHE_WEIGHT, true, forkJoinPool.parallelism)
 
+  /**
+   * Compares the classes in parallel, partitioned by packages,
+   * and appends the signatures to [introducedData] and [removedData]
+   * in the same order as if the classes were compared one by one,
+   * so the resulting [ApiReport] doesn't depend on the scheduling.
+   *
+   * If the current thread is interrupted, the comparison is stopped
+   * and awaited, so the resolvers are not used after this method returns.
+   */
   private fun appendData(
       oldResolver: Resolver,
       newResolver: Resolver,
@@ -124,28 +156,73 @@ class IdeDiffBuilder(private val interestingPackages: List<String>, private val
       introducedData: MutableSet<ApiSignature>,
       removedData: MutableSet<ApiSignature>
   ) {
-    val completeOldResolver = CacheResolver(UnionResolver.create(listOf(oldResolver, jdkResolver)))
-    val completeNewResolver = CacheResolver(UnionResolver.create(listOf(newResolver, jdkResolver)))
+    val completeOldResolver = UnionResolver.create(listOf(oldResolver, jdkResolver))
+    val completeNewResolver = UnionResolver.create(listOf(newResolver, jdkResolver))
+    val oldOverridableMethods = OverridableMethods(completeOldResolver)
+    val newOverridableMethods = OverridableMethods(completeNewResolver)
 
     val allClasses: Set<String> = oldResolver.allClasses + newResolver.allClasses
-    for (className in allClasses) {
-      if (isIgnoredClassName(className)) {
-        continue
+    val classNames = allClasses.filterNot { isIgnoredClassName(it) }
+    val classesDiffs = arrayOfNulls<ClassApiDiff>(classNames.size)
+    val packagesClassIndices = classNames.indices.groupBy { classNames[it].substringBeforeLast('/', "") }.values
+
+    val cancelled = AtomicBoolean()
+    val comparison = forkJoinPool.submit(Runnable {
+      packagesClassIndices.parallelStream().forEach { classIndices ->
+        for (index in classIndices) {
+          if (cancelled.get()) {
+            return@forEach
+          }
+          classesDiffs[index] = diffClass(classNames[index], oldOverridableMethods, newOverridableMethods)
+        }
       }
+    })
+    try {
+      comparison.get()
+    } catch (e: ExecutionException) {
+      throw e.cause ?: e
+    } catch (e: InterruptedException) {
+      cancelled.set(true)
+      comparison.quietlyJoin()
+      throw e
+    }
 
-      val oldClass = completeOldResolver.safeFindClass(className)
-      val newClass = completeNewResolver.safeFindClass(className)
-      if (oldClass == null && newClass == null) {
-        continue
+    for (classDiff in classesDiffs) {
+      if (classDiff != null) {
+        introducedData += classDiff.introducedData
+        removedData += classDiff.removedData
       }
+    }
+  }
 
-      if (newClass != null && newClass.isAccessible() && !newClass.isIgnored()) {
-        findAddedApi(oldClass, newClass, completeOldResolver, completeNewResolver, introducedData)
-      }
-      if (oldClass != null && oldClass.isAccessible() && !oldClass.isIgnored()) {
-        findRemovedApi(oldClass, newClass, completeOldResolver, completeNewResolver, removedData)
-      }
+  /**
+   * Signatures introduced and removed in one class.
+   */
+  private class ClassApiDiff(val introducedData: List<ApiSignature>, val removedData: List<ApiSignature>)
+
+  private fun diffClass(
+      className: String,
+      oldOverridableMethods: OverridableMethods,
+      newOverridableMethods: OverridableMethods
+  ): ClassApiDiff? {
+    val oldClass = oldOverridableMethods.resolver.safeFindClass(className)
+    val newClass = newOverridableMethods.resolver.safeFindClass(className)
+    if (oldClass == null && newClass == null) {
+      return null
+    }
+
+    val introducedData = arrayListOf<ApiSignature>()
+    val removedData = arrayListOf<ApiSignature>()
+    if (newClass != null && newClass.isAccessible() && !newClass.isIgnored()) {
+      findAddedApi(oldClass, newClass, oldOverridableMethods.resolver, newOverridableMethods, introducedData)
+    }
+    if (oldClass != null && oldClass.isAccessible() && !oldClass.isIgnored()) {
+      findRemovedApi(oldClass, newClass, oldOverridableMethods, newOverridableMethods.resolver, removedData)
     }
+    if (introducedData.isEmpty() && removedData.isEmpty()) {
+      return null
+    }
+    return ClassApiDiff(introducedData, removedData)
   }
 
   /**
@@ -155,8 +232,8 @@ class IdeDiffBuilder(private val interestingPackages: List<String>, private val
       oldClass: ClassNode?,
       newClass: ClassNode,
       oldResolver: Resolver,
-      newResolver: Resolver,
-      introducedData: MutableSet<ApiSignature>
+      newOverridableMethods: OverridableMethods,
+      introducedData: MutableList<ApiSignature>
   ) {
     if (oldClass == null || !oldClass.isAccessible()) {
       val outerClassName = getOuterClassName(newClass.name)
@@ -168,28 +245,25 @@ class IdeDiffBuilder(private val interestingPackages: List<String>, private val
       return
     }
 
+    val oldMethods = oldClass.getApiMethods()
+    val inheritedMethods by lazy(LazyThreadSafetyMode.NONE) { newOverridableMethods.getInheritedMethods(newClass) }
     for (newMethod in newClass.getMethods().orEmpty()) {
-      if (!newMethod.isAccessible() || newMethod.isIgnored() || isMethodOverriding(newMethod, newClass, newResolver)) {
+      if (!newMethod.isAccessible() || newMethod.isIgnored() || isMethodOverriding(newMethod) { inheritedMethods }) {
         continue
       }
 
-      val oldMethod = oldClass.getMethods()?.find {
-        it.name == newMethod.name && it.desc == newMethod.desc && it.isAccessible() && !it.isIgnored()
-      }
-      if (oldMethod == null) {
+      if (MemberSignature(newMethod.name, newMethod.desc) !in oldMethods) {
         introducedData += createMethodLocation(newClass, newMethod).toSignature()
       }
     }
 
+    val oldFields = oldClass.getApiFields()
     for (newField in newClass.getFields().orEmpty()) {
       if (!newField.isAccessible() || newField.isIgnored()) {
         continue
       }
 
-      val oldField = oldClass.getFields()?.find {
-        it.name == newField.name && it.desc == newField.desc && it.isAccessible() && !it.isIgnored()
-      }
-      if (oldField == null) {
+      if (MemberSignature(newField.name, newField.desc) !in oldFields) {
         introducedData += createFieldLocation(newClass, newField).toSignature()
       }
     }
@@ -201,9 +275,9 @@ class IdeDiffBuilder(private val interestingPackages: List<String>, private val
   private fun findRemovedApi(
       oldClass: ClassNode,
       newClass: ClassNode?,
-      oldResolver: Resolver,
+      oldOverridableMethods: OverridableMethods,
       newResolver: Resolver,
-      removedData: MutableSet<ApiSignature>
+      removedData: MutableList<ApiSignature>
   ) {
     if (newClass == null || !newClass.isAccessible()) {
       val outerClassName = getOuterClassName(oldClass.name)
@@ -215,28 +289,25 @@ class IdeDiffBuilder(private val interestingPackages: List<String>, private val
       return
     }
 
+    val newMethods = newClass.getApiMethods()
+    val inheritedMethods by lazy(LazyThreadSafetyMode.NONE) { oldOverridableMethods.getInheritedMethods(oldClass) }
     for (oldMethod in oldClass.getMethods().orEmpty()) {
-      if (!oldMethod.isAccessible() || oldMethod.isIgnored() || isMethodOverriding(oldMethod, oldClass, oldResolver)) {
+      if (!oldMethod.isAccessible() || oldMethod.isIgnored() || isMethodOverriding(oldMethod) { inheritedMethods }) {
         continue
       }
 
-      val newMethod = newClass.getMethods()?.find {
-        it.name == oldMethod.name && it.desc == oldMethod.desc && it.isAccessible() && !it.isIgnored()
-      }
-      if (newMethod == null) {
+      if (MemberSignature(oldMethod.name, oldMethod.desc) !in newMethods) {
         removedData += createMethodLocation(oldClass, oldMethod).toSignature()
       }
     }
 
+    val newFields = newClass.getApiFields()
     for (oldField in oldClass.getFields().orEmpty()) {
       if (!oldField.isAccessible() || oldField.isIgnored()) {
         continue
       }
 
-      val newField = newClass.getFields()?.find {
-        it.name == oldField.name && it.desc == oldField.desc && it.isAccessible() && !it.isIgnored()
-      }
-      if (newField == null) {
+      if (MemberSignature(oldField.name, oldField.desc) !in newFields) {
         removedData += createFieldLocation(oldClass, oldField).toSignature()
       }
     }
@@ -261,7 +332,27 @@ class IdeDiffBuilder(private val interestingPackages: List<String>, private val
     }
   }
 
-  private fun isMethodOverriding(methodNode: MethodNode, classNode: ClassNode, resolver: Resolver): Boolean {
+  /**
+   * Name and descriptor of a method or a field.
+   */
+  private data class MemberSignature(val name: String, val desc: String)
+
+  private fun ClassNode.getApiMethods(): Set<MemberSignature> =
+      getMethods().orEmpty()
+          .filter { it.isAccessible() && !it.isIgnored() }
+          .mapTo(hashSetOf()) { MemberSignature(it.name, it.desc) }
+
+  private fun ClassNode.getApiFields(): Set<MemberSignature> =
+      getFields().orEmpty()
+          .filter { it.isAccessible() && !it.isIgnored() }
+          .mapTo(hashSetOf()) { MemberSignature(it.name, it.desc) }
+
+  /**
+   * Returns `true` if the [methodNode] overrides any of
+   * the [inheritedMethods] of the class's supertypes.
+   * They are requested only for the methods that may override.
+   */
+  private fun isMethodOverriding(methodNode: MethodNode, inheritedMethods: () -> Set<MemberSignature>): Boolean {
     if (methodNode.isConstructor()
         || methodNode.isClassInitializer()
         || methodNode.isStatic()
@@ -270,27 +361,60 @@ class IdeDiffBuilder(private val interestingPackages: List<String>, private val
     ) {
       return false
     }
+    return MemberSignature(methodNode.name, methodNode.desc) in inheritedMethods()
+  }
 
-    val parentsVisitor = ClassParentsVisitor(true) { _, parentClassName ->
-      resolver.safeFindClass(parentClassName)
-    }
+  /**
+   * Signatures of methods that may be overridden in subclasses,
+   * that is non-static, non-private and non-package-private methods,
+   * declared in the classes resolved by [resolver] and in their supertypes.
+   *
+   * The signatures of each class's hierarchy are cached,
+   * so the common supertypes are visited once.
+   * This class is thread safe.
+   */
+  private inner class OverridableMethods(val resolver: Resolver) {
 
-    val isOverriding = AtomicBoolean()
-    parentsVisitor.visitClass(classNode, false, onEnter = { parentClass ->
-      val hasSameMethod = parentClass.getMethods().orEmpty().any {
-        it.name == methodNode.name
-            && it.desc == methodNode.desc
-            && !it.isStatic()
-            && !it.isPrivate()
-            && !it.isDefaultAccess()
-      }
-      if (hasSameMethod) {
-        isOverriding.set(true)
+    private val classesMethods: Cache<String, Set<MemberSignature>> = CacheBuilder.newBuilder()
+        .maximumSize(OVERRIDABLE_METHODS_CACHE_SIZE)
+        .build()
+
+    /**
+     * Classes being visited by the current thread,
+     * which protects against cycles in invalid hierarchies.
+     */
+    private val visitingClasses = ThreadLocal.withInitial { hashSetOf<String>() }
+
+    /**
+     * Returns signatures of overridable methods of all supertypes of the [classNode].
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun getInheritedMethods(classNode: ClassNode): MutableSet<MemberSignature> {
+      val visiting = visitingClasses.get()
+      visiting.add(classNode.name)
+      try {
+        val inheritedMethods = hashSetOf<MemberSignature>()
+        for (parentName in classNode.superName.singletonOrEmpty() + classNode.interfaces as List<String>) {
+          if (parentName !in visiting) {
+            inheritedMethods += getClassMethods(parentName)
+          }
+        }
+        return inheritedMethods
+      } finally {
+        visiting.remove(classNode.name)
       }
-      !isOverriding.get()
-    }, onExit = {})
+    }
 
-    return isOverriding.get()
+    private fun getClassMethods(className: String): Set<MemberSignature> {
+      classesMethods.getIfPresent(className)?.let { return it }
+      val classNode = resolver.safeFindClass(className) ?: return emptySet()
+      val classMethods = getInheritedMethods(classNode)
+      classNode.getMethods().orEmpty()
+          .filter { !it.isStatic() && !it.isPrivate() && !it.isDefaultAccess() }
+          .mapTo(classMethods) { MemberSignature(it.name, it.desc) }
+      classesMethods.put(className, classMethods)
+      return classMethods
+    }
   }
 
   /**
@@ -1,17 +1,18 @@
 package org.jetbrains.ide.diff.builder.cli
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder
+import com.jetbrains.plugin.structure.ide.IdeManager
 import com.jetbrains.plugin.structure.intellij.version.IdeVersion
 import com.jetbrains.pluginverifier.ide.IdeFilesBank
 import com.jetbrains.pluginverifier.ide.IntelliJIdeRepository
 import com.jetbrains.pluginverifier.misc.*
-import com.jetbrains.pluginverifier.parameters.jdk.JdkPath
 import com.jetbrains.pluginverifier.repository.cleanup.DiskSpaceSetting
 import com.jetbrains.pluginverifier.repository.cleanup.SpaceAmount
 import com.jetbrains.pluginverifier.repository.files.FileLock
 import com.sampullara.cli.Args
 import com.sampullara.cli.Argument
 import org.jetbrains.ide.diff.builder.api.*
+import org.jetbrains.ide.diff.builder.persistence.AccumulatedReportCheckpoint
 import org.jetbrains.ide.diff.builder.persistence.ApiReportReader
 import org.jetbrains.ide.diff.builder.persistence.saveTo
 import org.jetbrains.ide.diff.builder.signatures.ApiSignature
@@ -19,9 +20,8 @@ import org.slf4j.LoggerFactory
 import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.Paths
-import java.util.concurrent.ExecutionException
 import java.util.concurrent.Executors
-import java.util.concurrent.Future
+import java.util.concurrent.ForkJoinPool
 
 /**
  * Builds API annotations artifacts for IDEs from the IntelliJ Artifacts Repositories
@@ -34,8 +34,20 @@ class BuildApiAnnotationsCommand : Command {
 
     private val MIN_BUILD_NUMBER = IdeVersion.createIdeVersion("171.1")
 
+    /**
+     * Number of IDE diffs accumulated between saving of [checkpoints] [getCheckpointPath].
+     */
+    private const val CHECKPOINT_INTERVAL = 50
+
     private fun getDiffsPath(resultsDirectory: Path) = resultsDirectory.resolve("diffs")
 
+    /**
+     * Path to the [checkpoint] [AccumulatedReportCheckpoint] of the report accumulated
+     * from the IDE diffs, which is used to resume accumulation of
+     * the diffs after a failure or when new IDEs are published.
+     */
+    private fun getCheckpointPath(resultsDirectory: Path) = resultsDirectory.resolve("accumulated-checkpoint.zip")
+
     private fun getIdeDiffPath(resultsDirectory: Path, oneIdeVersion: IdeVersion, twoIdeVersion: IdeVersion): Path =
         getDiffsPath(resultsDirectory).resolve("$oneIdeVersion-vs-$twoIdeVersion.zip")
 
@@ -65,13 +77,18 @@ class BuildApiAnnotationsCommand : Command {
       https://www.jetbrains.com/intellij-repository/releases/ and https://www.jetbrains.com/intellij-repository/snapshots
       It saves them under results directory with names like `ideaIU-191.1234-annotations.zip`.
 
-      build-api-annotations [-ides-dir <IDE cache dir] [-jdk-path <path to JDK home>] [-packages "org.some;com.another"] <results directory>
+      build-api-annotations [-ides-dir <IDE cache dir] [-jdk-path <path to JDK home>] [-packages "org.some;com.another"] [-concurrent-diffs <number>] <results directory>
     """.trimIndent()
 
   open class CliOptions : IdeDiffCommand.CliOptions() {
     @set:Argument("ides-dir", description = "Path where downloaded IDE builds are cached")
     var idesDirPath: String? = null
 
+    @set:Argument("concurrent-diffs", description = "Number of IDE diffs built concurrently. " +
+        "At most this number plus two IDEs are kept open, and classes of each open IDE are cached by its two resolvers " +
+        "in up to 64 MB each, so the caches take up to (this number + 2) * 128 MB of memory. By default it is 2.")
+    var concurrentDiffs: Int = 2
+
     fun getIdesDirectory(): Path =
         if (idesDirPath != null) {
           Paths.get(idesDirPath)
@@ -119,19 +136,26 @@ class BuildApiAnnotationsCommand : Command {
       val diffsPath = getDiffsPath(resultsDirectory)
       LOG.info("Removing all existing IDE diffs from $diffsPath")
       diffsPath.deleteLogged()
+      AccumulatedReportCheckpoint(getCheckpointPath(resultsDirectory)).delete()
     }
 
     check(idesToProcess.size > 1) { "Too few IDE builds to process: ${idesToProcess.size}" }
 
     LOG.info("Building IDE diffs for ${idesToProcess.size} adjacent IDEs: " + idesToProcess.joinToString())
-    val ideDiffs = buildAdjacentIdeDiffs(idesToProcess, resultsDirectory, ideFilesBank, packages, jdkPath)
+    val concurrentDiffs = cliOptions.concurrentDiffs
+    require(concurrentDiffs > 0) { "Number of concurrent IDE diffs must be positive: $concurrentDiffs" }
+    val classesDiffPool = ForkJoinPool(Runtime.getRuntime().availableProcessors())
+    val ideDiffs = try {
+      val ideDiffBuilder = IdeDiffBuilder(packages, jdkPath, classesDiffPool)
+      buildAdjacentIdeDiffs(idesToProcess, resultsDirectory, ideFilesBank, ideDiffBuilder, concurrentDiffs)
+    } finally {
+      classesDiffPool.shutdown()
+    }
 
     LOG.info("Merging all IDE diffs into one accumulated report")
-    var accumulatedReport: ApiReport = ApiReportReader.readFrom(ideDiffs.first().reportPath)
-    for (ideDiff in ideDiffs.drop(1)) {
-      val apiReport = ApiReportReader.readFrom(ideDiff.reportPath)
-      accumulatedReport = ApiReportsMerger().mergeApiReports(ideDiff.newIdeVersion, listOf(accumulatedReport, apiReport))
-    }
+    val checkpoint = AccumulatedReportCheckpoint(getCheckpointPath(resultsDirectory))
+    val accumulatedReport = accumulateIdeDiffs(ideDiffs, checkpoint)
+    checkpoint.save(accumulatedReport, ideDiffs.map { it.reportPath.simpleName })
 
     val accumulatedPath = resultsDirectory.resolve("accumulated-up-to-${idesToProcess.last()}.zip")
     accumulatedReport.saveTo(accumulatedPath)
@@ -151,40 +175,78 @@ class BuildApiAnnotationsCommand : Command {
     }
   }
 
-  private data class IdeDiff(val reportPath: Path, val oldIdeVersion: IdeVersion, val newIdeVersion: IdeVersion)
+  /**
+   * Accumulates the [ideDiffs] into one report, reading each diff once.
+   *
+   * The accumulation starts from the [checkpoint], if it has been saved
+   * for the first of the [ideDiffs], and saves the checkpoint every [CHECKPOINT_INTERVAL] diffs.
+   */
+  private fun accumulateIdeDiffs(ideDiffs: List<IdeDiff>, checkpoint: AccumulatedReportCheckpoint): ApiReport {
+    val accumulator = ApiReportsAccumulator()
+    val diffNames = ideDiffs.map { it.reportPath.simpleName }
+    var appliedDiffs = 0
+
+    val resumedCheckpoint = checkpoint.readResumable(diffNames)
+    if (resumedCheckpoint != null) {
+      appliedDiffs = resumedCheckpoint.appendedReports.size
+      LOG.info("Resuming accumulation of IDE diffs from the checkpoint of $appliedDiffs diffs")
+      accumulator.append(resumedCheckpoint.apiReport)
+    }
 
+    for (ideDiff in ideDiffs.drop(appliedDiffs)) {
+      LOG.info("____Accumulating IDE diff between ${ideDiff.oldIdeVersion} and ${ideDiff.newIdeVersion}")
+      accumulator.append(ApiReportReader.readFrom(ideDiff.reportPath))
+      appliedDiffs++
+      if (appliedDiffs % CHECKPOINT_INTERVAL == 0 && appliedDiffs < ideDiffs.size) {
+        LOG.info("____Saving checkpoint of the accumulated report up to ${ideDiff.newIdeVersion}")
+        checkpoint.save(accumulator.toApiReport(ideDiff.newIdeVersion), diffNames.subList(0, appliedDiffs))
+      }
+    }
+    return accumulator.toApiReport(ideDiffs.last().newIdeVersion)
+  }
+
+  /**
+   * Builds the missing diffs of adjacent IDEs by the [IdeDiffsPipeline],
+   * which reads classes of every IDE once and shares them by both diffs with its neighbours.
+   */
   private fun buildAdjacentIdeDiffs(
       idesToProcess: List<IdeVersion>,
       resultsDirectory: Path,
       ideFilesBank: IdeFilesBank,
-      packages: List<String>,
-      jdkPath: JdkPath
+      ideDiffBuilder: IdeDiffBuilder,
+      concurrentDiffs: Int
   ): List<IdeDiff> {
-    val ideDiffs = arrayListOf<IdeDiff>()
-    for (index in 1 until idesToProcess.size) {
+    val ideDiffs = (1 until idesToProcess.size).map { index ->
       val previousIdeVersion = idesToProcess[index - 1]
       val currentIdeVersion = idesToProcess[index]
-
-      LOG.info("____Building IDE diff ($index of ${idesToProcess.size - 1}) between $previousIdeVersion and $currentIdeVersion")
-
-      val ideDiffPath = getIdeDiffPath(resultsDirectory, previousIdeVersion, currentIdeVersion)
-      if (ideDiffPath.exists()) {
-        LOG.info("________IDE diff between $previousIdeVersion and $currentIdeVersion is already built")
-      } else {
-        val apiReport = buildIdeDiffBetweenIdes(previousIdeVersion, currentIdeVersion, ideFilesBank, packages, jdkPath)
-        LOG.info("________Saving IDE diff between $previousIdeVersion and $currentIdeVersion to $ideDiffPath")
-        apiReport.saveTo(ideDiffPath)
-      }
-      ideDiffs += IdeDiff(ideDiffPath, previousIdeVersion, currentIdeVersion)
+      IdeDiff(getIdeDiffPath(resultsDirectory, previousIdeVersion, currentIdeVersion), previousIdeVersion, currentIdeVersion)
+    }
+    val missingDiffs = ideDiffs.filterNot { it.reportPath.exists() }
+    LOG.info("${ideDiffs.size - missingDiffs.size} of ${ideDiffs.size} IDE diffs are already built")
+    if (missingDiffs.isNotEmpty()) {
+      val pipeline = IdeDiffsPipeline(
+          concurrentDiffs,
+          ioExecutor,
+          { ideVersion -> ideFilesBank.downloadIde(ideVersion) },
+          { _, ideFileLock -> ideDiffBuilder.readIdeClasses(IdeManager.createManager().createIde(ideFileLock.file.toFile())) },
+          { ideDiff, oldIdeClasses, newIdeClasses -> buildIdeDiff(ideDiff, oldIdeClasses, newIdeClasses, ideDiffBuilder) }
+      )
+      pipeline.buildIdeDiffs(missingDiffs)
     }
     return ideDiffs
   }
 
+  private fun buildIdeDiff(ideDiff: IdeDiff, oldIdeClasses: IdeClasses, newIdeClasses: IdeClasses, ideDiffBuilder: IdeDiffBuilder) {
+    LOG.info("____Building IDE diff between ${ideDiff.oldIdeVersion} and ${ideDiff.newIdeVersion}")
+    val apiReport = ideDiffBuilder.buildIdeDiff(oldIdeClasses, newIdeClasses)
+    LOG.info("________Saving IDE diff between ${ideDiff.oldIdeVersion} and ${ideDiff.newIdeVersion} to ${ideDiff.reportPath}")
+    apiReport.saveTo(ideDiff.reportPath)
+  }
+
   private fun buildApiAnnotations(mergedReport: ApiReport, ideVersion: IdeVersion): ApiReport {
     val apiSignatureToEvents = hashMapOf<ApiSignature, Set<ApiEvent>>()
 
-    val allSignatures = mergedReport.asSequence().map { it.first }.distinct()
-    for (signature in allSignatures) {
+    for (signature in mergedReport.apiSignatureToEvents.keys) {
       val events = mergedReport[signature]
       if (events.isEmpty()) {
         continue
@@ -220,43 +282,6 @@ class BuildApiAnnotationsCommand : Command {
     return IdeFilesBank(idesDir, allIdeMergingRepository, diskSpaceSetting)
   }
 
-  private fun buildIdeDiffBetweenIdes(
-      oldIdeVersion: IdeVersion,
-      newIdeVersion: IdeVersion,
-      ideFilesBank: IdeFilesBank,
-      packages: List<String>,
-      jdkPath: JdkPath
-  ): ApiReport {
-    val oldIdeTask = ideFilesBank.downloadIdeAsync(oldIdeVersion)
-    val newIdeTask = ideFilesBank.downloadIdeAsync(newIdeVersion)
-
-    val (oldIdeFile, oldException) = oldIdeTask.getOrException()
-    val (newIdeFile, newException) = newIdeTask.getOrException()
-
-    try {
-      if (oldException != null) throw oldException
-      if (newException != null) throw newException
-      LOG.info("________Both IDEs have been downloaded, building their diff")
-      return IdeDiffBuilder(packages, jdkPath).buildIdeDiff(oldIdeFile!!.file, newIdeFile!!.file)
-    } finally {
-      oldIdeFile.closeLogged()
-      newIdeFile.closeLogged()
-    }
-  }
-
-  private fun <T> Future<T>.getOrException(): Pair<T?, Throwable?> {
-    return try {
-      get() to null
-    } catch (e: ExecutionException) {
-      null to e.cause!!
-    } catch (e: Throwable) {
-      null to e
-    }
-  }
-
-  private fun IdeFilesBank.downloadIdeAsync(ideVersion: IdeVersion): Future<FileLock> =
-      ioExecutor.submit<FileLock> { downloadIde(ideVersion) }
-
   private fun IdeFilesBank.downloadIde(ideVersion: IdeVersion): FileLock {
     val message = "________Downloading $ideVersion"
     LOG.info(message)
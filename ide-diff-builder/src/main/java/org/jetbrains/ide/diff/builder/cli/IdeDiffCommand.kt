@@ -8,6 +8,7 @@ import org.jetbrains.ide.diff.builder.api.IdeDiffBuilder
 import org.jetbrains.ide.diff.builder.persistence.saveTo
 import org.slf4j.LoggerFactory
 import java.nio.file.Paths
+import java.util.concurrent.ForkJoinPool
 
 /**
  * Builds API diff between two IDE builds and saves the result as external annotations root.
@@ -55,7 +56,12 @@ class IdeDiffCommand : Command {
       "The following packages will be processed: " + packages.joinToString()
     })
 
-    val apiReport = IdeDiffBuilder(packages, jdkPath).buildIdeDiff(oldIdePath, newIdePath)
+    val forkJoinPool = ForkJoinPool(Runtime.getRuntime().availableProcessors())
+    val apiReport = try {
+      IdeDiffBuilder(packages, jdkPath, forkJoinPool).buildIdeDiff(oldIdePath, newIdePath)
+    } finally {
+      forkJoinPool.shutdown()
+    }
     apiReport.saveTo(resultRoot)
 
     LOG.info("API diff between ${newIdePath.simpleName} and ${oldIdePath.simpleName} is saved to ${resultRoot.simpleName}")
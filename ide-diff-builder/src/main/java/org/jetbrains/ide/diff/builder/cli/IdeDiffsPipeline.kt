@@ -0,0 +1,199 @@
+package org.jetbrains.ide.diff.builder.cli
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.misc.closeLogged
+import com.jetbrains.pluginverifier.misc.closeOnException
+import com.jetbrains.pluginverifier.repository.files.FileLock
+import org.slf4j.LoggerFactory
+import java.io.Closeable
+import java.nio.file.Path
+import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Diff between IDEs [oldIdeVersion] and [newIdeVersion] saved to [reportPath].
+ */
+data class IdeDiff(val reportPath: Path, val oldIdeVersion: IdeVersion, val newIdeVersion: IdeVersion)
+
+/**
+ * Builds diffs of IDEs as a pipeline.
+ *
+ * The IDEs are opened one after another, while the next one is being downloaded on the [ioExecutor],
+ * and every IDE is opened once and shared by all its diffs.
+ * Once an IDE is opened, its diffs with the previous IDEs are built in one of [concurrentDiffs] threads,
+ * and the IDE is closed as soon as all its diffs are built. Opening of the next IDEs
+ * is suspended while [concurrentDiffs] + 2 IDEs are open.
+ *
+ * @param downloadIde downloads the IDE and returns the lock of its file
+ * @param openIde opens the downloaded IDE, so its diffs can be built
+ * @param buildIdeDiff builds the diff of the opened IDEs and saves it
+ */
+class IdeDiffsPipeline<T : Closeable>(
+    private val concurrentDiffs: Int,
+    private val ioExecutor: ExecutorService,
+    private val downloadIde: (IdeVersion) -> FileLock,
+    private val openIde: (IdeVersion, FileLock) -> T,
+    private val buildIdeDiff: (IdeDiff, T, T) -> Unit
+) {
+
+  private companion object {
+    val LOG = LoggerFactory.getLogger(IdeDiffsPipeline::class.java)
+  }
+
+  init {
+    require(concurrentDiffs > 0) { "Number of concurrent IDE diffs must be positive: $concurrentDiffs" }
+  }
+
+  /**
+   * Builds the [ideDiffs], each of which must be between adjacent IDEs
+   * of all the diffs' IDEs, so that every open IDE is waiting
+   * for at most one next IDE to be opened.
+   * Some of the adjacent diffs may be skipped, if they are already built.
+   */
+  fun buildIdeDiffs(ideDiffs: List<IdeDiff>) {
+    val ideToUsages = hashMapOf<IdeVersion, Int>()
+    for (ideDiff in ideDiffs) {
+      ideToUsages.merge(ideDiff.oldIdeVersion, 1, Int::plus)
+      ideToUsages.merge(ideDiff.newIdeVersion, 1, Int::plus)
+    }
+    val idesToOpen = ideToUsages.keys.sorted()
+    for (ideDiff in ideDiffs) {
+      require(idesToOpen.binarySearch(ideDiff.oldIdeVersion) + 1 == idesToOpen.binarySearch(ideDiff.newIdeVersion)) {
+        "IDE diff must be between adjacent IDEs: $ideDiff"
+      }
+    }
+    if (idesToOpen.isEmpty()) {
+      return
+    }
+
+    val openIdesPermits = Semaphore(concurrentDiffs + 2)
+    val openIdes = ConcurrentHashMap<IdeVersion, OpenIde>()
+    val diffFutures = arrayListOf<Future<*>>()
+    val diffExecutor = Executors.newFixedThreadPool(
+        concurrentDiffs,
+        ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("ide-diff-%d")
+            .build()
+    )
+
+    var nextIdeDownload: Future<FileLock>? = downloadIdeAsync(idesToOpen.first())
+    try {
+      for ((index, ideVersion) in idesToOpen.withIndex()) {
+        while (!openIdesPermits.tryAcquire(1, TimeUnit.SECONDS)) {
+          checkFailedDiffs(diffFutures)
+        }
+        val ideDownload = nextIdeDownload!!
+        nextIdeDownload = null
+        val ideFileLock = try {
+          ideDownload.getOrThrow()
+        } catch (e: Throwable) {
+          openIdesPermits.release()
+          throw e
+        }
+        nextIdeDownload = idesToOpen.getOrNull(index + 1)?.let { downloadIdeAsync(it) }
+
+        LOG.info("________Opening $ideVersion (${index + 1} of ${idesToOpen.size})")
+        val ide = ideFileLock.closeOnException {
+          try {
+            openIde(ideVersion, ideFileLock)
+          } catch (e: Throwable) {
+            openIdesPermits.release()
+            throw e
+          }
+        }
+        openIdes[ideVersion] = OpenIde(ideFileLock, ide, ideToUsages.getValue(ideVersion), openIdesPermits) {
+          openIdes.remove(ideVersion)
+        }
+
+        for (ideDiff in ideDiffs.filter { it.newIdeVersion == ideVersion }) {
+          val oldIde = openIdes.getValue(ideDiff.oldIdeVersion)
+          val newIde = openIdes.getValue(ideDiff.newIdeVersion)
+          diffFutures += diffExecutor.submit { buildIdeDiffAndRelease(ideDiff, oldIde, newIde) }
+        }
+        checkFailedDiffs(diffFutures)
+      }
+
+      for (diffFuture in diffFutures) {
+        diffFuture.getOrThrow()
+      }
+    } finally {
+      diffFutures.forEach { it.cancel(true) }
+      diffExecutor.shutdownNow()
+      while (!diffExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOG.info("Waiting for cancelled IDE diffs to finish")
+      }
+      openIdes.values.forEach { it.close() }
+      val pendingIdeDownload = nextIdeDownload
+      if (pendingIdeDownload != null && !pendingIdeDownload.cancel(true)) {
+        try {
+          pendingIdeDownload.getOrThrow().closeLogged()
+        } catch (ignored: Throwable) {
+        }
+      }
+    }
+  }
+
+  private fun buildIdeDiffAndRelease(ideDiff: IdeDiff, oldIde: OpenIde, newIde: OpenIde) {
+    try {
+      buildIdeDiff(ideDiff, oldIde.ide, newIde.ide)
+    } finally {
+      oldIde.release()
+      newIde.release()
+    }
+  }
+
+  private fun checkFailedDiffs(diffFutures: List<Future<*>>) {
+    for (diffFuture in diffFutures) {
+      if (diffFuture.isDone) {
+        diffFuture.getOrThrow()
+      }
+    }
+  }
+
+  private fun downloadIdeAsync(ideVersion: IdeVersion): Future<FileLock> =
+      ioExecutor.submit<FileLock> { downloadIde(ideVersion) }
+
+  private fun <R> Future<R>.getOrThrow(): R =
+      try {
+        get()
+      } catch (e: ExecutionException) {
+        throw e.cause!!
+      }
+
+  /**
+   * IDE opened for [usages] IDE diffs, which is closed
+   * and frees its permit in [openIdesPermits] once
+   * all the diffs have [released] [release] it.
+   */
+  private inner class OpenIde(
+      private val ideFileLock: FileLock,
+      val ide: T,
+      usages: Int,
+      private val openIdesPermits: Semaphore,
+      private val onClose: () -> Unit
+  ) : Closeable {
+
+    private val remainingUsages = AtomicInteger(usages)
+
+    private val closed = AtomicBoolean()
+
+    fun release() {
+      if (remainingUsages.decrementAndGet() == 0) {
+        close()
+      }
+    }
+
+    override fun close() {
+      if (closed.compareAndSet(false, true)) {
+        onClose()
+        ide.closeLogged()
+        ideFileLock.closeLogged()
+        openIdesPermits.release()
+      }
+    }
+  }
+
+}
@@ -0,0 +1,65 @@
+package org.jetbrains.ide.diff.builder.cli
+
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.misc.simpleName
+import com.sampullara.cli.Args
+import com.sampullara.cli.Argument
+import org.jetbrains.ide.diff.builder.api.ApiReportsMerger
+import org.jetbrains.ide.diff.builder.persistence.ApiReportReader
+import org.slf4j.LoggerFactory
+import java.nio.file.Paths
+
+/**
+ * Merges API reports saved as external annotations roots into one root.
+ */
+class MergeApiReportsCommand : Command {
+  companion object {
+    private val LOG = LoggerFactory.getLogger("merge-api-reports")
+  }
+
+  override val commandName
+    get() = "merge-api-reports"
+
+  override val help
+    get() = """
+      Merges API reports saved as external annotations roots, like those built by ide-diff, into one root.
+
+      merge-api-reports [-ide-version <version>] <result path> <report path> [<report path> ...]
+
+      -ide-version <version> is the IDE build number the result is built for.
+      By default it is the latest build number of the merged reports.
+
+      The reports are read and merged package by package, so they are not entirely loaded in memory.
+
+      For example:
+      java -jar diff-builder.jar merge-api-reports path/to/result.zip path/to/IU-183.1-vs-IU-183.567.zip path/to/IU-183.567-vs-IU-191.1.zip
+
+      will merge the two reports and save the result to path/to/result.zip, which can be a directory or a zip file.
+    """.trimIndent()
+
+  open class CliOptions {
+    @set:Argument("ide-version", description = "IDE build number the merged report is built for. By default it is the latest build number of the merged reports.")
+    var ideVersionStr: String? = null
+  }
+
+  override fun execute(freeArgs: List<String>) {
+    val cliOptions = CliOptions()
+    val args = Args.parse(cliOptions, freeArgs.toTypedArray(), false)
+    if (args.size < 2) {
+      exit("Paths to <result> and at least one <report> must be specified.")
+    }
+
+    val resultPath = Paths.get(args[0])
+    val reportPaths = args.drop(1).map { Paths.get(it) }
+    val ideVersion = if (cliOptions.ideVersionStr != null) {
+      IdeVersion.createIdeVersionIfValid(cliOptions.ideVersionStr!!) ?: exit("Invalid IDE version: ${cliOptions.ideVersionStr}")
+    } else {
+      reportPaths.map { reportPath -> ApiReportReader(reportPath).use { it.readIdeBuildNumber() } }.max()!!
+    }
+
+    LOG.info("Merging ${reportPaths.size} reports for $ideVersion")
+    ApiReportsMerger().mergeApiReports(ideVersion, reportPaths, resultPath)
+    LOG.info("Merged report is saved to ${resultPath.simpleName}")
+  }
+
+}
@@ -0,0 +1,97 @@
+package org.jetbrains.ide.diff.builder.persistence
+
+import com.jetbrains.plugin.structure.base.utils.archiveDirectory
+import com.jetbrains.pluginverifier.misc.*
+import org.jetbrains.ide.diff.builder.api.ApiReport
+import org.slf4j.LoggerFactory
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.util.zip.ZipFile
+
+/**
+ * Checkpoint of accumulation of [ApiReport]s saved to the .zip [checkpointPath],
+ * which is used to resume the accumulation after a failure or when new reports are published.
+ *
+ * Along with the accumulated report, the checkpoint holds
+ * names of the reports appended to it, in order of appending.
+ * The checkpoint is saved to a temporary file first and then
+ * moved to [checkpointPath], so the previous checkpoint
+ * is replaced only by a complete one.
+ */
+class AccumulatedReportCheckpoint(private val checkpointPath: Path) {
+
+  companion object {
+    private val LOG = LoggerFactory.getLogger(AccumulatedReportCheckpoint::class.java)
+
+    private const val APPENDED_REPORTS_FILE_NAME = "appended-reports.txt"
+  }
+
+  init {
+    require(checkpointPath.extension == "zip") { "Only .zip checkpoints are supported" }
+  }
+
+  /**
+   * Accumulated [apiReport] and names of the reports
+   * [appendedReports] to it, in order of appending.
+   */
+  data class Checkpoint(val appendedReports: List<String>, val apiReport: ApiReport)
+
+  /**
+   * Saves the [apiReport] accumulated from the [appendedReports].
+   */
+  fun save(apiReport: ApiReport, appendedReports: List<String>) {
+    val tempDirectory = checkpointPath.resolveSibling("${checkpointPath.nameWithoutExtension}-new")
+    val tempPath = checkpointPath.resolveSibling("${checkpointPath.nameWithoutExtension}-new.zip")
+    try {
+      apiReport.saveTo(tempDirectory)
+      tempDirectory.resolve(APPENDED_REPORTS_FILE_NAME).writeText(appendedReports.joinToString("\n"))
+      archiveDirectory(tempDirectory.toFile(), tempPath.toFile(), false)
+    } finally {
+      tempDirectory.deleteLogged()
+    }
+    Files.move(tempPath, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+  }
+
+  /**
+   * Reads the checkpoint if it exists and its reports
+   * are the first of the [reportsToAppend],
+   * so the accumulation may be resumed from it.
+   *
+   * Returns `null` if there is no such checkpoint or it cannot be read.
+   */
+  fun readResumable(reportsToAppend: List<String>): Checkpoint? {
+    if (!checkpointPath.exists()) {
+      return null
+    }
+    val checkpoint = try {
+      read()
+    } catch (e: Exception) {
+      LOG.warn("Checkpoint $checkpointPath cannot be read", e)
+      return null
+    }
+    val appendedReports = checkpoint.appendedReports
+    if (appendedReports.size > reportsToAppend.size || reportsToAppend.subList(0, appendedReports.size) != appendedReports) {
+      LOG.info("Ignoring checkpoint $checkpointPath because its reports are not the first of the reports to append")
+      return null
+    }
+    return checkpoint
+  }
+
+  private fun read(): Checkpoint {
+    val appendedReports = ZipFile(checkpointPath.toFile()).use { zipFile ->
+      val entry = zipFile.getEntry(APPENDED_REPORTS_FILE_NAME)
+          ?: throw IllegalArgumentException("$checkpointPath must contain $APPENDED_REPORTS_FILE_NAME")
+      zipFile.getInputStream(entry).bufferedReader().readLines().filter { it.isNotEmpty() }
+    }
+    return Checkpoint(appendedReports, ApiReportReader.readFrom(checkpointPath))
+  }
+
+  /**
+   * Deletes the checkpoint, if it exists.
+   */
+  fun delete() {
+    checkpointPath.deleteLogged()
+  }
+
+}
@@ -7,6 +7,7 @@ import org.apache.commons.io.filefilter.NameFileFilter
 import org.apache.commons.io.filefilter.TrueFileFilter
 import org.jetbrains.ide.diff.builder.api.ApiEvent
 import org.jetbrains.ide.diff.builder.api.ApiReport
+import org.jetbrains.ide.diff.builder.api.ApiReportsMerger
 import org.jetbrains.ide.diff.builder.signatures.ApiSignature
 import java.io.Closeable
 import java.nio.file.Files
@@ -17,6 +18,9 @@ import java.util.zip.ZipFile
 /**
  * Utility class used to read [ApiReport] from [reportPath], which may be a .zip or directory.
  *
+ * The report may be read either [entirely] [readApiReport] or
+ * as a [sorted sequence] [readSortedSignatures], but only once.
+ *
  * This class is not thread-safe.
  */
 class ApiReportReader(private val reportPath: Path) : Closeable {
@@ -46,7 +50,7 @@ class ApiReportReader(private val reportPath: Path) : Closeable {
   /**
    * IDE build number this root was built for.
    */
-  private fun readIdeBuildNumber(): IdeVersion {
+  fun readIdeBuildNumber(): IdeVersion {
     val buildNumberStr = if (reportPath.extension == "zip") {
       ZipFile(reportPath.toFile()).use {
         val entry = it.getEntry(BUILD_TXT_FILE_NAME)
@@ -84,6 +88,26 @@ class ApiReportReader(private val reportPath: Path) : Closeable {
     return ApiReport(ideBuildNumber, apiSignatureToEvents)
   }
 
+  /**
+   * Returns a sequence of all signatures and corresponding API events
+   * recorded in the configured annotations root, sorted by [ApiSignature]s
+   * and then by [ApiEvent]s, as required by [ApiReportsMerger].
+   *
+   * Only one package is kept in memory at a time, because the packages
+   * are read in the order of their names, and signatures of each package
+   * are sorted after they have been read.
+   */
+  fun readSortedSignatures(): Sequence<Pair<ApiSignature, ApiEvent>> =
+      generateSequence { readNextPackageSignatures() }
+          .flatMap { packageSignatures ->
+            packageSignatures.sortedWith(compareBy({ it.first }, { it.second })).asSequence()
+          }
+
+  private fun readNextPackageSignatures(): List<Pair<ApiSignature, ApiEvent>>? {
+    val xmlReader = xmlReaderSequence.getNextReader() ?: return null
+    return xmlReader.use { reader -> generateSequence { reader.readNextSignature() }.toList() }
+  }
+
   /**
    * Sequence of all signatures and corresponding API events recorded in the configured annotations root.
    */
@@ -117,7 +141,8 @@ class ApiReportReader(private val reportPath: Path) : Closeable {
 }
 
 /**
- * Iterable sequence of [ApiXmlReader]s from a specific root.
+ * Iterable sequence of [ApiXmlReader]s from a specific root
+ * in the order of the packages' names.
  * - from a zip file - [ZipXmlReaderSequence]
  * - from multiple files - [FilesXmlReaderSequence]
  *
@@ -133,19 +158,22 @@ private class FilesXmlReaderSequence(
     xmlFiles: List<Path>
 ) : XmlReaderSequence {
 
-  private val filesIterator = xmlFiles.iterator()
+  private val filesIterator = xmlFiles
+      .map { getPackageName(it) to it }
+      .sortedBy { it.first }
+      .iterator()
+
+  private fun getPackageName(xmlFile: Path) = annotationsRoot
+      .toAbsolutePath()
+      .relativize(xmlFile.toAbsolutePath())
+      .toString()
+      .toSystemIndependentName()
+      .substringBeforeLast('/', "")
+      .replace('/', '.')
 
   override fun getNextReader(): ApiXmlReader? {
     if (filesIterator.hasNext()) {
-      val nextFile = filesIterator.next()
-      val packageName = annotationsRoot
-          .toAbsolutePath()
-          .relativize(nextFile.toAbsolutePath())
-          .toString()
-          .toSystemIndependentName()
-          .substringBeforeLast('/', "")
-          .replace('/', '.')
-
+      val (packageName, nextFile) = filesIterator.next()
       return Files.newBufferedReader(nextFile).closeOnException {
         ApiXmlReader(packageName, it)
       }
@@ -158,25 +186,23 @@ private class FilesXmlReaderSequence(
 
 private class ZipXmlReaderSequence(val zipFile: ZipFile) : XmlReaderSequence {
 
-  private val zipEntries = zipFile.entries()
+  private val xmlEntries = zipFile.entries().asSequence()
+      .filter { it.name.toSystemIndependentName().substringAfterLast('/') == ANNOTATIONS_XML_FILE_NAME }
+      .map { getPackageName(it) to it }
+      .sortedBy { it.first }
+      .iterator()
 
-  private fun getNextXmlEntry(): ZipEntry? {
-    while (zipEntries.hasMoreElements()) {
-      val zipEntry = zipEntries.nextElement()
-      if (zipEntry.name.toSystemIndependentName().endsWith("/$ANNOTATIONS_XML_FILE_NAME")) {
-        return zipEntry
-      }
-    }
-    return null
-  }
+  private fun getPackageName(xmlEntry: ZipEntry) = xmlEntry.name
+      .toSystemIndependentName()
+      .trimStart('/')
+      .substringBeforeLast('/', "")
+      .replace('/', '.')
 
   override fun getNextReader(): ApiXmlReader? {
-    val xmlEntry = getNextXmlEntry() ?: return null
-    val packageName = xmlEntry.name
-        .toSystemIndependentName()
-        .trimStart('/')
-        .substringBeforeLast("/")
-        .replace('/', '.')
+    if (!xmlEntries.hasNext()) {
+      return null
+    }
+    val (packageName, xmlEntry) = xmlEntries.next()
     return zipFile.getInputStream(xmlEntry).bufferedReader().closeOnException {
       ApiXmlReader(packageName, it)
     }
@@ -5,8 +5,10 @@ package org.jetbrains.ide.diff.builder.signatures
  *
  * These signatures, when serialized through [externalPresentation],
  * can be read by external annotations manager on IDE side.
+ *
+ * Signatures are ordered by [packageName] and then by [externalPresentation].
  */
-sealed class ApiSignature {
+sealed class ApiSignature : Comparable<ApiSignature> {
   /**
    * Returns name of the package that this element belongs to.
    */
@@ -34,6 +36,14 @@ sealed class ApiSignature {
   abstract val externalPresentation: String
 
   final override fun toString() = externalPresentation
+
+  final override fun compareTo(other: ApiSignature): Int {
+    val packageComparison = packageName.compareTo(other.packageName)
+    if (packageComparison != 0) {
+      return packageComparison
+    }
+    return externalPresentation.compareTo(other.externalPresentation)
+  }
 }
 
 /**
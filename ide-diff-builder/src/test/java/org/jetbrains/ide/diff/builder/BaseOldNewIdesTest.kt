@@ -6,6 +6,7 @@ import org.jetbrains.ide.diff.builder.api.ApiReport
 import org.jetbrains.ide.diff.builder.api.IdeDiffBuilder
 import org.junit.Assert
 import java.io.File
+import java.util.concurrent.ForkJoinPool
 
 abstract class BaseOldNewIdesTest {
 
@@ -33,7 +34,12 @@ abstract class BaseOldNewIdesTest {
     val newIde = IdeManager.createManager().createIde(newIdeFile)
 
     val jdkPath = JdkPath.createJavaHomeJdkPath()
-    return IdeDiffBuilder(emptyList(), jdkPath).buildIdeDiff(oldIde, newIde)
+    val forkJoinPool = ForkJoinPool(2)
+    try {
+      return IdeDiffBuilder(emptyList(), jdkPath, forkJoinPool).buildIdeDiff(oldIde, newIde)
+    } finally {
+      forkJoinPool.shutdown()
+    }
   }
 
   fun <T> assertSetsEqual(expected: Set<T>, actual: Set<T>) {
@@ -0,0 +1,116 @@
+package org.jetbrains.ide.diff.builder.api
+
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import org.jetbrains.ide.diff.builder.persistence.ApiReportReader
+import org.jetbrains.ide.diff.builder.persistence.saveTo
+import org.jetbrains.ide.diff.builder.signatures.ApiSignature
+import org.jetbrains.ide.diff.builder.signatures.parseApiSignature
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class ApiReportsMergerTest {
+
+  @Rule
+  @JvmField
+  val tempFolder = TemporaryFolder()
+
+  private fun signature(packageName: String, externalName: String) = parseApiSignature(packageName, externalName)
+
+  private fun version(version: String) = IdeVersion.createIdeVersion(version)
+
+  private fun report(version: String, vararg signatureToEvents: Pair<ApiSignature, Set<ApiEvent>>) =
+      ApiReport(version(version), signatureToEvents.toMap())
+
+  private val reports = listOf(
+      report(
+          "2.0",
+          signature("org.some", "org.some.Removed") to setOf(RemovedIn(version("2.0"))),
+          signature("org.some", "org.some.Util void foo(int)") to setOf(IntroducedIn(version("2.0"))),
+          signature("com.intellij.a", "com.intellij.a.Obfuscated") to setOf(IntroducedIn(version("2.0")))
+      ),
+      report(
+          "3.0",
+          signature("org.some", "org.some.Util void foo(int)") to setOf(RemovedIn(version("3.0"))),
+          signature("org.some", "org.some.Util field") to setOf(IntroducedIn(version("3.0"))),
+          signature("", "Default") to setOf(IntroducedIn(version("3.0")))
+      ),
+      report(
+          "4.0",
+          signature("org.some", "org.some.Removed") to setOf(IntroducedIn(version("4.0"))),
+          signature("org.other", "org.other.Other") to setOf(IntroducedIn(version("4.0")))
+      )
+  )
+
+  private val expectedReport = report(
+      "4.0",
+      signature("org.some", "org.some.Removed") to setOf(RemovedIn(version("2.0")), IntroducedIn(version("4.0"))),
+      signature("org.some", "org.some.Util void foo(int)") to setOf(IntroducedIn(version("2.0")), RemovedIn(version("3.0"))),
+      signature("org.some", "org.some.Util field") to setOf(IntroducedIn(version("3.0"))),
+      signature("", "Default") to setOf(IntroducedIn(version("3.0"))),
+      signature("org.other", "org.other.Other") to setOf(IntroducedIn(version("4.0")))
+  )
+
+  @Test
+  fun `merge reports in memory`() {
+    assertEquals(expectedReport, ApiReportsMerger().mergeApiReports(version("4.0"), reports))
+  }
+
+  @Test
+  fun `accumulate reports one by one`() {
+    val accumulator = ApiReportsAccumulator()
+    reports.forEach { accumulator.append(it) }
+    assertEquals(expectedReport, accumulator.toApiReport(version("4.0")))
+  }
+
+  @Test
+  fun `merge saved reports as sorted sequences`() {
+    val reportPaths = reports.mapIndexed { index, report ->
+      val reportPath = if (index % 2 == 0) {
+        tempFolder.newFolder().toPath()
+      } else {
+        tempFolder.newFolder().toPath().resolve("report.zip")
+      }
+      report.saveTo(reportPath)
+      reportPath
+    }
+    val resultPath = tempFolder.newFolder().toPath().resolve("merged.zip")
+    ApiReportsMerger().mergeApiReports(version("4.0"), reportPaths, resultPath)
+
+    assertEquals(expectedReport, ApiReportReader.readFrom(resultPath))
+  }
+
+  @Test
+  fun `events of versions that compare equal but are not equal are kept`() {
+    val snapshot = IntroducedIn(version("181.SNAPSHOT"))
+    val wildcard = IntroducedIn(version("181.*"))
+    assertEquals(0, snapshot.ideVersion.compareTo(wildcard.ideVersion))
+    assertNotEquals(snapshot, wildcard)
+
+    val signature = signature("org.some", "org.some.Util")
+    val sameVersionReports = listOf(
+        report("181.SNAPSHOT", signature to setOf(snapshot)),
+        report("181.*", signature to setOf(wildcard))
+    )
+    val expected = report("181.SNAPSHOT", signature to setOf(snapshot, wildcard))
+    assertEquals(expected, ApiReportsMerger().mergeApiReports(version("181.SNAPSHOT"), sameVersionReports))
+
+    val reportPaths = sameVersionReports.map { report ->
+      tempFolder.newFolder().toPath().also { report.saveTo(it) }
+    }
+    val resultPath = tempFolder.newFolder().toPath().resolve("merged.zip")
+    ApiReportsMerger().mergeApiReports(version("181.SNAPSHOT"), reportPaths, resultPath)
+    assertEquals(expected, ApiReportReader.readFrom(resultPath))
+  }
+
+  @Test
+  fun `saved reports are read back with signatures of the default package`() {
+    for (reportPath in listOf(tempFolder.newFolder().toPath(), tempFolder.newFolder().toPath().resolve("report.zip"))) {
+      expectedReport.saveTo(reportPath)
+      assertEquals(expectedReport, ApiReportReader.readFrom(reportPath))
+    }
+  }
+
+}
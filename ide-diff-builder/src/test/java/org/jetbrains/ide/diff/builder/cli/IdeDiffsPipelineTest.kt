@@ -0,0 +1,175 @@
+package org.jetbrains.ide.diff.builder.cli
+
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.repository.cleanup.SpaceAmount
+import com.jetbrains.pluginverifier.repository.files.FileLock
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.Closeable
+import java.nio.file.Paths
+import java.time.Instant
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class IdeDiffsPipelineTest {
+
+  private val ioExecutor = Executors.newCachedThreadPool()
+
+  @After
+  fun shutdownExecutor() {
+    ioExecutor.shutdownNow()
+  }
+
+  private fun version(build: Int) = IdeVersion.createIdeVersion("IU-181.$build")
+
+  private fun ideDiff(oldBuild: Int, newBuild: Int) =
+      IdeDiff(Paths.get("$oldBuild-vs-$newBuild.zip"), version(oldBuild), version(newBuild))
+
+  private fun adjacentDiffs(vararg builds: Int) = builds.toList().zipWithNext { old, new -> ideDiff(old, new) }
+
+  private inner class TestIde(val ideVersion: IdeVersion) : Closeable {
+    @Volatile
+    var closed = false
+
+    override fun close() {
+      check(!closed) { "$ideVersion is closed twice" }
+      closed = true
+      openIdesCount.decrementAndGet()
+    }
+  }
+
+  private val openIdesCount = AtomicInteger()
+
+  private val maxOpenIdesCount = AtomicInteger()
+
+  private val openedIdes = Collections.synchronizedList(arrayListOf<TestIde>())
+
+  private val downloadedIdes = Collections.synchronizedList(arrayListOf<IdeVersion>())
+
+  private val releasedLocks = Collections.synchronizedList(arrayListOf<IdeVersion>())
+
+  private val builtDiffs = ConcurrentHashMap.newKeySet<IdeDiff>()
+
+  private fun downloadIde(ideVersion: IdeVersion): FileLock {
+    downloadedIdes += ideVersion
+    return object : FileLock(Instant.now(), Paths.get(ideVersion.asString()), SpaceAmount.ZERO_SPACE) {
+      override fun release() {
+        releasedLocks += ideVersion
+      }
+    }
+  }
+
+  private fun openIde(ideVersion: IdeVersion): TestIde {
+    val openCount = openIdesCount.incrementAndGet()
+    maxOpenIdesCount.accumulateAndGet(openCount, ::maxOf)
+    return TestIde(ideVersion).also { openedIdes += it }
+  }
+
+  private fun buildIdeDiff(ideDiff: IdeDiff, oldIde: TestIde, newIde: TestIde) {
+    assertEquals(ideDiff.oldIdeVersion, oldIde.ideVersion)
+    assertEquals(ideDiff.newIdeVersion, newIde.ideVersion)
+    Thread.sleep(10)
+    assertFalse(oldIde.closed || newIde.closed)
+    assertTrue(builtDiffs.add(ideDiff))
+  }
+
+  private fun createPipeline(
+      concurrentDiffs: Int,
+      downloadIde: (IdeVersion) -> FileLock = this::downloadIde,
+      openIde: (IdeVersion) -> TestIde = this::openIde,
+      buildIdeDiff: (IdeDiff, TestIde, TestIde) -> Unit = this::buildIdeDiff
+  ) = IdeDiffsPipeline(concurrentDiffs, ioExecutor, downloadIde, { ideVersion, _ -> openIde(ideVersion) }, buildIdeDiff)
+
+  private fun assertAllIdesClosed() {
+    assertTrue(openedIdes.all { it.closed })
+    assertEquals(0, openIdesCount.get())
+    assertEquals(downloadedIdes.sorted(), releasedLocks.sorted())
+  }
+
+  @Test
+  fun `every IDE is opened once and the number of open IDEs is bounded`() {
+    val ideDiffs = adjacentDiffs(*(1..12).toList().toIntArray())
+    createPipeline(2).buildIdeDiffs(ideDiffs)
+
+    assertEquals(ideDiffs.toSet(), builtDiffs)
+    assertEquals((1..12).map { version(it) }, openedIdes.map { it.ideVersion })
+    assertTrue(maxOpenIdesCount.get() <= 2 + 2)
+    assertAllIdesClosed()
+  }
+
+  @Test
+  fun `IDEs are shared by diffs surrounding the already built diffs`() {
+    val ideDiffs = adjacentDiffs(1, 2, 3) + adjacentDiffs(4, 5, 6) + adjacentDiffs(8, 9)
+    createPipeline(1).buildIdeDiffs(ideDiffs)
+
+    assertEquals(ideDiffs.toSet(), builtDiffs)
+    assertEquals(listOf(1, 2, 3, 4, 5, 6, 8, 9).map { version(it) }, openedIdes.map { it.ideVersion })
+    assertTrue(maxOpenIdesCount.get() <= 1 + 2)
+    assertAllIdesClosed()
+  }
+
+  @Test
+  fun `diffs between not adjacent IDEs are rejected`() {
+    try {
+      createPipeline(1).buildIdeDiffs(listOf(ideDiff(1, 2), ideDiff(1, 3)))
+      fail()
+    } catch (e: IllegalArgumentException) {
+      assertTrue(openedIdes.isEmpty())
+    }
+  }
+
+  @Test
+  fun `failure of a diff is propagated and all IDEs are closed`() {
+    val failure = IllegalStateException("diff failed")
+    val nextIdeOpening = CountDownLatch(1)
+    val pipeline = createPipeline(
+        2,
+        openIde = { ideVersion ->
+          if (ideVersion == version(5)) {
+            nextIdeOpening.countDown()
+          }
+          openIde(ideVersion)
+        },
+        buildIdeDiff = { ideDiff, oldIde, newIde ->
+          if (ideDiff.newIdeVersion == version(4)) {
+            assertTrue(nextIdeOpening.await(1, TimeUnit.MINUTES))
+            throw failure
+          }
+          buildIdeDiff(ideDiff, oldIde, newIde)
+        }
+    )
+    try {
+      pipeline.buildIdeDiffs(adjacentDiffs(*(1..20).toList().toIntArray()))
+      fail()
+    } catch (e: IllegalStateException) {
+      assertSame(failure, e)
+    }
+    assertFalse(ideDiff(3, 4) in builtDiffs)
+    assertTrue(version(5) in openedIdes.map { it.ideVersion })
+    assertAllIdesClosed()
+  }
+
+  @Test
+  fun `failure of a download is propagated and all IDEs are closed`() {
+    val pipeline = createPipeline(2, downloadIde = { ideVersion ->
+      if (ideVersion == version(3)) {
+        throw IllegalArgumentException("$ideVersion is not found")
+      }
+      downloadIde(ideVersion)
+    })
+    try {
+      pipeline.buildIdeDiffs(adjacentDiffs(1, 2, 3, 4))
+      fail()
+    } catch (e: IllegalArgumentException) {
+      assertEquals("${version(3)} is not found", e.message)
+    }
+    assertEquals(listOf(version(1), version(2)), openedIdes.map { it.ideVersion })
+    assertAllIdesClosed()
+  }
+
+}
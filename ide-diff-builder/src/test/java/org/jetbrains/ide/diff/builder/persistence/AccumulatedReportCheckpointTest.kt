@@ -0,0 +1,76 @@
+package org.jetbrains.ide.diff.builder.persistence
+
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.misc.writeText
+import org.jetbrains.ide.diff.builder.api.ApiReport
+import org.jetbrains.ide.diff.builder.api.IntroducedIn
+import org.jetbrains.ide.diff.builder.api.RemovedIn
+import org.jetbrains.ide.diff.builder.signatures.parseApiSignature
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Files
+import java.nio.file.Path
+
+class AccumulatedReportCheckpointTest {
+
+  @Rule
+  @JvmField
+  val tempFolder = TemporaryFolder()
+
+  private fun version(version: String) = IdeVersion.createIdeVersion(version)
+
+  private val apiReport = ApiReport(
+      version("3.0"),
+      mapOf(
+          parseApiSignature("org.some", "org.some.Util void foo(int)") to setOf(IntroducedIn(version("2.0")), RemovedIn(version("3.0"))),
+          parseApiSignature("", "Default") to setOf(IntroducedIn(version("3.0")))
+      )
+  )
+
+  private val reportNames = listOf("1.0-vs-2.0.zip", "2.0-vs-3.0.zip", "3.0-vs-4.0.zip")
+
+  private fun createCheckpointPath(): Path = tempFolder.newFolder().toPath().resolve("checkpoint.zip")
+
+  @Test
+  fun `saved checkpoint is resumed if its reports are the first to append`() {
+    val checkpointPath = createCheckpointPath()
+    val checkpoint = AccumulatedReportCheckpoint(checkpointPath)
+    checkpoint.save(ApiReport(version("2.0"), emptyMap()), reportNames.take(1))
+    checkpoint.save(apiReport, reportNames.take(2))
+    assertEquals(listOf(checkpointPath), Files.list(checkpointPath.parent).use { it.toArray().toList() })
+
+    val expected = AccumulatedReportCheckpoint.Checkpoint(reportNames.take(2), apiReport)
+    assertEquals(expected, checkpoint.readResumable(reportNames))
+    assertEquals(expected, checkpoint.readResumable(reportNames.take(2)))
+  }
+
+  @Test
+  fun `checkpoint is not resumed if its reports are not the first to append`() {
+    val checkpoint = AccumulatedReportCheckpoint(createCheckpointPath())
+    checkpoint.save(apiReport, reportNames.take(2))
+
+    assertNull(checkpoint.readResumable(reportNames.take(1)))
+    assertNull(checkpoint.readResumable(reportNames.drop(1)))
+    assertNull(checkpoint.readResumable(listOf(reportNames[1], reportNames[0], reportNames[2])))
+  }
+
+  @Test
+  fun `missing or broken checkpoint is not resumed`() {
+    val checkpointPath = createCheckpointPath()
+    val checkpoint = AccumulatedReportCheckpoint(checkpointPath)
+    assertNull(checkpoint.readResumable(reportNames))
+
+    checkpointPath.writeText("broken")
+    assertNull(checkpoint.readResumable(reportNames))
+
+    apiReport.saveTo(checkpointPath)
+    assertNull(checkpoint.readResumable(reportNames))
+
+    checkpoint.delete()
+    assertNull(checkpoint.readResumable(reportNames))
+  }
+
+}
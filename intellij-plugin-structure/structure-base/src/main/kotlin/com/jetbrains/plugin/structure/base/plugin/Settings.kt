@@ -4,7 +4,8 @@ import org.apache.commons.io.FileUtils
 import java.io.File
 
 enum class Settings(private val key: String, private val defaultValue: () -> String) {
-  EXTRACT_DIRECTORY("intellij.structure.temp.dir", { File(FileUtils.getTempDirectory(), "extracted-plugins").absolutePath });
+  EXTRACT_DIRECTORY("intellij.structure.temp.dir", { File(FileUtils.getTempDirectory(), "extracted-plugins").absolutePath }),
+  MAX_IN_MEMORY_CLASSES_MEGABYTES("intellij.structure.max.in.memory.classes.megabytes", { "64" });
 
   fun get(): String = System.getProperty(key) ?: defaultValue()
 
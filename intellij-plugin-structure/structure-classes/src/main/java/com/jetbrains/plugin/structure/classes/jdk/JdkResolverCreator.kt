@@ -13,7 +13,15 @@ object JdkResolverCreator {
 
   fun createJdkResolver(jdkPath: File): Resolver = createJdkResolver(Resolver.ReadMode.FULL, jdkPath)
 
-  fun createJdkResolver(readMode: Resolver.ReadMode, jdkPath: File): Resolver {
+  fun createJdkResolver(readMode: Resolver.ReadMode, jdkPath: File): Resolver = createJdkResolver(readMode, jdkPath, null)
+
+  /**
+   * Creates a resolver of the JDK classes.
+   *
+   * If [classesIndexFile] is specified, the contents of the JDK jars
+   * are read from and saved to this [index] [com.jetbrains.plugin.structure.classes.utils.JarsIndex].
+   */
+  fun createJdkResolver(readMode: Resolver.ReadMode, jdkPath: File, classesIndexFile: File?): Resolver {
     val mandatoryJars = JarsUtils.collectJars(jdkPath, { it.name.toLowerCase() in MANDATORY_JARS }, true)
     val missingJars = MANDATORY_JARS - mandatoryJars.map { it.name }
     if (missingJars.isNotEmpty()) {
@@ -21,7 +29,12 @@ object JdkResolverCreator {
     }
 
     val additionalJars = JarsUtils.collectJars(jdkPath, { it.name.toLowerCase() in ADDITIONAL_JARS }, true)
-    return JarsUtils.makeResolver(readMode, mandatoryJars + additionalJars)
+    val jars = mandatoryJars + additionalJars
+    return if (classesIndexFile != null) {
+      JarsUtils.makeResolver(readMode, jars, classesIndexFile)
+    } else {
+      JarsUtils.makeResolver(readMode, jars)
+    }
   }
 
 }
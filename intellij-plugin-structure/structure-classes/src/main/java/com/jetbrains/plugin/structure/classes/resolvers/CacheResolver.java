@@ -2,7 +2,9 @@ package com.jetbrains.plugin.structure.classes.resolvers;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.jetbrains.plugin.structure.classes.utils.AsmUtil;
 import kotlin.jvm.functions.Function1;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -15,22 +17,80 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
+/**
+ * Resolver that caches {@link ClassNode}s found by the delegate resolver.
+ * <p>
+ * The cache is thread-safe, so a single {@code CacheResolver} may be
+ * shared by several concurrent verifications, for example to avoid
+ * repeated reading of the same IDE classes. Hit and miss counts
+ * are available via {@link #getCacheStats()}.
+ */
 public class CacheResolver extends Resolver {
 
-  private static final int DEFAULT_CACHE_SIZE = 1024;
+  public static final int DEFAULT_CACHE_SIZE = 1024;
+
+  /**
+   * Memory budget, in bytes, of a cache created with the default constructor.
+   * It is small and fixed, because such caches are created per verification.
+   * Caches shared by many verifications should be given an explicit budget.
+   */
+  public static final long DEFAULT_MAXIMUM_WEIGHT = 8L * 1024 * 1024;
+
+  /**
+   * Default number of segments of the cache, the same as in Guava.
+   * The budget is split evenly among the segments.
+   */
+  private static final int DEFAULT_CONCURRENCY_LEVEL = 4;
+
+  /**
+   * Weight of a cached absence of a class.
+   */
+  private static final int ABSENT_CLASS_WEIGHT = 16;
 
   private final Resolver myDelegate;
 
   private final LoadingCache<String, Optional<ClassNode>> myCache;
 
+  /**
+   * Creates a cache bounded by {@link #DEFAULT_MAXIMUM_WEIGHT} bytes
+   * of estimated memory of the cached classes and backed by soft references.
+   */
   public CacheResolver(@NotNull Resolver delegate) {
-    this(delegate, DEFAULT_CACHE_SIZE);
+    this(delegate, DEFAULT_MAXIMUM_WEIGHT, true);
   }
 
+  /**
+   * Creates a cache that holds at most {@code cacheSize} classes.
+   */
   public CacheResolver(@NotNull Resolver delegate, int cacheSize) {
+    this(delegate, CacheBuilder.newBuilder().maximumSize(cacheSize));
+  }
+
+  /**
+   * Creates a cache bounded by the total estimated size of the cached classes,
+   * which must not exceed {@code maximumWeight} bytes.
+   * See {@link AsmUtil#estimateRetainedSize(ClassNode)} for how the sizes are estimated.
+   * If {@code softValues} is {@code true}, the cached classes are referenced softly
+   * and may be garbage collected in response to memory demand.
+   */
+  public CacheResolver(@NotNull Resolver delegate, long maximumWeight, boolean softValues) {
+    this(delegate, maximumWeight, softValues, DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  /**
+   * Creates a cache bounded by {@code maximumWeight} bytes, as the constructor above,
+   * which is split into {@code concurrencyLevel} independently locked segments.
+   * Each segment evicts its classes when it exceeds its part of the budget.
+   */
+  public CacheResolver(@NotNull Resolver delegate, long maximumWeight, boolean softValues, int concurrencyLevel) {
+    this(delegate, createWeightedCacheBuilder(maximumWeight, softValues, concurrencyLevel));
+  }
+
+  private CacheResolver(@NotNull Resolver delegate,
+                        @NotNull CacheBuilder<? super String, ? super Optional<ClassNode>> cacheBuilder) {
     myDelegate = delegate;
-    myCache = CacheBuilder.newBuilder()
-        .maximumSize(cacheSize)
+    myCache = cacheBuilder
+        .recordStats()
         .build(new CacheLoader<String, Optional<ClassNode>>() {
           @Override
           public Optional<ClassNode> load(@NotNull String key) throws Exception {
@@ -43,6 +103,27 @@ public class CacheResolver extends Resolver {
         });
   }
 
+  @NotNull
+  private static CacheBuilder<String, Optional<ClassNode>> createWeightedCacheBuilder(long maximumWeight,
+                                                                                      boolean softValues,
+                                                                                      int concurrencyLevel) {
+    CacheBuilder<String, Optional<ClassNode>> builder = CacheBuilder.newBuilder()
+        .concurrencyLevel(concurrencyLevel)
+        .maximumWeight(maximumWeight)
+        .<String, Optional<ClassNode>>weigher((className, classNode) -> getWeight(classNode));
+    if (softValues) {
+      builder.softValues();
+    }
+    return builder;
+  }
+
+  private static int getWeight(@NotNull Optional<ClassNode> classNode) {
+    if (!classNode.isPresent()) {
+      return ABSENT_CLASS_WEIGHT;
+    }
+    return (int) Math.min(Integer.MAX_VALUE, AsmUtil.estimateRetainedSize(classNode.get()));
+  }
+
   @Override
   @Nullable
   public ClassNode findClass(@NotNull String className) throws IOException, InterruptedException {
@@ -63,6 +144,14 @@ public class CacheResolver extends Resolver {
     }
   }
 
+  /**
+   * Returns statistics of this cache usage: number of hits, misses, loads and evictions.
+   */
+  @NotNull
+  public CacheStats getCacheStats() {
+    return myCache.stats();
+  }
+
   @Override
   public Resolver getClassLocation(@NotNull String className) {
     return myDelegate.getClassLocation(className);
@@ -0,0 +1,129 @@
+package com.jetbrains.plugin.structure.classes.resolvers
+
+import com.jetbrains.plugin.structure.classes.packages.PackageSet
+import com.jetbrains.plugin.structure.classes.utils.AsmUtil
+import org.objectweb.asm.tree.ClassNode
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+import java.util.zip.ZipInputStream
+
+/**
+ * [Resolver] of classes whose bytecode is kept in memory.
+ *
+ * It is used for jar files and directories of classes nested into other
+ * archives, such as jars in the `lib` directory of a plugin's .zip, that can't be opened as
+ * [java.util.zip.ZipFile] without extracting them to disk.
+ * Class files are parsed to [ClassNode]s only on demand.
+ *
+ * [jarPath] identifies the nested jar, for example `plugin.zip/Plugin/lib/plugin.jar`,
+ * and is used as the [classPath] of this resolver.
+ */
+class InMemoryJarResolver(
+    private val jarPath: File,
+    private val classesBytes: Map<String, ByteArray>,
+    private val serviceImplementations: Map<String, Set<String>>,
+    override val readMode: ReadMode
+) : Resolver(), ServiceProvidersContainer {
+
+  companion object {
+    private const val CLASS_SUFFIX = ".class"
+
+    private const val SERVICE_PROVIDERS_PREFIX = "META-INF/services/"
+
+    /**
+     * Reads classes and service providers of a jar
+     * from the [jarInputStream] into memory.
+     *
+     * Throws [IOException] if the total size of the classes exceeds [maxClassesSize],
+     * or if the jar can't be read as a stream, for example, if it contains
+     * STORED entries followed by data descriptors, which [ZipInputStream] doesn't support.
+     * In these cases the jar should be read from disk.
+     */
+    fun readJar(jarPath: File, jarInputStream: InputStream, readMode: ReadMode, maxClassesSize: Long = Long.MAX_VALUE): InMemoryJarResolver {
+      val classesBytes = hashMapOf<String, ByteArray>()
+      var classesSize = 0L
+      val serviceImplementations = hashMapOf<String, Set<String>>()
+      val zipInputStream = ZipInputStream(jarInputStream)
+      while (true) {
+        val entry = zipInputStream.nextEntry ?: break
+        val entryName = entry.name
+        if (entryName.endsWith(CLASS_SUFFIX)) {
+          val classBytes = zipInputStream.readBytes()
+          classesSize += classBytes.size
+          if (classesSize > maxClassesSize) {
+            throw IOException("Classes of $jarPath exceed $maxClassesSize bytes")
+          }
+          classesBytes[entryName.substringBeforeLast(CLASS_SUFFIX)] = classBytes
+        } else if (!entry.isDirectory && entryName.startsWith(SERVICE_PROVIDERS_PREFIX) && entryName.count { it == '/' } == 2) {
+          val lines = zipInputStream.readBytes().inputStream().reader().readLines()
+          val implementationNames = lines.map { it.substringBefore("#").trim() }.filterNotTo(hashSetOf()) { it.isEmpty() }
+          serviceImplementations[entryName.substringAfter(SERVICE_PROVIDERS_PREFIX)] = implementationNames
+        }
+      }
+      return InMemoryJarResolver(jarPath, classesBytes, serviceImplementations, readMode)
+    }
+  }
+
+  private val packageSet = PackageSet()
+
+  /**
+   * Total size of bytecode of the classes kept in memory.
+   */
+  val classesSize: Long = classesBytes.values.fold(0L) { size, classBytes -> size + classBytes.size }
+
+  init {
+    for (className in classesBytes.keys) {
+      packageSet.addPackagesOfClass(className)
+    }
+  }
+
+  override val implementedServiceProviders: Set<String>
+    get() = serviceImplementations.keys
+
+  override fun readServiceImplementationNames(serviceProvider: String): Set<String> =
+      serviceImplementations[serviceProvider].orEmpty()
+
+  override val allPackages: Set<String>
+    get() = packageSet.getAllPackages()
+
+  override val allClasses
+    get() = classesBytes.keys
+
+  override val isEmpty
+    get() = classesBytes.isEmpty()
+
+  override val classPath
+    get() = listOf(jarPath)
+
+  override val finalResolvers
+    get() = listOf(this)
+
+  override fun processAllClasses(processor: (ClassNode) -> Boolean): Boolean {
+    for ((className, classBytes) in classesBytes) {
+      if (!processor(readClassNode(className, classBytes))) {
+        return false
+      }
+    }
+    return true
+  }
+
+  override fun containsClass(className: String) = className in classesBytes
+
+  override fun containsPackage(packageName: String) = packageSet.containsPackage(packageName)
+
+  override fun findClass(className: String): ClassNode? {
+    val classBytes = classesBytes[className] ?: return null
+    return readClassNode(className, classBytes)
+  }
+
+  private fun readClassNode(className: String, classBytes: ByteArray) =
+      AsmUtil.readClassNode(className, classBytes.inputStream(), readMode == ReadMode.FULL)
+
+  override fun getClassLocation(className: String) = if (containsClass(className)) this else null
+
+  override fun close() = Unit
+
+  override fun toString() = jarPath.path
+
+}
@@ -8,10 +8,26 @@ import org.objectweb.asm.tree.ClassNode
 import java.io.File
 import java.util.jar.JarFile
 
-class JarFileResolver(private val ioJarFile: File, override val readMode: ReadMode) : Resolver() {
+/**
+ * [Resolver] of classes contained in the [ioJarFile].
+ *
+ * If [jarContents] is specified, the names of the classes
+ * and service providers are taken from it instead of scanning
+ * all the entries of the jar file. It is used by the [JarsIndex].
+ */
+class JarFileResolver @JvmOverloads constructor(
+    private val ioJarFile: File,
+    override val readMode: ReadMode,
+    jarContents: JarContents? = null
+) : Resolver(), ServiceProvidersContainer {
 
   constructor(jarFile: File) : this(jarFile, ReadMode.FULL)
 
+  /**
+   * Names of classes and service providers contained in a jar file.
+   */
+  data class JarContents(val classes: Set<String>, val serviceProviders: Set<String>)
+
   private companion object {
     private const val CLASS_SUFFIX = ".class"
 
@@ -36,7 +52,11 @@ class JarFileResolver(private val ioJarFile: File, override val readMode: ReadMo
 
     jarFile = JarFile(ioJarFile)
     try {
-      readClassNamesAndServiceProviders()
+      if (jarContents != null) {
+        setClassNamesAndServiceProviders(jarContents)
+      } else {
+        readClassNamesAndServiceProviders()
+      }
     } catch (e: Throwable) {
       jarFile.closeLogged()
       throw e
@@ -56,14 +76,29 @@ class JarFileResolver(private val ioJarFile: File, override val readMode: ReadMo
     }
   }
 
-  fun readServiceImplementationNames(serviceProvider: String): Set<String> {
+  private fun setClassNamesAndServiceProviders(jarContents: JarContents) {
+    for (className in jarContents.classes) {
+      classes.add(className)
+      packageSet.addPackagesOfClass(className)
+    }
+    serviceProviders.addAll(jarContents.serviceProviders)
+  }
+
+  /**
+   * Names of classes and service providers of this jar file,
+   * which can be persisted to avoid scanning the jar next time.
+   */
+  val jarContents: JarContents
+    get() = JarContents(classes, serviceProviders)
+
+  override fun readServiceImplementationNames(serviceProvider: String): Set<String> {
     val entry = SERVICE_PROVIDERS_PREFIX + serviceProvider
     val jarEntry = jarFile.getJarEntry(entry) ?: return emptySet()
     val lines = jarFile.getInputStream(jarEntry).reader().readLines()
     return lines.map { it.substringBefore("#").trim() }.filterNotTo(hashSetOf()) { it.isEmpty() }
   }
 
-  val implementedServiceProviders: Set<String> = serviceProviders
+  override val implementedServiceProviders: Set<String> = serviceProviders
 
   override val allPackages: Set<String>
     get() = packageSet.getAllPackages()
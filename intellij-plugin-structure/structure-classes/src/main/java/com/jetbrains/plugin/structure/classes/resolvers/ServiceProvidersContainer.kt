@@ -0,0 +1,18 @@
+package com.jetbrains.plugin.structure.classes.resolvers
+
+/**
+ * Jar file that may declare implementations of services
+ * in its `META-INF/services` directory.
+ */
+interface ServiceProvidersContainer {
+
+  /**
+   * Names of services, whose implementations are declared in this jar.
+   */
+  val implementedServiceProviders: Set<String>
+
+  /**
+   * Reads names of the implementations of the [serviceProvider] declared in this jar.
+   */
+  fun readServiceImplementationNames(serviceProvider: String): Set<String>
+}
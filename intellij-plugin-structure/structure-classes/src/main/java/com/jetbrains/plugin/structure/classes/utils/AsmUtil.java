@@ -4,14 +4,25 @@ import com.jetbrains.plugin.structure.classes.resolvers.InvalidClassFileExceptio
 import org.apache.commons.io.FileUtils;
 import org.jetbrains.annotations.NotNull;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.*;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 public class AsmUtil {
 
+  /**
+   * Approximate shallow size of an object header plus a few reference fields.
+   */
+  private static final int OBJECT_SIZE = 32;
+
+  /**
+   * Approximate size of an instruction node in a method's instructions list.
+   */
+  private static final int INSTRUCTION_SIZE = 48;
+
   @NotNull
   public static ClassNode readClassNode(@NotNull String className,
                                         @NotNull InputStream inputStream,
@@ -63,4 +74,97 @@ public class AsmUtil {
   public static ClassNode readClassFromFile(@NotNull String className, @NotNull File classFile) throws IOException {
     return readClassFromFile(className, classFile, true);
   }
+
+  /**
+   * Returns an approximate number of bytes retained by the {@code classNode}:
+   * names and descriptors, fields, methods with their instructions,
+   * constant strings and annotations.
+   * <p>
+   * The estimate is intended for weighing cached class nodes against each other
+   * and against a memory budget, not for precise memory accounting.
+   */
+  public static long estimateRetainedSize(@NotNull ClassNode classNode) {
+    long size = OBJECT_SIZE * 2;
+    size += stringSize(classNode.name) + stringSize(classNode.superName) + stringSize(classNode.signature);
+    size += stringSize(classNode.sourceFile) + stringSize(classNode.outerClass);
+    if (classNode.interfaces != null) {
+      for (String anInterface : classNode.interfaces) {
+        size += stringSize(anInterface);
+      }
+    }
+    if (classNode.innerClasses != null) {
+      for (InnerClassNode innerClass : classNode.innerClasses) {
+        size += OBJECT_SIZE + stringSize(innerClass.name) + stringSize(innerClass.outerName) + stringSize(innerClass.innerName);
+      }
+    }
+    size += annotationsSize(classNode.visibleAnnotations) + annotationsSize(classNode.invisibleAnnotations);
+    if (classNode.fields != null) {
+      for (FieldNode field : classNode.fields) {
+        size += OBJECT_SIZE + stringSize(field.name) + stringSize(field.desc) + stringSize(field.signature);
+        if (field.value instanceof String) {
+          size += stringSize((String) field.value);
+        }
+        size += annotationsSize(field.visibleAnnotations) + annotationsSize(field.invisibleAnnotations);
+      }
+    }
+    if (classNode.methods != null) {
+      for (MethodNode method : classNode.methods) {
+        size += methodSize(method);
+      }
+    }
+    return size;
+  }
+
+  private static long methodSize(@NotNull MethodNode method) {
+    long size = OBJECT_SIZE * 2 + stringSize(method.name) + stringSize(method.desc) + stringSize(method.signature);
+    if (method.exceptions != null) {
+      for (String exception : method.exceptions) {
+        size += stringSize(exception);
+      }
+    }
+    size += annotationsSize(method.visibleAnnotations) + annotationsSize(method.invisibleAnnotations);
+    if (method.instructions != null) {
+      size += (long) method.instructions.size() * INSTRUCTION_SIZE;
+      for (AbstractInsnNode instruction = method.instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+        if (instruction instanceof LdcInsnNode && ((LdcInsnNode) instruction).cst instanceof String) {
+          size += stringSize((String) ((LdcInsnNode) instruction).cst);
+        } else if (instruction instanceof MethodInsnNode) {
+          MethodInsnNode methodInsn = (MethodInsnNode) instruction;
+          size += stringSize(methodInsn.owner) + stringSize(methodInsn.name) + stringSize(methodInsn.desc);
+        } else if (instruction instanceof FieldInsnNode) {
+          FieldInsnNode fieldInsn = (FieldInsnNode) instruction;
+          size += stringSize(fieldInsn.owner) + stringSize(fieldInsn.name) + stringSize(fieldInsn.desc);
+        } else if (instruction instanceof TypeInsnNode) {
+          size += stringSize(((TypeInsnNode) instruction).desc);
+        }
+      }
+    }
+    if (method.tryCatchBlocks != null) {
+      size += (long) method.tryCatchBlocks.size() * OBJECT_SIZE;
+    }
+    if (method.localVariables != null) {
+      for (LocalVariableNode localVariable : method.localVariables) {
+        size += OBJECT_SIZE + stringSize(localVariable.name) + stringSize(localVariable.desc);
+      }
+    }
+    return size;
+  }
+
+  private static long annotationsSize(List<AnnotationNode> annotations) {
+    if (annotations == null) {
+      return 0;
+    }
+    long size = 0;
+    for (AnnotationNode annotation : annotations) {
+      size += OBJECT_SIZE + stringSize(annotation.desc);
+      if (annotation.values != null) {
+        size += (long) annotation.values.size() * OBJECT_SIZE;
+      }
+    }
+    return size;
+  }
+
+  private static long stringSize(String string) {
+    return string == null ? 0 : OBJECT_SIZE + string.length();
+  }
 }
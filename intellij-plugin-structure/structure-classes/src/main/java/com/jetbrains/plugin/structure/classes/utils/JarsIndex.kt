@@ -0,0 +1,157 @@
+package com.jetbrains.plugin.structure.classes.utils
+
+import com.jetbrains.plugin.structure.base.utils.deleteLogged
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver.JarContents
+import org.slf4j.LoggerFactory
+import java.io.*
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+
+/**
+ * Persistent index of names of classes and service providers
+ * contained in a set of jar files, kept in the [indexFile].
+ *
+ * The index allows to skip scanning of all the entries of the jar files
+ * when the same jars are opened next time, for example when an IDE
+ * is opened again. Each jar is identified by its absolute path,
+ * so the [indexFile] may be kept anywhere, and its indexed contents are used only
+ * if the jar's size and last modification time have not changed.
+ */
+class JarsIndex private constructor(
+    private val indexFile: File,
+    private val entries: Map<String, IndexEntry>
+) {
+
+  companion object {
+    private val LOG = LoggerFactory.getLogger(JarsIndex::class.java)
+
+    private const val MAGIC = 0x4A494458
+
+    private const val VERSION = 2
+
+    /**
+     * Reads the index from [indexFile].
+     *
+     * If the file doesn't exist, is corrupted or is written in
+     * an unsupported format version, an empty index is returned,
+     * so the index is rebuilt.
+     */
+    fun read(indexFile: File): JarsIndex {
+      if (!indexFile.isFile) {
+        return JarsIndex(indexFile, emptyMap())
+      }
+      val entries = try {
+        DataInputStream(BufferedInputStream(FileInputStream(indexFile))).use { readEntries(it, indexFile.length()) }
+      } catch (e: Exception) {
+        LOG.info("Unable to read classes index $indexFile. It will be rebuilt.", e)
+        emptyMap<String, IndexEntry>()
+      }
+      return JarsIndex(indexFile, entries)
+    }
+
+    private fun readEntries(input: DataInputStream, indexSize: Long): Map<String, IndexEntry> {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        return emptyMap()
+      }
+      val entries = hashMapOf<String, IndexEntry>()
+      repeat(readCount(input, indexSize)) {
+        val path = input.readUTF()
+        val size = input.readLong()
+        val lastModified = input.readLong()
+        val classes = readStrings(input, indexSize)
+        val serviceProviders = readStrings(input, indexSize)
+        entries[path] = IndexEntry(size, lastModified, JarContents(classes, serviceProviders))
+      }
+      return entries
+    }
+
+    /**
+     * Reads the number of the following elements, each of which occupies
+     * at least two bytes, so there cannot be more of them than a half of the [indexSize].
+     */
+    private fun readCount(input: DataInputStream, indexSize: Long): Int {
+      val count = input.readInt()
+      if (count < 0 || count > indexSize / 2) {
+        throw IOException("Invalid number of elements: $count")
+      }
+      return count
+    }
+
+    private fun readStrings(input: DataInputStream, indexSize: Long): Set<String> {
+      val count = readCount(input, indexSize)
+      val strings = HashSet<String>(count * 4 / 3 + 1)
+      repeat(count) {
+        strings.add(input.readUTF())
+      }
+      return strings
+    }
+
+    private fun writeStrings(output: DataOutputStream, strings: Set<String>) {
+      output.writeInt(strings.size)
+      for (string in strings) {
+        output.writeUTF(string)
+      }
+    }
+  }
+
+  private data class IndexEntry(val size: Long, val lastModified: Long, val jarContents: JarContents)
+
+  private fun getJarPath(jar: File): String = jar.absoluteFile.toPath().normalize().toString()
+
+  /**
+   * Returns the indexed contents of the [jar], or `null`
+   * if the jar is not indexed or has been modified since then.
+   */
+  fun getJarContents(jar: File): JarContents? {
+    val entry = entries[getJarPath(jar)] ?: return null
+    if (entry.size != jar.length() || entry.lastModified != jar.lastModified()) {
+      return null
+    }
+    return entry.jarContents
+  }
+
+  /**
+   * Checks whether the index contains exactly the same [jars]
+   * in their current state.
+   */
+  fun isUpToDate(jars: List<File>) =
+      jars.size == entries.size && jars.all { getJarContents(it) != null }
+
+  /**
+   * Replaces the index file with a new one containing [jarsContents].
+   *
+   * The index is written to a temporary file first and then moved
+   * to the [indexFile], so concurrent readers never observe a partially
+   * written index. Failures are logged and otherwise ignored because
+   * the index is only an optimization.
+   */
+  fun write(jarsContents: Map<File, JarContents>) {
+    val tempFile = try {
+      File.createTempFile(indexFile.name, ".tmp", indexFile.absoluteFile.parentFile)
+    } catch (e: IOException) {
+      LOG.info("Unable to write classes index $indexFile", e)
+      return
+    }
+    try {
+      DataOutputStream(BufferedOutputStream(FileOutputStream(tempFile))).use { output ->
+        output.writeInt(MAGIC)
+        output.writeInt(VERSION)
+        output.writeInt(jarsContents.size)
+        for ((jar, jarContents) in jarsContents) {
+          output.writeUTF(getJarPath(jar))
+          output.writeLong(jar.length())
+          output.writeLong(jar.lastModified())
+          writeStrings(output, jarContents.classes)
+          writeStrings(output, jarContents.serviceProviders)
+        }
+      }
+      Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } catch (e: IOException) {
+      LOG.info("Unable to write classes index $indexFile", e)
+      tempFile.deleteLogged()
+    }
+  }
+
+  override fun toString() = "Classes index $indexFile"
+
+}
@@ -25,12 +25,32 @@ object JarsUtils {
 
   fun makeResolver(jars: Iterable<File>): Resolver = makeResolver(Resolver.ReadMode.FULL, jars)
 
-  private fun getResolversForJars(readMode: Resolver.ReadMode, jars: Iterable<File>): List<Resolver> {
-    val resolvers = arrayListOf<Resolver>()
+  /**
+   * Creates a resolver of the [jars] using the persistent [JarsIndex]
+   * kept in [indexFile] to avoid scanning the jars that have not changed
+   * since the index was written. The index is updated if any jar
+   * has been added, removed or modified.
+   */
+  fun makeResolver(readMode: Resolver.ReadMode, jars: Iterable<File>, indexFile: File): Resolver {
+    val jarsList = jars.toList()
+    val jarsIndex = JarsIndex.read(indexFile)
+    val resolvers = getResolversForJars(readMode, jarsList, jarsIndex)
+    if (!jarsIndex.isUpToDate(jarsList)) {
+      jarsIndex.write(jarsList.zip(resolvers) { jar, resolver -> jar to resolver.jarContents }.toMap())
+    }
+    return UnionResolver.create(resolvers)
+  }
+
+  private fun getResolversForJars(
+      readMode: Resolver.ReadMode,
+      jars: Iterable<File>,
+      jarsIndex: JarsIndex? = null
+  ): List<JarFileResolver> {
+    val resolvers = arrayListOf<JarFileResolver>()
     try {
       jars.mapTo(resolvers) {
         checkIfInterrupted()
-        JarFileResolver(it, readMode)
+        JarFileResolver(it, readMode, jarsIndex?.getJarContents(it))
       }
     } catch (e: Throwable) {
       resolvers.forEach { it.closeLogged() }
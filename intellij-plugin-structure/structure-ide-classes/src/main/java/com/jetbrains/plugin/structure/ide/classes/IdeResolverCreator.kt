@@ -23,22 +23,36 @@ object IdeResolverCreator {
   fun createIdeResolver(ide: Ide): Resolver = createIdeResolver(Resolver.ReadMode.FULL, ide)
 
   @JvmStatic
-  fun createIdeResolver(readMode: Resolver.ReadMode, ide: Ide): Resolver {
+  fun createIdeResolver(readMode: Resolver.ReadMode, ide: Ide): Resolver = createIdeResolver(readMode, ide, null)
+
+  /**
+   * Creates a resolver of the IDE classes.
+   *
+   * If [classesIndexFile] is specified, the contents of the
+   * distribution IDE's jars are read from and saved to this index,
+   * which makes opening of the same IDE next time faster.
+   */
+  @JvmStatic
+  fun createIdeResolver(readMode: Resolver.ReadMode, ide: Ide, classesIndexFile: File?): Resolver {
     val idePath = ide.idePath
     return when {
-      isDistributionIde(idePath) -> getJarsResolver(idePath.resolve("lib"), readMode)
+      isDistributionIde(idePath) -> getJarsResolver(idePath.resolve("lib"), readMode, classesIndexFile)
       isCompiledCommunity(idePath) || isCompiledUltimate(idePath) -> getIdeResolverFromCompiledSources(idePath, readMode)
       else -> throw IllegalArgumentException("Invalid IDE $ide at $idePath")
     }
   }
 
-  private fun getJarsResolver(jarsDirectory: File, readMode: Resolver.ReadMode): Resolver {
+  private fun getJarsResolver(jarsDirectory: File, readMode: Resolver.ReadMode, classesIndexFile: File? = null): Resolver {
     if (!jarsDirectory.isDirectory) {
       return EmptyResolver
     }
 
     val jars = JarsUtils.collectJars(jarsDirectory, { true }, false)
-    return JarsUtils.makeResolver(readMode, jars)
+    return if (classesIndexFile != null) {
+      JarsUtils.makeResolver(readMode, jars, classesIndexFile)
+    } else {
+      JarsUtils.makeResolver(readMode, jars)
+    }
   }
 
   private fun getIdeResolverFromCompiledSources(idePath: File, readMode: Resolver.ReadMode): Resolver {
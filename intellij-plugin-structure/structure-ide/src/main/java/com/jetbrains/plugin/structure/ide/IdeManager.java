@@ -41,4 +41,17 @@ public abstract class IdeManager {
   @NotNull
   public abstract Ide createIde(@NotNull File idePath, @Nullable IdeVersion version) throws IOException;
 
+  /**
+   * Reads the version of the IDE from the 'build.txt'. By default the IDE is {@link #createIde(File) created}
+   * to get its version, while the implementations may read the version without reading the IDE's plugins and classes.
+   *
+   * @param idePath IDE home directory
+   * @return version of the IDE
+   * @throws IOException if io-error occurs
+   */
+  @NotNull
+  public IdeVersion readIdeVersion(@NotNull File idePath) throws IOException {
+    return createIde(idePath).getVersion();
+  }
+
 }
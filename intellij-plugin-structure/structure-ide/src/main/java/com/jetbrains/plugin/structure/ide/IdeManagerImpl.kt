@@ -28,11 +28,7 @@ class IdeManagerImpl : IdeManager() {
 
   override fun createIde(idePath: File, version: IdeVersion?): Ide {
     check(idePath.exists()) { "IDE file doesn't exist: $idePath" }
-    val ideVersion = version ?: when {
-      isCompiledCommunity(idePath) || isCompiledUltimate(idePath) -> readVersionFromIdeSources(idePath)
-      isDistributionIde(idePath) -> readVersionFromDistribution(idePath)
-      else -> throw IllegalArgumentException("Invalid IDE: $idePath")
-    }
+    val ideVersion = version ?: readIdeVersion(idePath)
 
     val bundledPlugins = when {
       isCompiledCommunity(idePath) || isCompiledUltimate(idePath) -> readCompiledPlugins(getCompiledClassesRoot(idePath)!!)
@@ -43,6 +39,15 @@ class IdeManagerImpl : IdeManager() {
     return IdeImpl(idePath, ideVersion, bundledPlugins)
   }
 
+  override fun readIdeVersion(idePath: File): IdeVersion {
+    check(idePath.exists()) { "IDE file doesn't exist: $idePath" }
+    return when {
+      isCompiledCommunity(idePath) || isCompiledUltimate(idePath) -> readVersionFromIdeSources(idePath)
+      isDistributionIde(idePath) -> readVersionFromDistribution(idePath)
+      else -> throw IllegalArgumentException("Invalid IDE: $idePath")
+    }
+  }
+
   private fun readVersionFromDistribution(idePath: File): IdeVersion {
     val locations = listOf(
         idePath.resolve("build.txt"),
@@ -5,7 +5,7 @@ import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
 import java.io.File
 
-class ClassesDirectoryLocator(private val readMode: Resolver.ReadMode) : ClassesLocator {
+class ClassesDirectoryLocator(private val readMode: Resolver.ReadMode) : ZipClassesLocator {
   override val locationKey: LocationKey = ClassesDirectoryKey
 
   override fun findClasses(idePlugin: IdePlugin, pluginFile: File): Resolver? {
@@ -15,6 +15,11 @@ class ClassesDirectoryLocator(private val readMode: Resolver.ReadMode) : Classes
     }
     return null
   }
+
+  override fun findClasses(idePlugin: IdePlugin, pluginZip: PluginZip): Resolver? {
+    val entriesPrefix = pluginZip.directoryEntriesPrefix ?: return null
+    return pluginZip.readClassesDirectory(entriesPrefix + "classes/", readMode)
+  }
 }
 
 object ClassesDirectoryKey : LocationKey {
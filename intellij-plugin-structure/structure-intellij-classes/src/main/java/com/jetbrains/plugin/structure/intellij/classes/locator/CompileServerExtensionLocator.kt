@@ -1,6 +1,7 @@
 package com.jetbrains.plugin.structure.intellij.classes.locator
 
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.resolvers.UnionResolver
 import com.jetbrains.plugin.structure.classes.utils.JarsUtils
 import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
 import java.io.File
@@ -9,7 +10,7 @@ import java.io.File
  * Classes that added to external build process' classpath.
  * See PR-1063 and com.intellij.compiler.server.CompileServerPlugin for details
  */
-class CompileServerExtensionLocator(private val readMode: Resolver.ReadMode) : ClassesLocator {
+class CompileServerExtensionLocator(private val readMode: Resolver.ReadMode) : ZipClassesLocator {
   companion object {
     private const val EXTENSION_POINT_NAME = "com.intellij.compileServer.plugin"
   }
@@ -19,17 +20,28 @@ class CompileServerExtensionLocator(private val readMode: Resolver.ReadMode) : C
   override fun findClasses(idePlugin: IdePlugin, pluginFile: File): Resolver? {
     val pluginLib = File(pluginFile, "lib")
     if (pluginLib.isDirectory) {
-      val elements = idePlugin.extensions.get(EXTENSION_POINT_NAME)
-      val allCompileJars = elements
-          .mapNotNull { it.getAttributeValue("classpath") }
-          .flatMap { it.split(";") }
-          .filter { it.endsWith(".jar") }
+      val allCompileJars = getCompileJarsPaths(idePlugin)
           .map { File(pluginLib, it) }
           .filter { it.isFile }
       return JarsUtils.makeResolver(readMode, allCompileJars)
     }
     return null
   }
+
+  override fun findClasses(idePlugin: IdePlugin, pluginZip: PluginZip): Resolver? {
+    val libPrefix = (pluginZip.directoryEntriesPrefix ?: return null) + "lib/"
+    val libEntries = pluginZip.getDirectoryEntries(libPrefix)?.toSet() ?: return null
+    val allCompileJars = getCompileJarsPaths(idePlugin)
+        .map { libPrefix + it }
+        .filter { it in libEntries }
+    return UnionResolver.create(allCompileJars.map { pluginZip.readJar(it, readMode) })
+  }
+
+  private fun getCompileJarsPaths(idePlugin: IdePlugin) =
+      idePlugin.extensions.get(EXTENSION_POINT_NAME)
+          .mapNotNull { it.getAttributeValue("classpath") }
+          .flatMap { it.split(";") }
+          .filter { it.endsWith(".jar") }
 }
 
 object CompileServerExtensionKey : LocationKey {
@@ -3,10 +3,11 @@ package com.jetbrains.plugin.structure.intellij.classes.locator
 import com.jetbrains.plugin.structure.base.utils.isJar
 import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.intellij.extractor.ZipPluginLayout
 import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
 import java.io.File
 
-class JarPluginLocator(private val readMode: Resolver.ReadMode) : ClassesLocator {
+class JarPluginLocator(private val readMode: Resolver.ReadMode) : ZipClassesLocator {
   override val locationKey: LocationKey = JarPluginKey
 
   override fun findClasses(idePlugin: IdePlugin, pluginFile: File): Resolver? {
@@ -15,6 +16,14 @@ class JarPluginLocator(private val readMode: Resolver.ReadMode) : ClassesLocator
     }
     return null
   }
+
+  override fun findClasses(idePlugin: IdePlugin, pluginZip: PluginZip): Resolver? {
+    val layout = pluginZip.layout
+    if (layout is ZipPluginLayout.Jar) {
+      return pluginZip.readJar(layout.jarEntryName, readMode)
+    }
+    return null
+  }
 }
 
 object JarPluginKey : LocationKey {
@@ -1,11 +1,12 @@
 package com.jetbrains.plugin.structure.intellij.classes.locator
 
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.resolvers.UnionResolver
 import com.jetbrains.plugin.structure.classes.utils.JarsUtils
 import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
 import java.io.File
 
-class LibDirectoryLocator(private val readMode: Resolver.ReadMode) : ClassesLocator {
+class LibDirectoryLocator(private val readMode: Resolver.ReadMode) : ZipClassesLocator {
   override val locationKey = LibDirectoryKey
 
   override fun findClasses(idePlugin: IdePlugin, pluginFile: File): Resolver? {
@@ -17,6 +18,13 @@ class LibDirectoryLocator(private val readMode: Resolver.ReadMode) : ClassesLoca
     return null
   }
 
+  override fun findClasses(idePlugin: IdePlugin, pluginZip: PluginZip): Resolver? {
+    val libPrefix = (pluginZip.directoryEntriesPrefix ?: return null) + "lib/"
+    val libEntries = pluginZip.getDirectoryEntries(libPrefix) ?: return null
+    val jars = libEntries.filter { it.endsWith(".jar", true) && it.lastIndexOf('/') == libPrefix.length - 1 }
+    return UnionResolver.create(jars.map { pluginZip.readJar(it, readMode) })
+  }
+
 }
 
 object LibDirectoryKey : LocationKey {
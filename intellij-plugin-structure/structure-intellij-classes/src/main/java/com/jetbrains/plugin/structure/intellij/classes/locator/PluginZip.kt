@@ -0,0 +1,86 @@
+package com.jetbrains.plugin.structure.intellij.classes.locator
+
+import com.jetbrains.plugin.structure.classes.resolvers.InMemoryJarResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.intellij.extractor.ZipPluginLayout
+import java.io.File
+import java.io.IOException
+import java.util.zip.ZipFile
+
+/**
+ * Plugin's .zip archive [pluginFile] opened for reading
+ * the plugin's classes without extracting the archive.
+ *
+ * Jars nested into the archive are read into memory,
+ * see [InMemoryJarResolver]. No more than [maxClassesSize] bytes
+ * of classes are read in total: [IOException] is thrown when the limit
+ * is exceeded, so the caller may extract the archive instead.
+ */
+class PluginZip(
+    val pluginFile: File,
+    private val zipFile: ZipFile,
+    val layout: ZipPluginLayout,
+    private val maxClassesSize: Long = Long.MAX_VALUE
+) {
+
+  private companion object {
+    private const val CLASS_SUFFIX = ".class"
+  }
+
+  private val entryNames = zipFile.entries().asSequence().map { it.name }.toList()
+
+  private var classesSize = 0L
+
+  /**
+   * Prefix of the entries of the plugin's directory,
+   * or `null` if the archive contains a single jar.
+   */
+  val directoryEntriesPrefix: String?
+    get() = (layout as? ZipPluginLayout.Directory)?.entriesPrefix
+
+  /**
+   * Returns names of all the file entries located under the
+   * directory [directoryPrefix], or `null` if there is no such directory.
+   */
+  fun getDirectoryEntries(directoryPrefix: String): List<String>? {
+    val directoryEntries = entryNames.filter { it.startsWith(directoryPrefix) }
+    if (directoryEntries.isEmpty()) {
+      return null
+    }
+    return directoryEntries.filterNot { it.endsWith("/") }
+  }
+
+  /**
+   * Reads classes of the jar [jarEntryName] nested into the archive.
+   */
+  fun readJar(jarEntryName: String, readMode: Resolver.ReadMode): Resolver {
+    val jarEntry = zipFile.getEntry(jarEntryName) ?: throw IllegalArgumentException("Entry $jarEntryName is not found in $pluginFile")
+    val resolver = zipFile.getInputStream(jarEntry).use {
+      InMemoryJarResolver.readJar(File(pluginFile, jarEntryName), it, readMode, maxClassesSize - classesSize)
+    }
+    classesSize += resolver.classesSize
+    return resolver
+  }
+
+  /**
+   * Reads classes located under the directory [directoryPrefix]
+   * of the archive, or returns `null` if there is no such directory.
+   */
+  fun readClassesDirectory(directoryPrefix: String, readMode: Resolver.ReadMode): Resolver? {
+    val directoryEntries = getDirectoryEntries(directoryPrefix) ?: return null
+    val classesBytes = hashMapOf<String, ByteArray>()
+    for (entryName in directoryEntries) {
+      if (entryName.endsWith(CLASS_SUFFIX)) {
+        val className = entryName.removePrefix(directoryPrefix).removeSuffix(CLASS_SUFFIX)
+        val classBytes = zipFile.getInputStream(zipFile.getEntry(entryName)).use { it.readBytes() }
+        classesSize += classBytes.size
+        if (classesSize > maxClassesSize) {
+          throw IOException("Classes of $pluginFile exceed $maxClassesSize bytes")
+        }
+        classesBytes[className] = classBytes
+      }
+    }
+    return InMemoryJarResolver(File(pluginFile, directoryPrefix), classesBytes, emptyMap(), readMode)
+  }
+
+}
@@ -0,0 +1,12 @@
+package com.jetbrains.plugin.structure.intellij.classes.locator
+
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
+
+/**
+ * [ClassesLocator] that is able to find classes
+ * right in the plugin's .zip archive, without extracting it.
+ */
+interface ZipClassesLocator : ClassesLocator {
+  fun findClasses(idePlugin: IdePlugin, pluginZip: PluginZip): Resolver?
+}
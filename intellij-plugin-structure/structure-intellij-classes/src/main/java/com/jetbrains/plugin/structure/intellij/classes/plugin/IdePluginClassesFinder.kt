@@ -3,17 +3,17 @@ package com.jetbrains.plugin.structure.intellij.classes.plugin
 import com.jetbrains.plugin.structure.base.plugin.Settings
 import com.jetbrains.plugin.structure.base.utils.*
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
-import com.jetbrains.plugin.structure.intellij.classes.locator.ClassesDirectoryKey
-import com.jetbrains.plugin.structure.intellij.classes.locator.JarPluginKey
-import com.jetbrains.plugin.structure.intellij.classes.locator.LibDirectoryKey
-import com.jetbrains.plugin.structure.intellij.classes.locator.LocationKey
+import com.jetbrains.plugin.structure.intellij.classes.locator.*
 import com.jetbrains.plugin.structure.intellij.extractor.ExtractorResult
 import com.jetbrains.plugin.structure.intellij.extractor.PluginExtractor
+import com.jetbrains.plugin.structure.intellij.extractor.ZipPluginLayout
 import com.jetbrains.plugin.structure.intellij.plugin.IdePlugin
 import com.jetbrains.plugin.structure.intellij.plugin.IdePluginImpl
+import org.slf4j.LoggerFactory
 import java.io.Closeable
 import java.io.File
 import java.io.IOException
+import java.util.zip.ZipFile
 
 class IdePluginClassesFinder private constructor(
     private val idePlugin: IdePlugin,
@@ -41,6 +41,13 @@ class IdePluginClassesFinder private constructor(
   }
 
   private fun findInZip(pluginZip: File): IdePluginClassesLocations {
+    if (locatorKeys.all { it.getLocator(readMode) is ZipClassesLocator }) {
+      val locations = findInZipInMemory(pluginZip)
+      if (locations != null) {
+        return IdePluginClassesLocations(idePlugin, Closeable { /* Nothing to delete */ }, locations)
+      }
+    }
+
     val extractorResult = PluginExtractor.extractPlugin(pluginZip, extractDirectory)
     return when (extractorResult) {
       is ExtractorResult.Success -> {
@@ -53,12 +60,35 @@ class IdePluginClassesFinder private constructor(
     }
   }
 
-  private fun findLocations(pluginFile: File): Map<LocationKey, Resolver> {
+  /**
+   * Reads classes of the plugin [pluginZip] into memory, or returns `null`
+   * if the classes must be extracted to disk: because they are too large
+   * or because some nested jar can't be read as a stream.
+   */
+  private fun findInZipInMemory(pluginZip: File): Map<LocationKey, Resolver>? = ZipFile(pluginZip).use { zipFile ->
+    val layout = ZipPluginLayout.detect(zipFile)
+    if (layout is ZipPluginLayout.Fail) {
+      throw IOException(layout.pluginProblem.message)
+    }
+    val maxClassesSize = Settings.MAX_IN_MEMORY_CLASSES_MEGABYTES.get().toLong() * 1024 * 1024
+    val zip = PluginZip(pluginZip, zipFile, layout, maxClassesSize)
+    try {
+      findLocations { (it as ZipClassesLocator).findClasses(idePlugin, zip) }
+    } catch (e: IOException) {
+      LOG.debug("Plugin $pluginZip will be extracted because its classes can't be read into memory", e)
+      null
+    }
+  }
+
+  private fun findLocations(pluginFile: File): Map<LocationKey, Resolver> =
+      findLocations { it.findClasses(idePlugin, pluginFile) }
+
+  private fun findLocations(findClasses: (ClassesLocator) -> Resolver?): Map<LocationKey, Resolver> {
     val locations = hashMapOf<LocationKey, Resolver>()
     try {
       for (locatorKey in locatorKeys) {
         checkIfInterrupted()
-        val resolver = locatorKey.getLocator(readMode).findClasses(idePlugin, pluginFile)
+        val resolver = findClasses(locatorKey.getLocator(readMode))
         if (resolver != null) {
           locations[locatorKey] = resolver
         }
@@ -72,6 +102,8 @@ class IdePluginClassesFinder private constructor(
 
   companion object {
 
+    private val LOG = LoggerFactory.getLogger(IdePluginClassesFinder::class.java)
+
     val MAIN_CLASSES_KEYS = listOf(JarPluginKey, ClassesDirectoryKey, LibDirectoryKey)
 
     fun findPluginClasses(idePlugin: IdePlugin, additionalKeys: List<LocationKey> = emptyList()): IdePluginClassesLocations =
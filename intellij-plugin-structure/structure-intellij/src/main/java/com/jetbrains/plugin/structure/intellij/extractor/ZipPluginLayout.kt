@@ -0,0 +1,63 @@
+package com.jetbrains.plugin.structure.intellij.extractor
+
+import com.jetbrains.plugin.structure.base.plugin.PluginProblem
+import com.jetbrains.plugin.structure.intellij.problems.PluginZipContainsMultipleFiles
+import com.jetbrains.plugin.structure.intellij.problems.PluginZipContainsUnknownFile
+import com.jetbrains.plugin.structure.intellij.problems.PluginZipIsEmpty
+import java.util.zip.ZipFile
+
+/**
+ * Layout of a plugin's .zip archive determined by names of its entries,
+ * so that the plugin can be read without extracting the archive.
+ *
+ * The rules are the same as [PluginExtractor] applies to the extracted files.
+ */
+sealed class ZipPluginLayout {
+
+  /**
+   * The archive contains a single jar file [jarEntryName] in its root.
+   */
+  data class Jar(val jarEntryName: String) : ZipPluginLayout()
+
+  /**
+   * The archive contains a plugin directory: all entries of the plugin
+   * start with [entriesPrefix], which is either `<plugin-name>/` or empty
+   * if the archive's root contains the `lib` directory.
+   */
+  data class Directory(val entriesPrefix: String) : ZipPluginLayout()
+
+  data class Fail(val pluginProblem: PluginProblem) : ZipPluginLayout()
+
+  companion object {
+
+    fun detect(zipFile: ZipFile): ZipPluginLayout {
+      val rootFiles = hashSetOf<String>()
+      val rootDirectories = hashSetOf<String>()
+      for (entry in zipFile.entries().iterator()) {
+        val entryName = entry.name
+        val rootName = entryName.substringBefore('/')
+        if (rootName.isEmpty()) {
+          continue
+        }
+        if (entryName.length > rootName.length) {
+          rootDirectories.add(rootName)
+        } else {
+          rootFiles.add(rootName)
+        }
+      }
+      val rootNames = rootFiles + rootDirectories
+      return when {
+        rootNames.isEmpty() -> Fail(PluginZipIsEmpty())
+        rootNames.size == 1 -> {
+          val singleName = rootNames.first()
+          when {
+            singleName.endsWith(".jar") && singleName in rootFiles -> Jar(singleName)
+            singleName in rootDirectories -> Directory(if (singleName == "lib") "" else "$singleName/")
+            else -> Fail(PluginZipContainsUnknownFile(singleName))
+          }
+        }
+        else -> Fail(PluginZipContainsMultipleFiles(rootNames.sorted()))
+      }
+    }
+  }
+}
@@ -3,9 +3,7 @@ package com.jetbrains.plugin.structure.intellij.plugin;
 import com.jetbrains.plugin.structure.base.plugin.*;
 import com.jetbrains.plugin.structure.base.problems.*;
 import com.jetbrains.plugin.structure.base.utils.FileUtilKt;
-import com.jetbrains.plugin.structure.intellij.extractor.ExtractedPlugin;
-import com.jetbrains.plugin.structure.intellij.extractor.ExtractorResult;
-import com.jetbrains.plugin.structure.intellij.extractor.PluginExtractor;
+import com.jetbrains.plugin.structure.intellij.extractor.ZipPluginLayout;
 import com.jetbrains.plugin.structure.intellij.problems.IncorrectIntellijFile;
 import com.jetbrains.plugin.structure.intellij.problems.PluginLibDirectoryIsEmpty;
 import com.jetbrains.plugin.structure.intellij.problems.UnableToReadJarFile;
@@ -22,17 +20,14 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Function;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import static com.jetbrains.plugin.structure.intellij.utils.StringUtil.toSystemIndependentName;
 
@@ -91,7 +86,7 @@ public final class IdePluginManager implements PluginManager<IdePlugin> {
       if (entry != null) {
         try (InputStream documentStream = zipFile.getInputStream(entry)) {
           Document document = JDOMUtil.loadDocument(documentStream);
-          List<PluginIcon> icons = getIconsFromJarFile(zipFile);
+          List<PluginIcon> icons = getIconsFromZipFile(zipFile, "");
           URL documentUrl = URLUtil.getJarEntryURL(jarFile, entry.getName());
           return new PluginCreator(descriptorPath, validateDescriptor, document, documentUrl, pathResolver, jarFile, icons);
         } catch (Exception e) {
@@ -111,16 +106,18 @@ public final class IdePluginManager implements PluginManager<IdePlugin> {
   }
 
   @NotNull
-  private List<PluginIcon> getIconsFromJarFile(ZipFile jarFile) throws IOException {
+  private List<PluginIcon> getIconsFromZipFile(@NotNull ZipFile zipFile, @NotNull String entriesPrefix) throws IOException {
     List<PluginIcon> icons = new ArrayList<>();
     for (IconTheme theme : IconTheme.values()) {
       String zipEntryName = getIconFileName(theme);
-      ZipEntry entry = getEntry(jarFile, zipEntryName);
+      ZipEntry entry = getEntry(zipFile, entriesPrefix, zipEntryName);
       if (entry == null) {
         continue;
       }
       byte[] iconContent = new byte[(int) entry.getSize()];
-      IOUtils.readFully(jarFile.getInputStream(entry), iconContent);
+      try (InputStream iconStream = zipFile.getInputStream(entry)) {
+        IOUtils.readFully(iconStream, iconContent);
+      }
       icons.add(new PluginIcon(theme, iconContent, zipEntryName));
     }
     return icons;
@@ -128,7 +125,12 @@ public final class IdePluginManager implements PluginManager<IdePlugin> {
 
   @Nullable
   private ZipEntry getEntry(@NotNull ZipFile zipFile, @NotNull String descriptorPath) {
-    String zipEntryName = getZipEntryName(descriptorPath);
+    return getEntry(zipFile, "", descriptorPath);
+  }
+
+  @Nullable
+  private ZipEntry getEntry(@NotNull ZipFile zipFile, @NotNull String entriesPrefix, @NotNull String descriptorPath) {
+    String zipEntryName = entriesPrefix + getZipEntryName(descriptorPath);
     ZipEntry entry = zipFile.getEntry(zipEntryName);
     return entry != null ? entry : zipFile.getEntry(zipEntryName.replace(File.separator, "/"));
   }
@@ -226,15 +228,19 @@ public final class IdePluginManager implements PluginManager<IdePlugin> {
   }
 
   private void sortFilesWithRespectToRootDirectoryName(@NotNull final File root, File[] files) {
+    Arrays.sort(files, Comparator.comparing(File::getName, getLibFileNamesComparator(root.getName())));
+  }
+
+  @NotNull
+  private Comparator<String> getLibFileNamesComparator(@NotNull final String rootDirectoryName) {
     //move plugin-jar to the beginning: Sample.jar goes first (if Sample is a plugin name)
-    final String rootDirectoryName = root.getName();
-    Arrays.sort(files, (o1, o2) -> {
-      if (o2.getName().startsWith(rootDirectoryName)) return Integer.MAX_VALUE;
-      if (o1.getName().startsWith(rootDirectoryName)) return -Integer.MAX_VALUE;
-      if (o2.getName().startsWith("resources")) return -Integer.MAX_VALUE;
-      if (o1.getName().startsWith("resources")) return Integer.MAX_VALUE;
+    return (o1, o2) -> {
+      if (o2.startsWith(rootDirectoryName)) return Integer.MAX_VALUE;
+      if (o1.startsWith(rootDirectoryName)) return -Integer.MAX_VALUE;
+      if (o2.startsWith("resources")) return -Integer.MAX_VALUE;
+      if (o1.startsWith("resources")) return Integer.MAX_VALUE;
       return 0;
-    });
+    };
   }
 
   @NotNull
@@ -250,55 +256,224 @@ public final class IdePluginManager implements PluginManager<IdePlugin> {
     } else {
       return new PluginCreator(descriptorPath, new IncorrectIntellijFile(jarOrDirectory.getName()), jarOrDirectory);
     }
-    return resolveOptionalDependencies(jarOrDirectory, pluginCreator);
+    return resolveOptionalDependencies(pluginCreator, configurationFile -> loadPluginInfoFromJarOrDirectory(jarOrDirectory, configurationFile, false));
   }
 
-  private PluginCreator resolveOptionalDependencies(@NotNull File jarOrDirectory,
-                                                    @NotNull PluginCreator pluginCreator) {
+  private PluginCreator resolveOptionalDependencies(@NotNull PluginCreator pluginCreator,
+                                                    @NotNull Function<String, PluginCreator> descriptorLoader) {
     if (pluginCreator.isSuccess()) {
       Map<PluginDependency, String> optionalConfigurationFiles = pluginCreator.getOptionalDependenciesConfigurationFiles();
-      return resolveOptionalDependencies(jarOrDirectory, optionalConfigurationFiles, pluginCreator);
+      return resolveOptionalDependencies(optionalConfigurationFiles, pluginCreator, descriptorLoader);
     } else {
       return pluginCreator;
     }
   }
 
-  private PluginCreator resolveOptionalDependencies(File jarOrDirectory,
-                                                    Map<PluginDependency, String> optionalConfigurationFiles,
-                                                    PluginCreator pluginCreator) {
+  private PluginCreator resolveOptionalDependencies(Map<PluginDependency, String> optionalConfigurationFiles,
+                                                    PluginCreator pluginCreator,
+                                                    Function<String, PluginCreator> descriptorLoader) {
     for (Map.Entry<PluginDependency, String> entry : optionalConfigurationFiles.entrySet()) {
       PluginDependency pluginDependency = entry.getKey();
       String configurationFile = entry.getValue();
-      PluginCreator optionalCreator = resolveOptionalConfigurationFile(jarOrDirectory, configurationFile);
+      PluginCreator optionalCreator = resolveOptionalConfigurationFile(configurationFile, descriptorLoader);
       pluginCreator.addOptionalDescriptor(pluginDependency, configurationFile, optionalCreator);
     }
     return pluginCreator;
   }
 
-  private PluginCreator resolveOptionalConfigurationFile(@NotNull File jarOrDirectory, @NotNull String configurationFile) {
+  private PluginCreator resolveOptionalConfigurationFile(@NotNull String configurationFile,
+                                                         @NotNull Function<String, PluginCreator> descriptorLoader) {
     if (configurationFile.startsWith("/" + META_INF + "/")) {
       configurationFile = StringUtil.trimStart(configurationFile, "/" + META_INF + "/");
     }
-    return loadPluginInfoFromJarOrDirectory(jarOrDirectory, configurationFile, false);
+    return descriptorLoader.apply(configurationFile);
   }
 
+  /**
+   * Reads the plugin descriptor directly from the entries of the {@code zipPlugin}
+   * without extracting it. The jars nested into the .zip are scanned in memory
+   * and their entries are referenced by "jar:file:plugin.zip!/lib/plugin.jar!/META-INF/plugin.xml" URLs,
+   * which are supported by {@link URLUtil}.
+   */
   @NotNull
-  private PluginCreator extractZipAndCreatePlugin(@NotNull File zipPlugin,
-                                                  boolean validateDescriptor) {
-    ExtractorResult extractorResult;
-    try {
-      extractorResult = PluginExtractor.INSTANCE.extractPlugin(zipPlugin, myExtractDirectory);
+  private PluginCreator loadPluginInfoFromZip(@NotNull File zipPlugin, boolean validateDescriptor) {
+    try (ZipFile zipFile = new ZipFile(zipPlugin)) {
+      ZipPluginLayout layout = ZipPluginLayout.Companion.detect(zipFile);
+      if (layout instanceof ZipPluginLayout.Fail) {
+        return new PluginCreator(PLUGIN_XML, ((ZipPluginLayout.Fail) layout).getPluginProblem(), zipPlugin);
+      }
+      return loadPluginInfoFromZipLayout(zipPlugin, zipFile, layout, PLUGIN_XML, validateDescriptor);
     } catch (Exception e) {
-      LOG.info("Unable to extract plugin zip " + zipPlugin, e);
+      LOG.info("Unable to read plugin zip " + zipPlugin, e);
       return new PluginCreator(PLUGIN_XML, new UnableToExtractZip(), zipPlugin);
     }
-    if (extractorResult instanceof ExtractorResult.Success) {
-      try (ExtractedPlugin extractedPlugin = ((ExtractorResult.Success) extractorResult).getExtractedPlugin()) {
-        return loadPluginInfoFromJarOrDirectory(extractedPlugin.getPluginFile(), PLUGIN_XML, validateDescriptor);
-      }
+  }
+
+  @NotNull
+  private PluginCreator loadPluginInfoFromZipLayout(@NotNull File zipPlugin,
+                                                    @NotNull ZipFile zipFile,
+                                                    @NotNull ZipPluginLayout layout,
+                                                    @NotNull String descriptorPath,
+                                                    boolean validateDescriptor) {
+    descriptorPath = toSystemIndependentName(descriptorPath);
+    PluginCreator pluginCreator;
+    if (layout instanceof ZipPluginLayout.Jar) {
+      String jarEntryName = ((ZipPluginLayout.Jar) layout).getJarEntryName();
+      pluginCreator = loadPluginInfoFromNestedJar(zipPlugin, zipFile, jarEntryName, descriptorPath, myPathResolver, validateDescriptor);
     } else {
-      return new PluginCreator(PLUGIN_XML, ((ExtractorResult.Fail) extractorResult).getPluginProblem(), zipPlugin);
+      String entriesPrefix = ((ZipPluginLayout.Directory) layout).getEntriesPrefix();
+      pluginCreator = loadPluginInfoFromZipDirectory(zipPlugin, zipFile, entriesPrefix, descriptorPath, validateDescriptor);
+    }
+    return resolveOptionalDependencies(pluginCreator, configurationFile -> loadPluginInfoFromZipLayout(zipPlugin, zipFile, layout, configurationFile, false));
+  }
+
+  private PluginCreator loadPluginInfoFromNestedJar(@NotNull File zipPlugin,
+                                                    @NotNull ZipFile zipFile,
+                                                    @NotNull String jarEntryName,
+                                                    @NotNull String descriptorPath,
+                                                    @NotNull XIncludePathResolver pathResolver,
+                                                    boolean validateDescriptor) {
+    File jarFile = new File(zipPlugin, jarEntryName);
+    String descriptorEntryName = toSystemIndependentName(getZipEntryName(descriptorPath));
+    Map<String, IconTheme> iconEntryNames = new HashMap<>();
+    for (IconTheme theme : IconTheme.values()) {
+      iconEntryNames.put(META_INF + "/" + getIconFileName(theme), theme);
     }
+
+    byte[] descriptorContent = null;
+    Map<IconTheme, byte[]> iconsContents = new EnumMap<>(IconTheme.class);
+    try (ZipInputStream jarStream = new ZipInputStream(zipFile.getInputStream(zipFile.getEntry(jarEntryName)))) {
+      ZipEntry entry;
+      while ((entry = jarStream.getNextEntry()) != null) {
+        if (entry.getName().equals(descriptorEntryName)) {
+          descriptorContent = IOUtils.toByteArray(jarStream);
+        } else if (iconEntryNames.containsKey(entry.getName())) {
+          iconsContents.put(iconEntryNames.get(entry.getName()), IOUtils.toByteArray(jarStream));
+        }
+      }
+    } catch (Exception e) {
+      LOG.info("Unable to read jar file " + jarFile, e);
+      return new PluginCreator(descriptorPath, new UnableToReadJarFile(), jarFile);
+    }
+
+    if (descriptorContent == null) {
+      return new PluginCreator(descriptorPath, new PluginDescriptorIsNotFound(descriptorPath), jarFile);
+    }
+    try {
+      Document document = JDOMUtil.loadDocument(new ByteArrayInputStream(descriptorContent));
+      List<PluginIcon> icons = new ArrayList<>();
+      for (Map.Entry<IconTheme, byte[]> iconContent : iconsContents.entrySet()) {
+        icons.add(new PluginIcon(iconContent.getKey(), iconContent.getValue(), getIconFileName(iconContent.getKey())));
+      }
+      URL documentUrl = URLUtil.getJarEntryURL(zipPlugin, jarEntryName + URLUtil.JAR_SEPARATOR + descriptorEntryName);
+      return new PluginCreator(descriptorPath, validateDescriptor, document, documentUrl, pathResolver, jarFile, icons);
+    } catch (Exception e) {
+      LOG.info("Unable to read file " + descriptorPath);
+      return new PluginCreator(descriptorPath, new UnableToReadDescriptor(descriptorPath), jarFile);
+    }
+  }
+
+  private PluginCreator loadPluginInfoFromZipDirectory(@NotNull File zipPlugin,
+                                                       @NotNull ZipFile zipFile,
+                                                       @NotNull String entriesPrefix,
+                                                       @NotNull String descriptorPath,
+                                                       boolean validateDescriptor) {
+    File pluginDirectory = entriesPrefix.isEmpty() ? zipPlugin : new File(zipPlugin, entriesPrefix);
+    ZipEntry descriptorEntry = getEntry(zipFile, entriesPrefix, descriptorPath);
+    if (descriptorEntry == null) {
+      return loadPluginInfoFromZipLibDirectory(zipPlugin, zipFile, entriesPrefix, descriptorPath, validateDescriptor);
+    }
+
+    try (InputStream documentStream = zipFile.getInputStream(descriptorEntry)) {
+      Document document = JDOMUtil.loadDocument(documentStream);
+      List<PluginIcon> icons = getIconsFromZipFile(zipFile, entriesPrefix);
+      URL documentUrl = URLUtil.getJarEntryURL(zipPlugin, descriptorEntry.getName());
+      return new PluginCreator(descriptorPath, validateDescriptor, document, documentUrl, myPathResolver, pluginDirectory, icons);
+    } catch (JDOMParseException e) {
+      int lineNumber = e.getLineNumber();
+      String message = lineNumber != -1 ? "unexpected element on line " + lineNumber : "unexpected elements";
+      return new PluginCreator(descriptorPath, new UnexpectedDescriptorElements(message, descriptorPath), pluginDirectory);
+    } catch (Exception e) {
+      LOG.info("Unable to read plugin descriptor " + descriptorPath + " of plugin " + pluginDirectory, e);
+      return new PluginCreator(descriptorPath, new UnableToReadDescriptor(descriptorPath), pluginDirectory);
+    }
+  }
+
+  private PluginCreator loadPluginInfoFromZipLibDirectory(@NotNull File zipPlugin,
+                                                          @NotNull ZipFile zipFile,
+                                                          @NotNull String entriesPrefix,
+                                                          @NotNull String descriptorPath,
+                                                          boolean validateDescriptor) {
+    File root = entriesPrefix.isEmpty() ? zipPlugin : new File(zipPlugin, entriesPrefix);
+    String libPrefix = entriesPrefix + "lib/";
+    boolean hasLibDirectory = false;
+    Set<String> libFiles = new LinkedHashSet<>();
+    Set<String> libDirectories = new HashSet<>();
+    for (ZipEntry entry : Collections.list(zipFile.entries())) {
+      String entryName = entry.getName();
+      if (!entryName.startsWith(libPrefix)) {
+        continue;
+      }
+      hasLibDirectory = true;
+      String relativePath = entryName.substring(libPrefix.length());
+      if (relativePath.isEmpty()) {
+        continue;
+      }
+      int slashIndex = relativePath.indexOf('/');
+      String libFileName = slashIndex < 0 ? relativePath : relativePath.substring(0, slashIndex);
+      libFiles.add(libFileName);
+      if (slashIndex >= 0) {
+        libDirectories.add(libFileName);
+      }
+    }
+    if (!hasLibDirectory) {
+      return new PluginCreator(descriptorPath, new PluginDescriptorIsNotFound(descriptorPath), root);
+    }
+    if (libFiles.isEmpty()) {
+      return new PluginCreator(descriptorPath, new PluginLibDirectoryIsEmpty(), root);
+    }
+    List<String> sortedLibFiles = new ArrayList<>(libFiles);
+    sortedLibFiles.sort(getLibFileNamesComparator(root.getName()));
+
+    List<URL> metaInfUrls = new ArrayList<>();
+    for (String libFile : sortedLibFiles) {
+      if (!libDirectories.contains(libFile) && isJarOrZipName(libFile)) {
+        try {
+          metaInfUrls.add(URLUtil.getJarEntryURL(zipPlugin, libPrefix + libFile + URLUtil.JAR_SEPARATOR + META_INF + "/"));
+        } catch (MalformedURLException ignored) {
+        }
+      }
+    }
+    XIncludePathResolver pathResolver = new PluginXmlXIncludePathResolver(metaInfUrls);
+
+    PluginCreator okOrPartiallyBrokenResult = null;
+
+    for (String libFile : sortedLibFiles) {
+      PluginCreator innerCreator;
+      if (libDirectories.contains(libFile)) {
+        innerCreator = loadPluginInfoFromZipDirectory(zipPlugin, zipFile, libPrefix + libFile + "/", descriptorPath, validateDescriptor);
+      } else if (isJarOrZipName(libFile)) {
+        innerCreator = loadPluginInfoFromNestedJar(zipPlugin, zipFile, libPrefix + libFile, descriptorPath, pathResolver, validateDescriptor);
+      } else {
+        continue;
+      }
+
+      if (innerCreator.isSuccess() || innerCreator.hasOnlyInvalidDescriptorErrors()) {
+        if (okOrPartiallyBrokenResult == null) {
+          okOrPartiallyBrokenResult = innerCreator;
+        } else {
+          return getMultipleDescriptorsResult(root, descriptorPath, okOrPartiallyBrokenResult.getActualFile().getName(), innerCreator.getActualFile().getName());
+        }
+      }
+    }
+    if (okOrPartiallyBrokenResult != null) {
+      return okOrPartiallyBrokenResult;
+    }
+    return new PluginCreator(descriptorPath, new PluginDescriptorIsNotFound(descriptorPath), root);
+  }
+
+  private boolean isJarOrZipName(@NotNull String fileName) {
+    return fileName.endsWith(".jar") || fileName.endsWith(".zip");
   }
 
   @NotNull
@@ -330,7 +505,7 @@ public final class IdePluginManager implements PluginManager<IdePlugin> {
     }
     PluginCreator pluginCreator;
     if (FileUtilKt.isZip(pluginFile)) {
-      pluginCreator = extractZipAndCreatePlugin(pluginFile, validateDescriptor);
+      pluginCreator = loadPluginInfoFromZip(pluginFile, validateDescriptor);
     } else {
       pluginCreator = loadPluginInfoFromJarOrDirectory(pluginFile, descriptorPath, validateDescriptor);
     }
@@ -10,20 +10,27 @@ import java.io.File
 import java.net.MalformedURLException
 import java.net.URL
 
-class PluginXmlXIncludePathResolver(files: List<File>) : DefaultXIncludePathResolver() {
+/**
+ * Resolves x-included paths against `META-INF` directories of jar files,
+ * which are specified either as the files or as URLs of the directories,
+ * for example, URLs of jars nested into a plugin's .zip.
+ */
+class PluginXmlXIncludePathResolver(private val metaInfUrls: Collection<URL>) : DefaultXIncludePathResolver() {
 
-  private val metaInfUrls = getMetaInfUrls(files)
+  constructor(files: List<File>) : this(getMetaInfUrls(files))
 
-  private fun getMetaInfUrls(files: List<File>) =
-      files.asSequence()
-          .filter { it.isJar() || it.isZip() }
-          .mapNotNull {
-            try {
-              URLUtil.getJarEntryURL(it, "${IdePluginManager.META_INF}/")
-            } catch (e: MalformedURLException) {
-              null
-            }
-          }.toList()
+  private companion object {
+    fun getMetaInfUrls(files: List<File>) =
+        files.asSequence()
+            .filter { it.isJar() || it.isZip() }
+            .mapNotNull {
+              try {
+                URLUtil.getJarEntryURL(it, "${IdePluginManager.META_INF}/")
+              } catch (e: MalformedURLException) {
+                null
+              }
+            }.toList()
+  }
 
   private fun defaultResolve(relativePath: String, base: String?) =
       if (base != null && relativePath.startsWith("/${IdePluginManager.META_INF}/")) {
@@ -26,6 +26,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 public class URLUtil {
   public static final String SCHEME_SEPARATOR = "://";
@@ -71,8 +72,9 @@ public class URLUtil {
       if (!new File(paths.getFirst()).isFile()) {
         return ThreeState.NO;
       }
-      try (ZipFile file = new ZipFile(paths.getFirst())) {
-        return ThreeState.fromBoolean(file.getEntry(paths.getSecond()) != null);
+      try (ZipFile file = new ZipFile(paths.getFirst());
+           InputStream entryStream = openEntryStream(file, paths.getSecond())) {
+        return ThreeState.fromBoolean(entryStream != null);
       } catch (IOException e) {
         return ThreeState.NO;
       }
@@ -130,13 +132,19 @@ public class URLUtil {
     }
 
     final ZipFile zipFile = new ZipFile(paths.getFirst());
-    ZipEntry zipEntry = zipFile.getEntry(paths.getSecond());
-    if (zipEntry == null) {
+    InputStream entryStream;
+    try {
+      entryStream = openEntryStream(zipFile, paths.getSecond());
+    } catch (IOException e) {
+      zipFile.close();
+      throw e;
+    }
+    if (entryStream == null) {
       zipFile.close();
       throw new FileNotFoundException("Entry " + paths.getSecond() + " is not found in " + paths.getFirst());
     }
 
-    return new FilterInputStream(zipFile.getInputStream(zipEntry)) {
+    return new FilterInputStream(entryStream) {
       @Override
       public void close() throws IOException {
         super.close();
@@ -145,6 +153,39 @@ public class URLUtil {
     };
   }
 
+  /**
+   * Opens a stream of the {@code entryPath} of the {@code zipFile}.
+   * <p/>
+   * The entry may belong to a jar nested into the {@code zipFile}: such entries are
+   * addressed as "lib/plugin.jar!/META-INF/plugin.xml" and are read
+   * by scanning the nested jar without extracting it.
+   * <p/>
+   * Returns null if the entry does not exist.
+   */
+  @Nullable
+  private static InputStream openEntryStream(@NotNull ZipFile zipFile, @NotNull String entryPath) throws IOException {
+    int nestedSeparator = entryPath.indexOf(JAR_SEPARATOR);
+    if (nestedSeparator < 0) {
+      ZipEntry zipEntry = zipFile.getEntry(entryPath);
+      return zipEntry != null ? zipFile.getInputStream(zipEntry) : null;
+    }
+
+    ZipEntry jarEntry = zipFile.getEntry(entryPath.substring(0, nestedSeparator));
+    if (jarEntry == null) {
+      return null;
+    }
+    String nestedEntryPath = entryPath.substring(nestedSeparator + JAR_SEPARATOR.length());
+    ZipInputStream jarStream = new ZipInputStream(zipFile.getInputStream(jarEntry));
+    ZipEntry nestedEntry;
+    while ((nestedEntry = jarStream.getNextEntry()) != null) {
+      if (nestedEntry.getName().equals(nestedEntryPath)) {
+        return jarStream;
+      }
+    }
+    jarStream.close();
+    return null;
+  }
+
   @NotNull
   public static URL getJarEntryURL(@NotNull File file, @NotNull String pathInJar) throws MalformedURLException {
     String fileURL = StringUtil.replace(file.toURI().toASCIIString(), "!", "%21");
@@ -4,13 +4,19 @@ import com.jetbrains.plugin.structure.intellij.utils.ThreeState;
 import com.jetbrains.plugin.structure.intellij.utils.URLUtil;
 import kotlin.Pair;
 import kotlin.jvm.JvmField;
+import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.*;
 
@@ -78,4 +84,27 @@ public class URLUtilTest {
     URL xxxUrl = new URL(stringUrl.getProtocol(), "", -1, stringUrl.getPath() + "/xxx");
     assertEquals(ThreeState.NO, URLUtil.resourceExists(xxxUrl));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void resourceOfJarNestedIntoZip() throws Exception {
+    File zipFile = tempFolder.newFile("plugin.zip");
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(zipFile))) {
+      zipOutputStream.putNextEntry(new ZipEntry("plugin/lib/plugin.jar"));
+      ZipOutputStream jarOutputStream = new ZipOutputStream(zipOutputStream);
+      jarOutputStream.putNextEntry(new ZipEntry("META-INF/plugin.xml"));
+      jarOutputStream.write("<idea-plugin/>".getBytes(StandardCharsets.UTF_8));
+      jarOutputStream.finish();
+      zipOutputStream.closeEntry();
+    }
+
+    URL descriptorUrl = URLUtil.getJarEntryURL(zipFile, "plugin/lib/plugin.jar!/META-INF/plugin.xml");
+    assertEquals(ThreeState.YES, URLUtil.resourceExists(descriptorUrl));
+    try (InputStream inputStream = URLUtil.openStream(descriptorUrl)) {
+      assertEquals("<idea-plugin/>", new String(IOUtils.toByteArray(inputStream), StandardCharsets.UTF_8));
+    }
+
+    URL relativeUrl = new URL(descriptorUrl, "other.xml");
+    assertEquals(URLUtil.getJarEntryURL(zipFile, "plugin/lib/plugin.jar!/META-INF/other.xml"), relativeUrl);
+    assertEquals(ThreeState.NO, URLUtil.resourceExists(relativeUrl));
+  }
+}
@@ -40,6 +40,15 @@ class IdeTest {
     IdeManager.createManager().createIde(ideaFolder)
   }
 
+  @Test
+  fun `version is read without reading the IDE`() {
+    val ideaFolder = temporaryFolder.newFolder("idea")
+    ideaFolder.resolve("lib").mkdirs()
+    File(ideaFolder, "build.txt").writeText("IU-163.1.2.3")
+
+    assertEquals(IdeVersion.createIdeVersion("IU-163.1.2.3"), IdeManager.createManager().readIdeVersion(ideaFolder))
+  }
+
   @Test
   fun `create idea from binaries`() {
     val ideaFolder = temporaryFolder.newFolder("idea")
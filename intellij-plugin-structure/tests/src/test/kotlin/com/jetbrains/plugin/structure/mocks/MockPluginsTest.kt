@@ -3,8 +3,8 @@ package com.jetbrains.plugin.structure.mocks
 import com.jetbrains.plugin.structure.base.plugin.PluginCreationFail
 import com.jetbrains.plugin.structure.base.plugin.PluginCreationSuccess
 import com.jetbrains.plugin.structure.base.plugin.PluginProblem
-import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.resolvers.ServiceProvidersContainer
 import com.jetbrains.plugin.structure.intellij.classes.locator.ClassesDirectoryKey
 import com.jetbrains.plugin.structure.intellij.classes.locator.CompileServerExtensionKey
 import com.jetbrains.plugin.structure.intellij.classes.locator.JarPluginKey
@@ -83,6 +83,17 @@ class MockPluginsTest : BaseMockPluginTest() {
     testMockPluginStructureAndConfiguration("mock-plugin-lib.zip", "lib/mock-plugin-1.0.jar", true)
   }
 
+  @Test
+  fun `plugin classes exceeding in-memory limit are read from extracted zip`() {
+    val property = "intellij.structure.max.in.memory.classes.megabytes"
+    System.setProperty(property, "0")
+    try {
+      testMockPluginStructureAndConfiguration("mock-plugin-lib.zip", "lib/mock-plugin-1.0.jar", true)
+    } finally {
+      System.clearProperty(property)
+    }
+  }
+
   @Test
   fun `directory with lib subdirectory containing jar file`() {
     testMockPluginStructureAndConfiguration("mock-plugin-dir", "lib/mock-plugin-1.0.jar", true)
@@ -222,10 +233,10 @@ class MockPluginsTest : BaseMockPluginTest() {
     val compileServerJars = resolver.finalResolvers
     assertEquals(1, compileServerJars.size)
     val compileServerJar = compileServerJars[0]
-    assertTrue(compileServerJar is JarFileResolver)
-    val jarFileResolver = compileServerJar as JarFileResolver
-    assertSetsEqual(setOf("com.example.service.Service"), jarFileResolver.implementedServiceProviders)
-    val implementationNames = jarFileResolver.readServiceImplementationNames("com.example.service.Service")
+    assertTrue(compileServerJar is ServiceProvidersContainer)
+    val jarResolver = compileServerJar as ServiceProvidersContainer
+    assertSetsEqual(setOf("com.example.service.Service"), jarResolver.implementedServiceProviders)
+    val implementationNames = jarResolver.readServiceImplementationNames("com.example.service.Service")
     assertSetsEqual(setOf(
         "com.some.compile.library.One",
         "com.some.compile.library.Two",
@@ -0,0 +1,109 @@
+package com.jetbrains.plugin.structure.resolvers
+
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.utils.JarsIndex
+import com.jetbrains.plugin.structure.classes.utils.JarsUtils
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.DataOutputStream
+import java.io.File
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+
+class JarsIndexTest {
+
+  @Rule
+  @JvmField
+  val temporaryFolder = TemporaryFolder()
+
+  private fun createJar(jarFile: File, vararg entries: String) {
+    JarOutputStream(jarFile.outputStream()).use { jarOutputStream ->
+      for (entry in entries) {
+        jarOutputStream.putNextEntry(JarEntry(entry))
+        jarOutputStream.closeEntry()
+      }
+    }
+  }
+
+  @Test
+  fun `index is written and used for unchanged jars`() {
+    val libDirectory = temporaryFolder.newFolder("lib")
+    val firstJar = libDirectory.resolve("first.jar")
+    val secondJar = libDirectory.resolve("second.jar")
+    createJar(firstJar, "com/example/First.class", "META-INF/services/com.example.Service")
+    createJar(secondJar, "com/example/other/Second.class")
+    val indexFile = temporaryFolder.root.resolve("classes-index")
+
+    JarsUtils.makeResolver(Resolver.ReadMode.FULL, listOf(firstJar, secondJar), indexFile).use { }
+    assertTrue(indexFile.isFile)
+
+    val jarsIndex = JarsIndex.read(indexFile)
+    assertTrue(jarsIndex.isUpToDate(listOf(firstJar, secondJar)))
+    val firstContents = jarsIndex.getJarContents(firstJar)!!
+    assertEquals(setOf("com/example/First"), firstContents.classes)
+    assertEquals(setOf("com.example.Service"), firstContents.serviceProviders)
+
+    JarsUtils.makeResolver(Resolver.ReadMode.FULL, listOf(firstJar, secondJar), indexFile).use { resolver ->
+      assertEquals(setOf("com/example/First", "com/example/other/Second"), resolver.allClasses)
+      assertTrue(resolver.containsPackage("com/example/other"))
+    }
+  }
+
+  @Test
+  fun `modified jar is not taken from index`() {
+    val jar = temporaryFolder.newFile("some.jar")
+    createJar(jar, "Some.class")
+    val indexFile = temporaryFolder.root.resolve("classes-index")
+    JarsUtils.makeResolver(Resolver.ReadMode.FULL, listOf(jar), indexFile).use { }
+
+    createJar(jar, "Some.class", "Other.class")
+    jar.setLastModified(jar.lastModified() + 1000)
+    assertNull(JarsIndex.read(indexFile).getJarContents(jar))
+
+    JarsUtils.makeResolver(Resolver.ReadMode.FULL, listOf(jar), indexFile).use { resolver ->
+      assertEquals(setOf("Some", "Other"), resolver.allClasses)
+    }
+    assertEquals(setOf("Some", "Other"), JarsIndex.read(indexFile).getJarContents(jar)!!.classes)
+  }
+
+  @Test
+  fun `corrupted index is ignored`() {
+    val jar = temporaryFolder.newFile("some.jar")
+    createJar(jar, "Some.class")
+    val indexFile = temporaryFolder.newFile("classes-index")
+    indexFile.writeText("corrupted")
+
+    JarsUtils.makeResolver(Resolver.ReadMode.FULL, listOf(jar), indexFile).use { resolver ->
+      assertEquals(setOf("Some"), resolver.allClasses)
+    }
+    assertTrue(JarsIndex.read(indexFile).isUpToDate(listOf(jar)))
+  }
+
+  @Test
+  fun `index with invalid number of elements is ignored`() {
+    val jar = temporaryFolder.newFile("some.jar")
+    createJar(jar, "Some.class")
+    val indexFile = temporaryFolder.root.resolve("classes-index")
+    JarsUtils.makeResolver(Resolver.ReadMode.FULL, listOf(jar), indexFile).use { }
+
+    for (count in listOf(-100, Int.MAX_VALUE)) {
+      DataOutputStream(indexFile.outputStream()).use { output ->
+        output.writeInt(0x4A494458)
+        output.writeInt(2)
+        output.writeInt(1)
+        output.writeUTF(jar.absoluteFile.toPath().normalize().toString())
+        output.writeLong(jar.length())
+        output.writeLong(jar.lastModified())
+        output.writeInt(count)
+      }
+      assertNull(JarsIndex.read(indexFile).getJarContents(jar))
+    }
+
+    JarsUtils.makeResolver(Resolver.ReadMode.FULL, listOf(jar), indexFile).use { resolver ->
+      assertEquals(setOf("Some"), resolver.allClasses)
+    }
+    assertTrue(JarsIndex.read(indexFile).isUpToDate(listOf(jar)))
+  }
+}
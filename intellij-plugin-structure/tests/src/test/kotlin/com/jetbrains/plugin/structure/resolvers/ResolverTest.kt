@@ -3,10 +3,23 @@ package com.jetbrains.plugin.structure.resolvers
 import com.jetbrains.plugin.structure.classes.resolvers.CacheResolver
 import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
 import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.classes.resolvers.InMemoryJarResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.plugin.structure.classes.resolvers.UnionResolver
+import com.jetbrains.plugin.structure.classes.utils.AsmUtil
 import org.junit.Assert.*
 import org.junit.Test
+import org.objectweb.asm.Opcodes
 import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.InsnNode
+import org.objectweb.asm.tree.MethodNode
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
 
 class ResolverTest {
   @Test
@@ -58,4 +71,83 @@ class ResolverTest {
     assertSame(sameClassNode1, resolver.findClass(sameClass))
     assertSame(resolver1, resolver.getClassLocation(sameClass))
   }
-}
\ No newline at end of file
+
+  @Test
+  fun `weighted cache evicts classes exceeding the memory budget`() {
+    val classNodes = (1..10).map { index ->
+      ClassNode().apply {
+        name = "some/Big$index"
+        repeat(100) { methodIndex ->
+          methods.add(MethodNode(Opcodes.ACC_PUBLIC, "method$methodIndex", "()V", null, null).apply {
+            repeat(10) { instructions.add(InsnNode(Opcodes.NOP)) }
+          })
+        }
+      }
+    }
+    val classSize = AsmUtil.estimateRetainedSize(classNodes.first())
+    assertTrue(classSize > AsmUtil.estimateRetainedSize(ClassNode().apply { name = "some/Small" }))
+
+    //Single segment, so that the whole budget of 3.5 classes is available to all the classes.
+    val cacheResolver = CacheResolver(FixedClassesResolver.create(classNodes), classSize * 7 / 2, false, 1)
+    for (classNode in classNodes) {
+      assertSame(classNode, cacheResolver.findClass(classNode.name))
+    }
+    assertEquals(classNodes.size.toLong(), cacheResolver.cacheStats.missCount())
+    assertEquals(classNodes.size.toLong() - 3, cacheResolver.cacheStats.evictionCount())
+
+    //The 3 most recently used classes are kept, the others are read again.
+    for (classNode in classNodes.takeLast(3)) {
+      assertSame(classNode, cacheResolver.findClass(classNode.name))
+    }
+    assertEquals(3, cacheResolver.cacheStats.hitCount())
+    assertSame(classNodes.first(), cacheResolver.findClass(classNodes.first().name))
+    assertEquals(classNodes.size.toLong() + 1, cacheResolver.cacheStats.missCount())
+  }
+
+  @Test
+  fun `in-memory jar exceeding classes size limit is not read`() {
+    val jarBytes = ByteArrayOutputStream().use { output ->
+      ZipOutputStream(output).use { zipOutputStream ->
+        for (name in listOf("a/One.class", "a/Two.class")) {
+          zipOutputStream.putNextEntry(ZipEntry(name))
+          zipOutputStream.write(ByteArray(100))
+          zipOutputStream.closeEntry()
+        }
+      }
+      output.toByteArray()
+    }
+    val jarPath = File("plugin.zip/lib/plugin.jar")
+    val resolver = InMemoryJarResolver.readJar(jarPath, jarBytes.inputStream(), Resolver.ReadMode.FULL, 200)
+    assertEquals(setOf("a/One", "a/Two"), resolver.allClasses)
+    assertEquals(200, resolver.classesSize)
+
+    try {
+      InMemoryJarResolver.readJar(jarPath, jarBytes.inputStream(), Resolver.ReadMode.FULL, 199)
+      fail()
+    } catch (e: IOException) {
+      assertEquals("Classes of $jarPath exceed 199 bytes", e.message)
+    }
+  }
+
+  /**
+   * [java.util.zip.ZipInputStream] can't read a STORED entry
+   * followed by a data descriptor, because the entry's size is unknown.
+   */
+  @Test(expected = IOException::class)
+  fun `in-memory jar with stored entry followed by data descriptor is not read`() {
+    val entryName = "a/One.class".toByteArray()
+    val localFileHeader = ByteBuffer.allocate(30 + entryName.size).order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(0x04034b50)
+        .putShort(20)
+        .putShort(0x08)
+        .putShort(ZipEntry.STORED.toShort())
+        .putInt(0)
+        .putInt(0)
+        .putInt(0)
+        .putInt(0)
+        .putShort(entryName.size.toShort())
+        .putShort(0)
+        .put(entryName)
+    InMemoryJarResolver.readJar(File("plugin.jar"), localFileHeader.array().inputStream(), Resolver.ReadMode.FULL)
+  }
+}
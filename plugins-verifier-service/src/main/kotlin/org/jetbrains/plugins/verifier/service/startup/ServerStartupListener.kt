@@ -1,5 +1,6 @@
 package org.jetbrains.plugins.verifier.service.startup
 
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.ide.IdeDescriptorsCache
 import com.jetbrains.pluginverifier.ide.IdeFilesBank
 import com.jetbrains.pluginverifier.ide.ReleaseIdeRepository
@@ -74,13 +75,14 @@ class ServerStartupListener : ServletContextListener {
         Settings.PLUGIN_REPOSITORY_AUTHORIZATION_TOKEN.get()
     )
 
-    val jdkDescriptorsCache = JdkDescriptorsCache()
+    val classesIndexDirectory = ClassesIndexDirectory(applicationHomeDir.resolve("classes-index"))
+    val jdkDescriptorsCache = JdkDescriptorsCache(classesIndexDirectory)
 
     val ideDownloadDirDiskSpaceSetting = getIdeDownloadDirDiskSpaceSetting()
     val serviceDAO = openServiceDAO(applicationHomeDir)
 
     val ideFilesBank = IdeFilesBank(ideFilesDir, ideRepository, ideDownloadDirDiskSpaceSetting)
-    val ideDescriptorsCache = IdeDescriptorsCache(IDE_DESCRIPTORS_CACHE_SIZE, ideFilesBank)
+    val ideDescriptorsCache = IdeDescriptorsCache(IDE_DESCRIPTORS_CACHE_SIZE, ideFilesBank, classesIndexDirectory)
 
     val verificationResultsFilter = VerificationResultFilter()
 
@@ -0,0 +1,86 @@
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.ResultHolder
+import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
+import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.resolution.DefaultClsResolver
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures the bytecode verification of a synthetic plugin
+ * against the synthetic IDE, on the current thread and in parallel.
+ *
+ * Every invocation verifies the plugin from scratch with
+ * a new resolver, so caches of previous invocations are not reused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+open class BytecodeVerifierBenchmark {
+
+  @Param("10000")
+  var ideClassesNumber: Int = 0
+
+  /**
+   * Parallel verification is used for plugins of at least 2000 classes.
+   */
+  @Param("500", "5000")
+  var pluginClassesNumber: Int = 0
+
+  private lateinit var jdkResolver: Resolver
+
+  private lateinit var ideResolver: Resolver
+
+  private lateinit var pluginResolver: Resolver
+
+  private lateinit var pluginClasses: Set<String>
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    val syntheticIde = SyntheticIde(ideClassesNumber)
+    jdkResolver = SyntheticIde.createJdkResolver()
+    ideResolver = FixedClassesResolver.create(SyntheticIde.toClassNodes(syntheticIde.generateIdeClasses()))
+    pluginResolver = FixedClassesResolver.create(SyntheticIde.toClassNodes(syntheticIde.generatePluginClasses(pluginClassesNumber)))
+    pluginClasses = pluginResolver.allClasses
+  }
+
+  private fun verify(bytecodeVerifier: BytecodeVerifier): Int {
+    val clsResolver = DefaultClsResolver(
+        pluginResolver,
+        EmptyResolver,
+        jdkResolver,
+        ideResolver,
+        PackageFilter(emptyList()),
+        emptyList()
+    )
+    val verificationContext = VerificationContext(
+        PluginIdAndVersion("plugin", "1.0"),
+        VerificationTarget.Ide(IdeVersion.createIdeVersion("IU-145.1")),
+        ResultHolder(),
+        false,
+        emptyList(),
+        clsResolver
+    )
+    bytecodeVerifier.verify(pluginClasses, verificationContext) { }
+    return verificationContext.resultHolder.compatibilityProblems.size
+  }
+
+  @Benchmark
+  fun verifySequentially(): Int = verify(BytecodeVerifier(null))
+
+  @Benchmark
+  fun verifyInParallel(): Int = verify(BytecodeVerifier(ForkJoinPool.commonPool()))
+
+}
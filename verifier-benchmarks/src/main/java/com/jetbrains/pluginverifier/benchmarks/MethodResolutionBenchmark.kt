@@ -0,0 +1,118 @@
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.ResultHolder
+import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
+import com.jetbrains.pluginverifier.results.instruction.Instruction
+import com.jetbrains.pluginverifier.results.location.MethodLocation
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.results.reference.MethodReference
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.createMethodLocation
+import com.jetbrains.pluginverifier.verifiers.resolution.*
+import org.objectweb.asm.tree.ClassNode
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures resolution of methods and fields referenced
+ * via the deepest classes of the synthetic IDE's hierarchies,
+ * which requires walking up to the declaring root classes.
+ *
+ * The `warm` benchmarks reuse one [ClsResolver], as the verification
+ * of one plugin does, while the `cold` ones create a new resolver
+ * for each invocation, as the verification of a new plugin does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class MethodResolutionBenchmark {
+
+  @Param("5000")
+  var ideClassesNumber: Int = 0
+
+  @Param("5", "20")
+  var hierarchyDepth: Int = 0
+
+  private lateinit var jdkResolver: Resolver
+
+  private lateinit var ideResolver: Resolver
+
+  private lateinit var warmClsResolver: ClsResolver
+
+  private lateinit var ownerNodes: List<ClassNode>
+
+  private lateinit var callerLocation: MethodLocation
+
+  private var nextOwner = 0
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    val syntheticIde = SyntheticIde(ideClassesNumber, hierarchyDepth)
+    val ideClassNodes = SyntheticIde.toClassNodes(syntheticIde.generateIdeClasses())
+    jdkResolver = SyntheticIde.createJdkResolver()
+    ideResolver = FixedClassesResolver.create(ideClassNodes)
+    warmClsResolver = createClsResolver()
+
+    val pluginNode = SyntheticIde.toClassNodes(syntheticIde.generatePluginClasses(1)).single()
+    callerLocation = createMethodLocation(pluginNode, pluginNode.methods.first { it.name == "run" })
+
+    //Deepest classes of the hierarchies, which inherit all the members of the roots.
+    ownerNodes = ideClassNodes.filter { it.name.startsWith("ide/pkg") }.filter { classNode ->
+      ideClassNodes.none { it.superName == classNode.name }
+    }
+  }
+
+  private fun createClsResolver(): ClsResolver = DefaultClsResolver(
+      EmptyResolver,
+      EmptyResolver,
+      jdkResolver,
+      ideResolver,
+      PackageFilter(emptyList()),
+      emptyList()
+  )
+
+  private fun createVerificationContext(clsResolver: ClsResolver) = VerificationContext(
+      PluginIdAndVersion("plugin", "1.0"),
+      VerificationTarget.Ide(IdeVersion.createIdeVersion("IU-145.1")),
+      ResultHolder(),
+      false,
+      emptyList(),
+      clsResolver
+  )
+
+  private fun resolveMembers(clsResolver: ClsResolver): Int {
+    val verificationContext = createVerificationContext(clsResolver)
+    val ownerNode = ownerNodes[nextOwner++ % ownerNodes.size]
+    var resolved = 0
+    for (member in 0 until SyntheticIde.SERVICES_NUMBER) {
+      val methodReference = MethodReference(ClassReference(ownerNode.name), "method$member", "()V")
+      val methodResult = MethodResolution(methodReference, Instruction.INVOKE_VIRTUAL, callerLocation, verificationContext, clsResolver)
+          .resolveMethod(ownerNode)
+      if (methodResult is MethodResolutionResult.Found) {
+        resolved++
+      }
+
+      val fieldResult = FieldResolution("field$member", "I", clsResolver, verificationContext).resolveField(ownerNode)
+      if (fieldResult is FieldResolutionResult.Found) {
+        resolved++
+      }
+    }
+    return resolved
+  }
+
+  @Benchmark
+  fun resolveMembersWarm(): Int = resolveMembers(warmClsResolver)
+
+  @Benchmark
+  fun resolveMembersCold(): Int = resolveMembers(createClsResolver())
+
+}
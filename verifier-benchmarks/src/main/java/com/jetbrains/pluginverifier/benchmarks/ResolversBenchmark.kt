@@ -0,0 +1,86 @@
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.CacheResolver
+import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.utils.JarsUtils
+import com.jetbrains.pluginverifier.misc.deleteLogged
+import org.openjdk.jmh.annotations.*
+import org.objectweb.asm.tree.ClassNode
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures lookup of classes by the resolvers of jar files:
+ * a single jar, a union of jars and a cache over the union.
+ *
+ * Each invocation looks up the next class in a fixed order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class ResolversBenchmark {
+
+  @Param("20")
+  var jarsNumber: Int = 0
+
+  @Param("500")
+  var classesInJar: Int = 0
+
+  private lateinit var tempDirectory: File
+
+  private lateinit var jarFileResolver: Resolver
+
+  private lateinit var unionResolver: Resolver
+
+  private lateinit var cacheResolver: Resolver
+
+  private lateinit var firstJarClasses: List<String>
+
+  private lateinit var allClasses: List<String>
+
+  private var nextClass = 0
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    tempDirectory = Files.createTempDirectory("resolvers-benchmark").toFile()
+    val ideClasses = SyntheticIde(jarsNumber * classesInJar).generateIdeClasses()
+    val jars = ideClasses.entries.chunked(classesInJar).mapIndexed { index, classes ->
+      val jarFile = tempDirectory.resolve("lib$index.jar")
+      SyntheticIde.writeJar(jarFile, classes.associate { it.key to it.value })
+      jarFile
+    }
+    jarFileResolver = JarFileResolver(jars.first())
+    unionResolver = JarsUtils.makeResolver(jars)
+    cacheResolver = CacheResolver(JarsUtils.makeResolver(jars))
+    firstJarClasses = jarFileResolver.allClasses.sorted()
+    allClasses = unionResolver.allClasses.sorted()
+  }
+
+  @TearDown(Level.Trial)
+  fun tearDown() {
+    jarFileResolver.close()
+    unionResolver.close()
+    cacheResolver.close()
+    tempDirectory.deleteLogged()
+  }
+
+  private fun List<String>.nextClass() = this[nextClass++ % size]
+
+  @Benchmark
+  fun jarFileResolverFindClass(): ClassNode? = jarFileResolver.findClass(firstJarClasses.nextClass())
+
+  @Benchmark
+  fun unionResolverFindClass(): ClassNode? = unionResolver.findClass(allClasses.nextClass())
+
+  @Benchmark
+  fun cacheResolverFindClass(): ClassNode? = cacheResolver.findClass(allClasses.nextClass())
+
+  @Benchmark
+  fun unionResolverContainsClass(): Boolean = unionResolver.containsClass(allClasses.nextClass())
+
+}
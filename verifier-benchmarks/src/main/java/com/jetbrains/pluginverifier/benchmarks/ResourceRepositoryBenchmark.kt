@@ -0,0 +1,63 @@
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.pluginverifier.repository.cleanup.SizeEvictionPolicy
+import com.jetbrains.pluginverifier.repository.cleanup.SizeWeight
+import com.jetbrains.pluginverifier.repository.provider.ProvideResult
+import com.jetbrains.pluginverifier.repository.provider.ResourceProvider
+import com.jetbrains.pluginverifier.repository.resources.ResourceRepository
+import com.jetbrains.pluginverifier.repository.resources.ResourceRepositoryImpl
+import com.jetbrains.pluginverifier.repository.resources.ResourceRepositoryResult
+import org.openjdk.jmh.annotations.*
+import java.time.Clock
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures throughput of the [ResourceRepository] accessed by
+ * several threads concurrently, as the plugins and IDEs caches
+ * are accessed by the verification tasks.
+ *
+ * The number of distinct keys exceeds the repository's size,
+ * so some of the requests lead to providing of new resources
+ * and eviction of the old ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+open class ResourceRepositoryBenchmark {
+
+  @Param("100")
+  var repositorySize: Int = 0
+
+  @Param("120")
+  var keysNumber: Int = 0
+
+  private lateinit var resourceRepository: ResourceRepository<Int, Int>
+
+  @Setup(Level.Trial)
+  fun setUp() {
+    resourceRepository = ResourceRepositoryImpl(
+        SizeEvictionPolicy(repositorySize),
+        Clock.systemUTC(),
+        object : ResourceProvider<Int, Int> {
+          override fun provide(key: Int) = ProvideResult.Provided(key)
+        },
+        SizeWeight(0),
+        { SizeWeight(1) },
+        { },
+        "benchmark"
+    )
+  }
+
+  @Benchmark
+  fun getAndRelease(): Int {
+    val key = ThreadLocalRandom.current().nextInt(keysNumber)
+    val result = resourceRepository.get(key) as ResourceRepositoryResult.Found<Int>
+    return result.lockedResource.use { it.resource }
+  }
+
+}
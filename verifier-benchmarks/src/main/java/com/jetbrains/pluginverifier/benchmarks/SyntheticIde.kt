@@ -0,0 +1,173 @@
+package com.jetbrains.pluginverifier.benchmarks
+
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.tree.ClassNode
+import java.io.File
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+
+/**
+ * Generator of class files of a synthetic IDE and plugins using its API,
+ * so the benchmarks don't depend on real IDE builds and measure
+ * the same workload on every run.
+ *
+ * The IDE consists of [SERVICES_NUMBER] service interfaces and [classesNumber]
+ * component classes, which form inheritance chains of [hierarchyDepth] classes.
+ * Methods and fields common to a chain are declared in its root class,
+ * so references to them via the deepest classes require a hierarchy lookup.
+ */
+class SyntheticIde(
+    private val classesNumber: Int,
+    private val hierarchyDepth: Int = 5,
+    private val membersNumber: Int = 10
+) {
+
+  companion object {
+    const val SERVICES_NUMBER = 10
+
+    private const val JAVA_LANG_OBJECT = "java/lang/Object"
+
+    private const val CLASS_VERSION = V1_8
+
+    fun writeJar(jarFile: File, classes: Map<String, ByteArray>) {
+      JarOutputStream(jarFile.outputStream().buffered()).use { jarOutputStream ->
+        for ((className, bytes) in classes) {
+          jarOutputStream.putNextEntry(JarEntry("$className.class"))
+          jarOutputStream.write(bytes)
+          jarOutputStream.closeEntry()
+        }
+      }
+    }
+
+    fun toClassNodes(classes: Map<String, ByteArray>): List<ClassNode> =
+        classes.values.map { bytes ->
+          ClassNode().also { ClassReader(bytes).accept(it, 0) }
+        }
+
+    /**
+     * Creates a resolver of the only JDK class the synthetic classes use,
+     * `java.lang.Object`, so that the hierarchy lookups complete
+     * without a real JDK, which may be too new to be read.
+     */
+    fun createJdkResolver(): Resolver {
+      val classWriter = ClassWriter(ClassWriter.COMPUTE_MAXS)
+      classWriter.visit(CLASS_VERSION, ACC_PUBLIC, JAVA_LANG_OBJECT, null, null, null)
+      classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null).generateCode { }
+      classWriter.visitEnd()
+      return FixedClassesResolver.create(toClassNodes(mapOf(JAVA_LANG_OBJECT to classWriter.toByteArray())))
+    }
+
+    private fun MethodVisitor.generateCode(code: MethodVisitor.() -> Unit) {
+      visitCode()
+      code()
+      visitInsn(RETURN)
+      visitMaxs(0, 0)
+      visitEnd()
+    }
+  }
+
+  private fun getComponentName(index: Int) = "ide/pkg${index / 100}/Component$index"
+
+  private fun getServiceName(index: Int) = "ide/api/Service$index"
+
+  private fun isChainRoot(index: Int) = index % hierarchyDepth == 0
+
+  private fun getDeepestComponentIndex(index: Int): Int {
+    val chainRoot = index - index % hierarchyDepth
+    return minOf(chainRoot + hierarchyDepth - 1, classesNumber - 1)
+  }
+
+  fun generateIdeClasses(): Map<String, ByteArray> {
+    val classes = linkedMapOf<String, ByteArray>()
+    for (index in 0 until SERVICES_NUMBER) {
+      classes[getServiceName(index)] = generateService(index)
+    }
+    for (index in 0 until classesNumber) {
+      classes[getComponentName(index)] = generateComponent(index)
+    }
+    return classes
+  }
+
+  private fun generateService(index: Int): ByteArray {
+    val classWriter = ClassWriter(ClassWriter.COMPUTE_MAXS)
+    classWriter.visit(CLASS_VERSION, ACC_PUBLIC or ACC_INTERFACE or ACC_ABSTRACT, getServiceName(index), null, JAVA_LANG_OBJECT, null)
+    for (member in 0 until membersNumber) {
+      classWriter.visitMethod(ACC_PUBLIC or ACC_ABSTRACT, "serviceMethod$member", "()V", null, null).visitEnd()
+    }
+    classWriter.visitEnd()
+    return classWriter.toByteArray()
+  }
+
+  private fun generateComponent(index: Int): ByteArray {
+    val className = getComponentName(index)
+    val superName = if (isChainRoot(index)) JAVA_LANG_OBJECT else getComponentName(index - 1)
+    val serviceName = getServiceName(index % SERVICES_NUMBER)
+
+    val classWriter = ClassWriter(ClassWriter.COMPUTE_MAXS)
+    classWriter.visit(CLASS_VERSION, ACC_PUBLIC or ACC_ABSTRACT, className, null, superName, arrayOf(serviceName))
+    classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null).generateCode {
+      visitVarInsn(ALOAD, 0)
+      visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V", false)
+    }
+    classWriter.visitMethod(ACC_PUBLIC, "ownMethod$index", "()V", null, null).generateCode { }
+    if (isChainRoot(index)) {
+      for (member in 0 until membersNumber) {
+        classWriter.visitMethod(ACC_PUBLIC, "method$member", "()V", null, null).generateCode { }
+        classWriter.visitField(ACC_PUBLIC, "field$member", "I", null, null).visitEnd()
+      }
+    }
+    classWriter.visitEnd()
+    return classWriter.toByteArray()
+  }
+
+  /**
+   * Generates [number] plugin classes, each extending one of the IDE
+   * components and calling its methods, fields and services.
+   * Every plugin class also references a non-existent method, so
+   * the verification registers a problem for each class.
+   */
+  fun generatePluginClasses(number: Int): Map<String, ByteArray> =
+      (0 until number).associate { index ->
+        val component = getDeepestComponentIndex((index * 31) % classesNumber)
+        "plugin/pkg${index / 100}/Action$index" to generatePluginClass(index, component)
+      }
+
+  private fun generatePluginClass(index: Int, componentIndex: Int): ByteArray {
+    val className = "plugin/pkg${index / 100}/Action$index"
+    val componentName = getComponentName(componentIndex)
+    val serviceName = getServiceName(componentIndex % SERVICES_NUMBER)
+
+    val classWriter = ClassWriter(ClassWriter.COMPUTE_MAXS)
+    classWriter.visit(CLASS_VERSION, ACC_PUBLIC or ACC_ABSTRACT, className, null, componentName, null)
+    classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null).generateCode {
+      visitVarInsn(ALOAD, 0)
+      visitMethodInsn(INVOKESPECIAL, componentName, "<init>", "()V", false)
+    }
+    classWriter.visitMethod(ACC_PUBLIC, "run", "(L$componentName;)V", null, null).generateCode {
+      for (member in 0 until membersNumber) {
+        visitVarInsn(ALOAD, 1)
+        visitMethodInsn(INVOKEVIRTUAL, componentName, "method$member", "()V", false)
+
+        visitVarInsn(ALOAD, 1)
+        visitFieldInsn(GETFIELD, componentName, "field$member", "I")
+        visitInsn(POP)
+
+        visitVarInsn(ALOAD, 1)
+        visitMethodInsn(INVOKEINTERFACE, serviceName, "serviceMethod$member", "()V", true)
+      }
+      visitVarInsn(ALOAD, 1)
+      visitMethodInsn(INVOKEVIRTUAL, componentName, "ownMethod$componentIndex", "()V", false)
+
+      visitVarInsn(ALOAD, 1)
+      visitMethodInsn(INVOKEVIRTUAL, componentName, "removedMethod", "()V", false)
+    }
+    classWriter.visitEnd()
+    return classWriter.toByteArray()
+  }
+
+}
@@ -2,6 +2,7 @@ package com.jetbrains.pluginverifier
 
 import com.jetbrains.pluginverifier.PluginVerifierMain.commandRunners
 import com.jetbrains.pluginverifier.PluginVerifierMain.main
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.ide.IdeFilesBank
 import com.jetbrains.pluginverifier.ide.ReleaseIdeRepository
 import com.jetbrains.pluginverifier.misc.createDir
@@ -75,6 +76,8 @@ object PluginVerifierMain {
 
   private val ideDownloadDir: Path = verifierHomeDir.resolve("ides").createDir()
 
+  private val classesIndexDir: Path = verifierHomeDir.resolve("classes-index").createDir()
+
   private val LOG: Logger = LoggerFactory.getLogger(PluginVerifierMain::class.java)
 
   @JvmStatic
@@ -106,8 +109,9 @@ object PluginVerifierMain {
     val ideFilesDiskSetting = getIdeDownloadDirDiskSpaceSetting()
     val ideFilesBank = IdeFilesBank(ideDownloadDir, ideRepository, ideFilesDiskSetting)
     val pluginDetailsProvider = PluginDetailsProviderImpl(extractDir)
+    val classesIndexDirectory = ClassesIndexDirectory(classesIndexDir)
     PluginDetailsCache(10, pluginFilesBank, pluginDetailsProvider).use {
-      runVerification(command, freeArgs, pluginRepository, ideFilesBank, it, opts)
+      runVerification(command, freeArgs, pluginRepository, ideFilesBank, classesIndexDirectory, it, opts)
     }
   }
 
@@ -116,6 +120,7 @@ object PluginVerifierMain {
       freeArgs: List<String>,
       pluginRepository: PluginRepository,
       ideFilesBank: IdeFilesBank,
+      classesIndexDirectory: ClassesIndexDirectory,
       pluginDetailsCache: PluginDetailsCache,
       opts: CmdOpts
   ) {
@@ -127,7 +132,7 @@ object PluginVerifierMain {
     ).use { reportage ->
 
       val runner = findTaskRunner(command)
-      val parametersBuilder = runner.getParametersBuilder(pluginRepository, ideFilesBank, pluginDetailsCache, reportage)
+      val parametersBuilder = runner.getParametersBuilder(pluginRepository, ideFilesBank, classesIndexDirectory, pluginDetailsCache, reportage)
 
       val parameters = try {
         parametersBuilder.build(opts, freeArgs)
@@ -140,9 +145,9 @@ object PluginVerifierMain {
       val taskResult = parameters.use {
         println("Task ${runner.commandName} parameters:\n$parameters")
 
-        val concurrentWorkers = estimateNumberOfConcurrentWorkers()
-        JdkDescriptorsCache().use { jdkDescriptorCache ->
-          VerifierExecutor(concurrentWorkers).use { verifierExecutor ->
+        val concurrencyLimit = createConcurrencyLimit()
+        JdkDescriptorsCache(classesIndexDirectory).use { jdkDescriptorCache ->
+          VerifierExecutor(concurrencyLimit).use { verifierExecutor ->
             runner
                 .createTask(parameters, pluginRepository, pluginDetailsCache)
                 .execute(reportage, verifierExecutor, jdkDescriptorCache, pluginDetailsCache)
@@ -157,16 +162,23 @@ object PluginVerifierMain {
     }
   }
 
-  private fun estimateNumberOfConcurrentWorkers(): Int {
+  /**
+   * Creates the limit of concurrent verifications, which starts
+   * at the level estimated by the available memory and is then
+   * adjusted by the actual heap usage up to the number of CPUs.
+   */
+  private fun createConcurrencyLimit(): AdaptiveConcurrencyLimit {
     val availableMemory = Runtime.getRuntime().maxMemory().bytesToSpaceAmount()
     val availableCpu = Runtime.getRuntime().availableProcessors().toLong()
     /**
      * We assume that about 200 Mb is needed for an average verification
      */
     val maxByMemory = availableMemory.to(SpaceUnit.MEGA_BYTE).toLong() / 200
-    val concurrencyLevel = maxOf(4, minOf(maxByMemory, availableCpu)).toInt()
-    LOG.info("Available memory: $availableMemory; Available CPU = $availableCpu; Concurrency level = $concurrencyLevel")
-    return concurrencyLevel
+    val initialConcurrency = maxOf(4, minOf(maxByMemory, availableCpu)).toInt()
+    val maxConcurrency = maxOf(4, availableCpu).toInt()
+    LOG.info("Available memory: $availableMemory; Available CPU = $availableCpu; " +
+        "Initial concurrency level = $initialConcurrency; Maximum concurrency level = $maxConcurrency")
+    return AdaptiveConcurrencyLimit(1, initialConcurrency, maxConcurrency)
   }
 
   private fun getIdeDownloadDirDiskSpaceSetting(): DiskSpaceSetting =
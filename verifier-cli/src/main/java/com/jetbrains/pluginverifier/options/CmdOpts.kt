@@ -59,7 +59,15 @@ open class CmdOpts(
             "\tandroid-only - verify only code related to Android support.\n" +
             "\twithout-android - exclude problems related to Android support. "
     )
-    var subsystemsToCheck: String = "all"
+    var subsystemsToCheck: String = "all",
+
+    @set:Argument("ide-classes-cache-size", alias = "iccs", description = "The maximum memory, in megabytes, occupied by IDE classes cached and shared by all the verifications against the IDE. " +
+        "By default it is 1/16 of the maximum heap size")
+    var ideClassesCacheSize: String? = null,
+
+    @set:Argument("verification-cache-dir", alias = "vcd", description = "The directory of the persistent cache of verification results. " +
+        "If specified, plugins that have already been verified against the same IDE, JDK, dependencies and problems filters are not verified again")
+    var verificationCacheDir: String? = null
 
 ) {
   companion object {
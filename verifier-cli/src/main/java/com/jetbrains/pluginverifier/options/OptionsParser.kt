@@ -1,6 +1,8 @@
 package com.jetbrains.pluginverifier.options
 
+import com.jetbrains.plugin.structure.ide.IdeManager
 import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.ide.IdeDescriptor
 import com.jetbrains.pluginverifier.ide.IdeResourceUtil
 import com.jetbrains.pluginverifier.misc.createDir
@@ -15,7 +17,9 @@ import com.jetbrains.pluginverifier.output.teamcity.TeamCityResultPrinter
 import com.jetbrains.pluginverifier.parameters.filtering.*
 import com.jetbrains.pluginverifier.parameters.jdk.JdkPath
 import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.persistence.VerificationResultCache
 import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
+import com.jetbrains.pluginverifier.repository.cleanup.SpaceAmount
 import org.slf4j.LoggerFactory
 import java.io.File
 import java.nio.file.Path
@@ -58,11 +62,25 @@ object OptionsParser {
     return SpecifiedMissingDependencyIgnoring(opts.ignoreMissingOptionalDeps.toSet())
   }
 
-  fun createIdeDescriptor(idePath: Path, opts: CmdOpts): IdeDescriptor {
+  fun createIdeDescriptor(idePath: Path, opts: CmdOpts, classesIndexDirectory: ClassesIndexDirectory): IdeDescriptor {
     val ideVersion = takeVersionFromCmd(opts)
-    return IdeDescriptor.create(idePath, ideVersion, null)
+    return IdeDescriptor.create(idePath, ideVersion, null, getIdeClassesCacheSize(opts), classesIndexDirectory)
   }
 
+  fun getIdeClassesCacheSize(opts: CmdOpts): SpaceAmount {
+    val megabytes = opts.ideClassesCacheSize ?: return IdeDescriptor.DEFAULT_IDE_CLASSES_CACHE_SIZE
+    val amount = megabytes.toLongOrNull()?.takeIf { it > 0 }
+        ?: throw IllegalArgumentException("Invalid IDE classes cache size: $megabytes. It must be a positive number of megabytes")
+    return SpaceAmount.ofMegabytes(amount)
+  }
+
+  /**
+   * Reads the version of the IDE by [idePath] without opening the IDE,
+   * unless the version is overridden in the [opts].
+   */
+  fun readIdeVersion(idePath: Path, opts: CmdOpts): IdeVersion =
+      takeVersionFromCmd(opts) ?: IdeManager.createManager().readIdeVersion(idePath.toFile())
+
   fun getJdkPath(opts: CmdOpts): JdkPath {
     val path = opts.runtimeDir
     return if (path == null) JdkPath.createJavaHomeJdkPath() else JdkPath.createJdkPath(path)
@@ -77,6 +95,9 @@ object OptionsParser {
     return null
   }
 
+  fun createVerificationResultCache(opts: CmdOpts): VerificationResultCache? =
+      opts.verificationCacheDir?.let { VerificationResultCache(Paths.get(it)) }
+
   fun getExternalClassesPackageFilter(opts: CmdOpts): PackageFilter =
       opts.externalClassesPrefixes
           .map { it.replace('.', '/') }
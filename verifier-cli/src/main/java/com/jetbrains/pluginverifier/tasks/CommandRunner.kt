@@ -1,5 +1,6 @@
 package com.jetbrains.pluginverifier.tasks
 
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.ide.IdeFilesBank
 import com.jetbrains.pluginverifier.output.OutputOptions
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
@@ -21,6 +22,7 @@ abstract class CommandRunner {
   abstract fun getParametersBuilder(
       pluginRepository: PluginRepository,
       ideFilesBank: IdeFilesBank,
+      classesIndexDirectory: ClassesIndexDirectory,
       pluginDetailsCache: PluginDetailsCache,
       reportage: Reportage
   ): TaskParametersBuilder
@@ -7,6 +7,7 @@ import com.jetbrains.pluginverifier.options.PluginsSet
 import com.jetbrains.pluginverifier.parameters.filtering.ProblemsFilter
 import com.jetbrains.pluginverifier.parameters.jdk.JdkPath
 import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.persistence.VerificationResultCache
 import com.jetbrains.pluginverifier.tasks.TaskParameters
 
 
@@ -17,7 +18,8 @@ class CheckIdeParams(
     val externalClassesPackageFilter: PackageFilter,
     val problemsFilters: List<ProblemsFilter>,
     val dependencyFinder: DependencyFinder,
-    val missingCompatibleVersionsProblems: List<MissingCompatibleVersionProblem>
+    val missingCompatibleVersionsProblems: List<MissingCompatibleVersionProblem>,
+    val verificationResultCache: VerificationResultCache?
 ) : TaskParameters(pluginsSet) {
 
   override val presentableText
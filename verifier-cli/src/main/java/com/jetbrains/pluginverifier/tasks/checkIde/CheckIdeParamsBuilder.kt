@@ -3,6 +3,7 @@ package com.jetbrains.pluginverifier.tasks.checkIde
 import com.jetbrains.plugin.structure.intellij.version.IdeVersion
 import com.jetbrains.pluginverifier.VerificationTarget
 import com.jetbrains.pluginverifier.dependencies.resolution.IdeDependencyFinder
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.misc.closeOnException
 import com.jetbrains.pluginverifier.misc.isDirectory
 import com.jetbrains.pluginverifier.options.CmdOpts
@@ -20,7 +21,8 @@ import java.nio.file.Paths
 
 class CheckIdeParamsBuilder(val pluginRepository: PluginRepository,
                             val pluginDetailsCache: PluginDetailsCache,
-                            val reportage: Reportage) : TaskParametersBuilder {
+                            val reportage: Reportage,
+                            val classesIndexDirectory: ClassesIndexDirectory) : TaskParametersBuilder {
   override fun build(opts: CmdOpts, freeArgs: List<String>): CheckIdeParams {
     if (freeArgs.isEmpty()) {
       throw IllegalArgumentException("You have to specify IDE to check. For example: \"java -jar verifier.jar check-ide ~/EAPs/idea-IU-133.439\"")
@@ -30,7 +32,7 @@ class CheckIdeParamsBuilder(val pluginRepository: PluginRepository,
       throw IllegalArgumentException("IDE path must be a directory: $ideFile")
     }
     reportage.logVerificationStage("Reading classes of IDE $ideFile")
-    OptionsParser.createIdeDescriptor(ideFile, opts).closeOnException { ideDescriptor ->
+    OptionsParser.createIdeDescriptor(ideFile, opts, classesIndexDirectory).closeOnException { ideDescriptor ->
       val externalClassesPackageFilter = OptionsParser.getExternalClassesPackageFilter(opts)
       val problemsFilters = OptionsParser.getProblemsFilters(opts)
 
@@ -56,7 +58,8 @@ class CheckIdeParamsBuilder(val pluginRepository: PluginRepository,
           externalClassesPackageFilter,
           problemsFilters,
           ideDependencyFinder,
-          missingCompatibleVersionsProblems
+          missingCompatibleVersionsProblems,
+          OptionsParser.createVerificationResultCache(opts)
       )
     }
   }
@@ -1,5 +1,6 @@
 package com.jetbrains.pluginverifier.tasks.checkIde
 
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.ide.IdeFilesBank
 import com.jetbrains.pluginverifier.output.OutputOptions
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
@@ -18,9 +19,10 @@ class CheckIdeRunner : CommandRunner() {
   override fun getParametersBuilder(
       pluginRepository: PluginRepository,
       ideFilesBank: IdeFilesBank,
+      classesIndexDirectory: ClassesIndexDirectory,
       pluginDetailsCache: PluginDetailsCache,
       reportage: Reportage
-  ) = CheckIdeParamsBuilder(pluginRepository, pluginDetailsCache, reportage)
+  ) = CheckIdeParamsBuilder(pluginRepository, pluginDetailsCache, reportage, classesIndexDirectory)
 
   override fun createTask(
       parameters: TaskParameters,
@@ -34,7 +34,8 @@ class CheckIdeTask(private val parameters: CheckIdeParams) : Task {
                     externalClassesPackageFilter
                 ),
                 VerificationTarget.Ide(ideDescriptor.ideVersion),
-                ideDescriptor.brokenPlugins
+                ideDescriptor.brokenPlugins,
+                verificationResultCache
             )
           }
 
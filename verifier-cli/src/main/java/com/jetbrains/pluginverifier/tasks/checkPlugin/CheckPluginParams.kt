@@ -1,7 +1,5 @@
 package com.jetbrains.pluginverifier.tasks.checkPlugin
 
-import com.jetbrains.pluginverifier.ide.IdeDescriptor
-import com.jetbrains.pluginverifier.misc.closeLogged
 import com.jetbrains.pluginverifier.options.PluginsSet
 import com.jetbrains.pluginverifier.parameters.filtering.ProblemsFilter
 import com.jetbrains.pluginverifier.parameters.jdk.JdkPath
@@ -10,7 +8,7 @@ import com.jetbrains.pluginverifier.tasks.TaskParameters
 
 class CheckPluginParams(pluginsSet: PluginsSet,
                         val jdkPath: JdkPath,
-                        val ideDescriptors: List<IdeDescriptor>,
+                        val ideDescriptors: List<LazyIdeDescriptor>,
                         val externalClassesPackageFilter: PackageFilter,
                         val problemsFilters: List<ProblemsFilter>) : TaskParameters(pluginsSet) {
 
@@ -21,8 +19,9 @@ class CheckPluginParams(pluginsSet: PluginsSet,
       |$pluginsSet
     """.trimMargin()
 
-  override fun close() {
-    ideDescriptors.forEach { it.closeLogged() }
-  }
+  /**
+   * The [ideDescriptors] are opened and closed by the [CheckPluginTask].
+   */
+  override fun close() = Unit
 
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.jetbrains.pluginverifier.tasks.checkPlugin
 
 import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.options.CmdOpts
 import com.jetbrains.pluginverifier.options.OptionsParser
 import com.jetbrains.pluginverifier.options.PluginsParsing
@@ -12,7 +13,8 @@ import java.nio.file.Paths
 
 class CheckPluginParamsBuilder(
     val pluginRepository: PluginRepository,
-    val reportage: Reportage
+    val reportage: Reportage,
+    val classesIndexDirectory: ClassesIndexDirectory
 ) : TaskParametersBuilder {
 
   override fun build(opts: CmdOpts, freeArgs: List<String>): CheckPluginParams {
@@ -21,9 +23,9 @@ class CheckPluginParamsBuilder(
           "java -jar verifier.jar check-plugin ~/work/myPlugin/myPlugin.zip ~/EAPs/idea-IU-117.963\n" +
           "java -jar verifier.jar check-plugin #14986 ~/EAPs/idea-IU-117.963")
     }
+    val ideClassesCacheSize = OptionsParser.getIdeClassesCacheSize(opts)
     val ideDescriptors = freeArgs.drop(1).map { Paths.get(it) }.map {
-      reportage.logVerificationStage("Reading IDE $it")
-      OptionsParser.createIdeDescriptor(it, opts)
+      LazyIdeDescriptor(it, OptionsParser.readIdeVersion(it, opts), ideClassesCacheSize, classesIndexDirectory)
     }
 
     val ideVersions = ideDescriptors.map { it.ideVersion }
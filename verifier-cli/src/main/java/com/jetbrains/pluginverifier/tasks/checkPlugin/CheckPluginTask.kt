@@ -1,5 +1,6 @@
 package com.jetbrains.pluginverifier.tasks.checkPlugin
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder
 import com.jetbrains.plugin.structure.intellij.plugin.PluginDependency
 import com.jetbrains.pluginverifier.PluginVerifier
 import com.jetbrains.pluginverifier.VerificationTarget
@@ -13,14 +14,23 @@ import com.jetbrains.pluginverifier.parameters.jdk.JdkDescriptorsCache
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.reporting.verification.Reportage
 import com.jetbrains.pluginverifier.repository.PluginRepository
+import com.jetbrains.pluginverifier.results.VerificationResult
 import com.jetbrains.pluginverifier.tasks.Task
 import com.jetbrains.pluginverifier.verifiers.resolution.DefaultClsResolverProvider
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 
 /**
  * The 'check-plugin' [task] [Task] that verifies
  * each plugin from the [CheckPluginParams.pluginsSet]
  * against each IDE from the [CheckPluginParams.ideDescriptors].
  *
+ * The IDEs are verified one after another, so each IDE is opened
+ * only when the plugins are verified against it and is closed
+ * right after that. At most [MAX_OPEN_IDES] IDEs are open at a time.
+ *
  * If one [verified] [CheckPluginParams.pluginsSet] plugin depends on
  * another verified plugin then the [dependency resolution] [DependencyFinder]
  * prefers the verified plugin to a plugin from the [PluginRepository].
@@ -50,9 +60,43 @@ class CheckPluginTask(private val parameters: CheckPluginParams,
       jdkDescriptorCache: JdkDescriptorsCache,
       pluginDetailsCache: PluginDetailsCache
   ): CheckPluginResult {
-    with(parameters) {
-      val tasks = ideDescriptors.flatMap { ideDescriptor ->
-        val dependencyFinder = createDependencyFinder(ideDescriptor)
+    val idesExecutor = Executors.newFixedThreadPool(
+        MAX_OPEN_IDES,
+        ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("check-plugin-ide-%d")
+            .build()
+    )
+    try {
+      val ideResults = parameters.ideDescriptors.map { lazyIdeDescriptor ->
+        idesExecutor.submit(Callable {
+          verifyAgainstIde(lazyIdeDescriptor, reportage, verifierExecutor, jdkDescriptorCache)
+        })
+      }
+      val results = ideResults.flatMap { waitForIde(it) }
+      return CheckPluginResult(
+          parameters.pluginsSet.invalidPluginFiles,
+          results
+      )
+    } finally {
+      idesExecutor.shutdownNow()
+    }
+  }
+
+  /**
+   * Opens the IDE, verifies all the plugins against it
+   * and closes the IDE as soon as the verifications complete.
+   */
+  private fun verifyAgainstIde(
+      lazyIdeDescriptor: LazyIdeDescriptor,
+      reportage: Reportage,
+      verifierExecutor: VerifierExecutor,
+      jdkDescriptorCache: JdkDescriptorsCache
+  ): List<VerificationResult> {
+    reportage.logVerificationStage("Reading IDE ${lazyIdeDescriptor.idePath}")
+    return lazyIdeDescriptor.open().use { ideDescriptor ->
+      val dependencyFinder = createDependencyFinder(ideDescriptor)
+      val tasks = with(parameters) {
         pluginsSet.pluginsToCheck.map {
           PluginVerifier(
               it,
@@ -72,12 +116,32 @@ class CheckPluginTask(private val parameters: CheckPluginParams,
           )
         }
       }
-      val results = verifierExecutor.verify(tasks)
-      return CheckPluginResult(
-          pluginsSet.invalidPluginFiles,
-          results
-      )
+      verifierExecutor.verify(tasks)
     }
   }
 
+  @Throws(InterruptedException::class)
+  private fun waitForIde(ideResults: Future<List<VerificationResult>>): List<VerificationResult> =
+      try {
+        ideResults.get()
+      } catch (e: ExecutionException) {
+        val cause = e.cause
+        when (cause) {
+          is InterruptedException -> throw cause
+          is RuntimeException -> throw cause
+          else -> throw RuntimeException(cause)
+        }
+      }
+
+  private companion object {
+    /**
+     * Maximum number of IDEs opened simultaneously.
+     *
+     * The next IDE is being read while the plugins are verified
+     * against the previous one, and the verifications against it
+     * occupy the workers left idle by the previous IDE's last verifications.
+     */
+    const val MAX_OPEN_IDES = 2
+  }
+
 }
@@ -0,0 +1,31 @@
+package com.jetbrains.pluginverifier.tasks.checkPlugin
+
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
+import com.jetbrains.pluginverifier.ide.IdeDescriptor
+import com.jetbrains.pluginverifier.repository.cleanup.SpaceAmount
+import java.nio.file.Path
+
+/**
+ * IDE by [idePath] whose [IdeDescriptor] is [opened] [open]
+ * only when the plugins are verified against it.
+ *
+ * The [ideVersion] is read in advance without reading
+ * the IDE's plugins and classes.
+ */
+class LazyIdeDescriptor(
+    val idePath: Path,
+    val ideVersion: IdeVersion,
+    private val ideClassesCacheSize: SpaceAmount,
+    private val classesIndexDirectory: ClassesIndexDirectory
+) {
+
+  /**
+   * Creates a new [IdeDescriptor] of this IDE,
+   * which must be closed by the caller.
+   */
+  fun open(): IdeDescriptor = IdeDescriptor.create(idePath, ideVersion, null, ideClassesCacheSize, classesIndexDirectory)
+
+  override fun toString() = ideVersion.toString()
+
+}
@@ -1,5 +1,6 @@
 package com.jetbrains.pluginverifier.tasks.checkPluginApi
 
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.ide.IdeFilesBank
 import com.jetbrains.pluginverifier.output.OutputOptions
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
@@ -18,6 +19,7 @@ class CheckPluginApiRunner : CommandRunner() {
   override fun getParametersBuilder(
       pluginRepository: PluginRepository,
       ideFilesBank: IdeFilesBank,
+      classesIndexDirectory: ClassesIndexDirectory,
       pluginDetailsCache: PluginDetailsCache,
       reportage: Reportage
   ) = CheckPluginApiParamsBuilder(pluginRepository, pluginDetailsCache.pluginDetailsProvider, reportage)
@@ -7,6 +7,7 @@ import com.jetbrains.pluginverifier.options.PluginsSet
 import com.jetbrains.pluginverifier.parameters.filtering.ProblemsFilter
 import com.jetbrains.pluginverifier.parameters.jdk.JdkPath
 import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.persistence.VerificationResultCache
 import com.jetbrains.pluginverifier.repository.files.FileLock
 import com.jetbrains.pluginverifier.repository.repositories.local.LocalPluginRepository
 import com.jetbrains.pluginverifier.tasks.TaskParameters
@@ -22,7 +23,9 @@ class CheckTrunkApiParams(pluginsSet: PluginsSet,
                           private val deleteReleaseIdeOnExit: Boolean,
                           private val releaseIdeFile: FileLock,
                           val releaseLocalPluginsRepository: LocalPluginRepository?,
-                          val trunkLocalPluginsRepository: LocalPluginRepository?) : TaskParameters(pluginsSet) {
+                          val trunkLocalPluginsRepository: LocalPluginRepository?,
+                          val verifyChangedApiUsagesOnly: Boolean,
+                          val verificationResultCache: VerificationResultCache?) : TaskParameters(pluginsSet) {
   override val presentableText: String
     get() = """
       |Trunk IDE        : $trunkIde
@@ -2,6 +2,7 @@ package com.jetbrains.pluginverifier.tasks.checkTrunkApi
 
 import com.jetbrains.plugin.structure.intellij.version.IdeVersion
 import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.ide.IdeDescriptor
 import com.jetbrains.pluginverifier.ide.IdeFilesBank
 import com.jetbrains.pluginverifier.ide.IdeResourceUtil
@@ -28,7 +29,8 @@ import java.nio.file.Paths
 class CheckTrunkApiParamsBuilder(
     private val pluginRepository: PluginRepository,
     private val ideFilesBank: IdeFilesBank,
-    private val reportage: Reportage
+    private val reportage: Reportage,
+    private val classesIndexDirectory: ClassesIndexDirectory
 ) : TaskParametersBuilder {
 
   override fun build(opts: CmdOpts, freeArgs: List<String>): CheckTrunkApiParams {
@@ -39,7 +41,7 @@ class CheckTrunkApiParamsBuilder(
     }
 
     reportage.logVerificationStage("Reading classes of the trunk IDE ${args[0]}")
-    val trunkIdeDescriptor = OptionsParser.createIdeDescriptor(Paths.get(args[0]), opts)
+    val trunkIdeDescriptor = OptionsParser.createIdeDescriptor(Paths.get(args[0]), opts, classesIndexDirectory)
     return trunkIdeDescriptor.closeOnException {
       buildParameters(opts, apiOpts, trunkIdeDescriptor)
     }
@@ -74,7 +76,7 @@ class CheckTrunkApiParamsBuilder(
     }
 
     reportage.logVerificationStage("Reading classes of the release IDE ${releaseIdeFileLock.file}")
-    val releaseIdeDescriptor = OptionsParser.createIdeDescriptor(releaseIdeFileLock.file, opts)
+    val releaseIdeDescriptor = OptionsParser.createIdeDescriptor(releaseIdeFileLock.file, opts, classesIndexDirectory)
     return releaseIdeDescriptor.closeOnException {
       releaseIdeFileLock.closeOnException {
         buildParameters(opts, apiOpts, releaseIdeDescriptor, trunkIdeDescriptor, deleteReleaseIdeOnExit, releaseIdeFileLock)
@@ -141,7 +143,9 @@ class CheckTrunkApiParamsBuilder(
         deleteReleaseIdeOnExit,
         releaseIdeFileLock,
         releaseLocalRepository,
-        trunkLocalRepository
+        trunkLocalRepository,
+        apiOpts.verifyChangedApiUsagesOnly,
+        OptionsParser.createVerificationResultCache(opts)
     )
   }
 
@@ -185,4 +189,8 @@ class CheckTrunkApiOpts {
   @set:Argument("trunk-jetbrains-plugins", alias = "tjbp", description = "The same as --release-local-repository but specifies the local repository of the trunk IDE.")
   var trunkLocalPluginRepositoryRoot: String? = null
 
+  @set:Argument("verify-changed-api-usages-only", alias = "vcauo", description = "If specified, only the plugins' classes that use the API changed between the release and trunk IDEs, " +
+      "or classes of dependencies, are verified against the trunk IDE. Problems of the other classes can't be new, so they are not reported for the trunk IDE.")
+  var verifyChangedApiUsagesOnly: Boolean = false
+
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.jetbrains.pluginverifier.tasks.checkTrunkApi
 
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.ide.IdeFilesBank
 import com.jetbrains.pluginverifier.output.OutputOptions
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
@@ -16,8 +17,9 @@ class CheckTrunkApiRunner : CommandRunner() {
   override fun getParametersBuilder(
       pluginRepository: PluginRepository,
       ideFilesBank: IdeFilesBank,
+      classesIndexDirectory: ClassesIndexDirectory,
       pluginDetailsCache: PluginDetailsCache, reportage: Reportage
-  ) = CheckTrunkApiParamsBuilder(pluginRepository, ideFilesBank, reportage)
+  ) = CheckTrunkApiParamsBuilder(pluginRepository, ideFilesBank, reportage, classesIndexDirectory)
 
   override fun createTask(
       parameters: TaskParameters,
@@ -5,18 +5,24 @@ import com.jetbrains.pluginverifier.PluginVerifier
 import com.jetbrains.pluginverifier.VerificationTarget
 import com.jetbrains.pluginverifier.VerifierExecutor
 import com.jetbrains.pluginverifier.dependencies.resolution.*
+import com.jetbrains.pluginverifier.ide.IdeApiDelta
 import com.jetbrains.pluginverifier.parameters.jdk.JdkDescriptorsCache
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.reporting.verification.Reportage
 import com.jetbrains.pluginverifier.repository.PluginRepository
 import com.jetbrains.pluginverifier.tasks.Task
 import com.jetbrains.pluginverifier.tasks.common.NewProblemsResult
+import com.jetbrains.pluginverifier.verifiers.filter.ChangedApiClassesFilter
 import com.jetbrains.pluginverifier.verifiers.resolution.DefaultClsResolverProvider
 
 /**
  * The 'check-trunk-api' task that runs the verification
  * of a [trunk] [CheckTrunkApiParams.trunkIde] and a [release] [CheckTrunkApiParams.releaseIde] IDEs
  * and reports the new API breakages.
+ *
+ * If [CheckTrunkApiParams.verifyChangedApiUsagesOnly] is specified,
+ * only the plugins' classes that use the API [changed] [IdeApiDelta]
+ * between the IDEs are verified against the trunk IDE.
  */
 class CheckTrunkApiTask(private val parameters: CheckTrunkApiParams,
                         private val pluginRepository: PluginRepository,
@@ -50,6 +56,15 @@ class CheckTrunkApiTask(private val parameters: CheckTrunkApiParams,
           parameters.externalClassesPackageFilter
       )
 
+      val trunkClassesFilter = if (verifyChangedApiUsagesOnly) {
+        reportage.logVerificationStage("Comparing API of the release IDE ${releaseIde.ideVersion} and the trunk IDE ${trunkIde.ideVersion}")
+        val ideApiDelta = IdeApiDelta.build(releaseIde.ideResolver, trunkIde.ideResolver)
+        reportage.logVerificationStage("API delta of the trunk IDE ${trunkIde.ideVersion}: $ideApiDelta")
+        ChangedApiClassesFilter(ideApiDelta)
+      } else {
+        null
+      }
+
       val tasks = arrayListOf<PluginVerifier>()
 
       for (pluginInfo in pluginsSet.pluginsToCheck) {
@@ -61,7 +76,8 @@ class CheckTrunkApiTask(private val parameters: CheckTrunkApiParams,
             pluginDetailsCache,
             releaseResolverProvider,
             releaseTarget,
-            releaseIde.brokenPlugins
+            releaseIde.brokenPlugins,
+            verificationResultCache
         ))
 
         tasks.add(PluginVerifier(
@@ -72,7 +88,9 @@ class CheckTrunkApiTask(private val parameters: CheckTrunkApiParams,
             pluginDetailsCache,
             trunkResolverProvider,
             trunkTarget,
-            trunkIde.brokenPlugins
+            trunkIde.brokenPlugins,
+            verificationResultCache,
+            trunkClassesFilter
         ))
       }
 
@@ -132,10 +132,30 @@ class NewProblemsResult(val baseTarget: VerificationTarget,
            */
           oldProblems.any { it is IllegalFieldAccessProblem && it.fieldBytecodeReference == problem.unresolvedField }
         }
+        is ClassNotFoundProblem -> {
+          /*
+          Problem "Package is not found" changed to "Class is not found":
+          The missing classes are grouped by packages depending on
+          which classes are missing, so the class was missing anyway.
+           */
+          problem in oldProblems.getClassNotFoundProblems()
+        }
+        is PackageNotFoundProblem -> {
+          /*
+          The same missing classes are grouped differently:
+          it is the case when the package becomes missing,
+          or when only a part of the classes is verified.
+           */
+          oldProblems.getClassNotFoundProblems().containsAll(problem.classNotFoundProblems)
+        }
         else -> false
       }
     }
 
+    private fun Set<CompatibilityProblem>.getClassNotFoundProblems(): Set<ClassNotFoundProblem> =
+        filterIsInstanceTo(hashSetOf<ClassNotFoundProblem>()) +
+            filterIsInstance<PackageNotFoundProblem>().flatMap { it.classNotFoundProblems }
+
     private fun VerificationResult.getProblems() = when (this) {
       is VerificationResult.NotFound,
       is VerificationResult.InvalidPlugin,
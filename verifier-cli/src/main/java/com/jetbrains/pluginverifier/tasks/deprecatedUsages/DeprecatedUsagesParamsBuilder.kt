@@ -3,6 +3,7 @@ package com.jetbrains.pluginverifier.tasks.deprecatedUsages
 import com.jetbrains.plugin.structure.intellij.version.IdeVersion
 import com.jetbrains.pluginverifier.VerificationTarget
 import com.jetbrains.pluginverifier.dependencies.resolution.IdeDependencyFinder
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.misc.isDirectory
 import com.jetbrains.pluginverifier.options.CmdOpts
 import com.jetbrains.pluginverifier.options.OptionsParser
@@ -19,7 +20,8 @@ import java.nio.file.Paths
 class DeprecatedUsagesParamsBuilder(
     private val pluginRepository: PluginRepository,
     private val pluginDetailsCache: PluginDetailsCache,
-    private val reportage: Reportage
+    private val reportage: Reportage,
+    private val classesIndexDirectory: ClassesIndexDirectory
 ) : TaskParametersBuilder {
   override fun build(opts: CmdOpts, freeArgs: List<String>): DeprecatedUsagesParams {
     val deprecatedOpts = DeprecatedUsagesOpts()
@@ -31,7 +33,7 @@ class DeprecatedUsagesParamsBuilder(
     if (!idePath.isDirectory) {
       throw IllegalArgumentException("IDE path must be a directory: $idePath")
     }
-    val ideDescriptor = OptionsParser.createIdeDescriptor(idePath, opts)
+    val ideDescriptor = OptionsParser.createIdeDescriptor(idePath, opts, classesIndexDirectory)
     /**
      * If the release IDE version is specified, get the compatible plugins' versions based on it.
      * Otherwise, use the version of the verified IDE.
@@ -0,0 +1,194 @@
+package com.jetbrains.pluginverifier
+
+import org.slf4j.LoggerFactory
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryType
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Limit of the number of concurrently running verifications,
+ * which is [adjusted] [adjust] between [minConcurrency] and [maxConcurrency]
+ * depending on the [heap usage] [HeapUsage] and the time spent in GC.
+ *
+ * New verifications are not admitted while the limit is reached.
+ * The limit is decreased when the old generation is nearly full after GC
+ * or GC takes too much time, and is increased when there is enough free heap
+ * for one more verification, as estimated by the heap used by the running ones.
+ * Running verifications are never interrupted.
+ */
+class AdaptiveConcurrencyLimit(
+    val minConcurrency: Int,
+    initialConcurrency: Int,
+    val maxConcurrency: Int,
+    private val heapUsageProvider: () -> HeapUsage = { HeapUsage.measure() }
+) {
+
+  companion object {
+    private val LOG = LoggerFactory.getLogger(AdaptiveConcurrencyLimit::class.java)
+
+    /**
+     * Minimum time between adjustments, which lets
+     * the heap usage reflect the previous adjustment.
+     */
+    private const val ADJUSTMENT_INTERVAL_MS = 5000L
+
+    private const val HIGH_HEAP_USAGE = 0.85
+
+    private const val LOW_HEAP_USAGE = 0.6
+
+    private const val HIGH_GC_TIME_SHARE = 0.2
+
+    private const val LOW_GC_TIME_SHARE = 0.05
+  }
+
+  init {
+    require(minConcurrency in 1..maxConcurrency) { "Invalid concurrency bounds: $minConcurrency..$maxConcurrency" }
+  }
+
+  private val lock = ReentrantLock()
+
+  private val belowLimit = lock.newCondition()
+
+  @Volatile
+  var concurrency: Int = initialConcurrency.coerceIn(minConcurrency, maxConcurrency)
+    private set
+
+  private var running = 0
+
+  private var waiting = 0
+
+  private var lastHeapUsage: HeapUsage? = null
+
+  /**
+   * Waits until the number of running verifications
+   * is less than the [concurrency] and registers one more running verification.
+   */
+  @Throws(InterruptedException::class)
+  fun acquire() {
+    lock.withLock {
+      waiting++
+      try {
+        while (running >= concurrency) {
+          belowLimit.await()
+        }
+      } finally {
+        waiting--
+      }
+      running++
+    }
+  }
+
+  fun release() {
+    lock.withLock {
+      running--
+      belowLimit.signal()
+    }
+  }
+
+  /**
+   * Runs the [action] as a verification admitted by this limit.
+   */
+  @Throws(InterruptedException::class)
+  fun <T> runLimited(action: () -> T): T {
+    acquire()
+    try {
+      return action()
+    } finally {
+      release()
+    }
+  }
+
+  /**
+   * Measures the heap usage and adjusts the [concurrency],
+   * if the previous adjustment was long enough ago.
+   */
+  fun adjust() {
+    lock.withLock {
+      val heapUsage = heapUsageProvider()
+      val previousUsage = lastHeapUsage
+      if (previousUsage != null && heapUsage.timestampMillis - previousUsage.timestampMillis < ADJUSTMENT_INTERVAL_MS) {
+        return
+      }
+      lastHeapUsage = heapUsage
+      if (previousUsage == null) {
+        return
+      }
+
+      val heapUsageShare = heapUsage.usedAfterGc.toDouble() / heapUsage.max
+      val elapsedTime = heapUsage.timestampMillis - previousUsage.timestampMillis
+      val gcTimeShare = (heapUsage.gcTimeMillis - previousUsage.gcTimeMillis).toDouble() / elapsedTime
+      val perVerificationHeap = if (running > 0) heapUsage.usedAfterGc / running else 0L
+      val usagePresentation = "old generation is ${percents(heapUsageShare)} full after GC, " +
+          "GC took ${percents(gcTimeShare)} of time, $running verifications are running " +
+          "using about ${perVerificationHeap / 1024 / 1024} MB each"
+
+      when {
+        heapUsageShare >= HIGH_HEAP_USAGE -> decrease("$usagePresentation: the heap is nearly full")
+        gcTimeShare >= HIGH_GC_TIME_SHARE -> decrease("$usagePresentation: GC overhead is too high")
+        waiting > 0
+            && heapUsageShare < LOW_HEAP_USAGE
+            && gcTimeShare < LOW_GC_TIME_SHARE
+            && heapUsage.max - heapUsage.usedAfterGc > 2 * perVerificationHeap -> increase("$usagePresentation: there is enough free heap")
+      }
+    }
+  }
+
+  private fun decrease(reason: String) {
+    val newConcurrency = maxOf(minConcurrency, concurrency - maxOf(1, concurrency / 4))
+    if (newConcurrency < concurrency) {
+      LOG.info("Decreasing concurrency of verifications from $concurrency to $newConcurrency because $reason")
+      concurrency = newConcurrency
+    }
+  }
+
+  private fun increase(reason: String) {
+    if (concurrency < maxConcurrency) {
+      LOG.info("Increasing concurrency of verifications from $concurrency to ${concurrency + 1} because $reason")
+      concurrency++
+      belowLimit.signal()
+    }
+  }
+
+  private fun percents(share: Double) = "%.0f%%".format(share * 100)
+
+  /**
+   * Heap usage measured at [timestampMillis]:
+   * - [usedAfterGc] - bytes of the old generation occupied after the last GC,
+   * which is an estimate of the live objects, or bytes of the whole heap used if it is unknown
+   * - [max] - maximum bytes of the old generation or of the whole heap
+   * - [gcTimeMillis] - total time spent in GC since the JVM start
+   */
+  data class HeapUsage(
+      val usedAfterGc: Long,
+      val max: Long,
+      val gcTimeMillis: Long,
+      val timestampMillis: Long
+  ) {
+    companion object {
+
+      private val OLD_GENERATION_POOL_NAMES = listOf("Old Gen", "Tenured Gen")
+
+      fun measure(): HeapUsage {
+        val gcTimeMillis = ManagementFactory.getGarbageCollectorMXBeans().map { it.collectionTime }.filter { it > 0 }.sum()
+        val timestampMillis = System.currentTimeMillis()
+
+        val oldGenerationPool = ManagementFactory.getMemoryPoolMXBeans().find { pool ->
+          pool.type == MemoryType.HEAP
+              && pool.isCollectionUsageThresholdSupported
+              && OLD_GENERATION_POOL_NAMES.any { pool.name.endsWith(it) }
+        }
+        val collectionUsage = oldGenerationPool?.collectionUsage
+        if (collectionUsage != null) {
+          val max = if (collectionUsage.max > 0) collectionUsage.max else collectionUsage.committed
+          return HeapUsage(collectionUsage.used, max, gcTimeMillis, timestampMillis)
+        }
+
+        val heapUsage = ManagementFactory.getMemoryMXBean().heapMemoryUsage
+        val max = if (heapUsage.max > 0) heapUsage.max else heapUsage.committed
+        return HeapUsage(heapUsage.used, max, gcTimeMillis, timestampMillis)
+      }
+    }
+  }
+
+}
@@ -8,6 +8,8 @@ import com.jetbrains.pluginverifier.misc.closeLogged
 import com.jetbrains.pluginverifier.parameters.classes.ExternalBuildClassesSelector
 import com.jetbrains.pluginverifier.parameters.classes.MainClassesSelector
 import com.jetbrains.pluginverifier.parameters.filtering.ProblemsFilter
+import com.jetbrains.pluginverifier.persistence.ContentHashes
+import com.jetbrains.pluginverifier.persistence.VerificationResultCache
 import com.jetbrains.pluginverifier.plugin.PluginDetails
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.plugin.UnableToReadPluginClassFilesProblem
@@ -20,8 +22,10 @@ import com.jetbrains.pluginverifier.results.VerificationResult
 import com.jetbrains.pluginverifier.results.problems.PluginIsMarkedIncompatibleProblem
 import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
 import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.filter.VerifiedClassesFilter
 import com.jetbrains.pluginverifier.verifiers.resolution.ClsResolverProvider
 import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
 
 /**
  * Callable that performs verification
@@ -36,14 +40,32 @@ class PluginVerifier(
     private val pluginDetailsCache: PluginDetailsCache,
     private val clsResolverProvider: ClsResolverProvider,
     private val verificationTarget: VerificationTarget,
-    private val incompatiblePlugins: Set<PluginIdAndVersion>
+    private val incompatiblePlugins: Set<PluginIdAndVersion>,
+    private val verificationResultCache: VerificationResultCache? = null,
+    private val verifiedClassesFilter: VerifiedClassesFilter? = null
 ) : Callable<VerificationResult> {
 
+  companion object {
+    /**
+     * Version of the verification, which must be incremented
+     * when the results of the same verification may change,
+     * to invalidate the [cached] [VerificationResultCache] results.
+     */
+    private const val CACHE_KEY_VERSION = 1
+  }
+
   private val resultHolder = ResultHolder()
 
   private val pluginReporters = reportage.createPluginReporters(plugin, verificationTarget)
 
-  override fun call(): VerificationResult {
+  override fun call(): VerificationResult = verify(null)
+
+  /**
+   * Runs the verification. Classes of huge plugins are verified
+   * in parallel on the [classesVerificationPool], if it is specified,
+   * or on the current thread otherwise.
+   */
+  fun verify(classesVerificationPool: ForkJoinPool?): VerificationResult {
     checkIfInterrupted()
     val startTime = System.currentTimeMillis()
     try {
@@ -60,7 +82,7 @@ class PluginVerifier(
        * Run bytecode verification.
        */
       try {
-        loadPluginAndVerify()
+        loadPluginAndVerify(classesVerificationPool)
       } catch (ie: InterruptedException) {
         throw ie
       } catch (e: Exception) {
@@ -126,13 +148,13 @@ class PluginVerifier(
     }
   }
 
-  private fun loadPluginAndVerify() {
+  private fun loadPluginAndVerify(classesVerificationPool: ForkJoinPool?) {
     pluginDetailsCache.getPluginDetailsCacheEntry(plugin).use {
       when (it) {
         is PluginDetailsCache.Result.Provided -> {
           val pluginDetails = it.pluginDetails
           pluginDetails.pluginWarnings.forEach { resultHolder.addPluginErrorOrWarning(it) }
-          verifyClasses(pluginDetails)
+          verifyClasses(pluginDetails, classesVerificationPool)
         }
         is PluginDetailsCache.Result.InvalidPlugin -> it.pluginErrors.forEach { resultHolder.addPluginErrorOrWarning(it) }
         is PluginDetailsCache.Result.FileNotFound -> resultHolder.notFoundReason = it.reason
@@ -141,7 +163,7 @@ class PluginVerifier(
     }
   }
 
-  private fun verifyClasses(pluginDetails: PluginDetails) {
+  private fun verifyClasses(pluginDetails: PluginDetails, classesVerificationPool: ForkJoinPool?) {
     /**
      * Select classes for verification
      */
@@ -156,18 +178,82 @@ class PluginVerifier(
     }
 
     clsResolverProvider.provide(pluginDetails, resultHolder).use { clsResolver ->
+      val cacheKey = getCacheKey(pluginDetails)
+      val cachedResults = cacheKey?.let { verificationResultCache!!.get(it) }
+      if (cachedResults != null) {
+        pluginReporters.reportMessage("Verification results of $plugin against $verificationTarget are taken from the cache")
+        resultHolder.addResultsOf(cachedResults)
+        return
+      }
+
+      val classesToVerify = if (verifiedClassesFilter != null) {
+        verifiedClassesFilter.filterClassesToVerify(checkClasses, clsResolver).also {
+          pluginReporters.reportMessage("${it.size} of ${checkClasses.size} classes of $plugin are selected for verification against $verificationTarget")
+        }
+      } else {
+        checkClasses
+      }
+
+      /**
+       * Results of the bytecode verification are collected separately
+       * from the results of the dependencies resolution, to be cached.
+       */
+      val verificationResults = ResultHolder()
       val verificationContext = VerificationContext(
           plugin,
           verificationTarget,
-          resultHolder,
+          verificationResults,
           findDeprecatedApiUsages,
           problemFilters,
           clsResolver
       )
-      BytecodeVerifier().verify(checkClasses, verificationContext) {
+      BytecodeVerifier(classesVerificationPool).verify(classesToVerify, verificationContext) {
         pluginReporters.reportProgress(it)
       }
-      verificationContext.analyzeMissingClasses(resultHolder)
+      verificationContext.analyzeMissingClasses(verificationResults)
+      resultHolder.addResultsOf(verificationResults)
+
+      if (cacheKey != null) {
+        verificationResultCache!!.put(cacheKey, plugin, verificationTarget, verificationResults)
+      }
+    }
+  }
+
+  /**
+   * Returns the key of the results of the bytecode verification
+   * in the [verificationResultCache], or `null` if the results must not be cached.
+   * Results of verification of the [filtered] [verifiedClassesFilter] classes are not cached.
+   *
+   * The key identifies the content of the plugin, the environment of the [clsResolverProvider],
+   * the resolved dependencies, the [problemFilters] and the verification options.
+   * Dependencies are identified by their IDs and versions.
+   */
+  private fun getCacheKey(pluginDetails: PluginDetails): String? {
+    if (verificationResultCache == null
+        || verifiedClassesFilter != null
+        || !verificationResultCache.isSupported(plugin, verificationTarget)) {
+      return null
+    }
+    val pluginFile = pluginDetails.pluginFile ?: return null
+    val environmentKey = clsResolverProvider.getEnvironmentKey() ?: return null
+    val dependenciesGraph = resultHolder.dependenciesGraph
+    return buildString {
+      appendln("Version $CACHE_KEY_VERSION")
+      appendln("Plugin ${ContentHashes.hashFile(pluginFile)}")
+      appendln("Target $verificationTarget")
+      appendln("Deprecated API usages $findDeprecatedApiUsages")
+      appendln(environmentKey)
+      problemFilters.forEach { appendln(it.configurationKey) }
+      if (dependenciesGraph != null) {
+        dependenciesGraph.vertices
+            .map { "Dependency ${it.pluginId}:${it.version} missing ${it.missingDependencies.map { it.dependency }.sortedBy { it.toString() }}" }
+            .sorted()
+            .forEach { appendln(it) }
+        dependenciesGraph.edges
+            .map { "Edge ${it.from.pluginId}:${it.from.version} -> ${it.to.pluginId}:${it.to.version} ${it.dependency}" }
+            .sorted()
+            .forEach { appendln(it) }
+      }
     }
   }
 
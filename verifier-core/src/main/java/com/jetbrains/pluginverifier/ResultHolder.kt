@@ -74,6 +74,20 @@ class ResultHolder {
     }
   }
 
+  /**
+   * Adds compatibility problems, ignored problems and API usages
+   * registered in the [other] result holder, as if they were registered
+   * in this holder in the same order.
+   */
+  fun addResultsOf(other: ResultHolder) {
+    for ((problem, ignoreDecisions) in other.ignoredProblemsHolder.ignoredProblems) {
+      addIgnoredProblem(problem, ignoreDecisions)
+    }
+    other.compatibilityProblems.forEach { addProblem(it) }
+    other.deprecatedUsages.forEach { addDeprecatedUsage(it) }
+    other.experimentalApiUsages.forEach { addExperimentalUsage(it) }
+  }
+
   fun addCycleWarningIfExists(dependenciesGraph: DependenciesGraph) {
     val cycles = dependenciesGraph.getAllCycles()
     if (cycles.isNotEmpty()) {
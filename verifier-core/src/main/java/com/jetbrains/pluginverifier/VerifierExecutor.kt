@@ -11,9 +11,21 @@ import java.util.concurrent.*
 /**
  * [Runs] [verify] the verification tasks with a concurrency level of [concurrentWorkers].
  *
+ * If the [concurrencyLimit] is specified, the tasks are admitted
+ * by the limit, which is adjusted at runtime depending on the heap usage,
+ * and the [concurrentWorkers] is the maximum concurrency level.
+ *
+ * Classes of huge plugins are verified in parallel on a separate
+ * [classesVerificationPool] shared by all the verifications.
+ *
  * The [VerifierExecutor] can be reused for several verifications.
  */
-class VerifierExecutor(private val concurrentWorkers: Int) : Closeable {
+class VerifierExecutor(
+    private val concurrentWorkers: Int,
+    private val concurrencyLimit: AdaptiveConcurrencyLimit? = null
+) : Closeable {
+
+  constructor(concurrencyLimit: AdaptiveConcurrencyLimit) : this(concurrencyLimit.maxConcurrency, concurrencyLimit)
 
   companion object {
     private val LOG = LoggerFactory.getLogger(VerifierExecutor::class.java)
@@ -26,8 +38,21 @@ class VerifierExecutor(private val concurrentWorkers: Int) : Closeable {
           .build()
   )
 
+  private val classesVerificationPool = ForkJoinPool(
+      Runtime.getRuntime().availableProcessors(),
+      { pool ->
+        ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool).apply {
+          name = "verifier-classes-$poolIndex"
+          isDaemon = true
+        }
+      },
+      null,
+      false
+  )
+
   override fun close() {
     executor.shutdownAndAwaitTermination(1, TimeUnit.MINUTES)
+    classesVerificationPool.shutdownAndAwaitTermination(1, TimeUnit.MINUTES)
   }
 
   /**
@@ -44,7 +69,11 @@ class VerifierExecutor(private val concurrentWorkers: Int) : Closeable {
     try {
       for (task in tasks) {
         val worker = try {
-          completionService.submit(task)
+          if (concurrencyLimit != null) {
+            completionService.submit { concurrencyLimit.runLimited { task.verify(classesVerificationPool) } }
+          } else {
+            completionService.submit { task.verify(classesVerificationPool) }
+          }
         } catch (e: RejectedExecutionException) {
           if (executor.isShutdown) {
             throw InterruptedException()
@@ -82,6 +111,7 @@ class VerifierExecutor(private val concurrentWorkers: Int) : Closeable {
     for (finished in 1..workers.size) {
       while (true) {
         checkIfInterrupted()
+        concurrencyLimit?.adjust()
         val future = completionService.poll(500, TimeUnit.MILLISECONDS) //throws InterruptedException
         if (future != null) {
           val result = try {
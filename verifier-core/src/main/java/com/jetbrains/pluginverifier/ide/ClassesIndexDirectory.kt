@@ -0,0 +1,57 @@
+package com.jetbrains.pluginverifier.ide
+
+import com.google.common.hash.Hashing
+import com.jetbrains.pluginverifier.misc.createDir
+import com.jetbrains.pluginverifier.misc.deleteLogged
+import com.jetbrains.pluginverifier.misc.replaceInvalidFileNameCharacters
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+import java.time.Instant
+
+/**
+ * Directory of the verifier where [classes indexes] [com.jetbrains.plugin.structure.classes.utils.JarsIndex]
+ * of IDEs and JDKs are kept, so that the IDE and JDK directories,
+ * which may be read-only or shared, are never written to.
+ *
+ * The index of a classes root, such as an IDE or a JDK directory,
+ * is identified by the root's absolute path. Indexes that
+ * have not been updated for [STALE_INDEX_AGE] are deleted on creation
+ * of this directory, because their IDEs may have been removed.
+ */
+class ClassesIndexDirectory(private val directory: Path) {
+
+  companion object {
+    private val STALE_INDEX_AGE = Duration.ofDays(30)
+
+    private const val INDEX_FILE_EXTENSION = "classes-index"
+  }
+
+  init {
+    deleteStaleIndexes()
+  }
+
+  /**
+   * Returns the file of the index of the classes by [classesRoot].
+   */
+  fun getIndexFile(classesRoot: Path): File {
+    val absolutePath = classesRoot.toAbsolutePath().normalize()
+    val hash = Hashing.sha256().hashUnencodedChars(absolutePath.toString()).toString().take(16)
+    val name = absolutePath.fileName?.toString().orEmpty().replaceInvalidFileNameCharacters()
+    return directory.createDir().resolve("$name-$hash.$INDEX_FILE_EXTENSION").toFile()
+  }
+
+  private fun deleteStaleIndexes() {
+    val staleTime = Instant.now() - STALE_INDEX_AGE
+    val indexFiles = directory.toFile().listFiles { file -> file.name.endsWith(".$INDEX_FILE_EXTENSION") }.orEmpty()
+    for (indexFile in indexFiles) {
+      if (Instant.ofEpochMilli(indexFile.lastModified()) < staleTime) {
+        indexFile.toPath().deleteLogged()
+      }
+    }
+  }
+
+  override fun toString() = directory.toString()
+
+}
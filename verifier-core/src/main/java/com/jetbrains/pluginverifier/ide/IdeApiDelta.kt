@@ -0,0 +1,139 @@
+package com.jetbrains.pluginverifier.ide
+
+import com.google.common.hash.Hashing
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.verifiers.getDeprecationInfo
+import com.jetbrains.pluginverifier.verifiers.isExperimentalApi
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.FieldNode
+import org.objectweb.asm.tree.InnerClassNode
+import org.objectweb.asm.tree.MethodNode
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+import java.util.stream.Collectors
+
+/**
+ * Classes of an IDE whose API differs from the API of the classes
+ * with the same names in another IDE.
+ *
+ * The API of a class consists of its modifiers, super class, interfaces,
+ * inner classes and names, descriptors and modifiers of its fields and methods.
+ * Deprecation (`@Deprecated`, `@ApiStatus.ScheduledForRemoval`) and `@ApiStatus.Experimental`
+ * status of the class and its members are part of the API too,
+ * because usages of such API are reported by the verification.
+ * A class is [changed] [isChanged] if it is added, removed, its API is changed,
+ * or any of its super classes and interfaces is changed.
+ *
+ * Bytecode verification of classes that reference only
+ * unchanged classes yields the same results against both IDEs.
+ */
+class IdeApiDelta(private val changedClasses: Set<String>) {
+
+  /**
+   * Returns `true` if the API of the class [className] differs
+   * between the IDEs.
+   */
+  fun isChanged(className: String) = className in changedClasses
+
+  override fun toString() = "${changedClasses.size} changed classes"
+
+  companion object {
+
+    /**
+     * Builds the [IdeApiDelta] of the [newIdeResolver] relative
+     * to the [oldIdeResolver] by comparing APIs of all the classes.
+     */
+    fun build(oldIdeResolver: Resolver, newIdeResolver: Resolver): IdeApiDelta {
+      val allClasses = oldIdeResolver.allClasses + newIdeResolver.allClasses
+      val forkJoinPool = ForkJoinPool(maxOf(4, Runtime.getRuntime().availableProcessors()))
+      val apiChangedClasses = try {
+        forkJoinPool.submit(Callable {
+          allClasses.parallelStream()
+              .filter { oldIdeResolver.getApiHash(it) != newIdeResolver.getApiHash(it) }
+              .collect(Collectors.toSet())
+        }).get()
+      } finally {
+        forkJoinPool.shutdown()
+      }
+      return IdeApiDelta(HierarchyChanges(oldIdeResolver, newIdeResolver, apiChangedClasses).getChangedClasses(allClasses))
+    }
+
+    /**
+     * Returns a hash of API of the class [className],
+     * or `null` if the class is not found or can't be read.
+     */
+    @Suppress("UNCHECKED_CAST")
+    private fun Resolver.getApiHash(className: String): String? {
+      val classNode = findClassSafely(className) ?: return null
+      val hasher = Hashing.sha256().newHasher()
+      hasher.putInt(classNode.access)
+      hasher.putUnencodedChars("${classNode.getDeprecationInfo()} ${classNode.isExperimentalApi()}")
+      hasher.putUnencodedChars(classNode.superName.orEmpty())
+      (classNode.interfaces as List<String>).sorted().forEach { hasher.putUnencodedChars(it) }
+      (classNode.innerClasses as List<InnerClassNode>)
+          .map { "${it.name} ${it.outerName} ${it.innerName} ${it.access}" }
+          .sorted()
+          .forEach { hasher.putUnencodedChars(it) }
+      (classNode.fields as List<FieldNode>)
+          .map { "${it.name} ${it.desc} ${it.access} ${it.getDeprecationInfo()} ${it.isExperimentalApi()}" }
+          .sorted()
+          .forEach { hasher.putUnencodedChars(it) }
+      (classNode.methods as List<MethodNode>)
+          .map { "${it.name} ${it.desc} ${it.access} ${it.getDeprecationInfo()} ${it.isExperimentalApi()}" }
+          .sorted()
+          .forEach { hasher.putUnencodedChars(it) }
+      return hasher.hash().toString()
+    }
+
+    private fun Resolver.findClassSafely(className: String): ClassNode? =
+        try {
+          findClass(className)
+        } catch (ie: InterruptedException) {
+          throw ie
+        } catch (e: Exception) {
+          null
+        }
+  }
+
+  /**
+   * Propagates API changes of classes to their
+   * subclasses and implementations in both IDEs.
+   */
+  private class HierarchyChanges(
+      private val oldIdeResolver: Resolver,
+      private val newIdeResolver: Resolver,
+      private val apiChangedClasses: Set<String>
+  ) {
+
+    private val isChanged = ConcurrentHashMap<String, Boolean>()
+
+    fun getChangedClasses(allClasses: Set<String>): Set<String> =
+        allClasses.filterTo(hashSetOf()) { isChanged(it, hashSetOf()) }
+
+    private fun isChanged(className: String, visiting: MutableSet<String>): Boolean {
+      isChanged[className]?.let { return it }
+      if (className in apiChangedClasses) {
+        return true
+      }
+      if (!visiting.add(className)) {
+        return false
+      }
+      val changed = getSupertypes(className).any { isChanged(it, visiting) }
+      isChanged[className] = changed
+      return changed
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun getSupertypes(className: String): Set<String> {
+      val supertypes = hashSetOf<String>()
+      for (resolver in listOf(oldIdeResolver, newIdeResolver)) {
+        val classNode = resolver.findClassSafely(className) ?: continue
+        classNode.superName?.let { supertypes.add(it) }
+        supertypes.addAll(classNode.interfaces as List<String>)
+      }
+      return supertypes
+    }
+  }
+
+}
@@ -1,13 +1,18 @@
 package com.jetbrains.pluginverifier.ide
 
 import com.jetbrains.plugin.structure.base.utils.closeLogged
+import com.jetbrains.plugin.structure.classes.resolvers.CacheResolver
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
 import com.jetbrains.plugin.structure.ide.Ide
 import com.jetbrains.plugin.structure.ide.IdeManager
 import com.jetbrains.plugin.structure.ide.classes.IdeResolverCreator
 import com.jetbrains.plugin.structure.intellij.version.IdeVersion
 import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
+import com.jetbrains.pluginverifier.repository.cleanup.SpaceAmount
+import com.jetbrains.pluginverifier.repository.cleanup.SpaceUnit
+import com.jetbrains.pluginverifier.repository.cleanup.bytesToSpaceAmount
 import com.jetbrains.pluginverifier.repository.files.FileLock
+import org.slf4j.LoggerFactory
 import java.io.Closeable
 import java.nio.file.Path
 
@@ -15,7 +20,9 @@ import java.nio.file.Path
  * Holds IDE objects necessary for verification.
  *
  * - [ide] - instance of this IDE
- * - [ideResolver] - accessor of IDE class files
+ * - [ideResolver] - accessor of IDE class files. It caches the
+ * read class files and is shared by all the verifications
+ * against this IDE, so popular IDE classes are read only once.
  * - [ideFileLock] - a lock to protect the IDE file from deletion.
  * It will be closed along with `this` descriptor.
  * - [brokenPlugins] - set of "broken" plugins marked to be
@@ -37,20 +44,59 @@ data class IdeDescriptor(
   override fun toString() = ideVersion.toString()
 
   override fun close() {
+    if (ideResolver is CacheResolver) {
+      LOG.debug("IDE $ideVersion classes cache statistics: ${ideResolver.cacheStats}")
+    }
     ideResolver.closeLogged()
     ideFileLock.closeLogged()
   }
 
   companion object {
+
+    private val LOG = LoggerFactory.getLogger(IdeDescriptor::class.java)
+
+    /**
+     * Part of the maximum heap size that the shared [ideResolver]
+     * cache of one IDE may occupy by default. Several IDEs may be open
+     * at once, so it is small enough for all of them to fit in the heap.
+     */
+    private const val IDE_CLASSES_CACHE_HEAP_FRACTION = 16
+
+    /**
+     * Default memory budget of the IDE classes
+     * kept in the shared [ideResolver] cache.
+     */
+    val DEFAULT_IDE_CLASSES_CACHE_SIZE: SpaceAmount
+      get() = (Runtime.getRuntime().maxMemory() / IDE_CLASSES_CACHE_HEAP_FRACTION).bytesToSpaceAmount()
+
     /**
      * Creates [IdeDescriptor] for specified [idePath].
      * [ideVersion] is used to override the default version.
      * [ideFileLock] will be released when this [IdeDescriptor] is closed.
+     * [ideClassesCacheSize] is the maximum estimated memory of IDE classes
+     * cached by the [ideResolver] shared by all the verifications.
+     * The cached classes are softly referenced, so they are also
+     * reclaimed by the garbage collector in response to memory demand.
+     *
+     * If [classesIndexDirectory] is specified, names of the IDE classes
+     * are persisted to the index of this IDE in that directory,
+     * so the next time the same IDE is opened its jars don't have to be scanned.
      */
-    fun create(idePath: Path, ideVersion: IdeVersion?, ideFileLock: FileLock?): IdeDescriptor {
+    fun create(
+        idePath: Path,
+        ideVersion: IdeVersion?,
+        ideFileLock: FileLock?,
+        ideClassesCacheSize: SpaceAmount = DEFAULT_IDE_CLASSES_CACHE_SIZE,
+        classesIndexDirectory: ClassesIndexDirectory? = null
+    ): IdeDescriptor {
       val ide = IdeManager.createManager().createIde(idePath.toFile(), ideVersion)
       val brokenPlugins = IdeResourceUtil.getBrokenPlugins(ide)
-      val ideResolver = IdeResolverCreator.createIdeResolver(ide)
+      val classesIndexFile = classesIndexDirectory?.getIndexFile(idePath)
+      val ideResolver = CacheResolver(
+          IdeResolverCreator.createIdeResolver(Resolver.ReadMode.FULL, ide, classesIndexFile),
+          ideClassesCacheSize.to(SpaceUnit.BYTE).toLong(),
+          true
+      )
       return IdeDescriptor(ide, ideResolver, ideFileLock, brokenPlugins)
     }
 
@@ -13,15 +13,18 @@ import java.io.Closeable
  *
  * This must be [closed] [close] on the application shutdown
  * to deallocate all the [IdeDescriptor]s.
+ *
+ * Classes indexes of the IDEs are kept in the [classesIndexDirectory], if specified.
  */
 class IdeDescriptorsCache(
     cacheSize: Int,
-    ideFilesBank: IdeFilesBank
+    ideFilesBank: IdeFilesBank,
+    classesIndexDirectory: ClassesIndexDirectory? = null
 ) : Closeable {
 
   private val resourceCache = createSizeLimitedResourceCache(
       cacheSize,
-      IdeDescriptorResourceProvider(ideFilesBank),
+      IdeDescriptorResourceProvider(ideFilesBank, classesIndexDirectory),
       { it.close() },
       "IdeDescriptorsCache"
   )
@@ -77,15 +80,17 @@ class IdeDescriptorsCache(
   /**
    * Implementation of the [ResourceProvider] that provides the IDE files from the [ideFilesBank].
    */
-  private class IdeDescriptorResourceProvider(private val ideFilesBank: IdeFilesBank)
-    : ResourceProvider<IdeVersion, IdeDescriptor> {
+  private class IdeDescriptorResourceProvider(
+      private val ideFilesBank: IdeFilesBank,
+      private val classesIndexDirectory: ClassesIndexDirectory?
+  ) : ResourceProvider<IdeVersion, IdeDescriptor> {
 
     override fun provide(key: IdeVersion): ProvideResult<IdeDescriptor> {
       val result = ideFilesBank.getIdeFile(key)
       val ideLock = (result as? IdeFilesBank.Result.Found)?.ideFileLock
           ?: return ProvideResult.NotFound("IDE $key is not found in the $ideFilesBank")
       val ideDescriptor = try {
-        IdeDescriptor.create(ideLock.file, key, ideLock)
+        IdeDescriptor.create(ideLock.file, key, ideLock, classesIndexDirectory = classesIndexDirectory)
       } catch (ie: InterruptedException) {
         throw ie
       } catch (e: Exception) {
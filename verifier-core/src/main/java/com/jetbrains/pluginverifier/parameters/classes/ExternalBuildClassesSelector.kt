@@ -1,8 +1,8 @@
 package com.jetbrains.pluginverifier.parameters.classes
 
 import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
-import com.jetbrains.plugin.structure.classes.resolvers.JarFileResolver
 import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.plugin.structure.classes.resolvers.ServiceProvidersContainer
 import com.jetbrains.plugin.structure.classes.resolvers.UnionResolver
 import com.jetbrains.plugin.structure.intellij.classes.locator.CompileServerExtensionKey
 import com.jetbrains.plugin.structure.intellij.classes.plugin.IdePluginClassesLocations
@@ -18,12 +18,12 @@ class ExternalBuildClassesSelector : ClassesSelector {
   override fun getClassesForCheck(classesLocations: IdePluginClassesLocations): Set<String> {
     val compileServerResolver = classesLocations.getResolver(CompileServerExtensionKey) ?: return emptySet()
 
-    val jarFileResolvers = compileServerResolver.finalResolvers.filterIsInstance<JarFileResolver>()
+    val jarResolvers = compileServerResolver.finalResolvers.filterIsInstance<ServiceProvidersContainer>()
     val allServiceImplementations = hashSetOf<String>()
-    for (jarFileResolver in jarFileResolvers) {
-      jarFileResolver.implementedServiceProviders
+    for (jarResolver in jarResolvers) {
+      jarResolver.implementedServiceProviders
           .filter { isJetbrainsServiceProvider(it) }
-          .flatMapTo(allServiceImplementations) { jarFileResolver.readServiceImplementationNames(it) }
+          .flatMapTo(allServiceImplementations) { jarResolver.readServiceImplementationNames(it) }
     }
 
     val serviceProviderContainingJars = allServiceImplementations.mapNotNullTo(hashSetOf()) {
@@ -1,26 +1,101 @@
 package com.jetbrains.pluginverifier.parameters.filtering
 
-import com.jetbrains.pluginverifier.parameters.filtering.documented.DocumentedProblem
-import com.jetbrains.pluginverifier.parameters.filtering.documented.DocumentedProblemsPagesFetcher
-import com.jetbrains.pluginverifier.parameters.filtering.documented.DocumentedProblemsParser
-import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.parameters.filtering.documented.*
+import com.jetbrains.pluginverifier.results.problems.*
 import com.jetbrains.pluginverifier.verifiers.VerificationContext
 
 /**
  * Implementation of the [ProblemsFilter] that drops
  * the problems documented on the
  * [Breaking API Changes page](http://www.jetbrains.org/intellij/sdk/docs/reference_guide/api_changes_list.html).
+ *
+ * The documented problems are indexed by names of the classes, packages
+ * and members they refer to, so only the documented problems
+ * that may document a problem are [checked] [DocumentedProblem.isDocumenting].
  */
 class DocumentedProblemsFilter(private val documentedProblems: List<DocumentedProblem>) : ProblemsFilter {
 
+  private val byClassName = hashMapOf<String, MutableList<DocumentedProblem>>()
+
+  private val byPackageName = hashMapOf<String, MutableList<DocumentedProblem>>()
+
+  private val byMemberName = hashMapOf<String, MutableList<DocumentedProblem>>()
+
+  /**
+   * Documented problems of unknown types, which are checked against all problems.
+   */
+  private val notIndexed = arrayListOf<DocumentedProblem>()
+
+  init {
+    documentedProblems@ for (documentedProblem in documentedProblems) {
+      val (index, key) = when (documentedProblem) {
+        is DocClassRemoved -> byClassName to documentedProblem.className
+        is DocClassMovedToPackage -> byClassName to documentedProblem.oldClassName
+        is DocPackageRemoved -> byPackageName to documentedProblem.packageName
+        is DocMethodRemoved -> byMemberName to documentedProblem.methodName
+        is DocMethodReturnTypeChanged -> byMemberName to documentedProblem.methodName
+        is DocMethodVisibilityChanged -> byMemberName to documentedProblem.methodName
+        is DocMethodBecameFinal -> byMemberName to documentedProblem.methodName
+        is DocMethodParameterTypeChanged -> byMemberName to documentedProblem.methodName
+        is DocAbstractMethodAdded -> byMemberName to documentedProblem.methodName
+        is DocFieldRemoved -> byMemberName to documentedProblem.fieldName
+        is DocFieldTypeChanged -> byMemberName to documentedProblem.fieldName
+        is DocFieldVisibilityChanged -> byMemberName to documentedProblem.fieldName
+        else -> {
+          notIndexed.add(documentedProblem)
+          continue@documentedProblems
+        }
+      }
+      index.getOrPut(key) { arrayListOf() }.add(documentedProblem)
+    }
+  }
+
+  override val configurationKey
+    get() = javaClass.name + documentedProblems.joinToString(prefix = "\n", separator = "\n")
+
   override fun shouldReportProblem(problem: CompatibilityProblem, verificationContext: VerificationContext): ProblemsFilter.Result {
-    val documentedProblem = documentedProblems.find { it.isDocumenting(problem, verificationContext) }
+    val documentedProblem = getCandidates(problem).find { it.isDocumenting(problem, verificationContext) }
     if (documentedProblem != null) {
       return ProblemsFilter.Result.Ignore("the problem is already documented in the API Breakages page (http://www.jetbrains.org/intellij/sdk/docs/reference_guide/api_changes_list.html)")
     }
     return ProblemsFilter.Result.Report
   }
 
+  /**
+   * Returns the documented problems that may document the [problem].
+   */
+  private fun getCandidates(problem: CompatibilityProblem): Sequence<DocumentedProblem> {
+    val memberName = when (problem) {
+      is MethodNotFoundProblem -> problem.unresolvedMethod.methodName
+      is MethodNotImplementedProblem -> problem.abstractMethod.methodName
+      is IllegalMethodAccessProblem -> problem.inaccessibleMethod.methodName
+      is OverridingFinalMethodProblem -> problem.finalMethod.methodName
+      is FieldNotFoundProblem -> problem.unresolvedField.fieldName
+      is IllegalFieldAccessProblem -> problem.inaccessibleField.fieldName
+      else -> null
+    }
+    val classNames = when (problem) {
+      is ClassNotFoundProblem -> listOf(problem.unresolved.className)
+      is MethodNotFoundProblem -> problem.unresolvedMethod.getSignatureClasses()
+      is FieldNotFoundProblem -> problem.unresolvedField.getSignatureClasses()
+      else -> emptyList()
+    }
+    return sequenceOf(
+        memberName?.let { byMemberName[it] }.orEmpty().asSequence(),
+        classNames.asSequence().flatMap { byClassName[it].orEmpty().asSequence() },
+        classNames.asSequence().flatMap { getPackageNames(it) }.flatMap { byPackageName[it].orEmpty().asSequence() },
+        notIndexed.asSequence()
+    ).flatten()
+  }
+
+  /**
+   * Returns names of the package of the class [className] and all its parent packages.
+   */
+  private fun getPackageNames(className: String): Sequence<String> =
+      generateSequence(className.lastIndexOf('/')) { className.lastIndexOf('/', it - 1) }
+          .takeWhile { it > 0 }
+          .map { className.substring(0, it) }
+
   companion object {
 
     private const val DEFAULT_DOCUMENTED_PROBLEMS_PAGE_URL = "https://raw.githubusercontent.com/JetBrains/intellij-sdk-docs/master/reference_guide/api_changes_list.md"
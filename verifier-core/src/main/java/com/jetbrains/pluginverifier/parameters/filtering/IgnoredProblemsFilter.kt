@@ -5,26 +5,90 @@ import com.jetbrains.pluginverifier.verifiers.VerificationContext
 
 /**
  * [ProblemsFilter] that ignores problems specified in [ignoreConditions].
+ *
+ * The conditions are grouped by plugin ID and version, so only
+ * the conditions applicable to the verified plugin are checked.
+ * Before matching a condition's pattern, the problem's short description
+ * is checked to start with the literal prefix of the pattern, if any,
+ * which is much cheaper than the pattern matching.
+ *
+ * If several conditions match a problem, the first one in
+ * the [ignoreConditions] is reported as the reason.
  */
 class IgnoredProblemsFilter(val ignoreConditions: List<IgnoreCondition>) : ProblemsFilter {
 
+  private class CompiledCondition(val index: Int, val pattern: Regex) {
+
+    private val literalPrefix = if (RegexOption.COMMENTS in pattern.options) "" else getLiteralPrefix(pattern.pattern)
+
+    fun matches(shortDescription: String) =
+        shortDescription.startsWith(literalPrefix, true) && shortDescription.matches(pattern)
+  }
+
+  private data class ConditionsKey(val pluginId: String?, val version: String?)
+
+  private val conditionsByPlugin: Map<ConditionsKey, List<CompiledCondition>> =
+      ignoreConditions.withIndex().groupBy(
+          { (_, condition) -> ConditionsKey(condition.pluginId, condition.version) },
+          { (index, condition) -> CompiledCondition(index, condition.pattern) }
+      )
+
+  override val configurationKey
+    get() = javaClass.name + ignoreConditions.joinToString(prefix = "\n", separator = "\n") { it.serializeCondition() }
+
   override fun shouldReportProblem(
       problem: CompatibilityProblem,
       verificationContext: VerificationContext
   ): ProblemsFilter.Result {
+    if (conditionsByPlugin.isEmpty()) {
+      return ProblemsFilter.Result.Report
+    }
     val currentId = verificationContext.plugin.pluginId
     val currentVersion = verificationContext.plugin.version
 
-    for ((pluginId, version, pattern) in ignoreConditions) {
-      if (pluginId == null || pluginId == currentId) {
-        if (version == null || version == currentVersion) {
-          if (problem.shortDescription.matches(pattern)) {
-            return ProblemsFilter.Result.Ignore("the problem is ignored by RegExp pattern: \"$pattern\"")
-          }
-        }
+    val shortDescription = problem.shortDescription
+    val applicableKeys = listOf(
+        ConditionsKey(null, null),
+        ConditionsKey(null, currentVersion),
+        ConditionsKey(currentId, null),
+        ConditionsKey(currentId, currentVersion)
+    )
+
+    var firstMatching: CompiledCondition? = null
+    for (key in applicableKeys) {
+      val conditions = conditionsByPlugin[key] ?: continue
+      val matching = conditions.find { firstMatching.let { first -> first == null || it.index < first.index } && it.matches(shortDescription) }
+      if (matching != null) {
+        firstMatching = matching
       }
     }
+    if (firstMatching != null) {
+      return ProblemsFilter.Result.Ignore("the problem is ignored by RegExp pattern: \"${firstMatching.pattern}\"")
+    }
     return ProblemsFilter.Result.Report
   }
 
-}
\ No newline at end of file
+  private companion object {
+
+    private const val META_CHARACTERS = "\\^$.|?*+()[]{}"
+
+    private const val QUANTIFIERS = "?*+{"
+
+    /**
+     * Returns the literal string that all strings
+     * matching the [pattern] start with, ignoring case.
+     */
+    fun getLiteralPrefix(pattern: String): String {
+      if ('|' in pattern) {
+        return ""
+      }
+      val literalLength = pattern.indexOfFirst { it in META_CHARACTERS }.takeIf { it >= 0 } ?: pattern.length
+      if (literalLength < pattern.length && pattern[literalLength] in QUANTIFIERS) {
+        //The quantifier applies to the last literal character.
+        return pattern.substring(0, maxOf(literalLength - 1, 0))
+      }
+      return pattern.substring(0, literalLength)
+    }
+  }
+
+}
@@ -16,6 +16,14 @@ interface ProblemsFilter {
       verificationContext: VerificationContext
   ): Result
 
+  /**
+   * Presentation of the problems ignored by this filter.
+   * Verification results are [cached] [com.jetbrains.pluginverifier.persistence.VerificationResultCache]
+   * only for the same presentations of the filters.
+   */
+  val configurationKey: String
+    get() = javaClass.name
+
   sealed class Result {
     object Report : Result()
 
@@ -188,25 +188,30 @@ private fun FieldReference.doesFieldDependOnClass(className: String) =
  * Checks if the method's signature of _this_ [MethodReference] contains
  * a class that matches the passed [predicate] [classFinder].
  */
-private fun MethodReference.doesMethodDependOnClass(classFinder: (String) -> Boolean): Boolean {
-  if (classFinder(hostClass.className)) {
-    return true
-  }
+private fun MethodReference.doesMethodDependOnClass(classFinder: (String) -> Boolean) =
+    getSignatureClasses().any(classFinder)
+
+/**
+ * Checks if the field's signature of _this_ [FieldReference] contains
+ * a class that matches the passed [predicate] [classFinder].
+ */
+private fun FieldReference.doesFieldDependOnClass(classFinder: (String) -> Boolean) =
+    getSignatureClasses().any(classFinder)
+
+/**
+ * Returns the host class and the classes of parameter and return types
+ * of _this_ [MethodReference].
+ */
+fun MethodReference.getSignatureClasses(): List<String> {
   val (rawParamTypes, rawReturnType) = JvmDescriptorsPresentation.splitMethodDescriptorOnRawParametersAndReturnTypes(methodDescriptor)
   val paramClasses = rawParamTypes.mapNotNull { it.extractClassNameFromDescr() }
   val returnType = rawReturnType.extractClassNameFromDescr()
-
-  return paramClasses.any(classFinder) || (returnType != null && classFinder(returnType))
+  return listOf(hostClass.className) + paramClasses + listOfNotNull(returnType)
 }
 
 /**
- * Checks if the field's signature of _this_ [FieldReference] contains
- * a class that matches the passed [predicate] [classFinder].
+ * Returns the host class and the class of the type
+ * of _this_ [FieldReference].
  */
-private fun FieldReference.doesFieldDependOnClass(classFinder: (String) -> Boolean): Boolean {
-  if (classFinder(hostClass.className)) {
-    return true
-  }
-  val fieldType = fieldDescriptor.extractClassNameFromDescr()
-  return fieldType != null && classFinder(fieldType)
-}
+fun FieldReference.getSignatureClasses(): List<String> =
+    listOfNotNull(hostClass.className, fieldDescriptor.extractClassNameFromDescr())
@@ -1,6 +1,8 @@
 package com.jetbrains.pluginverifier.parameters.jdk
 
 import com.jetbrains.plugin.structure.classes.jdk.JdkResolverCreator
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.ide.ClassesIndexDirectory
 import com.jetbrains.pluginverifier.repository.cache.ResourceCacheEntryResult
 import com.jetbrains.pluginverifier.repository.cache.createSizeLimitedResourceCache
 import com.jetbrains.pluginverifier.repository.provider.ProvideResult
@@ -9,8 +11,10 @@ import java.io.Closeable
 
 /**
  * Caches the [JdkDescriptor]s for [JdkPath]s.
+ *
+ * Classes indexes of the JDKs are kept in the [classesIndexDirectory], if specified.
  */
-class JdkDescriptorsCache : Closeable {
+class JdkDescriptorsCache(private val classesIndexDirectory: ClassesIndexDirectory? = null) : Closeable {
 
   private val resourceCache = createSizeLimitedResourceCache(
       3,
@@ -34,7 +38,8 @@ class JdkDescriptorsCache : Closeable {
     override fun provide(key: JdkPath): ProvideResult<JdkDescriptor> {
       val jdkPath = key.jdkPath
       val resolver = try {
-        JdkResolverCreator.createJdkResolver(jdkPath.toFile())
+        val classesIndexFile = classesIndexDirectory?.getIndexFile(jdkPath)
+        JdkResolverCreator.createJdkResolver(Resolver.ReadMode.FULL, jdkPath.toFile(), classesIndexFile)
       } catch (ie: InterruptedException) {
         throw ie
       } catch (e: Exception) {
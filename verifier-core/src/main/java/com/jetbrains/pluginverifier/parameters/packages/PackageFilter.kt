@@ -46,6 +46,8 @@ class PackageFilter(private val packages: List<Descriptor>) {
   private fun Descriptor.matchesPackageOf(binaryClassName: String) =
       binaryClassName.startsWith("$binaryPackageName/")
 
+  override fun toString() = packages.joinToString { (if (it.includeOrExclude) "+" else "-") + it.binaryPackageName }
+
   /**
    * Descriptor of a package, used by the [PackageFilter].
    *
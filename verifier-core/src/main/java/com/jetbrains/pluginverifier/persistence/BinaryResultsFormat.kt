@@ -0,0 +1,107 @@
+package com.jetbrains.pluginverifier.persistence
+
+/**
+ * Schema of the binary format of [verification results] [com.jetbrains.pluginverifier.results.VerificationResult]
+ * written by [VerificationResultsWriter] and read by [VerificationResultsReader].
+ *
+ * ```
+ * stream      := MAGIC:int VERSION:short record* END_OF_RESULTS:byte
+ * record      := RESULT:byte result
+ * result      := resultTag:byte plugin target problems(ignored) graph warnings errors
+ *                problems(compatibility) string(failedToDownloadReason) string(notFoundReason)
+ *                deprecatedUsages experimentalUsages
+ * string      := ref                      -- 0: null, 1: new string follows as varint length + UTF-8 bytes,
+ *                                            n: the (n - 2)-th string of the stream
+ * location    := ref                      -- 0: new location follows as locationTag:byte + fields,
+ *                                            n: the (n - 1)-th location of the stream
+ * plugin      := ref                      -- 0: new plugin follows as pluginTag:byte + fields,
+ *                                            n: the (n - 1)-th plugin of the stream
+ * graph       := collection(node) verifiedNodeIndex:varint collection(edge)
+ * edge        := fromNodeIndex:varint toNodeIndex:varint dependency
+ * collection  := size:varint element*
+ * enum        := string                   -- name of the constant
+ * ```
+ *
+ * Strings, such as class names, descriptors and plugin IDs,
+ * as well as locations and plugins are written once per stream
+ * and then referenced by their index, so the repeated elements
+ * of all results of the stream are stored only once.
+ *
+ * Tags of the types, listed below, are part of the format and must not change.
+ * Incompatible changes of the schema must increment the [VERSION].
+ */
+internal object BinaryResultsFormat {
+
+  const val MAGIC = 0x50565253
+
+  const val VERSION: Short = 1
+
+  const val END_OF_RESULTS: Byte = 0
+  const val RESULT: Byte = 1
+
+  const val NULL_STRING = 0
+  const val NEW_STRING = 1
+  const val FIRST_STRING_REFERENCE = 2
+
+  const val NEW_OBJECT = 0
+  const val FIRST_OBJECT_REFERENCE = 1
+
+  //Verification results
+  const val OK = 0
+  const val STRUCTURE_WARNINGS = 1
+  const val MISSING_DEPENDENCIES = 2
+  const val COMPATIBILITY_PROBLEMS = 3
+  const val INVALID_PLUGIN = 4
+  const val NOT_FOUND = 5
+  const val FAILED_TO_DOWNLOAD = 6
+
+  //Plugins
+  const val UPDATE_INFO = 0
+  const val CUSTOM_PLUGIN_INFO = 1
+  const val PLUGIN_ID_AND_VERSION = 2
+
+  //Verification targets
+  const val IDE_TARGET = 0
+  const val PLUGIN_TARGET = 1
+
+  //Locations and references
+  const val CLASS = 0
+  const val METHOD = 1
+  const val FIELD = 2
+
+  //Compatibility problems
+  const val ABSTRACT_CLASS_INSTANTIATION = 0
+  const val ABSTRACT_METHOD_INVOCATION = 1
+  const val CHANGE_FINAL_FIELD = 2
+  const val CLASS_NOT_FOUND = 3
+  const val FAILED_TO_READ_CLASS_FILE = 4
+  const val FIELD_NOT_FOUND = 5
+  const val ILLEGAL_CLASS_ACCESS = 6
+  const val ILLEGAL_FIELD_ACCESS = 7
+  const val ILLEGAL_METHOD_ACCESS = 8
+  const val INHERIT_FROM_FINAL_CLASS = 9
+  const val INSTANCE_ACCESS_OF_STATIC_FIELD = 10
+  const val INTERFACE_INSTANTIATION = 11
+  const val INVALID_CLASS_FILE = 12
+  const val INVOKE_CLASS_METHOD_ON_INTERFACE = 13
+  const val INVOKE_INSTANCE_INSTRUCTION_ON_STATIC_METHOD = 14
+  const val INVOKE_INTERFACE_METHOD_ON_CLASS = 15
+  const val INVOKE_INTERFACE_ON_PRIVATE_METHOD = 16
+  const val INVOKE_STATIC_ON_INSTANCE_METHOD = 17
+  const val METHOD_NOT_FOUND = 18
+  const val METHOD_NOT_IMPLEMENTED = 19
+  const val MULTIPLE_DEFAULT_IMPLEMENTATIONS = 20
+  const val OVERRIDING_FINAL_METHOD = 21
+  const val PACKAGE_NOT_FOUND = 22
+  const val PLUGIN_IS_MARKED_INCOMPATIBLE = 23
+  const val STATIC_ACCESS_OF_INSTANCE_FIELD = 24
+  const val SUPER_CLASS_BECAME_INTERFACE = 25
+  const val SUPER_INTERFACE_BECAME_CLASS = 26
+
+  //Deprecated and experimental API usages
+  const val CLASS_USAGE = 0
+  const val FIELD_USAGE = 1
+  const val METHOD_USAGE = 2
+  const val METHOD_OVERRIDDEN = 3
+
+}
@@ -0,0 +1,73 @@
+package com.jetbrains.pluginverifier.persistence
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.hash.Hashing
+import com.google.common.io.MoreFiles
+import com.jetbrains.pluginverifier.misc.toSystemIndependentName
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.stream.Collectors
+
+/**
+ * Calculates SHA-256 hashes of the contents of files
+ * used to identify the [cached] [VerificationResultCache] results.
+ *
+ * Hashes are remembered by path, size and last modification time
+ * of the files, so every file is read at most once
+ * unless it is modified. At most [MAX_CACHED_HASHES] recently used
+ * hashes are remembered, so hashes of modified and removed files
+ * don't accumulate in a long-running process.
+ */
+object ContentHashes {
+
+  private const val MAX_CACHED_HASHES = 16 * 1024L
+
+  private data class FileStamp(val path: Path, val size: Long, val lastModified: Long)
+
+  private val fileHashes: Cache<FileStamp, String> = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_HASHES)
+      .build()
+
+  /**
+   * Extensions of files that contain classes of IDEs and JDKs.
+   * The `modules` file is the classes image of JDK 9+.
+   */
+  private val classesFileExtensions = setOf("jar", "zip", "class")
+
+  fun hashFile(file: Path): String {
+    val absoluteFile = file.toAbsolutePath()
+    val stamp = FileStamp(absoluteFile, Files.size(absoluteFile), Files.getLastModifiedTime(absoluteFile).toMillis())
+    val cachedHash = fileHashes.getIfPresent(stamp)
+    if (cachedHash != null) {
+      return cachedHash
+    }
+    val hash = MoreFiles.asByteSource(absoluteFile).hash(Hashing.sha256()).toString()
+    fileHashes.put(stamp, hash)
+    return hash
+  }
+
+  /**
+   * Calculates a hash of relative paths and contents
+   * of all class files and archives under the [directory].
+   */
+  fun hashClassesFiles(directory: Path): String {
+    val classesFiles = Files.walk(directory).use { stream ->
+      stream
+          .filter { Files.isRegularFile(it) && it.isClassesFile() }
+          .collect(Collectors.toList())
+    }
+    val hasher = Hashing.sha256().newHasher()
+    for (file in classesFiles.sortedBy { directory.relativize(it).toString().toSystemIndependentName() }) {
+      hasher.putUnencodedChars(directory.relativize(file).toString().toSystemIndependentName())
+      hasher.putUnencodedChars(hashFile(file))
+    }
+    return hasher.hash().toString()
+  }
+
+  private fun Path.isClassesFile(): Boolean {
+    val fileName = fileName.toString()
+    return fileName == "modules" || fileName.substringAfterLast('.', "").toLowerCase() in classesFileExtensions
+  }
+
+}
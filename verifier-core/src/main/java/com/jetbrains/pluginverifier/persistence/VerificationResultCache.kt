@@ -0,0 +1,144 @@
+package com.jetbrains.pluginverifier.persistence
+
+import com.google.common.hash.Hashing
+import com.jetbrains.pluginverifier.ResultHolder
+import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.misc.createDir
+import com.jetbrains.pluginverifier.misc.deleteLogged
+import com.jetbrains.pluginverifier.parameters.filtering.ProblemsFilter
+import com.jetbrains.pluginverifier.repository.PluginInfo
+import com.jetbrains.pluginverifier.results.VerificationResult
+import org.slf4j.LoggerFactory
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.StreamCorruptedException
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+
+/**
+ * Local persistent cache of the results of bytecode verification
+ * of plugins, which allows to skip verification of plugins
+ * that have already been verified in the same environment.
+ *
+ * Entries are identified by keys, which must describe everything
+ * the results depend on: content of the plugin, classes of the IDE,
+ * JDK and dependencies, and the problems filters. The entries are saved
+ * to files named by hashes of the keys in the [binary format] [BinaryResultsFormat].
+ *
+ * Entries are written to temporary files and then moved,
+ * so concurrent processes never see partially written entries.
+ * Entries that cannot be read are considered missing.
+ */
+class VerificationResultCache(private val cacheDirectory: Path) {
+
+  companion object {
+    private val LOG = LoggerFactory.getLogger(VerificationResultCache::class.java)
+
+    private const val ENTRY_FILE_EXTENSION = ".bin"
+  }
+
+  /**
+   * Returns `true` if results of verification of
+   * the [plugin] against the [verificationTarget] can be cached.
+   */
+  fun isSupported(plugin: PluginInfo, verificationTarget: VerificationTarget) =
+      VerificationResultsWriter.canWritePlugin(plugin)
+          && (verificationTarget !is VerificationTarget.Plugin || VerificationResultsWriter.canWritePlugin(verificationTarget.plugin))
+
+  /**
+   * Returns the results cached by the [key], or `null` if there are no such results.
+   */
+  fun get(key: String): ResultHolder? {
+    val entryFile = getEntryFile(key)
+    if (!Files.exists(entryFile)) {
+      return null
+    }
+    return try {
+      readEntry(entryFile)
+    } catch (e: Exception) {
+      LOG.warn("Unable to read cached verification results from $entryFile", e)
+      entryFile.deleteLogged()
+      null
+    }
+  }
+
+  /**
+   * Saves compatibility problems, ignored problems and API usages
+   * registered in the [resultHolder] by the [key].
+   */
+  fun put(key: String, plugin: PluginInfo, verificationTarget: VerificationTarget, resultHolder: ResultHolder) {
+    val entryFile = getEntryFile(key)
+    val directory = entryFile.parent.createDir()
+    val tempFile = Files.createTempFile(directory, entryFile.fileName.toString(), ".tmp")
+    try {
+      writeEntry(tempFile, plugin, verificationTarget, resultHolder)
+      try {
+        Files.move(tempFile, entryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      } catch (e: AtomicMoveNotSupportedException) {
+        Files.move(tempFile, entryFile, StandardCopyOption.REPLACE_EXISTING)
+      }
+    } catch (e: Exception) {
+      LOG.warn("Unable to save verification results of $plugin against $verificationTarget to $entryFile", e)
+      tempFile.deleteLogged()
+    }
+  }
+
+  private fun getEntryFile(key: String): Path {
+    val hash = Hashing.sha256().hashUnencodedChars(key).toString()
+    return cacheDirectory.resolve(hash.take(2)).resolve(hash + ENTRY_FILE_EXTENSION)
+  }
+
+  /**
+   * The entry consists of reasons of ignoring of the ignored problems,
+   * in order of the problems, followed by a single [VerificationResult].
+   */
+  private fun writeEntry(
+      entryFile: Path,
+      plugin: PluginInfo,
+      verificationTarget: VerificationTarget,
+      resultHolder: ResultHolder
+  ) {
+    val ignoredProblems = resultHolder.ignoredProblemsHolder.ignoredProblems.toList()
+    val verificationResult = VerificationResult.OK().apply {
+      this.plugin = plugin
+      this.verificationTarget = verificationTarget
+      this.ignoredProblems = ignoredProblems.mapTo(linkedSetOf()) { it.first }
+      compatibilityProblems = resultHolder.compatibilityProblems
+      deprecatedUsages = resultHolder.deprecatedUsages
+      experimentalApiUsages = resultHolder.experimentalApiUsages
+    }
+    DataOutputStream(Files.newOutputStream(entryFile).buffered()).use { output ->
+      output.writeInt(ignoredProblems.size)
+      for ((_, ignoreDecisions) in ignoredProblems) {
+        output.writeInt(ignoreDecisions.size)
+        ignoreDecisions.forEach { output.writeUTF(it.reason) }
+      }
+      VerificationResultsWriter(output).use { it.write(verificationResult) }
+    }
+  }
+
+  private fun readEntry(entryFile: Path): ResultHolder =
+      DataInputStream(Files.newInputStream(entryFile).buffered()).use { input ->
+        val ignoreDecisions = List(input.readInt()) {
+          List(input.readInt()) { ProblemsFilter.Result.Ignore(input.readUTF()) }
+        }
+        val verificationResult = VerificationResultsReader(input).use {
+          it.read() ?: throw StreamCorruptedException("No verification result is saved")
+        }
+        if (verificationResult.ignoredProblems.size != ignoreDecisions.size) {
+          throw StreamCorruptedException("Reasons of ignoring don't match the ignored problems")
+        }
+
+        ResultHolder().apply {
+          verificationResult.ignoredProblems.zip(ignoreDecisions).forEach { (problem, decisions) ->
+            addIgnoredProblem(problem, decisions)
+          }
+          verificationResult.compatibilityProblems.forEach { addProblem(it) }
+          verificationResult.deprecatedUsages.forEach { addDeprecatedUsage(it) }
+          verificationResult.experimentalApiUsages.forEach { addExperimentalUsage(it) }
+        }
+      }
+
+}
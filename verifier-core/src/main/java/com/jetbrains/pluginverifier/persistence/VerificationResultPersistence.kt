@@ -3,10 +3,7 @@ package com.jetbrains.pluginverifier.persistence
 import com.jetbrains.pluginverifier.persistence.VerificationResultPersistence.readVerificationResult
 import com.jetbrains.pluginverifier.persistence.VerificationResultPersistence.saveVerificationResult
 import com.jetbrains.pluginverifier.results.VerificationResult
-import java.io.InputStream
-import java.io.ObjectInputStream
-import java.io.ObjectOutputStream
-import java.io.OutputStream
+import java.io.*
 import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.StandardOpenOption.*
@@ -14,21 +11,61 @@ import java.nio.file.StandardOpenOption.*
 /**
  * Utility class that provides methods to [save] [saveVerificationResult]
  * and [read] [readVerificationResult] [VerificationResult]s from/to files.
+ *
+ * The results are saved in the [binary format] [BinaryResultsFormat].
+ * Files saved by previous versions using Java serialization can still be read.
  */
 object VerificationResultPersistence {
+
+  private const val JAVA_SERIALIZATION_MAGIC = 0xACED
+
   fun saveVerificationResult(verificationResult: VerificationResult, outputStream: OutputStream) {
-    ObjectOutputStream(outputStream).use { it.writeObject(verificationResult) }
+    saveVerificationResults(sequenceOf(verificationResult), outputStream)
   }
 
   fun saveVerificationResult(verificationResult: VerificationResult, path: Path) {
+    saveVerificationResults(sequenceOf(verificationResult), path)
+  }
+
+  fun saveVerificationResults(verificationResults: Sequence<VerificationResult>, outputStream: OutputStream) {
+    VerificationResultsWriter(outputStream).use { writer ->
+      verificationResults.forEach { writer.write(it) }
+    }
+  }
+
+  fun saveVerificationResults(verificationResults: Sequence<VerificationResult>, path: Path) {
     Files.newOutputStream(path, CREATE, TRUNCATE_EXISTING, WRITE).use {
-      saveVerificationResult(verificationResult, it)
+      saveVerificationResults(verificationResults, it)
     }
   }
 
-  fun readVerificationResult(inputStream: InputStream) =
-      ObjectInputStream(inputStream).use { it.readObject() as VerificationResult }
+  fun readVerificationResult(inputStream: InputStream): VerificationResult {
+    val bufferedStream = inputStream.buffered()
+    if (isJavaSerializationStream(bufferedStream)) {
+      return ObjectInputStream(bufferedStream).use { it.readObject() as VerificationResult }
+    }
+    return VerificationResultsReader(bufferedStream).use {
+      it.read() ?: throw StreamCorruptedException("No verification results are saved")
+    }
+  }
 
   fun readVerificationResult(path: Path) =
       Files.newInputStream(path, READ).use { readVerificationResult(it) }
-}
\ No newline at end of file
+
+  /**
+   * Reads the results saved to the [path] one by one
+   * and passes them to the [processor].
+   */
+  fun readVerificationResults(path: Path, processor: (VerificationResult) -> Unit) {
+    VerificationResultsReader(Files.newInputStream(path, READ)).use { reader ->
+      reader.asSequence().forEach(processor)
+    }
+  }
+
+  private fun isJavaSerializationStream(bufferedStream: BufferedInputStream): Boolean {
+    bufferedStream.mark(2)
+    val magic = DataInputStream(bufferedStream).readUnsignedShort()
+    bufferedStream.reset()
+    return magic == JAVA_SERIALIZATION_MAGIC
+  }
+}
@@ -0,0 +1,483 @@
+package com.jetbrains.pluginverifier.persistence
+
+import com.jetbrains.plugin.structure.intellij.plugin.PluginDependency
+import com.jetbrains.plugin.structure.intellij.plugin.PluginDependencyImpl
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.dependencies.DependenciesGraph
+import com.jetbrains.pluginverifier.dependencies.DependencyEdge
+import com.jetbrains.pluginverifier.dependencies.DependencyNode
+import com.jetbrains.pluginverifier.dependencies.MissingDependency
+import com.jetbrains.pluginverifier.persistence.BinaryResultsFormat.FIRST_OBJECT_REFERENCE
+import com.jetbrains.pluginverifier.persistence.BinaryResultsFormat.FIRST_STRING_REFERENCE
+import com.jetbrains.pluginverifier.persistence.BinaryResultsFormat.NEW_OBJECT
+import com.jetbrains.pluginverifier.persistence.BinaryResultsFormat.NEW_STRING
+import com.jetbrains.pluginverifier.persistence.BinaryResultsFormat.NULL_STRING
+import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
+import com.jetbrains.pluginverifier.repository.PluginInfo
+import com.jetbrains.pluginverifier.repository.repositories.custom.CustomPluginInfo
+import com.jetbrains.pluginverifier.repository.repositories.marketplace.UpdateInfo
+import com.jetbrains.pluginverifier.results.VerificationResult
+import com.jetbrains.pluginverifier.results.access.AccessType
+import com.jetbrains.pluginverifier.results.deprecated.*
+import com.jetbrains.pluginverifier.results.experimental.*
+import com.jetbrains.pluginverifier.results.hierarchy.ClassHierarchy
+import com.jetbrains.pluginverifier.results.instruction.Instruction
+import com.jetbrains.pluginverifier.results.location.ClassLocation
+import com.jetbrains.pluginverifier.results.location.FieldLocation
+import com.jetbrains.pluginverifier.results.location.Location
+import com.jetbrains.pluginverifier.results.location.MethodLocation
+import com.jetbrains.pluginverifier.results.modifiers.Modifiers
+import com.jetbrains.pluginverifier.results.problems.*
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.results.reference.FieldReference
+import com.jetbrains.pluginverifier.results.reference.MethodReference
+import com.jetbrains.pluginverifier.results.reference.SymbolicReference
+import com.jetbrains.pluginverifier.results.structure.PluginStructureError
+import com.jetbrains.pluginverifier.results.structure.PluginStructureWarning
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileOrigin
+import java.io.Closeable
+import java.io.DataInputStream
+import java.io.InputStream
+import java.io.StreamCorruptedException
+import java.net.URL
+
+/**
+ * Reads [VerificationResult]s written by the [VerificationResultsWriter]
+ * from the [inputStream] one by one.
+ */
+class VerificationResultsReader(inputStream: InputStream) : Closeable {
+
+  private val input = DataInputStream(inputStream.buffered())
+
+  private val stringsTable = arrayListOf<String>()
+
+  private val locationsTable = arrayListOf<Location>()
+
+  private val pluginsTable = arrayListOf<PluginInfo>()
+
+  private var isEndReached = false
+
+  init {
+    val magic = input.readInt()
+    if (magic != BinaryResultsFormat.MAGIC) {
+      throw StreamCorruptedException("Not a verification results stream")
+    }
+    val version = input.readShort()
+    if (version != BinaryResultsFormat.VERSION) {
+      throw StreamCorruptedException("Unsupported version of verification results: $version")
+    }
+  }
+
+  /**
+   * Reads the next result or returns `null`
+   * if all the results of the stream have been read.
+   */
+  fun read(): VerificationResult? {
+    if (isEndReached) {
+      return null
+    }
+    val record = input.readByte()
+    return when (record) {
+      BinaryResultsFormat.RESULT -> readResult()
+      BinaryResultsFormat.END_OF_RESULTS -> {
+        isEndReached = true
+        null
+      }
+      else -> throw StreamCorruptedException("Unknown record: $record")
+    }
+  }
+
+  fun asSequence(): Sequence<VerificationResult> = generateSequence { read() }
+
+  override fun close() {
+    input.close()
+  }
+
+  private fun readResult(): VerificationResult {
+    val resultTag = readTag()
+    val result = when (resultTag) {
+      BinaryResultsFormat.OK -> VerificationResult.OK()
+      BinaryResultsFormat.STRUCTURE_WARNINGS -> VerificationResult.StructureWarnings()
+      BinaryResultsFormat.MISSING_DEPENDENCIES -> VerificationResult.MissingDependencies()
+      BinaryResultsFormat.COMPATIBILITY_PROBLEMS -> VerificationResult.CompatibilityProblems()
+      BinaryResultsFormat.INVALID_PLUGIN -> VerificationResult.InvalidPlugin()
+      BinaryResultsFormat.NOT_FOUND -> VerificationResult.NotFound()
+      BinaryResultsFormat.FAILED_TO_DOWNLOAD -> VerificationResult.FailedToDownload()
+      else -> throw StreamCorruptedException("Unknown verification result: $resultTag")
+    }
+    result.plugin = readPlugin()
+    result.verificationTarget = readTarget()
+    result.ignoredProblems = readSet { readProblem() }
+    result.dependenciesGraph = readDependenciesGraph()
+    result.pluginStructureWarnings = readSet { PluginStructureWarning(readNotNullString()) }
+    result.pluginStructureErrors = readSet { PluginStructureError(readNotNullString()) }
+    result.compatibilityProblems = readSet { readProblem() }
+    result.failedToDownloadReason = readNotNullString()
+    result.notFoundReason = readNotNullString()
+    result.deprecatedUsages = readSet { readDeprecatedUsage() }
+    result.experimentalApiUsages = readSet { readExperimentalUsage() }
+    return result
+  }
+
+  private fun readTag(): Int = input.readUnsignedByte()
+
+  private fun readVarInt(): Int {
+    var value = 0
+    var shift = 0
+    while (true) {
+      val byte = input.readUnsignedByte()
+      value = value or ((byte and 0x7F) shl shift)
+      if (byte and 0x80 == 0) {
+        return value
+      }
+      shift += 7
+      if (shift > 28) {
+        throw StreamCorruptedException("Malformed variable-length integer")
+      }
+    }
+  }
+
+  private fun readBoolean() = input.readBoolean()
+
+  private fun readString(): String? {
+    val reference = readVarInt()
+    return when (reference) {
+      NULL_STRING -> null
+      NEW_STRING -> {
+        val bytes = ByteArray(readVarInt())
+        input.readFully(bytes)
+        String(bytes, Charsets.UTF_8).also { stringsTable.add(it) }
+      }
+      else -> stringsTable.getOrNull(reference - FIRST_STRING_REFERENCE)
+          ?: throw StreamCorruptedException("Unknown string reference: $reference")
+    }
+  }
+
+  private fun readNotNullString(): String =
+      readString() ?: throw StreamCorruptedException("Unexpected null string")
+
+  private inline fun <reified T : Enum<T>> readEnum(): T = enumValueOf(readNotNullString())
+
+  private inline fun <T> readList(readElement: () -> T): List<T> {
+    val size = readVarInt()
+    val list = ArrayList<T>(size)
+    repeat(size) { list.add(readElement()) }
+    return list
+  }
+
+  private inline fun <T> readSet(readElement: () -> T): Set<T> {
+    val size = readVarInt()
+    val set = LinkedHashSet<T>(size)
+    repeat(size) { set.add(readElement()) }
+    return set
+  }
+
+  /**
+   * Reads a reference to a previously read object of the [table],
+   * or reads a new object by [readObject] and registers it.
+   */
+  private inline fun <T> readObjectReference(table: MutableList<in T>, readObject: () -> T): T {
+    val reference = readVarInt()
+    if (reference == NEW_OBJECT) {
+      return readObject().also { table.add(it) }
+    }
+    @Suppress("UNCHECKED_CAST")
+    return table.getOrNull(reference - FIRST_OBJECT_REFERENCE) as? T
+        ?: throw StreamCorruptedException("Unknown object reference: $reference")
+  }
+
+  private fun readIdeVersion(): IdeVersion? = readString()?.let { IdeVersion.createIdeVersion(it) }
+
+  private fun readNotNullIdeVersion(): IdeVersion =
+      readIdeVersion() ?: throw StreamCorruptedException("Unexpected null IDE version")
+
+  private fun readUrl() = URL(readNotNullString())
+
+  private fun readPlugin(): PluginInfo = readObjectReference(pluginsTable) {
+    val pluginTag = readTag()
+    when (pluginTag) {
+      BinaryResultsFormat.UPDATE_INFO -> UpdateInfo(
+          pluginId = readNotNullString(),
+          pluginName = readNotNullString(),
+          version = readNotNullString(),
+          sinceBuild = readIdeVersion(),
+          untilBuild = readIdeVersion(),
+          vendor = readNotNullString(),
+          downloadUrl = readUrl(),
+          updateId = readVarInt(),
+          browserUrl = readUrl(),
+          tags = readList { readNotNullString() }
+      )
+      BinaryResultsFormat.CUSTOM_PLUGIN_INFO -> CustomPluginInfo(
+          pluginId = readNotNullString(),
+          pluginName = readNotNullString(),
+          version = readNotNullString(),
+          vendor = readNotNullString(),
+          downloadUrl = readUrl(),
+          browserUrl = readUrl(),
+          sinceBuild = readIdeVersion(),
+          untilBuild = readIdeVersion()
+      )
+      BinaryResultsFormat.PLUGIN_ID_AND_VERSION -> PluginIdAndVersion(
+          pluginId = readNotNullString(),
+          version = readNotNullString()
+      )
+      else -> throw StreamCorruptedException("Unknown plugin: $pluginTag")
+    }
+  }
+
+  private fun readTarget(): VerificationTarget {
+    val targetTag = readTag()
+    return when (targetTag) {
+      BinaryResultsFormat.IDE_TARGET -> VerificationTarget.Ide(readNotNullIdeVersion())
+      BinaryResultsFormat.PLUGIN_TARGET -> VerificationTarget.Plugin(readPlugin())
+      else -> throw StreamCorruptedException("Unknown verification target: $targetTag")
+    }
+  }
+
+  private fun readDependenciesGraph(): DependenciesGraph {
+    val nodes = readList { readDependencyNode() }
+    val verifiedPlugin = nodes[readVarInt()]
+    val edges = readList { DependencyEdge(nodes[readVarInt()], nodes[readVarInt()], readPluginDependency()) }
+    return DependenciesGraph(verifiedPlugin, nodes, edges)
+  }
+
+  private fun readDependencyNode() = DependencyNode(
+      readNotNullString(),
+      readNotNullString(),
+      readList { MissingDependency(readPluginDependency(), readNotNullString()) }
+  )
+
+  private fun readPluginDependency(): PluginDependency =
+      PluginDependencyImpl(readNotNullString(), readBoolean(), readBoolean())
+
+  private fun readLocation(): Location = readObjectReference(locationsTable) {
+    val locationTag = readTag()
+    when (locationTag) {
+      BinaryResultsFormat.CLASS -> ClassLocation(
+          readNotNullString(),
+          readNotNullString(),
+          Modifiers(readVarInt())
+      )
+      BinaryResultsFormat.METHOD -> MethodLocation(
+          readClassLocation(),
+          readNotNullString(),
+          readNotNullString(),
+          readList { readNotNullString() },
+          readNotNullString(),
+          Modifiers(readVarInt())
+      )
+      BinaryResultsFormat.FIELD -> FieldLocation(
+          readClassLocation(),
+          readNotNullString(),
+          readNotNullString(),
+          readNotNullString(),
+          Modifiers(readVarInt())
+      )
+      else -> throw StreamCorruptedException("Unknown location: $locationTag")
+    }
+  }
+
+  private fun readClassLocation() = readLocation() as? ClassLocation
+      ?: throw StreamCorruptedException("Class location is expected")
+
+  private fun readMethodLocation() = readLocation() as? MethodLocation
+      ?: throw StreamCorruptedException("Method location is expected")
+
+  private fun readFieldLocation() = readLocation() as? FieldLocation
+      ?: throw StreamCorruptedException("Field location is expected")
+
+  private fun readReference(): SymbolicReference {
+    val referenceTag = readTag()
+    return when (referenceTag) {
+      BinaryResultsFormat.CLASS -> ClassReference(readNotNullString())
+      BinaryResultsFormat.METHOD -> MethodReference(ClassReference(readNotNullString()), readNotNullString(), readNotNullString())
+      BinaryResultsFormat.FIELD -> FieldReference(ClassReference(readNotNullString()), readNotNullString(), readNotNullString())
+      else -> throw StreamCorruptedException("Unknown reference: $referenceTag")
+    }
+  }
+
+  private fun readClassReference() = readReference() as? ClassReference
+      ?: throw StreamCorruptedException("Class reference is expected")
+
+  private fun readMethodReference() = readReference() as? MethodReference
+      ?: throw StreamCorruptedException("Method reference is expected")
+
+  private fun readFieldReference() = readReference() as? FieldReference
+      ?: throw StreamCorruptedException("Field reference is expected")
+
+  private fun readClassHierarchy(): ClassHierarchy = ClassHierarchy(
+      readNotNullString(),
+      readBoolean(),
+      readEnum<ClassFileOrigin>(),
+      if (readBoolean()) readClassHierarchy() else null,
+      readList { readClassHierarchy() }
+  )
+
+  private fun readProblem(): CompatibilityProblem {
+    val problemTag = readTag()
+    return when (problemTag) {
+      BinaryResultsFormat.ABSTRACT_CLASS_INSTANTIATION -> AbstractClassInstantiationProblem(
+          readClassLocation(),
+          readMethodLocation()
+      )
+      BinaryResultsFormat.ABSTRACT_METHOD_INVOCATION -> AbstractMethodInvocationProblem(
+          readMethodLocation(),
+          readMethodLocation(),
+          readEnum<Instruction>()
+      )
+      BinaryResultsFormat.CHANGE_FINAL_FIELD -> ChangeFinalFieldProblem(
+          readFieldLocation(),
+          readMethodLocation(),
+          readEnum<Instruction>()
+      )
+      BinaryResultsFormat.CLASS_NOT_FOUND -> ClassNotFoundProblem(
+          readClassReference(),
+          readLocation()
+      )
+      BinaryResultsFormat.FAILED_TO_READ_CLASS_FILE -> FailedToReadClassFileProblem(
+          readClassReference(),
+          readLocation(),
+          readNotNullString()
+      )
+      BinaryResultsFormat.FIELD_NOT_FOUND -> FieldNotFoundProblem(
+          readFieldReference(),
+          readMethodLocation(),
+          readClassHierarchy(),
+          readEnum<Instruction>()
+      )
+      BinaryResultsFormat.ILLEGAL_CLASS_ACCESS -> IllegalClassAccessProblem(
+          readClassLocation(),
+          readEnum<AccessType>(),
+          readLocation()
+      )
+      BinaryResultsFormat.ILLEGAL_FIELD_ACCESS -> IllegalFieldAccessProblem(
+          readFieldReference(),
+          readFieldLocation(),
+          readMethodLocation(),
+          readEnum<Instruction>(),
+          readEnum<AccessType>()
+      )
+      BinaryResultsFormat.ILLEGAL_METHOD_ACCESS -> IllegalMethodAccessProblem(
+          readMethodReference(),
+          readMethodLocation(),
+          readEnum<AccessType>(),
+          readMethodLocation(),
+          readEnum<Instruction>()
+      )
+      BinaryResultsFormat.INHERIT_FROM_FINAL_CLASS -> InheritFromFinalClassProblem(
+          readClassLocation(),
+          readClassLocation()
+      )
+      BinaryResultsFormat.INSTANCE_ACCESS_OF_STATIC_FIELD -> InstanceAccessOfStaticFieldProblem(
+          readFieldLocation(),
+          readMethodLocation(),
+          readEnum<Instruction>()
+      )
+      BinaryResultsFormat.INTERFACE_INSTANTIATION -> InterfaceInstantiationProblem(
+          readClassLocation(),
+          readMethodLocation()
+      )
+      BinaryResultsFormat.INVALID_CLASS_FILE -> InvalidClassFileProblem(
+          readClassReference(),
+          readLocation(),
+          readNotNullString()
+      )
+      BinaryResultsFormat.INVOKE_CLASS_METHOD_ON_INTERFACE -> InvokeClassMethodOnInterfaceProblem(
+          readMethodReference(),
+          readMethodLocation(),
+          readEnum<Instruction>()
+      )
+      BinaryResultsFormat.INVOKE_INSTANCE_INSTRUCTION_ON_STATIC_METHOD -> InvokeInstanceInstructionOnStaticMethodProblem(
+          readMethodLocation(),
+          readMethodLocation(),
+          readEnum<Instruction>()
+      )
+      BinaryResultsFormat.INVOKE_INTERFACE_METHOD_ON_CLASS -> InvokeInterfaceMethodOnClassProblem(
+          readMethodReference(),
+          readMethodLocation(),
+          readEnum<Instruction>()
+      )
+      BinaryResultsFormat.INVOKE_INTERFACE_ON_PRIVATE_METHOD -> InvokeInterfaceOnPrivateMethodProblem(
+          readMethodLocation(),
+          readMethodLocation()
+      )
+      BinaryResultsFormat.INVOKE_STATIC_ON_INSTANCE_METHOD -> InvokeStaticOnInstanceMethodProblem(
+          readMethodLocation(),
+          readMethodLocation()
+      )
+      BinaryResultsFormat.METHOD_NOT_FOUND -> MethodNotFoundProblem(
+          readMethodReference(),
+          readMethodLocation(),
+          readEnum<Instruction>(),
+          readClassHierarchy()
+      )
+      BinaryResultsFormat.METHOD_NOT_IMPLEMENTED -> MethodNotImplementedProblem(
+          readMethodLocation(),
+          readClassLocation()
+      )
+      BinaryResultsFormat.MULTIPLE_DEFAULT_IMPLEMENTATIONS -> MultipleDefaultImplementationsProblem(
+          readMethodLocation(),
+          readMethodReference(),
+          readEnum<Instruction>(),
+          readMethodLocation(),
+          readMethodLocation()
+      )
+      BinaryResultsFormat.OVERRIDING_FINAL_METHOD -> OverridingFinalMethodProblem(
+          readMethodLocation(),
+          readClassLocation()
+      )
+      BinaryResultsFormat.PACKAGE_NOT_FOUND -> PackageNotFoundProblem(
+          readNotNullString(),
+          readSet { ClassNotFoundProblem(readClassReference(), readLocation()) }
+      )
+      BinaryResultsFormat.PLUGIN_IS_MARKED_INCOMPATIBLE -> PluginIsMarkedIncompatibleProblem(
+          readPlugin(),
+          readNotNullIdeVersion()
+      )
+      BinaryResultsFormat.STATIC_ACCESS_OF_INSTANCE_FIELD -> StaticAccessOfInstanceFieldProblem(
+          readFieldLocation(),
+          readMethodLocation(),
+          readEnum<Instruction>()
+      )
+      BinaryResultsFormat.SUPER_CLASS_BECAME_INTERFACE -> SuperClassBecameInterfaceProblem(
+          readClassLocation(),
+          readClassLocation()
+      )
+      BinaryResultsFormat.SUPER_INTERFACE_BECAME_CLASS -> SuperInterfaceBecameClassProblem(
+          readClassLocation(),
+          readClassLocation()
+      )
+      else -> throw StreamCorruptedException("Unknown compatibility problem: $problemTag")
+    }
+  }
+
+  private fun readDeprecatedUsage(): DeprecatedApiUsage {
+    val usageTag = readTag()
+    val apiElement = readLocation()
+    val usageLocation = readLocation()
+    val deprecationInfo = DeprecationInfo(readBoolean(), readString())
+    return when (usageTag) {
+      BinaryResultsFormat.CLASS_USAGE -> DeprecatedClassUsage(apiElement as ClassLocation, usageLocation, deprecationInfo)
+      BinaryResultsFormat.FIELD_USAGE -> DeprecatedFieldUsage(apiElement as FieldLocation, usageLocation, deprecationInfo)
+      BinaryResultsFormat.METHOD_USAGE -> DeprecatedMethodUsage(apiElement as MethodLocation, usageLocation, deprecationInfo)
+      BinaryResultsFormat.METHOD_OVERRIDDEN -> DeprecatedMethodOverridden(apiElement as MethodLocation, usageLocation as MethodLocation, deprecationInfo)
+      else -> throw StreamCorruptedException("Unknown deprecated API usage: $usageTag")
+    }
+  }
+
+  private fun readExperimentalUsage(): ExperimentalApiUsage {
+    val usageTag = readTag()
+    val apiElement = readLocation()
+    val usageLocation = readLocation()
+    return when (usageTag) {
+      BinaryResultsFormat.CLASS_USAGE -> ExperimentalClassUsage(apiElement as ClassLocation, usageLocation)
+      BinaryResultsFormat.FIELD_USAGE -> ExperimentalFieldUsage(apiElement as FieldLocation, usageLocation)
+      BinaryResultsFormat.METHOD_USAGE -> ExperimentalMethodUsage(apiElement as MethodLocation, usageLocation)
+      BinaryResultsFormat.METHOD_OVERRIDDEN -> ExperimentalMethodOverridden(apiElement as MethodLocation, usageLocation as MethodLocation)
+      else -> throw StreamCorruptedException("Unknown experimental API usage: $usageTag")
+    }
+  }
+
+}
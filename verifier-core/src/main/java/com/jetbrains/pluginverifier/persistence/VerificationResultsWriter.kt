@@ -0,0 +1,567 @@
+package com.jetbrains.pluginverifier.persistence
+
+import com.jetbrains.plugin.structure.intellij.plugin.PluginDependency
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.dependencies.DependenciesGraph
+import com.jetbrains.pluginverifier.dependencies.DependencyNode
+import com.jetbrains.pluginverifier.persistence.BinaryResultsFormat.FIRST_OBJECT_REFERENCE
+import com.jetbrains.pluginverifier.persistence.BinaryResultsFormat.FIRST_STRING_REFERENCE
+import com.jetbrains.pluginverifier.persistence.BinaryResultsFormat.NEW_OBJECT
+import com.jetbrains.pluginverifier.persistence.BinaryResultsFormat.NEW_STRING
+import com.jetbrains.pluginverifier.persistence.BinaryResultsFormat.NULL_STRING
+import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
+import com.jetbrains.pluginverifier.repository.PluginInfo
+import com.jetbrains.pluginverifier.repository.repositories.custom.CustomPluginInfo
+import com.jetbrains.pluginverifier.repository.repositories.marketplace.UpdateInfo
+import com.jetbrains.pluginverifier.results.VerificationResult
+import com.jetbrains.pluginverifier.results.deprecated.*
+import com.jetbrains.pluginverifier.results.experimental.*
+import com.jetbrains.pluginverifier.results.hierarchy.ClassHierarchy
+import com.jetbrains.pluginverifier.results.location.ClassLocation
+import com.jetbrains.pluginverifier.results.location.FieldLocation
+import com.jetbrains.pluginverifier.results.location.Location
+import com.jetbrains.pluginverifier.results.location.MethodLocation
+import com.jetbrains.pluginverifier.results.problems.*
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.results.reference.FieldReference
+import com.jetbrains.pluginverifier.results.reference.MethodReference
+import com.jetbrains.pluginverifier.results.reference.SymbolicReference
+import java.io.Closeable
+import java.io.DataOutputStream
+import java.io.OutputStream
+import java.net.URL
+
+/**
+ * Writes [VerificationResult]s to the [outputStream]
+ * in the [binary format] [BinaryResultsFormat] one by one,
+ * so arbitrarily many results can be saved without holding them in memory.
+ *
+ * [close] must be called to complete the stream.
+ */
+class VerificationResultsWriter(outputStream: OutputStream) : Closeable {
+
+  private val output = DataOutputStream(outputStream.buffered())
+
+  private val stringsTable = hashMapOf<String, Int>()
+
+  /**
+   * Locations are identified by all their fields, because
+   * [Location.equals] doesn't compare signatures and modifiers.
+   */
+  private val locationsTable = hashMapOf<List<Any>, Int>()
+
+  private val pluginsTable = hashMapOf<List<Any?>, Int>()
+
+  init {
+    output.writeInt(BinaryResultsFormat.MAGIC)
+    output.writeShort(BinaryResultsFormat.VERSION.toInt())
+  }
+
+  fun write(verificationResult: VerificationResult) {
+    output.writeByte(BinaryResultsFormat.RESULT.toInt())
+    writeResult(verificationResult)
+  }
+
+  override fun close() {
+    output.use {
+      it.writeByte(BinaryResultsFormat.END_OF_RESULTS.toInt())
+    }
+  }
+
+  private fun writeResult(result: VerificationResult) {
+    val resultTag = when (result) {
+      is VerificationResult.OK -> BinaryResultsFormat.OK
+      is VerificationResult.StructureWarnings -> BinaryResultsFormat.STRUCTURE_WARNINGS
+      is VerificationResult.MissingDependencies -> BinaryResultsFormat.MISSING_DEPENDENCIES
+      is VerificationResult.CompatibilityProblems -> BinaryResultsFormat.COMPATIBILITY_PROBLEMS
+      is VerificationResult.InvalidPlugin -> BinaryResultsFormat.INVALID_PLUGIN
+      is VerificationResult.NotFound -> BinaryResultsFormat.NOT_FOUND
+      is VerificationResult.FailedToDownload -> BinaryResultsFormat.FAILED_TO_DOWNLOAD
+    }
+    writeTag(resultTag)
+    writePlugin(result.plugin)
+    writeTarget(result.verificationTarget)
+    writeCollection(result.ignoredProblems) { writeProblem(it) }
+    writeDependenciesGraph(result.dependenciesGraph)
+    writeCollection(result.pluginStructureWarnings) { writeString(it.message) }
+    writeCollection(result.pluginStructureErrors) { writeString(it.message) }
+    writeCollection(result.compatibilityProblems) { writeProblem(it) }
+    writeString(result.failedToDownloadReason)
+    writeString(result.notFoundReason)
+    writeCollection(result.deprecatedUsages) { writeDeprecatedUsage(it) }
+    writeCollection(result.experimentalApiUsages) { writeExperimentalUsage(it) }
+  }
+
+  private fun writeTag(tag: Int) {
+    output.writeByte(tag)
+  }
+
+  private fun writeVarInt(value: Int) {
+    var rest = value
+    while (rest and 0x7F.inv() != 0) {
+      output.writeByte((rest and 0x7F) or 0x80)
+      rest = rest ushr 7
+    }
+    output.writeByte(rest)
+  }
+
+  private fun writeBoolean(value: Boolean) {
+    output.writeBoolean(value)
+  }
+
+  private fun writeString(string: String?) {
+    if (string == null) {
+      writeVarInt(NULL_STRING)
+      return
+    }
+    val index = stringsTable[string]
+    if (index != null) {
+      writeVarInt(FIRST_STRING_REFERENCE + index)
+      return
+    }
+    stringsTable[string] = stringsTable.size
+    writeVarInt(NEW_STRING)
+    val bytes = string.toByteArray(Charsets.UTF_8)
+    writeVarInt(bytes.size)
+    output.write(bytes)
+  }
+
+  private fun writeEnum(constant: Enum<*>) {
+    writeString(constant.name)
+  }
+
+  private inline fun <T> writeCollection(collection: Collection<T>, writeElement: (T) -> Unit) {
+    writeVarInt(collection.size)
+    collection.forEach(writeElement)
+  }
+
+  /**
+   * Writes a reference to the object previously written with the same [key],
+   * or registers the [key] and writes the object by [writeObject].
+   */
+  private inline fun <K> writeObjectReference(table: MutableMap<K, Int>, key: K, writeObject: () -> Unit) {
+    val index = table[key]
+    if (index != null) {
+      writeVarInt(FIRST_OBJECT_REFERENCE + index)
+    } else {
+      writeVarInt(NEW_OBJECT)
+      writeObject()
+      table[key] = table.size
+    }
+  }
+
+  private fun writeIdeVersion(ideVersion: IdeVersion?) {
+    writeString(ideVersion?.asString())
+  }
+
+  private fun writeUrl(url: URL) {
+    writeString(url.toExternalForm())
+  }
+
+  private fun writePlugin(pluginInfo: PluginInfo) {
+    val key = when (pluginInfo) {
+      is UpdateInfo -> listOf(
+          UpdateInfo::class.java, pluginInfo.pluginId, pluginInfo.pluginName, pluginInfo.version, pluginInfo.sinceBuild,
+          pluginInfo.untilBuild, pluginInfo.vendor, pluginInfo.downloadUrl.toExternalForm(), pluginInfo.updateId,
+          pluginInfo.browserUrl.toExternalForm(), pluginInfo.tags
+      )
+      is CustomPluginInfo -> listOf(
+          CustomPluginInfo::class.java, pluginInfo.pluginId, pluginInfo.pluginName, pluginInfo.version, pluginInfo.vendor,
+          pluginInfo.downloadUrl.toExternalForm(), pluginInfo.browserUrl.toExternalForm(), pluginInfo.sinceBuild, pluginInfo.untilBuild
+      )
+      is PluginIdAndVersion -> listOf(PluginIdAndVersion::class.java, pluginInfo.pluginId, pluginInfo.version)
+      else -> throw IllegalArgumentException("Plugin ${pluginInfo.javaClass.name} cannot be saved: $pluginInfo")
+    }
+    writeObjectReference(pluginsTable, key) {
+      when (pluginInfo) {
+        is UpdateInfo -> {
+          writeTag(BinaryResultsFormat.UPDATE_INFO)
+          writeString(pluginInfo.pluginId)
+          writeString(pluginInfo.pluginName)
+          writeString(pluginInfo.version)
+          writeIdeVersion(pluginInfo.sinceBuild)
+          writeIdeVersion(pluginInfo.untilBuild)
+          writeString(pluginInfo.vendor)
+          writeUrl(pluginInfo.downloadUrl)
+          writeVarInt(pluginInfo.updateId)
+          writeUrl(pluginInfo.browserUrl)
+          writeCollection(pluginInfo.tags) { writeString(it) }
+        }
+        is CustomPluginInfo -> {
+          writeTag(BinaryResultsFormat.CUSTOM_PLUGIN_INFO)
+          writeString(pluginInfo.pluginId)
+          writeString(pluginInfo.pluginName)
+          writeString(pluginInfo.version)
+          writeString(pluginInfo.vendor)
+          writeUrl(pluginInfo.downloadUrl)
+          writeUrl(pluginInfo.browserUrl)
+          writeIdeVersion(pluginInfo.sinceBuild)
+          writeIdeVersion(pluginInfo.untilBuild)
+        }
+        is PluginIdAndVersion -> {
+          writeTag(BinaryResultsFormat.PLUGIN_ID_AND_VERSION)
+          writeString(pluginInfo.pluginId)
+          writeString(pluginInfo.version)
+        }
+      }
+    }
+  }
+
+  private fun writeTarget(verificationTarget: VerificationTarget) {
+    when (verificationTarget) {
+      is VerificationTarget.Ide -> {
+        writeTag(BinaryResultsFormat.IDE_TARGET)
+        writeIdeVersion(verificationTarget.ideVersion)
+      }
+      is VerificationTarget.Plugin -> {
+        writeTag(BinaryResultsFormat.PLUGIN_TARGET)
+        writePlugin(verificationTarget.plugin)
+      }
+    }
+  }
+
+  private fun writeDependenciesGraph(graph: DependenciesGraph) {
+    val nodes = (graph.vertices + graph.verifiedPlugin + graph.edges.flatMap { listOf(it.from, it.to) }).distinct()
+    val nodeIndexes = nodes.withIndex().associate { (index, node) -> node to index }
+
+    writeCollection(nodes) { writeDependencyNode(it) }
+    writeVarInt(nodeIndexes.getValue(graph.verifiedPlugin))
+    writeCollection(graph.edges) { edge ->
+      writeVarInt(nodeIndexes.getValue(edge.from))
+      writeVarInt(nodeIndexes.getValue(edge.to))
+      writePluginDependency(edge.dependency)
+    }
+  }
+
+  private fun writeDependencyNode(node: DependencyNode) {
+    writeString(node.pluginId)
+    writeString(node.version)
+    writeCollection(node.missingDependencies) {
+      writePluginDependency(it.dependency)
+      writeString(it.missingReason)
+    }
+  }
+
+  private fun writePluginDependency(dependency: PluginDependency) {
+    writeString(dependency.id)
+    writeBoolean(dependency.isOptional)
+    writeBoolean(dependency.isModule)
+  }
+
+  private fun writeLocation(location: Location) {
+    when (location) {
+      is ClassLocation -> writeClassLocation(location)
+      is MethodLocation -> writeMethodLocation(location)
+      is FieldLocation -> writeFieldLocation(location)
+    }
+  }
+
+  private fun ClassLocation.fullKey(): List<Any> = listOf(className, signature, modifiers)
+
+  private fun writeClassLocation(location: ClassLocation) {
+    writeObjectReference(locationsTable, location.fullKey()) {
+      writeTag(BinaryResultsFormat.CLASS)
+      writeString(location.className)
+      writeString(location.signature)
+      writeVarInt(location.modifiers.flags)
+    }
+  }
+
+  private fun writeMethodLocation(location: MethodLocation) {
+    val key = with(location) {
+      listOf(METHOD_KEY, hostClass.fullKey(), methodName, methodDescriptor, parameterNames, signature, modifiers)
+    }
+    writeObjectReference(locationsTable, key) {
+      writeTag(BinaryResultsFormat.METHOD)
+      writeClassLocation(location.hostClass)
+      writeString(location.methodName)
+      writeString(location.methodDescriptor)
+      writeCollection(location.parameterNames) { writeString(it) }
+      writeString(location.signature)
+      writeVarInt(location.modifiers.flags)
+    }
+  }
+
+  private fun writeFieldLocation(location: FieldLocation) {
+    val key = with(location) {
+      listOf(FIELD_KEY, hostClass.fullKey(), fieldName, fieldDescriptor, signature, modifiers)
+    }
+    writeObjectReference(locationsTable, key) {
+      writeTag(BinaryResultsFormat.FIELD)
+      writeClassLocation(location.hostClass)
+      writeString(location.fieldName)
+      writeString(location.fieldDescriptor)
+      writeString(location.signature)
+      writeVarInt(location.modifiers.flags)
+    }
+  }
+
+  private fun writeReference(reference: SymbolicReference) {
+    when (reference) {
+      is ClassReference -> {
+        writeTag(BinaryResultsFormat.CLASS)
+        writeString(reference.className)
+      }
+      is MethodReference -> {
+        writeTag(BinaryResultsFormat.METHOD)
+        writeString(reference.hostClass.className)
+        writeString(reference.methodName)
+        writeString(reference.methodDescriptor)
+      }
+      is FieldReference -> {
+        writeTag(BinaryResultsFormat.FIELD)
+        writeString(reference.hostClass.className)
+        writeString(reference.fieldName)
+        writeString(reference.fieldDescriptor)
+      }
+    }
+  }
+
+  private fun writeClassHierarchy(classHierarchy: ClassHierarchy) {
+    writeString(classHierarchy.name)
+    writeBoolean(classHierarchy.isInterface)
+    writeEnum(classHierarchy.classOrigin)
+    val superClass = classHierarchy.superClass
+    writeBoolean(superClass != null)
+    if (superClass != null) {
+      writeClassHierarchy(superClass)
+    }
+    writeCollection(classHierarchy.superInterfaces) { writeClassHierarchy(it) }
+  }
+
+  private fun writeProblem(problem: CompatibilityProblem) {
+    when (problem) {
+      is AbstractClassInstantiationProblem -> {
+        writeTag(BinaryResultsFormat.ABSTRACT_CLASS_INSTANTIATION)
+        writeClassLocation(problem.abstractClass)
+        writeMethodLocation(problem.creator)
+      }
+      is AbstractMethodInvocationProblem -> {
+        writeTag(BinaryResultsFormat.ABSTRACT_METHOD_INVOCATION)
+        writeMethodLocation(problem.method)
+        writeMethodLocation(problem.caller)
+        writeEnum(problem.instruction)
+      }
+      is ChangeFinalFieldProblem -> {
+        writeTag(BinaryResultsFormat.CHANGE_FINAL_FIELD)
+        writeFieldLocation(problem.field)
+        writeMethodLocation(problem.accessor)
+        writeEnum(problem.instruction)
+      }
+      is ClassNotFoundProblem -> {
+        writeTag(BinaryResultsFormat.CLASS_NOT_FOUND)
+        writeReference(problem.unresolved)
+        writeLocation(problem.usage)
+      }
+      is FailedToReadClassFileProblem -> {
+        writeTag(BinaryResultsFormat.FAILED_TO_READ_CLASS_FILE)
+        writeReference(problem.failedClass)
+        writeLocation(problem.usage)
+        writeString(problem.reason)
+      }
+      is FieldNotFoundProblem -> {
+        writeTag(BinaryResultsFormat.FIELD_NOT_FOUND)
+        writeReference(problem.unresolvedField)
+        writeMethodLocation(problem.accessor)
+        writeClassHierarchy(problem.fieldOwnerHierarchy)
+        writeEnum(problem.instruction)
+      }
+      is IllegalClassAccessProblem -> {
+        writeTag(BinaryResultsFormat.ILLEGAL_CLASS_ACCESS)
+        writeClassLocation(problem.unavailableClass)
+        writeEnum(problem.access)
+        writeLocation(problem.usage)
+      }
+      is IllegalFieldAccessProblem -> {
+        writeTag(BinaryResultsFormat.ILLEGAL_FIELD_ACCESS)
+        writeReference(problem.fieldBytecodeReference)
+        writeFieldLocation(problem.inaccessibleField)
+        writeMethodLocation(problem.accessor)
+        writeEnum(problem.instruction)
+        writeEnum(problem.fieldAccess)
+      }
+      is IllegalMethodAccessProblem -> {
+        writeTag(BinaryResultsFormat.ILLEGAL_METHOD_ACCESS)
+        writeReference(problem.bytecodeMethodReference)
+        writeMethodLocation(problem.inaccessibleMethod)
+        writeEnum(problem.methodAccessModifier)
+        writeMethodLocation(problem.caller)
+        writeEnum(problem.instruction)
+      }
+      is InheritFromFinalClassProblem -> {
+        writeTag(BinaryResultsFormat.INHERIT_FROM_FINAL_CLASS)
+        writeClassLocation(problem.child)
+        writeClassLocation(problem.finalClass)
+      }
+      is InstanceAccessOfStaticFieldProblem -> {
+        writeTag(BinaryResultsFormat.INSTANCE_ACCESS_OF_STATIC_FIELD)
+        writeFieldLocation(problem.field)
+        writeMethodLocation(problem.accessor)
+        writeEnum(problem.instruction)
+      }
+      is InterfaceInstantiationProblem -> {
+        writeTag(BinaryResultsFormat.INTERFACE_INSTANTIATION)
+        writeClassLocation(problem.interfaze)
+        writeMethodLocation(problem.creator)
+      }
+      is InvalidClassFileProblem -> {
+        writeTag(BinaryResultsFormat.INVALID_CLASS_FILE)
+        writeReference(problem.invalidClass)
+        writeLocation(problem.usage)
+        writeString(problem.asmError)
+      }
+      is InvokeClassMethodOnInterfaceProblem -> {
+        writeTag(BinaryResultsFormat.INVOKE_CLASS_METHOD_ON_INTERFACE)
+        writeReference(problem.methodReference)
+        writeMethodLocation(problem.caller)
+        writeEnum(problem.instruction)
+      }
+      is InvokeInstanceInstructionOnStaticMethodProblem -> {
+        writeTag(BinaryResultsFormat.INVOKE_INSTANCE_INSTRUCTION_ON_STATIC_METHOD)
+        writeMethodLocation(problem.resolvedMethod)
+        writeMethodLocation(problem.caller)
+        writeEnum(problem.instruction)
+      }
+      is InvokeInterfaceMethodOnClassProblem -> {
+        writeTag(BinaryResultsFormat.INVOKE_INTERFACE_METHOD_ON_CLASS)
+        writeReference(problem.methodReference)
+        writeMethodLocation(problem.caller)
+        writeEnum(problem.instruction)
+      }
+      is InvokeInterfaceOnPrivateMethodProblem -> {
+        writeTag(BinaryResultsFormat.INVOKE_INTERFACE_ON_PRIVATE_METHOD)
+        writeMethodLocation(problem.resolvedMethod)
+        writeMethodLocation(problem.caller)
+      }
+      is InvokeStaticOnInstanceMethodProblem -> {
+        writeTag(BinaryResultsFormat.INVOKE_STATIC_ON_INSTANCE_METHOD)
+        writeMethodLocation(problem.resolvedMethod)
+        writeMethodLocation(problem.caller)
+      }
+      is MethodNotFoundProblem -> {
+        writeTag(BinaryResultsFormat.METHOD_NOT_FOUND)
+        writeReference(problem.unresolvedMethod)
+        writeMethodLocation(problem.caller)
+        writeEnum(problem.instruction)
+        writeClassHierarchy(problem.methodOwnerHierarchy)
+      }
+      is MethodNotImplementedProblem -> {
+        writeTag(BinaryResultsFormat.METHOD_NOT_IMPLEMENTED)
+        writeMethodLocation(problem.abstractMethod)
+        writeClassLocation(problem.incompleteClass)
+      }
+      is MultipleDefaultImplementationsProblem -> {
+        writeTag(BinaryResultsFormat.MULTIPLE_DEFAULT_IMPLEMENTATIONS)
+        writeMethodLocation(problem.caller)
+        writeReference(problem.methodReference)
+        writeEnum(problem.instruction)
+        writeMethodLocation(problem.implementation1)
+        writeMethodLocation(problem.implementation2)
+      }
+      is OverridingFinalMethodProblem -> {
+        writeTag(BinaryResultsFormat.OVERRIDING_FINAL_METHOD)
+        writeMethodLocation(problem.finalMethod)
+        writeClassLocation(problem.invalidClass)
+      }
+      is PackageNotFoundProblem -> {
+        writeTag(BinaryResultsFormat.PACKAGE_NOT_FOUND)
+        writeString(problem.packageName)
+        writeCollection(problem.classNotFoundProblems) {
+          writeReference(it.unresolved)
+          writeLocation(it.usage)
+        }
+      }
+      is PluginIsMarkedIncompatibleProblem -> {
+        writeTag(BinaryResultsFormat.PLUGIN_IS_MARKED_INCOMPATIBLE)
+        writePlugin(problem.pluginInfo)
+        writeIdeVersion(problem.ideVersion)
+      }
+      is StaticAccessOfInstanceFieldProblem -> {
+        writeTag(BinaryResultsFormat.STATIC_ACCESS_OF_INSTANCE_FIELD)
+        writeFieldLocation(problem.field)
+        writeMethodLocation(problem.accessor)
+        writeEnum(problem.instruction)
+      }
+      is SuperClassBecameInterfaceProblem -> {
+        writeTag(BinaryResultsFormat.SUPER_CLASS_BECAME_INTERFACE)
+        writeClassLocation(problem.child)
+        writeClassLocation(problem.interfaze)
+      }
+      is SuperInterfaceBecameClassProblem -> {
+        writeTag(BinaryResultsFormat.SUPER_INTERFACE_BECAME_CLASS)
+        writeClassLocation(problem.child)
+        writeClassLocation(problem.clazz)
+      }
+      else -> throw IllegalArgumentException("Problem ${problem.javaClass.name} cannot be saved: $problem")
+    }
+  }
+
+  private fun writeDeprecatedUsage(usage: DeprecatedApiUsage) {
+    when (usage) {
+      is DeprecatedClassUsage -> {
+        writeTag(BinaryResultsFormat.CLASS_USAGE)
+        writeClassLocation(usage.apiElement)
+        writeLocation(usage.usageLocation)
+      }
+      is DeprecatedFieldUsage -> {
+        writeTag(BinaryResultsFormat.FIELD_USAGE)
+        writeFieldLocation(usage.apiElement)
+        writeLocation(usage.usageLocation)
+      }
+      is DeprecatedMethodUsage -> {
+        writeTag(BinaryResultsFormat.METHOD_USAGE)
+        writeMethodLocation(usage.apiElement)
+        writeLocation(usage.usageLocation)
+      }
+      is DeprecatedMethodOverridden -> {
+        writeTag(BinaryResultsFormat.METHOD_OVERRIDDEN)
+        writeMethodLocation(usage.apiElement)
+        writeMethodLocation(usage.usageLocation)
+      }
+      else -> throw IllegalArgumentException("Deprecated API usage ${usage.javaClass.name} cannot be saved: $usage")
+    }
+    writeBoolean(usage.deprecationInfo.forRemoval)
+    writeString(usage.deprecationInfo.untilVersion)
+  }
+
+  private fun writeExperimentalUsage(usage: ExperimentalApiUsage) {
+    when (usage) {
+      is ExperimentalClassUsage -> {
+        writeTag(BinaryResultsFormat.CLASS_USAGE)
+        writeClassLocation(usage.apiElement)
+        writeLocation(usage.usageLocation)
+      }
+      is ExperimentalFieldUsage -> {
+        writeTag(BinaryResultsFormat.FIELD_USAGE)
+        writeFieldLocation(usage.apiElement)
+        writeLocation(usage.usageLocation)
+      }
+      is ExperimentalMethodUsage -> {
+        writeTag(BinaryResultsFormat.METHOD_USAGE)
+        writeMethodLocation(usage.apiElement)
+        writeLocation(usage.usageLocation)
+      }
+      is ExperimentalMethodOverridden -> {
+        writeTag(BinaryResultsFormat.METHOD_OVERRIDDEN)
+        writeMethodLocation(usage.apiElement)
+        writeMethodLocation(usage.usageLocation)
+      }
+      else -> throw IllegalArgumentException("Experimental API usage ${usage.javaClass.name} cannot be saved: $usage")
+    }
+  }
+
+  companion object {
+    private const val METHOD_KEY = "method"
+
+    private const val FIELD_KEY = "field"
+
+    /**
+     * Returns `true` if the [pluginInfo] can be saved
+     * as a verified plugin or a verification target.
+     */
+    fun canWritePlugin(pluginInfo: PluginInfo) =
+        pluginInfo is UpdateInfo || pluginInfo is CustomPluginInfo || pluginInfo is PluginIdAndVersion
+  }
+
+}
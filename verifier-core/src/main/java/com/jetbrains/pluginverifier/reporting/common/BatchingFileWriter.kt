@@ -0,0 +1,269 @@
+package com.jetbrains.pluginverifier.reporting.common
+
+import com.jetbrains.pluginverifier.misc.create
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.Writer
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Writer of text lines to files, which is performed
+ * by a background thread.
+ *
+ * Lines of all files are put to a queue of the [queueCapacity] size,
+ * so threads appending lines block only when the writer
+ * falls behind, and the memory used by pending lines is bounded.
+ * The background thread takes the lines by batches and appends
+ * them to buffered writers of the files, so the files are written by large
+ * chunks without synchronization of the appending threads.
+ *
+ * Lines of one file are written in the order they have been appended.
+ *
+ * The background thread is started when a file is opened and no thread
+ * is running, and it stops once all the opened files are closed,
+ * so an idle writer holds no thread.
+ *
+ * If a batch fails to be processed, the files being closed in that batch
+ * are completed exceptionally. If the background thread fails,
+ * all pending and subsequent appends and closes fail
+ * with [IllegalStateException] instead of waiting forever.
+ */
+class BatchingFileWriter(queueCapacity: Int = DEFAULT_QUEUE_CAPACITY) {
+
+  companion object {
+    private const val DEFAULT_QUEUE_CAPACITY = 16 * 1024
+
+    private const val MAX_BATCH_SIZE = 1024
+
+    private const val WRITE_BUFFER_SIZE = 64 * 1024
+
+    private const val PUT_TIMEOUT_MILLIS = 100L
+
+    private val LOG: Logger = LoggerFactory.getLogger(BatchingFileWriter::class.java)
+
+    /**
+     * Writer shared by all [FileReporter]s by default.
+     */
+    val SHARED: BatchingFileWriter by lazy { BatchingFileWriter() }
+  }
+
+  /**
+   * Output file, which state is accessed
+   * by the background thread only.
+   */
+  inner class OutputFile internal constructor(val file: Path) {
+
+    internal var writer: Writer? = null
+
+    internal var isClosed = false
+
+    private val closed = CompletableFuture<Unit>()
+
+    private val closeRequested = AtomicBoolean()
+
+    /**
+     * Appends the [line] to this file, unless the file is already closed.
+     */
+    fun appendLine(line: String) {
+      if (!closeRequested.get()) {
+        putTask(Task.Line(this, line))
+      }
+    }
+
+    /**
+     * Writes the pending lines and closes this file.
+     * Returns a future that completes when the file is closed.
+     */
+    fun close(): Future<*> {
+      if (closeRequested.compareAndSet(false, true)) {
+        putTask(Task.Close(this, closed))
+      }
+      return closed
+    }
+  }
+
+  private sealed class Task {
+    class Line(val outputFile: BatchingFileWriter.OutputFile, val line: String) : Task()
+
+    class Close(val outputFile: BatchingFileWriter.OutputFile, val closed: CompletableFuture<Unit>) : Task()
+  }
+
+  private val queue: BlockingQueue<Task> = ArrayBlockingQueue(queueCapacity)
+
+  /**
+   * Error that has terminated the background thread, if any.
+   */
+  @Volatile
+  private var writerFailure: Throwable? = null
+
+  /**
+   * Guards [openFilesCount] and [writerThread].
+   */
+  private val lock = Any()
+
+  /**
+   * Number of opened files, which closes have not been processed yet.
+   */
+  private var openFilesCount = 0
+
+  /**
+   * Background thread processing the tasks, if it is running.
+   */
+  private var writerThread: Thread? = null
+
+  /**
+   * Creates an [OutputFile] that writes lines to the [file].
+   * The [file] is created on the first appended line.
+   * The background thread is started, if it is not running.
+   */
+  fun openFile(file: Path): OutputFile {
+    synchronized(lock) {
+      openFilesCount++
+      if (writerThread == null && writerFailure == null) {
+        writerThread = Thread({ processTasks() }, "batching-file-writer").apply {
+          isDaemon = true
+          start()
+        }
+      }
+    }
+    return OutputFile(file)
+  }
+
+  /**
+   * Registers that one of the opened files is closed.
+   */
+  private fun onFileClosed() {
+    synchronized(lock) {
+      openFilesCount--
+    }
+  }
+
+  /**
+   * Stops the background thread if all the opened files are closed
+   * and no tasks are pending, returning whether it is stopped.
+   */
+  private fun stopIfIdle(): Boolean {
+    synchronized(lock) {
+      if (openFilesCount == 0 && queue.isEmpty()) {
+        writerThread = null
+        return true
+      }
+      return false
+    }
+  }
+
+  /**
+   * Puts the [task] to the queue, waiting for free space
+   * while the background thread is alive.
+   */
+  private fun putTask(task: Task) {
+    while (true) {
+      checkWriterAlive()
+      if (queue.offer(task, PUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        break
+      }
+    }
+    val failure = writerFailure
+    if (failure != null) {
+      /**
+       * The background thread has failed after the task had been put,
+       * so the pending tasks will never be processed.
+       */
+      failTasks(drainQueue(), failure)
+      checkWriterAlive()
+    }
+  }
+
+  private fun checkWriterAlive() {
+    val failure = writerFailure
+    if (failure != null) {
+      throw IllegalStateException("Background writer of files has failed", failure)
+    }
+  }
+
+  private fun drainQueue(): List<Task> = arrayListOf<Task>().also { queue.drainTo(it) }
+
+  private fun processTasks() {
+    val batch = arrayListOf<Task>()
+    try {
+      while (true) {
+        batch.add(queue.take())
+        queue.drainTo(batch, MAX_BATCH_SIZE - 1)
+        try {
+          processBatch(batch)
+        } catch (e: Exception) {
+          LOG.error("Failed to write a batch of reported lines", e)
+          failTasks(batch, e)
+        }
+        batch.clear()
+        if (stopIfIdle()) {
+          return
+        }
+      }
+    } catch (e: Throwable) {
+      LOG.error("Background writer of files has failed", e)
+      writerFailure = e
+      failTasks(batch + drainQueue(), e)
+    }
+  }
+
+  private fun processBatch(batch: List<Task>) {
+    for (task in batch) {
+      when (task) {
+        is Task.Line -> writeLine(task.outputFile, task.line)
+        is Task.Close -> closeFile(task.outputFile, task.closed)
+      }
+    }
+  }
+
+  /**
+   * Completes exceptionally the closes of files among the [tasks]
+   * that have not been completed yet.
+   */
+  private fun failTasks(tasks: List<Task>, error: Throwable) {
+    for (task in tasks) {
+      if (task is Task.Close && !task.closed.isDone) {
+        task.outputFile.isClosed = true
+        onFileClosed()
+        task.closed.completeExceptionally(error)
+      }
+    }
+  }
+
+  private fun writeLine(outputFile: OutputFile, line: String) {
+    if (outputFile.isClosed) {
+      return
+    }
+    try {
+      val writer = outputFile.writer ?: Files.newOutputStream(outputFile.file.create())
+          .writer()
+          .buffered(WRITE_BUFFER_SIZE)
+          .also { outputFile.writer = it }
+      writer.appendln(line)
+    } catch (e: Exception) {
+      outputFile.isClosed = true
+      LOG.error("Failed to report into ${outputFile.file}", e)
+    }
+  }
+
+  private fun closeFile(outputFile: OutputFile, closed: CompletableFuture<Unit>) {
+    try {
+      outputFile.writer?.close()
+    } catch (e: Exception) {
+      LOG.error("Failed to close file writer for ${outputFile.file}", e)
+    } finally {
+      outputFile.writer = null
+      outputFile.isClosed = true
+      onFileClosed()
+      closed.complete(Unit)
+    }
+  }
+
+}
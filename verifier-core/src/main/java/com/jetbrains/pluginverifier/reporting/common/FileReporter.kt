@@ -1,58 +1,49 @@
 package com.jetbrains.pluginverifier.reporting.common
 
-import com.jetbrains.pluginverifier.misc.create
 import com.jetbrains.pluginverifier.reporting.Reporter
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
-import java.io.BufferedWriter
-import java.io.Writer
-import java.nio.file.Files
 import java.nio.file.Path
-import java.util.concurrent.locks.ReentrantLock
-import kotlin.concurrent.withLock
-
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * [Reporter] that appends lines to the [file].
+ *
+ * The lines are written by the [fileWriter] in background,
+ * so the reporting threads don't wait for each other and for the disk.
+ * The file contains all the lines once [close] returns.
+ *
+ * Errors of writing the file are logged, and subsequent lines are ignored.
+ */
 open class FileReporter<in T>(private val file: Path,
+                              fileWriter: BatchingFileWriter = BatchingFileWriter.SHARED,
                               private val lineProvider: (T) -> String = { it.toString() }) : Reporter<T> {
 
-  private var fileWriter: Writer? = null
-
-  private val lock: ReentrantLock = ReentrantLock(true)
+  private val outputFile = fileWriter.openFile(file)
 
-  private var isClosed: Boolean = false
-
-  private fun openFileWriter(): BufferedWriter? = try {
-    Files.newBufferedWriter(file.create())
-  } catch (e: Exception) {
-    ERROR_LOGGER.error("Failed to open file writer for $file", e)
-    null
-  }
+  private val isClosed = AtomicBoolean()
 
   override fun report(t: T) {
-    val line = lineProvider(t)
-    lock.withLock {
-      if (!isClosed) {
-        if (fileWriter == null) {
-          fileWriter = openFileWriter()
-        }
-        try {
-          fileWriter?.appendln(line)
-        } catch (e: Exception) {
-          isClosed = true
-          ERROR_LOGGER.error("Failed to report into $file", e)
-        }
+    if (!isClosed.get()) {
+      val line = lineProvider(t)
+      try {
+        outputFile.appendLine(line)
+      } catch (e: IllegalStateException) {
+        isClosed.set(true)
+        ERROR_LOGGER.error("Failed to report into $file", e)
       }
     }
   }
 
   override fun close() {
-    lock.withLock {
-      if (!isClosed) {
-        isClosed = true
-        try {
-          fileWriter?.close()
-        } catch (e: Exception) {
-          ERROR_LOGGER.error("Failed to close file writer for $file", e)
-        }
+    if (isClosed.compareAndSet(false, true)) {
+      try {
+        outputFile.close().get()
+      } catch (e: ExecutionException) {
+        ERROR_LOGGER.error("Failed to close file writer for $file", e.cause)
+      } catch (e: IllegalStateException) {
+        ERROR_LOGGER.error("Failed to close file writer for $file", e)
       }
     }
   }
@@ -60,4 +51,4 @@ open class FileReporter<in T>(private val file: Path,
   private companion object {
     val ERROR_LOGGER: Logger = LoggerFactory.getLogger(FileReporter::class.java)
   }
-}
\ No newline at end of file
+}
@@ -11,8 +11,8 @@ import java.util.*
  * `The following plugins are incompatible with the current IDE build`.
  */
 class PluginIsMarkedIncompatibleProblem(
-    private val pluginInfo: PluginInfo,
-    private val ideVersion: IdeVersion
+    val pluginInfo: PluginInfo,
+    val ideVersion: IdeVersion
 ) : CompatibilityProblem() {
 
   override val problemType: String
@@ -1,5 +1,6 @@
 package com.jetbrains.pluginverifier.verifiers
 
+import com.jetbrains.pluginverifier.ResultHolder
 import com.jetbrains.pluginverifier.misc.checkIfInterrupted
 import com.jetbrains.pluginverifier.verifiers.clazz.AbstractMethodVerifier
 import com.jetbrains.pluginverifier.verifiers.clazz.InheritFromFinalClassVerifier
@@ -15,13 +16,37 @@ import org.objectweb.asm.tree.AbstractInsnNode
 import org.objectweb.asm.tree.ClassNode
 import org.objectweb.asm.tree.FieldNode
 import org.objectweb.asm.tree.MethodNode
+import java.util.concurrent.CancellationException
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
+import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * Bytecode verification entry point, which takes as input
  * a [VerificationContext] and classes for verification, and
  * runs available bytecode verifiers against such configuration.
+ *
+ * Plugins containing many classes are verified in chunks
+ * on the [forkJoinPool] if it is specified, so a single
+ * huge plugin can use all the available processors.
+ * The pool must be dedicated to the verification, because
+ * resolution of classes blocks on reading of class files.
  */
-class BytecodeVerifier {
+class BytecodeVerifier(private val forkJoinPool: ForkJoinPool?) {
+
+  companion object {
+    /**
+     * Minimum number of classes to be verified
+     * in parallel instead of on the current thread.
+     */
+    private const val PARALLEL_VERIFICATION_THRESHOLD = 2000
+
+    /**
+     * Number of classes verified by one parallel task.
+     */
+    private const val CLASSES_CHUNK_SIZE = 500
+  }
 
   private val verificationFilters = listOf(DynamicallyLoadedFilter())
 
@@ -64,15 +89,77 @@ class BytecodeVerifier {
       verificationContext: VerificationContext,
       progressIndicator: (Double) -> Unit
   ) {
-    if (classesToCheck.isNotEmpty()) {
+    if (classesToCheck.isEmpty()) {
+      return
+    }
+    if (forkJoinPool == null || classesToCheck.size < PARALLEL_VERIFICATION_THRESHOLD) {
       for ((totalVerifiedClasses, className) in classesToCheck.withIndex()) {
         checkIfInterrupted()
         verifyClass(className, verificationContext)
         progressIndicator((totalVerifiedClasses + 1).toDouble() / classesToCheck.size)
       }
+    } else {
+      verifyInParallel(forkJoinPool, classesToCheck, verificationContext, progressIndicator)
+    }
+  }
+
+  /**
+   * Verifies [classesToCheck] split into chunks on the [forkJoinPool].
+   *
+   * Each chunk registers its problems into a separate [ResultHolder],
+   * so no synchronization is necessary during verification.
+   * The chunks' results are then merged into the [verificationContext]'s
+   * result holder in the order of [classesToCheck], which makes
+   * the results the same as of the sequential verification.
+   */
+  private fun verifyInParallel(
+      forkJoinPool: ForkJoinPool,
+      classesToCheck: Set<String>,
+      verificationContext: VerificationContext,
+      progressIndicator: (Double) -> Unit
+  ) {
+    val cancelled = AtomicBoolean()
+    val chunks = classesToCheck.chunked(CLASSES_CHUNK_SIZE)
+    val tasks = chunks.map { chunk ->
+      forkJoinPool.submit<ResultHolder> {
+        val chunkContext = verificationContext.copy(resultHolder = ResultHolder())
+        for (className in chunk) {
+          if (cancelled.get()) {
+            throw CancellationException()
+          }
+          verifyClass(className, chunkContext)
+        }
+        chunkContext.resultHolder
+      }
+    }
+    try {
+      var totalVerifiedClasses = 0
+      for ((index, task) in tasks.withIndex()) {
+        checkIfInterrupted()
+        val chunkResultHolder = waitForChunk(task)
+        verificationContext.resultHolder.addResultsOf(chunkResultHolder)
+        totalVerifiedClasses += chunks[index].size
+        progressIndicator(totalVerifiedClasses.toDouble() / classesToCheck.size)
+      }
+    } finally {
+      cancelled.set(true)
+      tasks.forEach { it.cancel(false) }
     }
   }
 
+  @Throws(InterruptedException::class)
+  private fun waitForChunk(task: ForkJoinTask<ResultHolder>): ResultHolder =
+      try {
+        task.get()
+      } catch (e: ExecutionException) {
+        val cause = e.cause
+        when (cause) {
+          is InterruptedException -> throw cause
+          is RuntimeException -> throw cause
+          else -> throw RuntimeException(cause)
+        }
+      }
+
   private fun verifyClass(className: String, verificationContext: VerificationContext) {
     val clsResolution = verificationContext.clsResolver.resolveClass(className)
     if (clsResolution is ClsResolution.Found && shouldVerify(clsResolution.node)) {
@@ -1,6 +1,5 @@
 package com.jetbrains.pluginverifier.verifiers
 
-import com.jetbrains.pluginverifier.misc.singletonOrEmpty
 import com.jetbrains.pluginverifier.results.deprecated.DeprecatedClassUsage
 import com.jetbrains.pluginverifier.results.experimental.ExperimentalClassUsage
 import com.jetbrains.pluginverifier.results.location.Location
@@ -13,7 +12,6 @@ import com.jetbrains.pluginverifier.verifiers.logic.CommonClassNames
 import com.jetbrains.pluginverifier.verifiers.resolution.ClsResolution
 import com.jetbrains.pluginverifier.verifiers.resolution.ClsResolver
 import org.objectweb.asm.tree.ClassNode
-import java.util.*
 
 fun ClsResolver.resolveClassOrProblem(
     className: String,
@@ -71,12 +69,6 @@ fun VerificationContext.checkClassExistsOrExternal(className: String, lookupLoca
   }
 }
 
-@Suppress("UNCHECKED_CAST")
-private fun ClsResolver.resolveAllDirectParents(classNode: ClassNode, problemRegistrar: ProblemRegistrar): List<ClassNode> {
-  val parents = classNode.superName.singletonOrEmpty() + classNode.getInterfaces().orEmpty()
-  return parents.mapNotNull { resolveClassOrProblem(it, classNode, problemRegistrar) { classNode.createClassLocation() } }
-}
-
 fun ClsResolver.isSubclassOf(child: ClassNode, possibleParent: ClassNode, problemRegistrar: ProblemRegistrar): Boolean =
     isSubclassOf(child, possibleParent.name, problemRegistrar)
 
@@ -104,25 +96,5 @@ fun ClsResolver.isSubclassOf(
     return true
   }
 
-  val directParents = resolveAllDirectParents(child, problemRegistrar)
-
-  val queue = LinkedList<ClassNode>()
-  queue.addAll(directParents)
-
-  val visited = hashSetOf<String>()
-  visited.addAll(directParents.map { it.name })
-
-  while (queue.isNotEmpty()) {
-    val node = queue.poll()
-    if (node.name == possibleParentName) {
-      return true
-    }
-
-    resolveAllDirectParents(node, problemRegistrar).filterNot { it.name in visited }.forEach {
-      visited.add(it.name)
-      queue.addLast(it)
-    }
-  }
-
-  return false
+  return classHierarchy.isSubclassOf(child, possibleParentName, problemRegistrar)
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.jetbrains.pluginverifier.verifiers.filter
+
+import com.jetbrains.pluginverifier.ide.IdeApiDelta
+import com.jetbrains.pluginverifier.verifiers.extractClassNameFromDescr
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileOrigin
+import com.jetbrains.pluginverifier.verifiers.resolution.ClsResolution
+import com.jetbrains.pluginverifier.verifiers.resolution.ClsResolver
+import org.objectweb.asm.Handle
+import org.objectweb.asm.Type
+import org.objectweb.asm.tree.*
+
+/**
+ * [VerifiedClassesFilter] that selects the classes referencing
+ * the API [changed] [IdeApiDelta.isChanged] between two IDEs.
+ *
+ * A referenced class is considered changed if:
+ * - it is an IDE class changed according to the [ideApiDelta],
+ * - it is a class of the plugin whose super class or interface is changed,
+ * - it is a class of the plugin's dependency or it is not found,
+ * because the dependencies may be resolved differently against the IDEs.
+ *
+ * JDK classes and external classes are considered unchanged.
+ */
+class ChangedApiClassesFilter(private val ideApiDelta: IdeApiDelta) : VerifiedClassesFilter {
+
+  override fun filterClassesToVerify(classesToCheck: Set<String>, clsResolver: ClsResolver): Set<String> {
+    val pluginHierarchies = PluginHierarchies(clsResolver)
+    return classesToCheck.filterTo(linkedSetOf()) { className ->
+      val classNode = clsResolver.findClassNode(className)
+      classNode == null || classNode.getReferencedClasses().any { pluginHierarchies.isChangedReference(it) }
+    }
+  }
+
+  /**
+   * Determines whether the referenced classes are changed,
+   * remembering the hierarchies of the plugin's classes.
+   */
+  private inner class PluginHierarchies(private val clsResolver: ClsResolver) {
+
+    private val isHierarchyChanged = hashMapOf<String, Boolean>()
+
+    fun isChangedReference(className: String): Boolean {
+      if (clsResolver.isExternalClass(className)) {
+        return false
+      }
+      return when (clsResolver.getOriginOfClass(className)) {
+        ClassFileOrigin.PLUGIN_INTERNAL_CLASS -> isHierarchyChanged(className)
+        ClassFileOrigin.JDK_CLASS -> false
+        ClassFileOrigin.IDE_CLASS -> ideApiDelta.isChanged(className)
+        else -> true
+      }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun isHierarchyChanged(className: String): Boolean {
+      isHierarchyChanged[className]?.let { return it }
+      //Guards against cycles in invalid hierarchies.
+      isHierarchyChanged[className] = false
+      val classNode = clsResolver.findClassNode(className)
+      val changed = classNode == null
+          || listOfNotNull(classNode.superName).plus(classNode.interfaces as List<String>).any { isChangedReference(it) }
+      isHierarchyChanged[className] = changed
+      return changed
+    }
+  }
+
+  private fun ClsResolver.findClassNode(className: String): ClassNode? {
+    val resolution = resolveClass(className)
+    return if (resolution is ClsResolution.Found) resolution.node else null
+  }
+
+  /**
+   * Returns names of classes referenced in declarations
+   * and instructions of this class, except for annotations.
+   */
+  @Suppress("UNCHECKED_CAST")
+  private fun ClassNode.getReferencedClasses(): Set<String> {
+    val references = hashSetOf<String>()
+    superName?.let { references.add(it) }
+    references.addAll(interfaces as List<String>)
+    for (field in fields as List<FieldNode>) {
+      references.addTypeReferences(Type.getType(field.desc))
+    }
+    for (method in methods as List<MethodNode>) {
+      references.addTypeReferences(Type.getMethodType(method.desc))
+      references.addAll(method.exceptions as List<String>)
+      (method.tryCatchBlocks as List<TryCatchBlockNode>).mapNotNullTo(references) { it.type }
+      (method.localVariables as List<LocalVariableNode>?)?.forEach { references.addTypeReferences(Type.getType(it.desc)) }
+      for (instruction in method.instructions.toArray()) {
+        when (instruction) {
+          is TypeInsnNode -> references.addClassOrArray(instruction.desc)
+          is MultiANewArrayInsnNode -> references.addClassOrArray(instruction.desc)
+          is FieldInsnNode -> {
+            references.addClassOrArray(instruction.owner)
+            references.addTypeReferences(Type.getType(instruction.desc))
+          }
+          is MethodInsnNode -> {
+            references.addClassOrArray(instruction.owner)
+            references.addTypeReferences(Type.getMethodType(instruction.desc))
+          }
+          is InvokeDynamicInsnNode -> {
+            references.addTypeReferences(Type.getMethodType(instruction.desc))
+            references.addConstantReferences(instruction.bsm)
+            instruction.bsmArgs.forEach { references.addConstantReferences(it) }
+          }
+          is LdcInsnNode -> references.addConstantReferences(instruction.cst)
+        }
+      }
+    }
+    references.remove(name)
+    return references
+  }
+
+  private fun MutableSet<String>.addClassOrArray(classNameOrDescriptor: String) {
+    classNameOrDescriptor.extractClassNameFromDescr()?.let { add(it) }
+  }
+
+  private fun MutableSet<String>.addConstantReferences(constant: Any?) {
+    when (constant) {
+      is Type -> addTypeReferences(constant)
+      is Handle -> {
+        addClassOrArray(constant.owner)
+        addTypeReferences(Type.getType(constant.desc))
+      }
+    }
+  }
+
+  private fun MutableSet<String>.addTypeReferences(type: Type) {
+    when (type.sort) {
+      Type.METHOD -> {
+        type.argumentTypes.forEach { addTypeReferences(it) }
+        addTypeReferences(type.returnType)
+      }
+      Type.ARRAY -> addTypeReferences(type.elementType)
+      Type.OBJECT -> add(type.internalName)
+    }
+  }
+
+}
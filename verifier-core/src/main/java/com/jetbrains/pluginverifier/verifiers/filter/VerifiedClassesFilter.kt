@@ -0,0 +1,18 @@
+package com.jetbrains.pluginverifier.verifiers.filter
+
+import com.jetbrains.pluginverifier.verifiers.resolution.ClsResolver
+
+/**
+ * Implementations of this interface narrow down
+ * the plugin's classes to be verified to the classes
+ * whose verification may yield results of interest.
+ */
+interface VerifiedClassesFilter {
+
+  /**
+   * Returns the classes among the [classesToCheck]
+   * that must be verified using the [clsResolver].
+   */
+  fun filterClassesToVerify(classesToCheck: Set<String>, clsResolver: ClsResolver): Set<String>
+
+}
@@ -0,0 +1,114 @@
+package com.jetbrains.pluginverifier.verifiers.resolution
+
+import com.jetbrains.pluginverifier.misc.singletonOrEmpty
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+import com.jetbrains.pluginverifier.verifiers.createClassLocation
+import com.jetbrains.pluginverifier.verifiers.getInterfaces
+import com.jetbrains.pluginverifier.verifiers.resolveClassOrProblem
+import org.objectweb.asm.tree.ClassNode
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Cache of direct and transitive supertypes of classes
+ * resolved by the [clsResolver].
+ *
+ * Resolution of parents of a class may register problems, such as
+ * a missing superclass. Such registrations are recorded on the first
+ * resolution and replayed to the [ProblemRegistrar] every time the parents
+ * are walked again, so the cache doesn't change what is reported.
+ *
+ * A complete set of supertypes is memoized only for classes
+ * whose hierarchy resolves without registrations. Subclass checks
+ * of such classes are answered without walking the hierarchy.
+ * Hierarchies that produce registrations are walked through
+ * the cached direct parents, the same way as without the cache.
+ *
+ * The cache is safe to be used from multiple threads.
+ */
+class ClassHierarchyCache(private val clsResolver: ClsResolver) {
+
+  private class DirectParents(val parentNames: List<String>, val registrations: RecordingProblemRegistrar)
+
+  private class Supertypes(val names: Set<String>, val hasRegistrations: Boolean)
+
+  private val directParents = ConcurrentHashMap<String, DirectParents>()
+
+  private val allSupertypes = ConcurrentHashMap<String, Supertypes>()
+
+  /**
+   * Checks whether [possibleParentName] is a direct or indirect supertype of [child].
+   */
+  fun isSubclassOf(child: ClassNode, possibleParentName: String, problemRegistrar: ProblemRegistrar): Boolean {
+    val supertypes = getAllSupertypes(child)
+    if (!supertypes.hasRegistrations) {
+      return possibleParentName in supertypes.names
+    }
+    return walkHierarchy(child, problemRegistrar) { it == possibleParentName }
+  }
+
+  private fun getAllSupertypes(classNode: ClassNode): Supertypes {
+    val cached = allSupertypes[classNode.name]
+    if (cached != null) {
+      return cached
+    }
+    val names = hashSetOf<String>()
+    val registrations = RecordingProblemRegistrar()
+    walkHierarchy(classNode, registrations) { names.add(it); false }
+    val supertypes = Supertypes(names, !registrations.isEmpty())
+    allSupertypes[classNode.name] = supertypes
+    return supertypes
+  }
+
+  /**
+   * Walks supertypes of the [start] class in breadth-first order
+   * until the [stop] returns `true` for a visited supertype,
+   * replaying registrations of the resolved classes to the [problemRegistrar].
+   */
+  private fun walkHierarchy(start: ClassNode, problemRegistrar: ProblemRegistrar, stop: (String) -> Boolean): Boolean {
+    val resolvedNodes = hashMapOf<String, ClassNode>()
+    val startParents = getDirectParents(start, resolvedNodes)
+    startParents.registrations.replayTo(problemRegistrar)
+
+    val queue = LinkedList<String>()
+    queue.addAll(startParents.parentNames)
+
+    val visited = hashSetOf<String>()
+    visited.addAll(startParents.parentNames)
+
+    while (queue.isNotEmpty()) {
+      val name = queue.poll()
+      if (stop(name)) {
+        return true
+      }
+
+      val parents = directParents[name]
+          ?: resolvedNodes[name]?.let { getDirectParents(it, resolvedNodes) }
+          ?: (clsResolver.resolveClass(name) as? ClsResolution.Found)?.let { getDirectParents(it.node, resolvedNodes) }
+          ?: continue
+      parents.registrations.replayTo(problemRegistrar)
+      parents.parentNames.filterNot { it in visited }.forEach {
+        visited.add(it)
+        queue.addLast(it)
+      }
+    }
+    return false
+  }
+
+  private fun getDirectParents(classNode: ClassNode, resolvedNodes: MutableMap<String, ClassNode>): DirectParents {
+    val cached = directParents[classNode.name]
+    if (cached != null) {
+      return cached
+    }
+    val registrations = RecordingProblemRegistrar()
+    val parents = classNode.superName.singletonOrEmpty() + classNode.getInterfaces().orEmpty()
+    val resolvedParents = parents.mapNotNull {
+      clsResolver.resolveClassOrProblem(it, classNode, registrations) { classNode.createClassLocation() }
+    }
+    resolvedParents.forEach { resolvedNodes[it.name] = it }
+    val result = DirectParents(resolvedParents.map { it.name }, registrations)
+    directParents[classNode.name] = result
+    return result
+  }
+
+}
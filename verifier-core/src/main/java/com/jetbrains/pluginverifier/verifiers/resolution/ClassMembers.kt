@@ -0,0 +1,56 @@
+package com.jetbrains.pluginverifier.verifiers.resolution
+
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.CacheLoader
+import com.google.common.cache.LoadingCache
+import com.jetbrains.pluginverifier.verifiers.getFields
+import com.jetbrains.pluginverifier.verifiers.getMethods
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.FieldNode
+import org.objectweb.asm.tree.MethodNode
+
+/**
+ * Methods and fields declared in a class, indexed by names,
+ * which allows to find a member without scanning all of them.
+ *
+ * Members with the same name are kept in the order of declaration.
+ * Use [of] to get the members of a class: they are indexed
+ * once per [ClassNode] and kept while the node is reachable.
+ */
+class ClassMembers private constructor(classNode: ClassNode) {
+
+  companion object {
+    private val classMembers: LoadingCache<ClassNode, ClassMembers> = CacheBuilder.newBuilder()
+        .weakKeys()
+        .build(object : CacheLoader<ClassNode, ClassMembers>() {
+          override fun load(key: ClassNode) = ClassMembers(key)
+        })
+
+    fun of(classNode: ClassNode): ClassMembers = classMembers.getUnchecked(classNode)
+  }
+
+  private val methodsByName: Map<String, List<MethodNode>> = classNode.getMethods().orEmpty().groupBy { it.name }
+
+  private val fieldsByName: Map<String, List<FieldNode>> = classNode.getFields().orEmpty().groupBy { it.name }
+
+  /**
+   * Returns all methods with the [name].
+   */
+  fun getMethods(name: String): List<MethodNode> = methodsByName[name].orEmpty()
+
+  /**
+   * Returns all methods with the [name] and the [descriptor].
+   */
+  fun getMethods(name: String, descriptor: String): List<MethodNode> = getMethods(name).filter { it.desc == descriptor }
+
+  /**
+   * Returns the first method with the [name] and the [descriptor].
+   */
+  fun findMethod(name: String, descriptor: String): MethodNode? = getMethods(name).firstOrNull { it.desc == descriptor }
+
+  /**
+   * Returns the first field with the [name] and the [descriptor].
+   */
+  fun findField(name: String, descriptor: String): FieldNode? = fieldsByName[name]?.firstOrNull { it.desc == descriptor }
+
+}
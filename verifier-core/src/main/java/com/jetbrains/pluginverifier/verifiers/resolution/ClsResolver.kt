@@ -39,6 +39,16 @@ interface ClsResolver : Closeable {
    * Returns true if package with specified binary name exists.
    */
   fun packageExists(packageName: String): Boolean
+
+  /**
+   * Cache of supertypes of classes resolved by this resolver.
+   */
+  val classHierarchy: ClassHierarchyCache
+
+  /**
+   * Cache of methods and fields resolved among classes of this resolver.
+   */
+  val memberResolutionCache: MemberResolutionCache
 }
 
 /**
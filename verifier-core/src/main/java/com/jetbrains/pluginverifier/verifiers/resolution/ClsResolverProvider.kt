@@ -14,4 +14,15 @@ interface ClsResolverProvider {
    */
   fun provide(checkedPluginDetails: PluginDetails, resultHolder: ResultHolder): ClsResolver
 
+  /**
+   * Returns a presentation of the classes, except for the plugin's ones,
+   * the provided [ClsResolver]s resolve, such as classes of the IDE and JDK.
+   * Verification results are [cached] [com.jetbrains.pluginverifier.persistence.VerificationResultCache]
+   * only for the same presentations of the environments.
+   *
+   * `null` means that the environment cannot be identified
+   * and the results must not be cached.
+   */
+  fun getEnvironmentKey(): String? = null
+
 }
\ No newline at end of file
@@ -21,28 +21,35 @@ class DefaultClsResolver(private val pluginResolver: Resolver,
                          private val externalClassesPackageFilter: PackageFilter,
                          private val closeableResources: List<Closeable>) : ClsResolver {
 
-  private val cachingResolver = CacheResolver(
-      UnionResolver.create(
-          listOf(
-              pluginResolver,
-              jdkClassesResolver,
-              ideResolver,
-              dependenciesResolver
-          )
-      )
+  /**
+   * Resolvers in the resolution order. Classes of the plugin, JDK and dependencies
+   * are cached for this verification, while the [ideResolver] is used as is,
+   * because the IDE classes are already cached for all verifications against the IDE.
+   * The [ideResolver] is not united with the others, because [UnionResolver]
+   * would unwrap it to the underlying resolvers, bypassing its cache.
+   */
+  private val resolvers = listOf(
+      CacheResolver(UnionResolver.create(listOf(pluginResolver, jdkClassesResolver))),
+      ideResolver,
+      CacheResolver(dependenciesResolver)
   )
 
+  override val classHierarchy = ClassHierarchyCache(this)
+
+  override val memberResolutionCache = MemberResolutionCache()
+
   override fun isExternalClass(className: String) = externalClassesPackageFilter.accept(className)
 
   override fun classExists(className: String) = getOriginOfClass(className) != null
 
-  override fun packageExists(packageName: String) = cachingResolver.containsPackage(packageName)
+  override fun packageExists(packageName: String) = resolvers.any { it.containsPackage(packageName) }
 
   override fun resolveClass(className: String): ClsResolution {
     if (isExternalClass(className)) {
       return ClsResolution.ExternalClass
     }
-    return cachingResolver.resolveClassSafely(className)
+    val resolver = resolvers.find { it.containsClass(className) } ?: return ClsResolution.NotFound
+    return resolver.resolveClassSafely(className)
   }
 
   override fun getOriginOfClass(className: String): ClassFileOrigin? {
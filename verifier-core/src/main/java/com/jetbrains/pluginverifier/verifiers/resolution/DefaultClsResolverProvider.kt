@@ -18,6 +18,7 @@ import com.jetbrains.pluginverifier.misc.closeOnException
 import com.jetbrains.pluginverifier.parameters.jdk.JdkDescriptorsCache
 import com.jetbrains.pluginverifier.parameters.jdk.JdkPath
 import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.persistence.ContentHashes
 import com.jetbrains.pluginverifier.plugin.PluginDetails
 import com.jetbrains.pluginverifier.plugin.PluginDetailsCache
 import com.jetbrains.pluginverifier.repository.cache.ResourceCacheEntryResult
@@ -37,6 +38,21 @@ class DefaultClsResolverProvider(
     private val externalClassesPackageFilter: PackageFilter
 ) : ClsResolverProvider {
 
+  /**
+   * Identifies the IDE and JDK by hashes of their class files,
+   * which are calculated once for all the verifications.
+   */
+  private val ideAndJdkKey by lazy {
+    listOf(
+        "IDE " + ideDescriptor.ideVersion.asString(),
+        "IDE classes " + ContentHashes.hashClassesFiles(ideDescriptor.ide.idePath.toPath()),
+        "JDK classes " + ContentHashes.hashClassesFiles(jdkPath.jdkPath),
+        "External classes " + externalClassesPackageFilter
+    ).joinToString(separator = "\n")
+  }
+
+  override fun getEnvironmentKey(): String = ideAndJdkKey
+
   override fun provide(
       checkedPluginDetails: PluginDetails,
       resultHolder: ResultHolder
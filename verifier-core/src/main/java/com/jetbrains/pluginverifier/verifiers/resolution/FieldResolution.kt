@@ -14,13 +14,17 @@ class FieldResolution(
     private val problemRegistrar: ProblemRegistrar
 ) {
 
-  fun resolveField(currentClass: ClassNode): FieldResolutionResult {
+  fun resolveField(ownerNode: ClassNode): FieldResolutionResult =
+      clsResolver.memberResolutionCache.resolveField(ownerNode.name, fieldName, fieldDescriptor, problemRegistrar) { registrar ->
+        FieldResolution(fieldName, fieldDescriptor, clsResolver, registrar).lookupField(ownerNode)
+      }
+
+  private fun lookupField(currentClass: ClassNode): FieldResolutionResult {
     /**
      * 1) If C declares a field with the name and descriptor specified by the field reference,
      * field lookup succeeds. The declared field is the result of the field lookup.
      */
-    val fields = currentClass.getFields().orEmpty()
-    val matching = fields.firstOrNull { it.name == fieldName && it.desc == fieldDescriptor }
+    val matching = ClassMembers.of(currentClass).findField(fieldName, fieldDescriptor)
     if (matching != null) {
       return FieldResolutionResult.Found(currentClass, matching)
     }
@@ -33,7 +37,7 @@ class FieldResolution(
       val resolvedInterface = clsResolver.resolveClassOrProblem(anInterface, currentClass, problemRegistrar) { currentClass.createClassLocation() }
           ?: return FieldResolutionResult.Abort
 
-      val lookupResult = resolveField(resolvedInterface)
+      val lookupResult = lookupField(resolvedInterface)
       when (lookupResult) {
         FieldResolutionResult.NotFound -> Unit
         FieldResolutionResult.Abort -> return lookupResult
@@ -48,7 +52,7 @@ class FieldResolution(
     if (superName != null) {
       val resolvedSuper = clsResolver.resolveClassOrProblem(superName, currentClass, problemRegistrar) { currentClass.createClassLocation() }
           ?: return FieldResolutionResult.Abort
-      val lookupResult = resolveField(resolvedSuper)
+      val lookupResult = lookupField(resolvedSuper)
       when (lookupResult) {
         FieldResolutionResult.NotFound -> Unit
         FieldResolutionResult.Abort -> return lookupResult
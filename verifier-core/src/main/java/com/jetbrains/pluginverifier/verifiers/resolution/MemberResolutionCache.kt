@@ -0,0 +1,86 @@
+package com.jetbrains.pluginverifier.verifiers.resolution
+
+import com.jetbrains.pluginverifier.results.instruction.Instruction
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Cache of results of methods and fields resolution
+ * performed against classes of a [ClsResolver].
+ *
+ * Resolution of the same member referenced from many places
+ * of a plugin gives the same result, so the lookup is performed once.
+ * Only results whose resolution didn't register any problems
+ * or API usages are cached: such results don't depend on the place
+ * of the reference. Other results are resolved every time, so that
+ * registered problems are bound to the actual place of the reference.
+ *
+ * The cache is safe to be used from multiple threads.
+ */
+class MemberResolutionCache {
+
+  private data class MethodKey(
+      val ownerName: String,
+      val methodName: String,
+      val methodDescriptor: String,
+      val instruction: Instruction
+  )
+
+  private data class FieldKey(
+      val ownerName: String,
+      val fieldName: String,
+      val fieldDescriptor: String
+  )
+
+  private val methods = ConcurrentHashMap<MethodKey, MethodResolutionResult>()
+
+  private val fields = ConcurrentHashMap<FieldKey, FieldResolutionResult>()
+
+  /**
+   * Returns the cached result of resolution of the method [methodName] [methodDescriptor]
+   * of the class [ownerName] by the [instruction], or performs the [resolution],
+   * which registers problems to the passed [ProblemRegistrar].
+   */
+  fun resolveMethod(
+      ownerName: String,
+      methodName: String,
+      methodDescriptor: String,
+      instruction: Instruction,
+      problemRegistrar: ProblemRegistrar,
+      resolution: (ProblemRegistrar) -> MethodResolutionResult
+  ): MethodResolutionResult = resolve(methods, MethodKey(ownerName, methodName, methodDescriptor, instruction), problemRegistrar, resolution)
+
+  /**
+   * Returns the cached result of resolution of the field [fieldName] [fieldDescriptor]
+   * of the class [ownerName], or performs the [resolution],
+   * which registers problems to the passed [ProblemRegistrar].
+   */
+  fun resolveField(
+      ownerName: String,
+      fieldName: String,
+      fieldDescriptor: String,
+      problemRegistrar: ProblemRegistrar,
+      resolution: (ProblemRegistrar) -> FieldResolutionResult
+  ): FieldResolutionResult = resolve(fields, FieldKey(ownerName, fieldName, fieldDescriptor), problemRegistrar, resolution)
+
+  private fun <K, R> resolve(
+      cache: MutableMap<K, R>,
+      key: K,
+      problemRegistrar: ProblemRegistrar,
+      resolution: (ProblemRegistrar) -> R
+  ): R {
+    val cached = cache[key]
+    if (cached != null) {
+      return cached
+    }
+    val recorder = RecordingProblemRegistrar()
+    val result = resolution(recorder)
+    if (recorder.isEmpty()) {
+      cache[key] = result
+    } else {
+      recorder.replayTo(problemRegistrar)
+    }
+    return result
+  }
+
+}
@@ -30,6 +30,11 @@ class MethodResolution(
   private val methodDescriptor = methodReference.methodDescriptor
 
   fun resolveMethod(ownerNode: ClassNode): MethodResolutionResult =
+      clsResolver.memberResolutionCache.resolveMethod(ownerNode.name, methodName, methodDescriptor, instruction, problemRegistrar) { registrar ->
+        MethodResolution(methodReference, instruction, callerLocation, registrar, clsResolver).lookupMethod(ownerNode)
+      }
+
+  private fun lookupMethod(ownerNode: ClassNode): MethodResolutionResult =
       when (instruction) {
         Instruction.INVOKE_VIRTUAL -> resolveClassMethod(ownerNode)
         Instruction.INVOKE_INTERFACE -> resolveInterfaceMethod(ownerNode)
@@ -65,7 +70,7 @@ class MethodResolution(
     2) Otherwise, if C declares a method with the name and descriptor specified by
     the interface method reference, method lookup succeeds.
     */
-    val matching = interfaceNode.getMethods().orEmpty().firstOrNull { it.name == methodName && it.desc == methodDescriptor }
+    val matching = ClassMembers.of(interfaceNode).findMethod(methodName, methodDescriptor)
     if (matching != null) {
       return MethodResolutionResult.Found(interfaceNode, matching)
     }
@@ -77,7 +82,7 @@ class MethodResolution(
     */
     val objectClass = clsResolver.resolveClassOrProblem(CommonClassNames.JAVA_LANG_OBJECT, interfaceNode, problemRegistrar) { interfaceNode.createClassLocation() }
         ?: return MethodResolutionResult.Abort
-    val objectMethod = objectClass.getMethods().orEmpty().firstOrNull { it.name == methodName && it.desc == methodDescriptor && it.isPublic() && !it.isStatic() }
+    val objectMethod = ClassMembers.of(objectClass).getMethods(methodName, methodDescriptor).firstOrNull { it.isPublic() && !it.isStatic() }
     if (objectMethod != null) {
       return MethodResolutionResult.Found(objectClass, objectMethod)
     }
@@ -98,7 +103,7 @@ class MethodResolution(
     5) Otherwise, if any superinterface of C declares a method with the name and descriptor specified by the method
     reference that has neither its ACC_PRIVATE flag nor its ACC_STATIC flag set, one of these is arbitrarily chosen and method lookup succeeds.
      */
-    val matchings = getSuperInterfaceMethods(interfaceNode) { it.name == methodName && it.desc == methodDescriptor && !it.isPrivate() && !it.isStatic() }
+    val matchings = getSuperInterfaceMethods(interfaceNode) { !it.isPrivate() && !it.isStatic() }
         ?: return MethodResolutionResult.Abort
     if (matchings.isNotEmpty()) {
       return matchings.first()
@@ -121,8 +126,7 @@ class MethodResolution(
    * method of C with the specified name and descriptor that is declared in a subinterface of I.
    */
   private fun getMaximallySpecificSuperInterfaceMethods(start: ClassNode): List<MethodResolutionResult.Found>? {
-    val predicate: (MethodNode) -> Boolean = { it.name == methodName && it.desc == methodDescriptor && !it.isPrivate() && !it.isStatic() }
-    val allMatching = getSuperInterfaceMethods(start, predicate) ?: return null
+    val allMatching = getSuperInterfaceMethods(start) { !it.isPrivate() && !it.isStatic() } ?: return null
     return allMatching.filter { (definingClass) ->
       //Check that [definingClass] is not a parent of any other interface.
       allMatching.none { (otherDefiningClass) ->
@@ -132,7 +136,8 @@ class MethodResolution(
   }
 
   /**
-   * @return all direct and indirect super-interface methods matching the given predicate
+   * @return all direct and indirect super-interface methods with
+   * the name and descriptor of the method reference matching the given predicate
    */
   private fun getSuperInterfaceMethods(start: ClassNode, predicate: (MethodNode) -> Boolean): List<MethodResolutionResult.Found>? {
     //breadth-first-search
@@ -143,7 +148,7 @@ class MethodResolution(
     visited.add(start.name)
     while (!queue.isEmpty()) {
       val cur = queue.remove()
-      cur.getMethods().orEmpty()
+      ClassMembers.of(cur).getMethods(methodName, methodDescriptor)
           .filter(predicate)
           .mapTo(result) { MethodResolutionResult.Found(cur, it) }
 
@@ -228,10 +233,11 @@ class MethodResolution(
       The resolved method is the signature polymorphic method declaration. It is not necessary for C to declare
       a method with the descriptor specified by the method reference.
     */
-    val methods = currentClass.getMethods().orEmpty()
+    val classMembers = ClassMembers.of(currentClass)
 
-    val matchByName = methods.firstOrNull { it.name == methodName }
-    if (matchByName != null && isSignaturePolymorphic(currentClass.name, matchByName) && methods.count { it.name == methodName } == 1) {
+    val matchesByName = classMembers.getMethods(methodName)
+    val matchByName = matchesByName.firstOrNull()
+    if (matchByName != null && isSignaturePolymorphic(currentClass.name, matchByName) && matchesByName.size == 1) {
       return MethodResolutionResult.Found(currentClass, matchByName)
     }
 
@@ -239,7 +245,7 @@ class MethodResolution(
     2.2) Otherwise, if C declares a method with the name and descriptor
     specified by the method reference, method lookup succeeds.
      */
-    val matching = methods.find { methodName == it.name && methodDescriptor == it.desc }
+    val matching = classMembers.findMethod(methodName, methodDescriptor)
     if (matching != null) {
       return MethodResolutionResult.Found(currentClass, matching)
     }
@@ -282,7 +288,7 @@ class MethodResolution(
     by the method reference that has neither its ACC_PRIVATE flag nor its ACC_STATIC
     flag set, one of these is arbitrarily chosen and method lookup succeeds.
      */
-    val matchings = getSuperInterfaceMethods(currentClass) { it.name == methodName && it.desc == methodDescriptor && !it.isPrivate() && !it.isStatic() }
+    val matchings = getSuperInterfaceMethods(currentClass) { !it.isPrivate() && !it.isStatic() }
         ?: return MethodResolutionResult.Abort
     if (matchings.isNotEmpty()) {
       return matchings.first()
@@ -307,7 +313,7 @@ class MethodResolution(
       1) If C contains a declaration for an instance method with the same name and descriptor as the resolved method,
       then it is the method to be invoked .
     */
-    val matching = classRef.getMethods().orEmpty().find { it.name == resolvedMethod.name && it.desc == resolvedMethod.desc }
+    val matching = ClassMembers.of(classRef).findMethod(resolvedMethod.name, resolvedMethod.desc)
     if (matching != null) {
       return 1 to MethodResolutionResult.Found(classRef, matching)
     }
@@ -322,7 +328,7 @@ class MethodResolution(
       var current: ClassNode = clsResolver.resolveClassOrProblem(classRef.superName, classRef, problemRegistrar) { classRef.createClassLocation() }
           ?: return null
       while (true) {
-        val match = current.getMethods().orEmpty().find { it.name == resolvedMethod.name && it.desc == resolvedMethod.desc }
+        val match = ClassMembers.of(current).findMethod(resolvedMethod.name, resolvedMethod.desc)
         if (match != null) {
           return 2 to MethodResolutionResult.Found(current, match)
         }
@@ -340,7 +346,7 @@ class MethodResolution(
     if (classRef.isInterface()) {
       val objectClass = clsResolver.resolveClassOrProblem(CommonClassNames.JAVA_LANG_OBJECT, classRef, problemRegistrar) { classRef.createClassLocation() }
           ?: return null
-      val match = objectClass.getMethods().orEmpty().find { it.name == resolvedMethod.name && it.desc == resolvedMethod.desc && it.isPublic() }
+      val match = ClassMembers.of(objectClass).getMethods(resolvedMethod.name, resolvedMethod.desc).find { it.isPublic() }
       if (match != null) {
         return 3 to MethodResolutionResult.Found(objectClass, match)
       }
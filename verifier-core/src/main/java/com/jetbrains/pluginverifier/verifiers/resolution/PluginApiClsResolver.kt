@@ -34,6 +34,10 @@ class PluginApiClsResolver(private val checkedPluginResolver: Resolver,
       )
   )
 
+  override val classHierarchy = ClassHierarchyCache(this)
+
+  override val memberResolutionCache = MemberResolutionCache()
+
   override fun isExternalClass(className: String) =
       !basePluginPackageFilter.accept(className) && !cachingResolver.containsClass(className)
 
@@ -0,0 +1,41 @@
+package com.jetbrains.pluginverifier.verifiers.resolution
+
+import com.jetbrains.pluginverifier.results.deprecated.DeprecatedApiUsage
+import com.jetbrains.pluginverifier.results.experimental.ExperimentalApiUsage
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+
+/**
+ * [ProblemRegistrar] that records registrations
+ * to be [replayed] [replayTo] later.
+ *
+ * It is used by resolution caches to reproduce problems
+ * and API usages registered on computing a cached value.
+ */
+class RecordingProblemRegistrar : ProblemRegistrar {
+  private val problems = arrayListOf<CompatibilityProblem>()
+
+  private val deprecatedUsages = arrayListOf<DeprecatedApiUsage>()
+
+  private val experimentalApiUsages = arrayListOf<ExperimentalApiUsage>()
+
+  override fun registerProblem(problem: CompatibilityProblem) {
+    problems.add(problem)
+  }
+
+  override fun registerDeprecatedUsage(deprecatedApiUsage: DeprecatedApiUsage) {
+    deprecatedUsages.add(deprecatedApiUsage)
+  }
+
+  override fun registerExperimentalApiUsage(experimentalApiUsage: ExperimentalApiUsage) {
+    experimentalApiUsages.add(experimentalApiUsage)
+  }
+
+  fun isEmpty() = problems.isEmpty() && deprecatedUsages.isEmpty() && experimentalApiUsages.isEmpty()
+
+  fun replayTo(problemRegistrar: ProblemRegistrar) {
+    problems.forEach { problemRegistrar.registerProblem(it) }
+    deprecatedUsages.forEach { problemRegistrar.registerDeprecatedUsage(it) }
+    experimentalApiUsages.forEach { problemRegistrar.registerExperimentalApiUsage(it) }
+  }
+}
@@ -7,33 +7,40 @@ import com.jetbrains.pluginverifier.dependencies.DependencyEdge
 import com.jetbrains.pluginverifier.dependencies.DependencyNode
 import com.jetbrains.pluginverifier.dependencies.MissingDependency
 import com.jetbrains.pluginverifier.persistence.VerificationResultPersistence
+import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
+import com.jetbrains.pluginverifier.repository.PluginInfo
 import com.jetbrains.pluginverifier.repository.repositories.custom.CustomPluginInfo
+import com.jetbrains.pluginverifier.repository.repositories.marketplace.UpdateInfo
 import com.jetbrains.pluginverifier.results.VerificationResult
-import com.jetbrains.pluginverifier.results.deprecated.DeprecatedMethodUsage
-import com.jetbrains.pluginverifier.results.deprecated.DeprecationInfo
-import com.jetbrains.pluginverifier.results.experimental.ExperimentalMethodUsage
+import com.jetbrains.pluginverifier.results.access.AccessType
+import com.jetbrains.pluginverifier.results.deprecated.*
+import com.jetbrains.pluginverifier.results.experimental.*
 import com.jetbrains.pluginverifier.results.hierarchy.ClassHierarchy
 import com.jetbrains.pluginverifier.results.instruction.Instruction
 import com.jetbrains.pluginverifier.results.location.ClassLocation
+import com.jetbrains.pluginverifier.results.location.FieldLocation
 import com.jetbrains.pluginverifier.results.location.MethodLocation
 import com.jetbrains.pluginverifier.results.modifiers.Modifiers
-import com.jetbrains.pluginverifier.results.problems.MethodNotFoundProblem
+import com.jetbrains.pluginverifier.results.problems.*
 import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.results.reference.FieldReference
 import com.jetbrains.pluginverifier.results.reference.MethodReference
 import com.jetbrains.pluginverifier.results.structure.PluginStructureError
 import com.jetbrains.pluginverifier.results.structure.PluginStructureWarning
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileOrigin
-import org.junit.Assert.assertEquals
+import org.junit.Assert.*
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.TemporaryFolder
+import java.io.ObjectOutputStream
 import java.net.URL
+import java.nio.file.Files
 
 /**
  * Ensures that [VerificationResult] and relevant classes can be serialized and deserialized.
  *
  * It constructs a mock verification result using placeholders declared in [Companion],
- * serializes it using Java Serializable mechanism, deserialize's it and checks equality.
+ * serializes it using [VerificationResultPersistence], deserialize's it and checks equality.
  */
 class SerializationTest {
 
@@ -96,25 +103,84 @@ class SerializationTest {
 
     val experimentalApiUsage = ExperimentalMethodUsage(methodLocation, methodLocation)
     val experimentalApiUsages = setOf(experimentalApiUsage)
+
+    val fieldReference = FieldReference(classReference, "field", "I")
+    val fieldLocation = FieldLocation(classLocation, "field", "I", "", modifiers)
+    val otherMethodLocation = methodLocation.copy(methodName = "other")
+    val deprecationInfo = DeprecationInfo(false, null)
+
+    /**
+     * All plugins that can be saved: each one
+     * is saved with a separate tag of the format.
+     */
+    val allPlugins = listOf(
+        UpdateInfo("id", "name", "version", IdeVersion.createIdeVersion("181.1"), null, "vendor", URL("http://download-url.com"), 42, URL("http://browser-url.com"), listOf("tag")),
+        pluginInfo,
+        PluginIdAndVersion("id", "version")
+    )
+
+    val allTargets = listOf(target) + allPlugins.map { VerificationTarget.Plugin(it) }
+
+    /**
+     * One problem of each type that can be saved.
+     */
+    val allProblems = setOf(
+        AbstractClassInstantiationProblem(classLocation, methodLocation),
+        AbstractMethodInvocationProblem(methodLocation, otherMethodLocation, Instruction.INVOKE_SPECIAL),
+        ChangeFinalFieldProblem(fieldLocation, methodLocation, Instruction.PUT_FIELD),
+        ClassNotFoundProblem(classReference, fieldLocation),
+        FailedToReadClassFileProblem(classReference, classLocation, "reason"),
+        FieldNotFoundProblem(fieldReference, methodLocation, classHierarchy, Instruction.GET_FIELD),
+        IllegalClassAccessProblem(classLocation, AccessType.PACKAGE_PRIVATE, methodLocation),
+        IllegalFieldAccessProblem(fieldReference, fieldLocation, methodLocation, Instruction.GET_STATIC, AccessType.PRIVATE),
+        IllegalMethodAccessProblem(methodReference, methodLocation, AccessType.PROTECTED, otherMethodLocation, Instruction.INVOKE_VIRTUAL),
+        InheritFromFinalClassProblem(classLocation, ClassLocation("final/Class", "", modifiers)),
+        InstanceAccessOfStaticFieldProblem(fieldLocation, methodLocation, Instruction.PUT_FIELD),
+        InterfaceInstantiationProblem(classLocation, methodLocation),
+        InvalidClassFileProblem(classReference, methodLocation, "asm error"),
+        InvokeClassMethodOnInterfaceProblem(methodReference, methodLocation, Instruction.INVOKE_STATIC),
+        InvokeInstanceInstructionOnStaticMethodProblem(methodLocation, otherMethodLocation, Instruction.INVOKE_VIRTUAL),
+        InvokeInterfaceMethodOnClassProblem(methodReference, methodLocation, Instruction.INVOKE_INTERFACE),
+        InvokeInterfaceOnPrivateMethodProblem(methodLocation, otherMethodLocation),
+        InvokeStaticOnInstanceMethodProblem(methodLocation, otherMethodLocation),
+        methodNotFoundProblem,
+        MethodNotImplementedProblem(methodLocation, classLocation),
+        MultipleDefaultImplementationsProblem(methodLocation, methodReference, Instruction.INVOKE_INTERFACE, otherMethodLocation, otherMethodLocation.copy(methodName = "third")),
+        OverridingFinalMethodProblem(methodLocation, classLocation),
+        PackageNotFoundProblem("a/b", setOf(ClassNotFoundProblem(classReference, methodLocation), ClassNotFoundProblem(ClassReference("a/b/D"), classLocation))),
+        PluginIsMarkedIncompatibleProblem(allPlugins[0], ideVersion),
+        StaticAccessOfInstanceFieldProblem(fieldLocation, methodLocation, Instruction.GET_STATIC),
+        SuperClassBecameInterfaceProblem(classLocation, ClassLocation("some/Interface", "", modifiers)),
+        SuperInterfaceBecameClassProblem(classLocation, ClassLocation("some/Class", "", modifiers))
+    )
+
+    val allDeprecatedUsages = setOf(
+        DeprecatedClassUsage(classLocation, methodLocation, deprecationInfo),
+        DeprecatedFieldUsage(fieldLocation, classLocation, deprecationInfo),
+        DeprecatedMethodUsage(methodLocation, fieldLocation, DeprecationInfo(true, "2018.1")),
+        DeprecatedMethodOverridden(methodLocation, otherMethodLocation, deprecationInfo)
+    )
+
+    val allExperimentalUsages = setOf(
+        ExperimentalClassUsage(classLocation, methodLocation),
+        ExperimentalFieldUsage(fieldLocation, classLocation),
+        ExperimentalMethodUsage(methodLocation, fieldLocation),
+        ExperimentalMethodOverridden(methodLocation, otherMethodLocation)
+    )
   }
 
-  @Test
-  fun `test verification result can be serialized and deserialized`() {
-    val result = VerificationResult.MissingDependencies()
-    result.also {
-      it.plugin = pluginInfo
-      it.verificationTarget = target
-      it.compatibilityProblems = compatibilityProblems
-      it.pluginStructureErrors = structureErrors
-      it.pluginStructureWarnings = structureWarnings
-      it.dependenciesGraph = dependenciesGraph
-      it.deprecatedUsages = deprecatedMethodUsages
-      it.experimentalApiUsages = experimentalApiUsages
-    }
-    val file = tempFolder.newFile().toPath()
-    VerificationResultPersistence.saveVerificationResult(result, file)
-    val deserialized = VerificationResultPersistence.readVerificationResult(file)
+  private fun createResult() = VerificationResult.MissingDependencies().also {
+    it.plugin = pluginInfo
+    it.verificationTarget = target
+    it.compatibilityProblems = compatibilityProblems
+    it.pluginStructureErrors = structureErrors
+    it.pluginStructureWarnings = structureWarnings
+    it.dependenciesGraph = dependenciesGraph
+    it.deprecatedUsages = deprecatedMethodUsages
+    it.experimentalApiUsages = experimentalApiUsages
+  }
 
+  private fun assertDeserialized(deserialized: VerificationResult) {
     assertEquals(pluginInfo, deserialized.plugin)
     assertEquals(target, deserialized.verificationTarget)
     assertEquals(compatibilityProblems, deserialized.compatibilityProblems)
@@ -125,4 +191,97 @@ class SerializationTest {
     assertEquals(experimentalApiUsages, deserialized.experimentalApiUsages)
   }
 
+  @Test
+  fun `test verification result can be serialized and deserialized`() {
+    val file = tempFolder.newFile().toPath()
+    VerificationResultPersistence.saveVerificationResult(createResult(), file)
+    assertDeserialized(VerificationResultPersistence.readVerificationResult(file))
+  }
+
+  @Test
+  fun `many verification results are streamed and share repeated elements`() {
+    val resultsNumber = 1000
+    val file = tempFolder.newFile().toPath()
+    VerificationResultPersistence.saveVerificationResults(generateSequence { createResult() }.take(resultsNumber), file)
+
+    var readNumber = 0
+    VerificationResultPersistence.readVerificationResults(file) {
+      assertDeserialized(it)
+      readNumber++
+    }
+    assertEquals(resultsNumber, readNumber)
+
+    val singleResultFile = tempFolder.newFile().toPath()
+    VerificationResultPersistence.saveVerificationResult(createResult(), singleResultFile)
+    assertTrue(Files.size(file) < Files.size(singleResultFile) * resultsNumber / 4)
+  }
+
+  @Test
+  fun `verification result saved by Java serialization can be deserialized`() {
+    val file = tempFolder.newFile().toPath()
+    ObjectOutputStream(Files.newOutputStream(file)).use { it.writeObject(createResult()) }
+    assertDeserialized(VerificationResultPersistence.readVerificationResult(file))
+  }
+
+  private fun assertPluginsEqual(expected: PluginInfo, actual: PluginInfo) {
+    assertEquals(expected, actual)
+    assertEquals(expected.javaClass, actual.javaClass)
+    assertEquals(expected.pluginName, actual.pluginName)
+    assertEquals(expected.vendor, actual.vendor)
+    assertEquals(expected.sinceBuild, actual.sinceBuild)
+    assertEquals(expected.untilBuild, actual.untilBuild)
+    assertEquals(expected.presentableName, actual.presentableName)
+  }
+
+  /**
+   * Saves results of all types, with problems, usages, plugins and targets of all
+   * types, reads them back and compares them including fields ignored by `equals`.
+   */
+  @Test
+  fun `results with elements of all types are saved and read`() {
+    val results = listOf(
+        VerificationResult.OK(),
+        VerificationResult.StructureWarnings(),
+        VerificationResult.MissingDependencies(),
+        VerificationResult.CompatibilityProblems(),
+        VerificationResult.InvalidPlugin(),
+        VerificationResult.NotFound(),
+        VerificationResult.FailedToDownload()
+    )
+    results.forEachIndexed { index, result ->
+      result.plugin = allPlugins[index % allPlugins.size]
+      result.verificationTarget = allTargets[index % allTargets.size]
+      result.compatibilityProblems = allProblems
+      result.ignoredProblems = setOf(ClassNotFoundProblem(ClassReference("ignored/Class"), methodLocation))
+      result.deprecatedUsages = allDeprecatedUsages
+      result.experimentalApiUsages = allExperimentalUsages
+      result.failedToDownloadReason = "failed to download $index"
+      result.notFoundReason = "not found $index"
+    }
+    val file = tempFolder.newFile().toPath()
+    VerificationResultPersistence.saveVerificationResults(results.asSequence(), file)
+
+    val readResults = arrayListOf<VerificationResult>()
+    VerificationResultPersistence.readVerificationResults(file) { readResults.add(it) }
+
+    assertEquals(results.size, readResults.size)
+    for ((expected, actual) in results.zip(readResults)) {
+      assertEquals(expected.javaClass, actual.javaClass)
+      assertPluginsEqual(expected.plugin, actual.plugin)
+      assertEquals(expected.verificationTarget, actual.verificationTarget)
+      val expectedTarget = expected.verificationTarget
+      if (expectedTarget is VerificationTarget.Plugin) {
+        assertPluginsEqual(expectedTarget.plugin, (actual.verificationTarget as VerificationTarget.Plugin).plugin)
+      }
+      assertEquals(expected.compatibilityProblems, actual.compatibilityProblems)
+      assertEquals(expected.compatibilityProblems.associate { it to it.fullDescription }, actual.compatibilityProblems.associate { it to it.fullDescription })
+      assertEquals(expected.ignoredProblems, actual.ignoredProblems)
+      assertEquals(expected.deprecatedUsages, actual.deprecatedUsages)
+      assertEquals(expected.deprecatedUsages.associate { it to it.deprecationInfo }, actual.deprecatedUsages.associate { it to it.deprecationInfo })
+      assertEquals(expected.experimentalApiUsages, actual.experimentalApiUsages)
+      assertEquals(expected.failedToDownloadReason, actual.failedToDownloadReason)
+      assertEquals(expected.notFoundReason, actual.notFoundReason)
+    }
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.jetbrains.pluginverifier.persistence
+
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.ResultHolder
+import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.parameters.filtering.ProblemsFilter
+import com.jetbrains.pluginverifier.repository.repositories.custom.CustomPluginInfo
+import com.jetbrains.pluginverifier.results.deprecated.DeprecatedMethodUsage
+import com.jetbrains.pluginverifier.results.deprecated.DeprecationInfo
+import com.jetbrains.pluginverifier.results.experimental.ExperimentalMethodUsage
+import com.jetbrains.pluginverifier.results.hierarchy.ClassHierarchy
+import com.jetbrains.pluginverifier.results.instruction.Instruction
+import com.jetbrains.pluginverifier.results.location.ClassLocation
+import com.jetbrains.pluginverifier.results.location.MethodLocation
+import com.jetbrains.pluginverifier.results.modifiers.Modifiers
+import com.jetbrains.pluginverifier.results.problems.ClassNotFoundProblem
+import com.jetbrains.pluginverifier.results.problems.MethodNotFoundProblem
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.results.reference.MethodReference
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileOrigin
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.net.URL
+import java.nio.file.Files
+
+class VerificationResultCacheTest {
+
+  @JvmField
+  @Rule
+  val tempFolder = TemporaryFolder()
+
+  private val classReference = ClassReference("a/b/C")
+
+  private val methodLocation = MethodLocation(
+      ClassLocation("d/e/F", "", Modifiers(1)),
+      "name",
+      "()V",
+      emptyList(),
+      "",
+      Modifiers(1)
+  )
+
+  private val methodNotFoundProblem = MethodNotFoundProblem(
+      MethodReference(classReference, "name", "()V"),
+      methodLocation,
+      Instruction.INVOKE_VIRTUAL,
+      ClassHierarchy("a/b/C", false, ClassFileOrigin.IDE_CLASS, null, emptyList())
+  )
+
+  private val deprecatedMethodUsage = DeprecatedMethodUsage(methodLocation, methodLocation, DeprecationInfo(true, "2018.1"))
+
+  private val experimentalApiUsage = ExperimentalMethodUsage(methodLocation, methodLocation)
+
+  private val pluginInfo = CustomPluginInfo("id", "name", "version", "vendor", URL("http://download-url.com"), URL("http://browser-url.com"))
+
+  private val target = VerificationTarget.Ide(IdeVersion.createIdeVersion("IU-181.1"))
+
+  @Test
+  fun `verification results are cached by key`() {
+    val ignoredProblem = ClassNotFoundProblem(classReference, methodLocation)
+    val ignoreDecisions = listOf(ProblemsFilter.Result.Ignore("first reason"), ProblemsFilter.Result.Ignore("second reason"))
+    val resultHolder = ResultHolder().apply {
+      addProblem(methodNotFoundProblem)
+      addIgnoredProblem(ignoredProblem, ignoreDecisions)
+      addDeprecatedUsage(deprecatedMethodUsage)
+      addExperimentalUsage(experimentalApiUsage)
+    }
+
+    val cacheDirectory = tempFolder.newFolder().toPath()
+    val cache = VerificationResultCache(cacheDirectory)
+    assertNull(cache.get("key"))
+    cache.put("key", pluginInfo, target, resultHolder)
+    assertNull(cache.get("other key"))
+
+    val cached = VerificationResultCache(cacheDirectory).get("key")!!
+    assertEquals(setOf(methodNotFoundProblem), cached.compatibilityProblems)
+    assertEquals(mapOf(ignoredProblem to ignoreDecisions), cached.ignoredProblemsHolder.ignoredProblems)
+    assertEquals(setOf(deprecatedMethodUsage), cached.deprecatedUsages)
+    assertEquals(setOf(experimentalApiUsage), cached.experimentalApiUsages)
+  }
+
+  @Test
+  fun `corrupted cached verification results are considered missing`() {
+    val cacheDirectory = tempFolder.newFolder().toPath()
+    val cache = VerificationResultCache(cacheDirectory)
+    cache.put("key", pluginInfo, target, ResultHolder().apply { addProblem(methodNotFoundProblem) })
+
+    val entryFile = Files.walk(cacheDirectory).use { paths -> paths.filter { Files.isRegularFile(it) }.findFirst().get() }
+    Files.write(entryFile, Files.readAllBytes(entryFile).copyOf(10))
+    assertNull(cache.get("key"))
+    assertFalse(Files.exists(entryFile))
+  }
+
+}
@@ -3,6 +3,8 @@ package com.jetbrains.pluginverifier.ide
 import com.jetbrains.plugin.structure.base.utils.extractTo
 import com.jetbrains.plugin.structure.intellij.version.IdeVersion
 import com.jetbrains.pluginverifier.misc.deleteLogged
+import com.jetbrains.pluginverifier.misc.extractZipInParallel
+import com.jetbrains.pluginverifier.misc.simpleName
 import com.jetbrains.pluginverifier.misc.stripTopLevelDirectory
 import com.jetbrains.pluginverifier.repository.downloader.DownloadResult
 import com.jetbrains.pluginverifier.repository.downloader.Downloader
@@ -49,7 +51,11 @@ class IdeDownloader : Downloader<AvailableIde> {
   private fun extractIdeToTempDir(archivedIde: Path, tempDirectory: Path): DownloadResult {
     val destinationDir = Files.createTempDirectory(tempDirectory, "")
     return try {
-      archivedIde.toFile().extractTo(destinationDir.toFile())
+      if (archivedIde.simpleName.endsWith(".zip")) {
+        extractZipInParallel(archivedIde, destinationDir)
+      } else {
+        archivedIde.toFile().extractTo(destinationDir.toFile())
+      }
       /**
        * Some IDE builds (like MPS) are distributed in form
        * of `<build>.zip/<single>/...`
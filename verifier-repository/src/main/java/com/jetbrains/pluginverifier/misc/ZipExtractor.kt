@@ -0,0 +1,165 @@
+package com.jetbrains.pluginverifier.misc
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry
+import org.apache.commons.compress.archivers.zip.ZipFile
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.attribute.FileTime
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+private val DEFAULT_EXTRACTION_THREADS = minOf(Runtime.getRuntime().availableProcessors(), 4)
+
+private const val EXECUTABLE_MODE_BITS = 0b001_001_001
+
+/**
+ * Extracts the zip [archive] to the [destination] directory
+ * in [threadsNumber] threads.
+ *
+ * Each thread opens the archive with its own [ZipFile],
+ * so the entries are read and inflated in parallel.
+ * The threads take the entries one by one from the shared list,
+ * so big entries don't make one of the threads lag behind.
+ *
+ * Executable permissions, modification times and symbolic links
+ * of the entries are preserved. Entries and symbolic links pointing
+ * outside of the [destination] are rejected.
+ *
+ * Symbolic links are created in the calling thread after all the other
+ * entries are extracted, so no entry is extracted through a link.
+ * A link is rejected if its parent directory goes through another link,
+ * or its target goes up after a name, so every link created here
+ * resolves inside the [destination], even through chains of links.
+ */
+@Throws(IOException::class, InterruptedException::class)
+fun extractZipInParallel(archive: Path, destination: Path, threadsNumber: Int = DEFAULT_EXTRACTION_THREADS) {
+  val entries = ZipFile(archive.toFile()).use { zipFile ->
+    zipFile.entries.toList().distinctBy { it.name }
+  }
+  val (symlinks, regularEntries) = entries.partition { it.isUnixSymlink }
+  val entryNames = regularEntries.map { it.name }
+  val destinationDirectory = destination.createDir().toRealPath()
+  val nextEntryIndex = AtomicInteger()
+
+  val executor = Executors.newFixedThreadPool(
+      threadsNumber,
+      ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("zip-extractor-%d")
+          .build()
+  )
+  try {
+    val tasks = (0 until threadsNumber).map {
+      executor.submit {
+        ZipFile(archive.toFile()).use { zipFile ->
+          while (true) {
+            val index = nextEntryIndex.getAndIncrement()
+            if (index >= entryNames.size) {
+              break
+            }
+            checkIfInterrupted()
+            extractEntry(zipFile, zipFile.getEntry(entryNames[index]), destinationDirectory)
+          }
+        }
+      }
+    }
+    for (task in tasks) {
+      try {
+        task.get()
+      } catch (e: ExecutionException) {
+        throw e.cause ?: e
+      }
+    }
+  } finally {
+    executor.shutdownNow()
+  }
+
+  if (symlinks.isNotEmpty()) {
+    ZipFile(archive.toFile()).use { zipFile ->
+      for (symlink in symlinks) {
+        checkIfInterrupted()
+        extractSymlink(zipFile, zipFile.getEntry(symlink.name), destinationDirectory)
+      }
+    }
+  }
+
+  /**
+   * Modification times of directories are set after all the entries
+   * are extracted, because extraction of nested entries updates them.
+   */
+  for (entry in entries) {
+    if (entry.isDirectory) {
+      setLastModifiedTime(destinationDirectory.resolve(entry.name), entry)
+    }
+  }
+}
+
+private fun getEntryTarget(entry: ZipArchiveEntry, destinationDirectory: Path): Path {
+  val target = destinationDirectory.resolve(entry.name).normalize()
+  if (!target.startsWith(destinationDirectory)) {
+    throw IOException("Entry ${entry.name} is outside of the destination directory")
+  }
+  return target
+}
+
+private fun extractEntry(zipFile: ZipFile, entry: ZipArchiveEntry, destinationDirectory: Path) {
+  val target = getEntryTarget(entry, destinationDirectory)
+  if (entry.isDirectory) {
+    Files.createDirectories(target)
+    return
+  }
+  Files.createDirectories(target.parent)
+  zipFile.getInputStream(entry).use {
+    Files.copy(it, target, StandardCopyOption.REPLACE_EXISTING)
+  }
+  if (entry.unixMode and EXECUTABLE_MODE_BITS != 0) {
+    target.toFile().setExecutable(true)
+  }
+  setLastModifiedTime(target, entry)
+}
+
+private fun extractSymlink(zipFile: ZipFile, entry: ZipArchiveEntry, destinationDirectory: Path) {
+  val target = getEntryTarget(entry, destinationDirectory)
+  if (target == destinationDirectory) {
+    throw IOException("Symbolic link ${entry.name} replaces the destination directory")
+  }
+  var parent = target.parent
+  while (parent != destinationDirectory) {
+    if (Files.isSymbolicLink(parent)) {
+      throw IOException("Symbolic link ${entry.name} is placed under another symbolic link")
+    }
+    parent = parent.parent
+  }
+  val linkTarget = Paths.get(zipFile.getUnixSymlink(entry))
+  if (linkTarget.isAbsolute
+      || linkTarget.goesUpAfterName()
+      || !target.parent.resolve(linkTarget).normalize().startsWith(destinationDirectory)
+  ) {
+    throw IOException("Symbolic link ${entry.name} points to $linkTarget outside of the destination directory")
+  }
+  Files.createDirectories(target.parent)
+  Files.deleteIfExists(target)
+  Files.createSymbolicLink(target, linkTarget)
+}
+
+/**
+ * Whether this path has a ".." after a name, like "link/..",
+ * which is resolved by the file system after resolving the name,
+ * so it may differ from the [normalized] [Path.normalize] path if the name is a link.
+ */
+private fun Path.goesUpAfterName(): Boolean =
+    map { it.toString() }
+        .filter { it != "." }
+        .dropWhile { it == ".." }
+        .contains("..")
+
+private fun setLastModifiedTime(target: Path, entry: ZipArchiveEntry) {
+  if (entry.time != -1L) {
+    Files.setLastModifiedTime(target, FileTime.fromMillis(entry.time))
+  }
+}
@@ -7,6 +7,7 @@ import com.jetbrains.pluginverifier.misc.closeLogged
 import com.jetbrains.pluginverifier.repository.PluginInfo
 import com.jetbrains.pluginverifier.repository.files.FileLock
 import java.io.Closeable
+import java.nio.file.Path
 
 /**
  * Holder of plugin's resources necessary for verification.
@@ -42,6 +43,13 @@ class PluginDetails(
 
 ) : Closeable {
 
+  /**
+   * File of the plugin, if the plugin
+   * is provided by a file.
+   */
+  val pluginFile: Path?
+    get() = pluginFileLock?.file
+
   override fun close() {
     pluginClassesLocations.closeLogged()
     pluginFileLock.closeLogged()
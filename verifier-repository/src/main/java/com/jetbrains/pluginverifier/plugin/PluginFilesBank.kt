@@ -39,7 +39,7 @@ class PluginFilesBank(
     ): PluginFilesBank {
       val sweepPolicy = LruFileSizeSweepPolicy<PluginInfo>(diskSpaceSetting)
 
-      val urlDownloader = UrlDownloader(urlProvider)
+      val urlDownloader = UrlDownloader(urlProvider = urlProvider)
 
       val downloadProvider = DownloadProvider(pluginsDir, urlDownloader, PluginFileNameMapper)
 
@@ -0,0 +1,28 @@
+package com.jetbrains.pluginverifier.repository.cleanup
+
+import com.jetbrains.pluginverifier.repository.resources.AvailableResource
+
+/**
+ * Takes the resources from this sequence, ordered by the last access time,
+ * until [isEnough] returns `true` for the last taken resource,
+ * and then the rest of the resources accessed at the same time as it.
+ *
+ * Sorting the result with a comparator that compares the resources
+ * by the last access time first gives the same resources as the
+ * beginning of all the resources sorted with that comparator.
+ * This way the policies sort only the candidates for eviction.
+ */
+internal fun <T : AvailableResource<*, *>> Sequence<T>.takeLeastRecentlyUsed(isEnough: (T) -> Boolean): List<T> {
+  val result = arrayListOf<T>()
+  var enough = false
+  for (resource in this) {
+    if (enough && resource.usageStatistic.lastAccessTime > result.last().usageStatistic.lastAccessTime) {
+      break
+    }
+    result.add(resource)
+    if (!enough) {
+      enough = isEnough(resource)
+    }
+  }
+  return result
+}
@@ -22,13 +22,24 @@ class LruFileSizeSweepPolicy<K>(private val diskSpaceSetting: DiskSpaceSetting)
 
   override fun selectFilesForDeletion(sweepInfo: SweepInfo<K>): List<AvailableFile<K>> {
     if (isNecessary(sweepInfo.totalSpaceUsed)) {
-      val freeFiles = sweepInfo.availableFiles.filterNot { it.isLocked }
-      if (freeFiles.isNotEmpty()) {
+      if (sweepInfo.leastRecentlyUsedFiles.any { !it.isLocked }) {
 
-        val sortedCandidates = sweepInfo.availableFiles.sortedWith(lruHeaviestFilesComparator)
-        val deleteFiles = arrayListOf<AvailableFile<K>>()
         val estimatedFreeSpaceAmount = estimateFreeSpaceAmount(sweepInfo.totalSpaceUsed)
         var needToFreeSpace = diskSpaceSetting.minimumFreeSpaceAfterCleanup - estimatedFreeSpaceAmount
+        if (needToFreeSpace <= SpaceAmount.ZERO_SPACE) {
+          return emptyList()
+        }
+
+        //Only the least recently used files are sorted.
+        var candidatesSpace = SpaceAmount.ZERO_SPACE
+        val sortedCandidates = sweepInfo.leastRecentlyUsedFiles
+            .takeLeastRecentlyUsed {
+              candidatesSpace += it.fileInfo.fileSize
+              candidatesSpace >= needToFreeSpace
+            }
+            .sortedWith(lruHeaviestFilesComparator)
+
+        val deleteFiles = arrayListOf<AvailableFile<K>>()
         for (candidate in sortedCandidates) {
           if (needToFreeSpace > SpaceAmount.ZERO_SPACE) {
             deleteFiles.add(candidate)
@@ -17,26 +17,33 @@ class SizeEvictionPolicy<R, K>(private val maximumSize: Int) : EvictionPolicy<R,
   override fun isNecessary(totalWeight: ResourceWeight) =
       (totalWeight as SizeWeight).size > maximumSize
 
-  override fun selectResourcesForEviction(evictionInfo: EvictionInfo<R, K>) =
-      evictionInfo.availableResources
-          .filterNot { it.isLocked }
-          .sortedWith(
-              //Firstly remove resources that haven't been accessed for the longest time.
-              //Then, if they were accessed at the same time, compare by number of accesses
-              compareBy<AvailableResource<R, K>> {
-                it.usageStatistic.lastAccessTime
-              }.thenBy {
-                it.usageStatistic.timesAccessed
-              }.thenBy {
-                //As the last resort, compare by keys, to have consistent results.
-                if (it.key is Comparable<*>) {
-                  it.key
-                } else {
-                  it.toString()
-                }
+  override fun selectResourcesForEviction(evictionInfo: EvictionInfo<R, K>): List<AvailableResource<R, K>> {
+    val howManyToRemove = howManyToRemove(evictionInfo)
+    if (howManyToRemove == 0) {
+      return emptyList()
+    }
+    var candidatesNumber = 0
+    return evictionInfo.leastRecentlyUsedResources
+        .filterNot { it.isLocked }
+        .takeLeastRecentlyUsed { ++candidatesNumber >= howManyToRemove }
+        .sortedWith(
+            //Firstly remove resources that haven't been accessed for the longest time.
+            //Then, if they were accessed at the same time, compare by number of accesses
+            compareBy<AvailableResource<R, K>> {
+              it.usageStatistic.lastAccessTime
+            }.thenBy {
+              it.usageStatistic.timesAccessed
+            }.thenBy {
+              //As the last resort, compare by keys, to have consistent results.
+              if (it.key is Comparable<*>) {
+                it.key
+              } else {
+                it.toString()
               }
-          )
-          .take(howManyToRemove(evictionInfo))
+            }
+        )
+        .take(howManyToRemove)
+  }
 
   private fun howManyToRemove(evictionInfo: EvictionInfo<R, K>): Int {
     val size = (evictionInfo.totalWeight as SizeWeight).size
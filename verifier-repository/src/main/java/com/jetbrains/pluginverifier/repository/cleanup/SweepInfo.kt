@@ -22,11 +22,18 @@ data class SweepInfo<out K>(private val evictionInfo: EvictionInfo<Path, K>) {
    * All the currently available files
    */
   val availableFiles: List<AvailableFile<K>> by lazy {
-    evictionInfo.availableResources.map {
+    leastRecentlyUsedFiles.toList()
+  }
+
+  /**
+   * The currently available files starting from the least recently used one.
+   * The sequence is lazy, so only the visited files are read.
+   */
+  val leastRecentlyUsedFiles: Sequence<AvailableFile<K>>
+    get() = evictionInfo.leastRecentlyUsedResources.map {
       with(it) {
         AvailableFile(key, resourceInfo, usageStatistic, isLocked)
       }
     }
-  }
 
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.jetbrains.pluginverifier.repository.downloader
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder
 import com.jetbrains.pluginverifier.misc.*
 import com.jetbrains.pluginverifier.network.*
 import okhttp3.ResponseBody
@@ -9,17 +10,42 @@ import retrofit2.Call
 import retrofit2.Response
 import retrofit2.Retrofit
 import retrofit2.http.GET
+import retrofit2.http.Header
 import retrofit2.http.Streaming
 import retrofit2.http.Url
+import java.io.EOFException
+import java.io.IOException
+import java.io.InputStream
+import java.io.RandomAccessFile
 import java.net.URL
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
 import java.nio.file.Files
 import java.nio.file.Path
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
 import java.util.concurrent.TimeUnit
 
 /**
  * [Downloader] of files for URLs provided with [urlProvider].
+ *
+ * If the server accepts byte ranges, files of at least two [minChunkSize]s
+ * are downloaded in up to [maxParallelChunks] chunks in parallel,
+ * each requested with the HTTP Range header and written to its place
+ * in the preallocated file. A chunk whose connection is broken is resumed
+ * from the last received byte, which also applies to the whole file
+ * downloaded in one chunk. The size of the downloaded file is checked
+ * against the Content-Length of the response.
+ *
+ * Every range response must be 206 Partial Content with the Content-Range
+ * of the requested bytes. If the server ignores the Range header
+ * and responds with 200 OK, the file is downloaded again in one stream.
  */
-class UrlDownloader<in K>(private val urlProvider: (K) -> URL?) : Downloader<K> {
+class UrlDownloader<in K>(
+    private val maxParallelChunks: Int = DEFAULT_PARALLEL_CHUNKS,
+    private val minChunkSize: Long = DEFAULT_MIN_CHUNK_SIZE,
+    private val urlProvider: (K) -> URL?
+) : Downloader<K> {
 
   private companion object {
     private const val FILENAME = "filename="
@@ -27,6 +53,16 @@ class UrlDownloader<in K>(private val urlProvider: (K) -> URL?) : Downloader<K>
     private const val HTTP_PROTOCOL = "http"
     private const val HTTPS_PROTOCOL = "https"
 
+    private const val DEFAULT_PARALLEL_CHUNKS = 4
+
+    private const val DEFAULT_MIN_CHUNK_SIZE = 16L * 1024 * 1024
+
+    /**
+     * Maximum number of consecutive failed attempts
+     * to download a chunk without receiving any bytes.
+     */
+    private const val MAX_CHUNK_ATTEMPTS = 3
+
     private val LOG = LoggerFactory.getLogger(UrlDownloader::class.java)
 
     private val urlPathExtensions = listOf("jar", "zip", "tar.gz", "tar.bz2", "txt", "html", "xml", "json")
@@ -139,7 +175,7 @@ class UrlDownloader<in K>(private val urlProvider: (K) -> URL?) : Downloader<K>
     val downloadedTempFile = Files.createTempFile(tempDirectory, "", ".$extension")
     return try {
       LOG.debug("Downloading $key to $downloadedTempFile")
-      copyResponseTo(response, downloadedTempFile)
+      copyResponseTo(response, downloadUrl, downloadedTempFile)
       DownloadResult.Downloaded(downloadedTempFile, extension, false)
     } catch (e: Throwable) {
       downloadedTempFile.deleteLogged()
@@ -147,11 +183,179 @@ class UrlDownloader<in K>(private val urlProvider: (K) -> URL?) : Downloader<K>
     }
   }
 
-  private fun copyResponseTo(response: Response<ResponseBody>, file: Path) {
+  private fun copyResponseTo(response: Response<ResponseBody>, downloadUrl: URL, file: Path) {
     checkIfInterrupted()
-    response.body().use { responseBody ->
-      val expectedSize = responseBody.contentLength()
-      copyInputStreamToFileWithProgress(responseBody.byteStream(), expectedSize, file.toFile()) { }
+    val responseBody = response.body()
+    val expectedSize = responseBody.contentLength()
+    if (expectedSize < 0) {
+      responseBody.use {
+        copyInputStreamToFileWithProgress(it.byteStream(), expectedSize, file.toFile()) { }
+      }
+      return
+    }
+
+    val acceptsRanges = response.headers().get("Accept-Ranges") == "bytes"
+    val chunks = if (acceptsRanges) splitIntoChunks(expectedSize) else listOf(0 until expectedSize)
+    RandomAccessFile(file.toFile(), "rw").use { randomAccessFile ->
+      randomAccessFile.setLength(expectedSize)
+      val fileChannel = randomAccessFile.channel
+      try {
+        if (chunks.size == 1) {
+          downloadChunk(downloadUrl, fileChannel, chunks.single(), responseBody, acceptsRanges)
+        } else {
+          LOG.debug("Downloading $downloadUrl in ${chunks.size} parallel chunks")
+          downloadChunksInParallel(downloadUrl, fileChannel, chunks, responseBody)
+        }
+      } catch (e: RangeNotSupportedException) {
+        LOG.debug("Downloading $downloadUrl in one stream: ${e.message}")
+        downloadInOneStream(downloadUrl, fileChannel, expectedSize)
+      }
+    }
+  }
+
+  private fun downloadInOneStream(downloadUrl: URL, fileChannel: FileChannel, expectedSize: Long) {
+    val responseBody = downloadConnector.download(downloadUrl.toExternalForm()).executeSuccessfully().body()
+    if (responseBody.contentLength() != expectedSize) {
+      responseBody.closeLogged()
+      throw IOException("Size of $downloadUrl has changed from $expectedSize to ${responseBody.contentLength()} bytes")
+    }
+    downloadChunk(downloadUrl, fileChannel, 0 until expectedSize, responseBody, false)
+  }
+
+  private fun splitIntoChunks(size: Long): List<LongRange> {
+    val chunksNumber = (size / minChunkSize).coerceIn(1L, maxParallelChunks.toLong())
+    val chunkSize = (size + chunksNumber - 1) / chunksNumber
+    return (0 until chunksNumber).map { index ->
+      index * chunkSize until minOf((index + 1) * chunkSize, size)
+    }
+  }
+
+  /**
+   * Downloads the [chunks] in parallel. The first chunk is read
+   * from the already opened [responseBody] of the whole file.
+   */
+  private fun downloadChunksInParallel(
+      downloadUrl: URL,
+      fileChannel: FileChannel,
+      chunks: List<LongRange>,
+      responseBody: ResponseBody
+  ) {
+    val executor = Executors.newFixedThreadPool(
+        chunks.size,
+        ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("url-downloader-%d")
+            .build()
+    )
+    try {
+      val tasks = chunks.mapIndexed { index, chunk ->
+        executor.submit {
+          val initialBody = if (index == 0) responseBody else null
+          downloadChunk(downloadUrl, fileChannel, chunk, initialBody, true)
+        }
+      }
+      for (task in tasks) {
+        try {
+          task.get()
+        } catch (e: ExecutionException) {
+          throw e.cause ?: e
+        }
+      }
+    } finally {
+      executor.shutdownNow()
+      responseBody.closeLogged()
+    }
+  }
+
+  /**
+   * Downloads bytes of the [chunk] to the [fileChannel].
+   *
+   * The bytes are read from the [initialBody], if specified,
+   * and otherwise are requested with the Range header.
+   * If the download fails and the server [accepts ranges] [acceptsRanges],
+   * it is resumed from the first missing byte.
+   */
+  private fun downloadChunk(
+      downloadUrl: URL,
+      fileChannel: FileChannel,
+      chunk: LongRange,
+      initialBody: ResponseBody?,
+      acceptsRanges: Boolean
+  ) {
+    var position = chunk.first
+    var responseBody = initialBody
+    var failedAttempts = 0
+    try {
+      while (position <= chunk.last) {
+        checkIfInterrupted()
+        val startPosition = position
+        try {
+          val body = responseBody ?: requestRange(downloadUrl, position, chunk.last)
+          responseBody = null
+          body.use {
+            copyToChannel(it.byteStream(), fileChannel, position, chunk.last) { written -> position += written }
+          }
+        } catch (e: Exception) {
+          if (e is InterruptedException || !acceptsRanges || !isResumable(e)) {
+            throw e
+          }
+          failedAttempts = if (position > startPosition) 1 else failedAttempts + 1
+          if (failedAttempts >= MAX_CHUNK_ATTEMPTS) {
+            throw e
+          }
+          LOG.debug("Resuming download of $downloadUrl from byte $position: ${e.message}")
+        }
+      }
+    } finally {
+      responseBody?.closeLogged()
+    }
+  }
+
+  private fun isResumable(e: Exception) =
+      e is IOException || e is BaseNetworkException && e !is NotFound404ResponseException
+
+  private fun requestRange(downloadUrl: URL, first: Long, last: Long): ResponseBody {
+    val response = downloadConnector.downloadRange(downloadUrl.toExternalForm(), "bytes=$first-$last").executeSuccessfully()
+    if (response.code() == 200) {
+      response.body().closeLogged()
+      throw RangeNotSupportedException("server has returned the whole file instead of the range $first-$last")
+    }
+    val contentRange = response.headers().get("Content-Range")
+    if (response.code() != 206 || contentRange == null || contentRange.substringBefore('/') != "bytes $first-$last") {
+      response.body().closeLogged()
+      throw IllegalStateException("Server has not returned the requested range $first-$last of $downloadUrl: ${response.code()} $contentRange")
+    }
+    return response.body()
+  }
+
+  /**
+   * Copies bytes from the [inputStream] to the [fileChannel]
+   * starting at [position] and up to [last] position inclusive,
+   * reporting the number of bytes written to [onWritten].
+   */
+  private fun copyToChannel(
+      inputStream: InputStream,
+      fileChannel: FileChannel,
+      position: Long,
+      last: Long,
+      onWritten: (Int) -> Unit
+  ) {
+    val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+    var currentPosition = position
+    while (currentPosition <= last) {
+      checkIfInterrupted()
+      val length = minOf(buffer.size.toLong(), last - currentPosition + 1).toInt()
+      val read = inputStream.read(buffer, 0, length)
+      if (read == -1) {
+        throw EOFException("Connection is closed after ${currentPosition - position} bytes")
+      }
+      val byteBuffer = ByteBuffer.wrap(buffer, 0, read)
+      var written = 0
+      while (byteBuffer.hasRemaining()) {
+        written += fileChannel.write(byteBuffer, currentPosition + written)
+      }
+      currentPosition += written
+      onWritten(written)
     }
   }
 
@@ -159,6 +363,15 @@ class UrlDownloader<in K>(private val urlProvider: (K) -> URL?) : Downloader<K>
     @Streaming
     @GET
     fun download(@Url url: String): Call<ResponseBody>
+
+    @Streaming
+    @GET
+    fun downloadRange(@Url url: String, @Header("Range") range: String): Call<ResponseBody>
   }
 
-}
\ No newline at end of file
+  /**
+   * Thrown when the server responds to a range request with the whole file.
+   */
+  private class RangeNotSupportedException(message: String) : RuntimeException(message)
+
+}
@@ -6,14 +6,28 @@ package com.jetbrains.pluginverifier.repository.resources
  * This information is used by the [EvictionPolicy] to determine a set
  * of resources to be removed on the cleanup procedure.
  */
-data class EvictionInfo<out R, out K>(
+class EvictionInfo<out R, out K>(
     /**
      * The total weight of the resources at the moment
      */
     val totalWeight: ResourceWeight,
 
     /**
-     * The currently available resources
+     * The currently available resources ordered by
+     * the [last access time] [com.jetbrains.pluginverifier.repository.cleanup.UsageStatistic.lastAccessTime],
+     * starting from the least recently used one.
+     *
+     * The sequence is lazy, so the policies that need only
+     * the least recently used resources don't read all of them.
      */
-    val availableResources: List<AvailableResource<R, K>>
-)
\ No newline at end of file
+    val leastRecentlyUsedResources: Sequence<AvailableResource<R, K>>
+) {
+
+  /**
+   * All the currently available resources
+   */
+  val availableResources: List<AvailableResource<R, K>> by lazy {
+    leastRecentlyUsedResources.toList()
+  }
+
+}
@@ -0,0 +1,51 @@
+package com.jetbrains.pluginverifier.repository.resources
+
+import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Order of keys by their last access time, maintained
+ * incrementally: each access and removal takes O(log n).
+ *
+ * Keys accessed at the same time are ordered by the order of accesses.
+ * The order can be read concurrently with updates, but updates
+ * of the same key must not be performed concurrently.
+ */
+internal class LeastRecentlyUsedOrder<K> {
+
+  private data class Position(val accessTime: Instant, val sequenceNumber: Long) : Comparable<Position> {
+    override fun compareTo(other: Position) =
+        compareValuesBy(this, other, { it.accessTime }, { it.sequenceNumber })
+  }
+
+  private val nextSequenceNumber = AtomicLong()
+
+  private val positions = ConcurrentHashMap<K, Position>()
+
+  private val order = ConcurrentSkipListMap<Position, K>()
+
+  fun touch(key: K, accessTime: Instant) {
+    val position = Position(accessTime, nextSequenceNumber.getAndIncrement())
+    val oldPosition = positions.put(key, position)
+    if (oldPosition != null) {
+      order.remove(oldPosition)
+    }
+    order[position] = key
+  }
+
+  fun remove(key: K) {
+    val position = positions.remove(key) ?: return
+    order.remove(position)
+  }
+
+  /**
+   * Returns the keys starting from the least recently used one.
+   *
+   * The sequence is lazy, so only the visited keys are read.
+   * A key accessed during the iteration may be returned twice.
+   */
+  fun leastRecentlyUsed(): Sequence<K> = order.values.asSequence()
+
+}
@@ -1,6 +1,7 @@
 package com.jetbrains.pluginverifier.repository.resources
 
 import org.slf4j.Logger
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Data structure that maintains a set of registered resources and their total weights.
@@ -9,15 +10,22 @@ import org.slf4j.Logger
  * equal zero in the units of chosen weights domain, the [weigher] used to assign
  * weights of the resources in a controlled way and the [disposer] used to deallocate
  * the resources being removed.
+ *
+ * The registrar is thread safe. Lookups of the resources don't block,
+ * while additions and removals are serialized to keep the total weight
+ * consistent. The resources are disposed outside of the lock.
  */
 internal class RepositoryResourcesRegistrar<R, K>(initWeight: ResourceWeight,
                                                   private val weigher: (R) -> ResourceWeight,
                                                   private val disposer: (R) -> Unit,
                                                   private val logger: Logger) {
 
+  @Volatile
   private var _totalWeight: ResourceWeight = initWeight
 
-  private val _resources = hashMapOf<K, ResourceInfo<R>>()
+  private val _resources = ConcurrentHashMap<K, ResourceInfo<R>>()
+
+  private val weightLock = Any()
 
   val totalWeight: ResourceWeight
     get() = _totalWeight
@@ -36,16 +44,27 @@ internal class RepositoryResourcesRegistrar<R, K>(initWeight: ResourceWeight,
    */
   fun addResource(key: K, resource: R): Boolean {
     try {
-      if (key in _resources) {
+      if (_resources.containsKey(key)) {
         logger.debug("add($key): the $resource is already available. Disposing the duplicate resource.")
         safeDispose(key, resource)
         return false
       }
 
       val resourceWeight = weigher(resource)
-      _totalWeight += resourceWeight
+      val added = synchronized(weightLock) {
+        if (_resources.putIfAbsent(key, ResourceInfo(resource, resourceWeight)) == null) {
+          _totalWeight += resourceWeight
+          true
+        } else {
+          false
+        }
+      }
+      if (!added) {
+        logger.debug("add($key): the $resource has been concurrently added. Disposing the duplicate resource.")
+        safeDispose(key, resource)
+        return false
+      }
       logger.debug("add($key): adding the $resource of weight $resourceWeight. Total weight: $_totalWeight")
-      _resources[key] = ResourceInfo(resource, resourceWeight)
       return true
     } catch (e: Throwable) {
       safeDispose(key, resource)
@@ -55,18 +74,18 @@ internal class RepositoryResourcesRegistrar<R, K>(initWeight: ResourceWeight,
 
   fun getAllKeys() = _resources.keys.toSet()
 
-  fun has(key: K) = key in _resources
+  fun has(key: K) = _resources.containsKey(key)
 
   fun get(key: K) = _resources[key]
 
   fun removeResource(key: K) {
-    check(key in _resources)
-    val resourceInfo = _resources[key]!!
+    val resourceInfo = synchronized(weightLock) {
+      val removed = checkNotNull(_resources.remove(key))
+      _totalWeight -= removed.weight
+      removed
+    }
     val resource = resourceInfo.resource
-    val weight = resourceInfo.weight
-    _totalWeight -= weight
-    logger.debug("remove($key): removing the $resource of weight $weight. Total weight: $_totalWeight")
-    _resources.remove(key)
+    logger.debug("remove($key): removing the $resource of weight ${resourceInfo.weight}. Total weight: $_totalWeight")
     safeDispose(key, resource)
   }
 
@@ -11,13 +11,29 @@ import org.slf4j.LoggerFactory
 import java.time.Clock
 import java.time.Instant
 import java.util.concurrent.CancellationException
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ExecutionException
 import java.util.concurrent.FutureTask
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
 
 /**
  * The implementation of the [resource repository] [ResourceRepository]
  * that can be safely used in a concurrent environment
  * where the resources can be added, accessed and removed by multiple threads.
+ *
+ * The state of each key, such as its locks and fetch task,
+ * is guarded by one of [STRIPES_NUMBER] monitors chosen by the key's hash,
+ * so threads accessing different keys rarely block each other.
+ * In particular, getting an available resource only registers
+ * a lock under the key's monitor.
+ *
+ * The eviction is run by the thread that finds the total weight exceeding
+ * the limit of the [evictionPolicy]. Only one thread evicts the resources
+ * at a time, while the others proceed without waiting for it.
+ * The resources are kept ordered by their last access time,
+ * so the policy reads only the least recently used resources it evicts.
  */
 class ResourceRepositoryImpl<R, K>(private val evictionPolicy: EvictionPolicy<R, K>,
                                    private val clock: Clock,
@@ -26,28 +42,46 @@ class ResourceRepositoryImpl<R, K>(private val evictionPolicy: EvictionPolicy<R,
                                    weigher: (R) -> ResourceWeight,
                                    disposer: (R) -> Unit,
                                    private val presentableName: String = "ResourceRepository") : ResourceRepository<R, K> {
+
+  private companion object {
+    private const val STRIPES_NUMBER = 64
+  }
+
   private val logger: Logger = LoggerFactory.getLogger(presentableName)
 
   private val resourcesRegistrar = RepositoryResourcesRegistrar<R, K>(initialWeight, weigher, disposer, logger)
 
-  private var nextLockId = 0L
+  private val stripes = Array(STRIPES_NUMBER) { Any() }
+
+  private val cleanupLock = ReentrantLock()
+
+  private val nextLockId = AtomicLong()
+
+  private val key2Locks = ConcurrentHashMap<K, MutableSet<ResourceLockImpl<R, K>>>()
 
-  private val key2Locks = hashMapOf<K, MutableSet<ResourceLockImpl<R, K>>>()
+  private val removeQueue = ConcurrentHashMap.newKeySet<K>()
 
-  private val removeQueue = hashSetOf<K>()
+  private val additionTasks = ConcurrentHashMap<K, FutureTask<ProvideResult<R>>>()
 
-  private val additionTasks = hashMapOf<K, FutureTask<ProvideResult<R>>>()
+  private val additionWaitingThreads = ConcurrentHashMap<K, Int>()
 
-  private val additionWaitingThreads = hashMapOf<K, Int>()
+  private val statistics = ConcurrentHashMap<K, UsageStatistic>()
 
-  private val statistics = hashMapOf<K, UsageStatistic>()
+  private val usageOrder = LeastRecentlyUsedOrder<K>()
+
+  /**
+   * Returns the monitor guarding the state of the [key].
+   */
+  private fun stripeOf(key: K): Any {
+    val hash = key?.hashCode() ?: 0
+    return stripes[Math.floorMod(hash xor (hash ushr 16), STRIPES_NUMBER)]
+  }
 
-  @Synchronized
   override fun add(key: K, resource: R) =
       try {
         addResource(key, resource)
       } finally {
-        cleanup()
+        cleanupIfNecessary()
       }
 
   /**
@@ -57,52 +91,63 @@ class ResourceRepositoryImpl<R, K>(private val evictionPolicy: EvictionPolicy<R,
    * may be awaited, which can lead to its eviction
    * and invalid resource locking.
    */
-  @Synchronized
-  private fun addResource(key: K, resource: R): Boolean {
+  private fun addResource(key: K, resource: R): Boolean = synchronized(stripeOf(key)) {
     if (resourcesRegistrar.addResource(key, resource)) {
-      check(key !in statistics)
+      check(!statistics.containsKey(key))
       updateUsageStatistics(key)
-      return true
+      true
+    } else {
+      false
     }
-    return false
   }
 
-  @Synchronized
   override fun getAllExistingKeys() = resourcesRegistrar.getAllKeys().toSet()
 
-  @Synchronized
   override fun has(key: K) = resourcesRegistrar.has(key)
 
-  @Synchronized
-  override fun isLockedOrBeingProvided(key: K) = isLockedKey(key) || isBeingProvided(key)
+  override fun isLockedOrBeingProvided(key: K) = synchronized(stripeOf(key)) {
+    isLockedKey(key) || isBeingProvided(key)
+  }
 
-  @Synchronized
-  override fun remove(key: K): Boolean = when {
-    isLockedOrBeingProvided(key) -> {
-      logger.debug("remove($key): the resource is locked or is being provided, enqueue for removing later.")
-      removeQueue.add(key)
-      false
+  override fun remove(key: K): Boolean {
+    val removed = synchronized(stripeOf(key)) {
+      when {
+        isLockedKey(key) || isBeingProvided(key) -> {
+          logger.debug("remove($key): the resource is locked or is being provided, enqueue for removing later.")
+          removeQueue.add(key)
+          false
+        }
+        resourcesRegistrar.has(key) -> {
+          logger.debug("remove($key): the resource is not locked, deleting now")
+          doRemove(key)
+          true
+        }
+        else -> false
+      }
     }
-    resourcesRegistrar.has(key) -> {
-      logger.debug("remove($key): the resource is not locked, deleting now")
-      doRemove(key)
-      cleanup()
-      true
+    if (removed) {
+      cleanupIfNecessary()
     }
-    else -> false
+    return removed
   }
 
-  @Synchronized
   override fun removeAll() {
     getAllExistingKeys().forEach { remove(it) }
   }
 
-  @Synchronized
+  /**
+   * Must be called under the [key]'s monitor.
+   */
   private fun isLockedKey(key: K) = key2Locks.containsKey(key)
 
-  @Synchronized
+  /**
+   * Must be called under the [key]'s monitor.
+   */
   private fun isBeingProvided(key: K) = additionTasks.containsKey(key)
 
+  /**
+   * Must be called under the [key]'s monitor.
+   */
   private fun updateUsageStatistics(key: K): Instant {
     val now = clock.instant()
     val usageStatistic = statistics.getOrPut(key) {
@@ -110,57 +155,61 @@ class ResourceRepositoryImpl<R, K>(private val evictionPolicy: EvictionPolicy<R,
     }
     usageStatistic.lastAccessTime = now
     usageStatistic.timesAccessed++
+    usageOrder.touch(key, now)
     return now
   }
 
-  @Synchronized
-  private fun registerLock(key: K): ResourceLock<R> {
+  private fun registerLock(key: K): ResourceLock<R> = synchronized(stripeOf(key)) {
     check(resourcesRegistrar.has(key))
     val resourceInfo = resourcesRegistrar.get(key)!!
     val now = updateUsageStatistics(key)
-    val lockId = nextLockId++
+    val lockId = nextLockId.getAndIncrement()
     val lock = ResourceLockImpl(now, resourceInfo, key, lockId, this)
     logger.debug("get($key): lock is registered $lock ")
     key2Locks.getOrPut(key) { hashSetOf() }.add(lock)
-    return lock
+    lock
   }
 
-  @Synchronized
   internal fun releaseLock(lock: ResourceLockImpl<R, K>) {
     val key = lock.key
-    val resourceLocks = key2Locks[key]
-    if (resourceLocks != null) {
-      logger.debug("releasing lock $lock")
-      resourceLocks.remove(lock)
-      if (resourceLocks.isEmpty()) {
-        key2Locks.remove(key)
-
-        if (key in removeQueue) {
-          if (isBeingProvided(key)) {
-            logger.debug("hand over removing of the $key to another thread waiting for this key")
-          } else {
-            logger.debug("removing the $key as it is enqueued for removing and it has been just released")
-            removeQueue.remove(key)
-            doRemove(key)
+    synchronized(stripeOf(key)) {
+      val resourceLocks = key2Locks[key]
+      if (resourceLocks != null) {
+        logger.debug("releasing lock $lock")
+        resourceLocks.remove(lock)
+        if (resourceLocks.isEmpty()) {
+          key2Locks.remove(key)
+
+          if (key in removeQueue) {
+            if (isBeingProvided(key)) {
+              logger.debug("hand over removing of the $key to another thread waiting for this key")
+            } else {
+              logger.debug("removing the $key as it is enqueued for removing and it has been just released")
+              removeQueue.remove(key)
+              doRemove(key)
+            }
           }
         }
+      } else {
+        logger.debug("attempt to release an unregistered lock $lock")
       }
-    } else {
-      logger.debug("attempt to release an unregistered lock $lock")
     }
   }
 
-  @Synchronized
+  /**
+   * Must be called under the [key]'s monitor.
+   */
   private fun doRemove(key: K) {
     check(!isBeingProvided(key))
     resourcesRegistrar.removeResource(key)
     statistics.remove(key)
+    usageOrder.remove(key)
   }
 
   @Throws(InterruptedException::class)
   private fun getOrWait(key: K): ResourceRepositoryResult<R> {
     checkIfInterrupted()
-    val (fetchTask, runInCurrentThread) = synchronized(this) {
+    val (fetchTask, runInCurrentThread) = synchronized(stripeOf(key)) {
       if (resourcesRegistrar.has(key)) {
         val lock = registerLock(key)
         logger.debug("get($key): the resource is available and a lock is registered $lock")
@@ -203,7 +252,7 @@ class ResourceRepositoryImpl<R, K>(private val evictionPolicy: EvictionPolicy<R,
       }
       return provideResult.registerLockIfProvided(key)
     } finally {
-      synchronized(this) {
+      synchronized(stripeOf(key)) {
         additionWaitingThreads.compute(key) { _, v -> if (v!! == 1) null else (v - 1) }
         if (!additionWaitingThreads.containsKey(key)) {
           additionTasks.remove(key)
@@ -226,18 +275,47 @@ class ResourceRepositoryImpl<R, K>(private val evictionPolicy: EvictionPolicy<R,
     is ProvideResult.Failed<R> -> ResourceRepositoryResult.Failed(reason, error)
   }
 
-  @Synchronized
   override fun getAvailableResources() =
-      resourcesRegistrar.resources.map { (key, resourceInfo) ->
-        AvailableResource(key, resourceInfo, statistics[key]!!, isLockedKey(key))
-      }
+      resourcesRegistrar.getAllKeys().mapNotNull { getAvailableResource(it) }
+
+  /**
+   * Returns the current state of the resource by [key],
+   * or `null` if the resource has been removed.
+   */
+  private fun getAvailableResource(key: K): AvailableResource<R, K>? = synchronized(stripeOf(key)) {
+    val resourceInfo = resourcesRegistrar.get(key) ?: return@synchronized null
+    val usageStatistic = statistics[key] ?: return@synchronized null
+    AvailableResource(key, resourceInfo, usageStatistic.copy(), isLockedKey(key))
+  }
+
+  private fun getLeastRecentlyUsedResources(): Sequence<AvailableResource<R, K>> =
+      usageOrder.leastRecentlyUsed()
+          .distinct()
+          .mapNotNull { getAvailableResource(it) }
 
-  @Synchronized
   override fun cleanup() {
-    if (evictionPolicy.isNecessary(resourcesRegistrar.totalWeight)) {
-      val availableResources = getAvailableResources()
+    cleanupLock.withLock {
+      evictIfNecessary()
+    }
+  }
 
-      val evictionInfo = EvictionInfo(resourcesRegistrar.totalWeight, availableResources)
+  /**
+   * Evicts the resources if the total weight exceeds the limit,
+   * unless another thread is already evicting them.
+   */
+  private fun cleanupIfNecessary() {
+    if (evictionPolicy.isNecessary(resourcesRegistrar.totalWeight) && cleanupLock.tryLock()) {
+      try {
+        evictIfNecessary()
+      } finally {
+        cleanupLock.unlock()
+      }
+    }
+  }
+
+  private fun evictIfNecessary() {
+    if (evictionPolicy.isNecessary(resourcesRegistrar.totalWeight)) {
+      val evictionInfo = EvictionInfo(resourcesRegistrar.totalWeight, getLeastRecentlyUsedResources())
       val resourcesForEviction = evictionPolicy.selectResourcesForEviction(evictionInfo)
 
       if (resourcesForEviction.isNotEmpty()) {
@@ -277,7 +355,7 @@ class ResourceRepositoryImpl<R, K>(private val evictionPolicy: EvictionPolicy<R,
      * Release the lock if the cleanup procedure has failed.
      */
     (result as? ResourceRepositoryResult.Found<*>)?.lockedResource?.closeOnException {
-      cleanup()
+      cleanupIfNecessary()
     }
     return result
   }
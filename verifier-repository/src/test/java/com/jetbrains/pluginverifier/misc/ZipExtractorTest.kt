@@ -0,0 +1,143 @@
+package com.jetbrains.pluginverifier.misc
+
+import org.apache.commons.compress.archivers.zip.UnixStat
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.LinkOption
+import java.nio.file.Path
+
+class ZipExtractorTest {
+
+  private companion object {
+    const val ENTRY_TIME = 1514764800000
+  }
+
+  @JvmField
+  @Rule
+  val tempFolder = TemporaryFolder()
+
+  private fun createZip(
+      entries: Map<String, String?>,
+      executables: Set<String> = emptySet(),
+      symlinks: Set<String> = emptySet()
+  ): Path {
+    val archive = tempFolder.newFile("archive.zip").toPath()
+    ZipArchiveOutputStream(archive.toFile()).use { zipOutputStream ->
+      for ((name, content) in entries) {
+        val entry = ZipArchiveEntry(name)
+        entry.time = ENTRY_TIME
+        if (name in executables) {
+          entry.unixMode = 0b111_101_101
+        }
+        if (name in symlinks) {
+          entry.unixMode = UnixStat.LINK_FLAG or 0b111_111_111
+        }
+        zipOutputStream.putArchiveEntry(entry)
+        if (content != null) {
+          zipOutputStream.write(content.toByteArray())
+        }
+        zipOutputStream.closeArchiveEntry()
+      }
+    }
+    return archive
+  }
+
+  @Test
+  fun `all entries are extracted`() {
+    val entries = (0 until 100).associate { "ide/lib/file$it.txt" to "content $it" } +
+        mapOf("ide/" to null, "ide/bin/" to null, "ide/bin/idea.sh" to "#!/bin/sh")
+    val archive = createZip(entries, setOf("ide/bin/idea.sh"))
+
+    val destination = tempFolder.newFolder().toPath()
+    extractZipInParallel(archive, destination, 3)
+
+    for ((name, content) in entries) {
+      val file = destination.resolve(name)
+      if (content == null) {
+        assertTrue(file.isDirectory)
+      } else {
+        assertEquals(content, file.readText())
+      }
+    }
+    assertTrue(Files.isExecutable(destination.resolve("ide/bin/idea.sh")))
+  }
+
+  @Test
+  fun `entries outside of the destination are not extracted`() {
+    val archive = createZip(mapOf("../outside.txt" to "content"))
+    val destination = tempFolder.newFolder().toPath()
+    try {
+      extractZipInParallel(archive, destination, 2)
+      fail()
+    } catch (e: IOException) {
+      assertFalse(destination.resolveSibling("outside.txt").exists())
+    }
+  }
+
+  @Test
+  fun `modification times are restored`() {
+    val entries = mapOf("ide/" to null, "ide/lib/" to null, "ide/lib/file.txt" to "content")
+    val archive = createZip(entries)
+    val destination = tempFolder.newFolder().toPath()
+    extractZipInParallel(archive, destination, 2)
+
+    for (name in entries.keys) {
+      assertEquals(ENTRY_TIME, Files.getLastModifiedTime(destination.resolve(name)).toMillis())
+    }
+  }
+
+  @Test
+  fun `symbolic links inside of the destination are extracted`() {
+    val archive = createZip(mapOf("ide/lib/file.txt" to "content", "ide/bin/link.txt" to "../lib/file.txt"), symlinks = setOf("ide/bin/link.txt"))
+    val destination = tempFolder.newFolder().toPath()
+    extractZipInParallel(archive, destination, 2)
+
+    val link = destination.resolve("ide/bin/link.txt")
+    assertTrue(Files.isSymbolicLink(link))
+    assertEquals("content", link.readText())
+  }
+
+  @Test
+  fun `symbolic links pointing outside of the destination are not extracted`() {
+    for (linkTarget in listOf("../../outside.txt", "/etc/passwd")) {
+      val archive = createZip(mapOf("ide/link.txt" to linkTarget), symlinks = setOf("ide/link.txt"))
+      val destination = tempFolder.newFolder().toPath()
+      try {
+        extractZipInParallel(archive, destination, 2)
+        fail()
+      } catch (e: IOException) {
+        assertFalse(Files.exists(destination.resolve("ide/link.txt"), LinkOption.NOFOLLOW_LINKS))
+      }
+      Files.delete(archive)
+    }
+  }
+
+  @Test
+  fun `chains of symbolic links pointing outside of the destination are not extracted`() {
+    val chains = listOf(
+        mapOf("a/b/c" to "../../x", "a/b/c/s" to "../../.."),
+        mapOf("a/b/c" to "../../x", "a/b/c/s" to "../../..", "a/b/c/s/evil" to "content"),
+        mapOf("a/self" to ".", "a/up" to "self/../..")
+    )
+    for (chain in chains) {
+      val archive = createZip(chain, symlinks = chain.keys - "a/b/c/s/evil")
+      val root = tempFolder.newFolder().toPath()
+      val destination = root.resolve("destination")
+      try {
+        extractZipInParallel(archive, destination, 2)
+        fail()
+      } catch (e: IOException) {
+        assertEquals(listOf(destination), Files.list(root).use { files -> files.iterator().asSequence().toList() })
+        assertFalse(Files.isSymbolicLink(destination.resolve("a/b/c/s")))
+        assertFalse(Files.exists(destination.resolve("a/up"), LinkOption.NOFOLLOW_LINKS))
+      }
+      Files.delete(archive)
+    }
+  }
+}
@@ -3,12 +3,21 @@ package com.jetbrains.pluginverifier.results
 import com.jetbrains.pluginverifier.misc.*
 import com.jetbrains.pluginverifier.repository.downloader.DownloadResult
 import com.jetbrains.pluginverifier.repository.downloader.UrlDownloader
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import org.junit.After
 import org.junit.Assert
+import org.junit.Assert.assertArrayEquals
 import org.junit.Assert.assertEquals
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.TemporaryFolder
+import java.net.InetSocketAddress
+import java.net.URL
+import java.nio.file.Files
 import java.nio.file.Path
+import java.util.*
+import java.util.concurrent.CopyOnWriteArrayList
 
 class UrlDownloaderTest {
 
@@ -16,6 +25,97 @@ class UrlDownloaderTest {
   @JvmField
   val tempFolder = TemporaryFolder()
 
+  private val content = ByteArray(100_000).also { Random(42).nextBytes(it) }
+
+  private val requestedRanges = CopyOnWriteArrayList<String>()
+
+  private var server: HttpServer? = null
+
+  @After
+  fun stopServer() {
+    server?.stop(0)
+  }
+
+  /**
+   * Starts a local HTTP server of the [content], which breaks
+   * the connection of the first response after [breakFirstResponseAfter] bytes, if specified.
+   * If [ignoreRanges] is set, the server advertises ranges, but always responds with the whole content.
+   */
+  private fun startServer(acceptRanges: Boolean, breakFirstResponseAfter: Int? = null, ignoreRanges: Boolean = false): URL {
+    var isFirstResponse = true
+    val httpServer = HttpServer.create(InetSocketAddress("localhost", 0), 0)
+    httpServer.createContext("/") { exchange ->
+      val range = exchange.requestHeaders.getFirst("Range")
+      if (range != null) {
+        requestedRanges.add(range)
+      }
+      val (first, last) = if (acceptRanges && !ignoreRanges && range != null) {
+        val (first, last) = range.substringAfter("bytes=").split("-").map { it.toInt() }
+        exchange.responseHeaders.add("Content-Range", "bytes $first-$last/${content.size}")
+        first to last
+      } else {
+        0 to content.size - 1
+      }
+      if (acceptRanges) {
+        exchange.responseHeaders.add("Accept-Ranges", "bytes")
+      }
+      val responseCode = if (first == 0 && last == content.size - 1) 200 else 206
+      exchange.sendResponseHeaders(responseCode, (last - first + 1).toLong())
+      val breakAfter = if (isFirstResponse) breakFirstResponseAfter else null
+      isFirstResponse = false
+      exchange.sendBytes(content.copyOfRange(first, breakAfter?.let { first + it } ?: last + 1))
+    }
+    httpServer.start()
+    server = httpServer
+    return URL("http://localhost:${httpServer.address.port}/file.zip")
+  }
+
+  private fun HttpExchange.sendBytes(bytes: ByteArray) {
+    try {
+      responseBody.write(bytes)
+    } finally {
+      close()
+    }
+  }
+
+  private fun download(url: URL, maxParallelChunks: Int): DownloadResult {
+    val urlDownloader = UrlDownloader<Int>(maxParallelChunks, 10_000) { url }
+    return urlDownloader.download(0, tempFolder.newFolder().toPath())
+  }
+
+  @Test
+  fun `large file is downloaded in parallel chunks`() {
+    val url = startServer(acceptRanges = true)
+    val downloadResult = download(url, 4) as DownloadResult.Downloaded
+    assertEquals("zip", downloadResult.extension)
+    assertArrayEquals(content, Files.readAllBytes(downloadResult.downloadedFileOrDirectory))
+    assertEquals(listOf("bytes=25000-49999", "bytes=50000-74999", "bytes=75000-99999"), requestedRanges.sorted())
+  }
+
+  @Test
+  fun `broken download is resumed from the last received byte`() {
+    val url = startServer(acceptRanges = true, breakFirstResponseAfter = 30_000)
+    val downloadResult = download(url, 1) as DownloadResult.Downloaded
+    assertArrayEquals(content, Files.readAllBytes(downloadResult.downloadedFileOrDirectory))
+    assertEquals(1, requestedRanges.size)
+    Assert.assertTrue(requestedRanges.single().endsWith("-99999"))
+  }
+
+  @Test
+  fun `file is downloaded in one stream if the server ignores ranges`() {
+    val url = startServer(acceptRanges = true, ignoreRanges = true)
+    val downloadResult = download(url, 4) as DownloadResult.Downloaded
+    assertArrayEquals(content, Files.readAllBytes(downloadResult.downloadedFileOrDirectory))
+    Assert.assertFalse(requestedRanges.isEmpty())
+  }
+
+  @Test
+  fun `broken download fails if the server does not accept ranges`() {
+    val url = startServer(acceptRanges = false, breakFirstResponseAfter = 30_000)
+    val downloadResult = download(url, 4)
+    Assert.assertTrue(downloadResult is DownloadResult.FailedToDownload)
+  }
+
   @Test
   fun `downloading of a local file must copy this file`() {
     val tempDirectory = tempFolder.newFolder().toPath()
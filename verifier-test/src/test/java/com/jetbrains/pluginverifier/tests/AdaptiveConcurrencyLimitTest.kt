@@ -0,0 +1,64 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.pluginverifier.AdaptiveConcurrencyLimit
+import com.jetbrains.pluginverifier.AdaptiveConcurrencyLimit.HeapUsage
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+class AdaptiveConcurrencyLimitTest {
+
+  private val maxHeap = 1000L
+
+  private var heapUsage = HeapUsage(0, maxHeap, 0, 0)
+
+  private fun measureAfter(elapsedMillis: Long, usedAfterGc: Long, gcTimeMillis: Long) {
+    heapUsage = HeapUsage(
+        usedAfterGc,
+        maxHeap,
+        heapUsage.gcTimeMillis + gcTimeMillis,
+        heapUsage.timestampMillis + elapsedMillis
+    )
+  }
+
+  @Test
+  fun `concurrency is decreased when the heap is nearly full or GC overhead is high`() {
+    val limit = AdaptiveConcurrencyLimit(1, 8, 8) { heapUsage }
+    limit.adjust()
+
+    measureAfter(10000, 900, 0)
+    limit.adjust()
+    assertEquals(6, limit.concurrency)
+
+    measureAfter(1000, 900, 0)
+    limit.adjust()
+    assertEquals("Adjustments are not too frequent", 6, limit.concurrency)
+
+    measureAfter(10000, 500, 5000)
+    limit.adjust()
+    assertEquals(5, limit.concurrency)
+  }
+
+  @Test
+  fun `concurrency is increased when there is enough free heap for waiting verifications`() {
+    val limit = AdaptiveConcurrencyLimit(1, 1, 2) { heapUsage }
+    limit.adjust()
+    limit.acquire()
+
+    val waitingThread = Thread { limit.runLimited { } }
+    waitingThread.start()
+    while (waitingThread.state != Thread.State.WAITING) {
+      Thread.sleep(10)
+    }
+
+    measureAfter(10000, 100, 0)
+    limit.adjust()
+    assertEquals(2, limit.concurrency)
+    waitingThread.join(TimeUnit.SECONDS.toMillis(10))
+    assertFalse(waitingThread.isAlive)
+
+    limit.release()
+  }
+
+}
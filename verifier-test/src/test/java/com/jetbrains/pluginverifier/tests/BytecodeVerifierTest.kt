@@ -0,0 +1,102 @@
+package com.jetbrains.pluginverifier.tests
+
+import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.ResultHolder
+import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
+import com.jetbrains.pluginverifier.verifiers.BytecodeVerifier
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+import com.jetbrains.pluginverifier.verifiers.resolution.DefaultClsResolver
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.InsnNode
+import org.objectweb.asm.tree.MethodInsnNode
+import org.objectweb.asm.tree.MethodNode
+import java.util.concurrent.ForkJoinPool
+
+class BytecodeVerifierTest {
+
+  private fun createClassNode(className: String, superName: String?, vararg methods: MethodNode) = ClassNode().apply {
+    version = Opcodes.V1_8
+    access = Opcodes.ACC_PUBLIC
+    name = className
+    this.superName = superName
+    this.methods.addAll(methods)
+  }
+
+  private val jdkClasses = listOf(createClassNode("java/lang/Object", null))
+
+  /**
+   * public class Base { public static void existing() { } }
+   */
+  private val ideClasses = listOf(
+      createClassNode("ide/Base", "java/lang/Object", MethodNode(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC, "existing", "()V", null, null))
+  )
+
+  /**
+   * Plugin classes, half of which extend the missing classes:
+   *
+   * public class Class<i> extends Base | Missing<i % 13> {
+   *   public void run() {
+   *     Base.existing();
+   *   }
+   * }
+   */
+  private val pluginClasses = (0 until 2500).map { index ->
+    val run = MethodNode(Opcodes.ACC_PUBLIC, "run", "()V", null, null).apply {
+      instructions.add(MethodInsnNode(Opcodes.INVOKESTATIC, "ide/Base", "existing", "()V", false))
+      instructions.add(InsnNode(Opcodes.RETURN))
+    }
+    val superName = if (index % 2 == 0) "ide/Base" else "ide/Missing${index % 13}"
+    createClassNode("plugin/pkg${index / 100}/Class$index", superName, run)
+  }
+
+  private fun verify(forkJoinPool: ForkJoinPool?): ResultHolder {
+    val clsResolver = DefaultClsResolver(
+        FixedClassesResolver.create(pluginClasses),
+        EmptyResolver,
+        FixedClassesResolver.create(jdkClasses),
+        FixedClassesResolver.create(ideClasses),
+        PackageFilter(listOf(PackageFilter.Descriptor(true, "java"))),
+        emptyList()
+    )
+    val verificationContext = VerificationContext(
+        PluginIdAndVersion("plugin", "1.0"),
+        VerificationTarget.Ide(IdeVersion.createIdeVersion("IU-145.1")),
+        ResultHolder(),
+        false,
+        emptyList(),
+        clsResolver
+    )
+    var lastProgress = 0.0
+    BytecodeVerifier(forkJoinPool).verify(pluginClasses.map { it.name }.toSet(), verificationContext) {
+      assertTrue(it >= lastProgress)
+      lastProgress = it
+    }
+    assertEquals(1.0, lastProgress, 0.0)
+    return verificationContext.resultHolder
+  }
+
+  @Test
+  fun `classes verified in parallel chunks have the same problems as verified sequentially`() {
+    val sequentialResults = verify(null)
+    val forkJoinPool = ForkJoinPool(4)
+    val parallelResults = try {
+      verify(forkJoinPool)
+    } finally {
+      forkJoinPool.shutdown()
+    }
+
+    assertEquals(pluginClasses.size / 2, sequentialResults.compatibilityProblems.size)
+    assertEquals(sequentialResults.compatibilityProblems, parallelResults.compatibilityProblems)
+    assertEquals(sequentialResults.deprecatedUsages, parallelResults.deprecatedUsages)
+    assertEquals(sequentialResults.experimentalApiUsages, parallelResults.experimentalApiUsages)
+  }
+
+}
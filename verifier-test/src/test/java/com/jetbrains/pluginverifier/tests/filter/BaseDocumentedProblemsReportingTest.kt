@@ -1,14 +1,9 @@
 package com.jetbrains.pluginverifier.tests.filter
 
-import com.jetbrains.plugin.structure.intellij.version.IdeVersion
-import com.jetbrains.pluginverifier.ResultHolder
-import com.jetbrains.pluginverifier.VerificationTarget
 import com.jetbrains.pluginverifier.parameters.filtering.DocumentedProblemsFilter
 import com.jetbrains.pluginverifier.parameters.filtering.ProblemsFilter
 import com.jetbrains.pluginverifier.parameters.filtering.documented.DocumentedProblem
-import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
 import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
-import com.jetbrains.pluginverifier.tests.mocks.EmptyClsResolver
 import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import org.junit.Assert
 
@@ -38,13 +33,4 @@ abstract class BaseDocumentedProblemsReportingTest {
     }
   }
 
-  fun createSimpleVerificationContext() = VerificationContext(
-      PluginIdAndVersion("pluginId", "1.0"),
-      VerificationTarget.Ide(IdeVersion.createIdeVersion("IU-145.1")),
-      ResultHolder(),
-      false,
-      emptyList(),
-      EmptyClsResolver
-  )
-
 }
\ No newline at end of file
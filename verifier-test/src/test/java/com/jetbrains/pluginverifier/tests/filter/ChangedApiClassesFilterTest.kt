@@ -0,0 +1,158 @@
+package com.jetbrains.pluginverifier.tests.filter
+
+import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.pluginverifier.ide.IdeApiDelta
+import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.tests.bytecode.createClassNode
+import com.jetbrains.pluginverifier.verifiers.filter.ChangedApiClassesFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.DefaultClsResolver
+import net.bytebuddy.ByteBuddy
+import net.bytebuddy.description.modifier.Visibility
+import net.bytebuddy.dynamic.DynamicType
+import net.bytebuddy.implementation.StubMethod
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.AnnotationNode
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodNode
+
+class ChangedApiClassesFilterTest {
+
+  /**
+   * public class Stable { public void foo() { } }
+   *
+   * public class Base { public void bar() { } } // 'bar' is removed in the new IDE
+   *
+   * public class Derived extends Base { }
+   */
+  private fun createIdeClasses(withRemovedMethod: Boolean): List<DynamicType.Unloaded<*>> {
+    val stable = ByteBuddy().subclass(Any::class.java).name("org.ide.Stable")
+        .defineMethod("foo", Void.TYPE, Visibility.PUBLIC).intercept(StubMethod.INSTANCE)
+        .make()
+    var base = ByteBuddy().subclass(Any::class.java).name("org.ide.Base")
+    if (withRemovedMethod) {
+      base = base.defineMethod("bar", Void.TYPE, Visibility.PUBLIC).intercept(StubMethod.INSTANCE)
+    }
+    val baseClass = base.make()
+    val derived = ByteBuddy().subclass(baseClass.typeDescription).name("org.ide.Derived").make()
+    return listOf(stable, baseClass, derived)
+  }
+
+  private val oldIdeClasses = createIdeClasses(true)
+
+  private val newIdeClasses = createIdeClasses(false)
+
+  private val oldIdeResolver = FixedClassesResolver.create(oldIdeClasses.map { it.bytes.createClassNode() })
+
+  private val newIdeResolver = FixedClassesResolver.create(newIdeClasses.map { it.bytes.createClassNode() })
+
+  /**
+   * public class ExtendsStable extends Stable { }
+   *
+   * public class ExtendsDerived extends Derived { }
+   *
+   * public class Indirect extends ExtendsDerived { }
+   *
+   * public class UsesDerived { public Derived derived; }
+   *
+   * public class UsesJdk { public String string; }
+   */
+  private val pluginClasses = run {
+    val (stable, _, derived) = newIdeClasses
+    val extendsDerived = ByteBuddy().subclass(derived.typeDescription).name("org.plugin.ExtendsDerived").make()
+    listOf(
+        ByteBuddy().subclass(stable.typeDescription).name("org.plugin.ExtendsStable").make(),
+        extendsDerived,
+        ByteBuddy().subclass(extendsDerived.typeDescription).name("org.plugin.Indirect").make(),
+        ByteBuddy().subclass(Any::class.java).name("org.plugin.UsesDerived")
+            .defineField("derived", derived.typeDescription, Visibility.PUBLIC)
+            .make(),
+        ByteBuddy().subclass(Any::class.java).name("org.plugin.UsesJdk")
+            .defineField("string", String::class.java, Visibility.PUBLIC)
+            .make()
+    ).map { it.bytes.createClassNode() }
+  }
+
+  @Test
+  fun `classes with changed API and their subclasses are changed`() {
+    val ideApiDelta = IdeApiDelta.build(oldIdeResolver, newIdeResolver)
+    assertFalse(ideApiDelta.isChanged("org/ide/Stable"))
+    assertTrue(ideApiDelta.isChanged("org/ide/Base"))
+    assertTrue(ideApiDelta.isChanged("org/ide/Derived"))
+  }
+
+  @Test
+  fun `only classes referencing changed API are selected`() {
+    val clsResolver = DefaultClsResolver(
+        FixedClassesResolver.create(pluginClasses),
+        EmptyResolver,
+        EmptyResolver,
+        newIdeResolver,
+        PackageFilter(listOf(PackageFilter.Descriptor(true, "java"))),
+        emptyList()
+    )
+    val filter = ChangedApiClassesFilter(IdeApiDelta.build(oldIdeResolver, newIdeResolver))
+    val selectedClasses = filter.filterClassesToVerify(pluginClasses.map { it.name }.toSet(), clsResolver)
+    assertEquals(
+        setOf("org/plugin/ExtendsDerived", "org/plugin/Indirect", "org/plugin/UsesDerived"),
+        selectedClasses
+    )
+  }
+
+  /**
+   * public class org.ide.Annotated { public void foo() { } }
+   *
+   * with the class and the method annotated with the given invisible annotations.
+   */
+  private fun createAnnotatedClass(classAnnotations: List<AnnotationNode>, methodAnnotations: List<AnnotationNode>) = ClassNode().apply {
+    version = Opcodes.V1_8
+    access = Opcodes.ACC_PUBLIC
+    name = "org/ide/Annotated"
+    superName = "java/lang/Object"
+    invisibleAnnotations = classAnnotations.toMutableList()
+    methods.add(MethodNode(Opcodes.ACC_PUBLIC, "foo", "()V", null, null).apply {
+      invisibleAnnotations = methodAnnotations.toMutableList()
+    })
+  }
+
+  private fun isAnnotatedClassChanged(
+      oldClassAnnotations: List<AnnotationNode> = emptyList(),
+      newClassAnnotations: List<AnnotationNode> = emptyList(),
+      oldMethodAnnotations: List<AnnotationNode> = emptyList(),
+      newMethodAnnotations: List<AnnotationNode> = emptyList()
+  ): Boolean {
+    val ideApiDelta = IdeApiDelta.build(
+        FixedClassesResolver.create(listOf(createAnnotatedClass(oldClassAnnotations, oldMethodAnnotations))),
+        FixedClassesResolver.create(listOf(createAnnotatedClass(newClassAnnotations, newMethodAnnotations)))
+    )
+    return ideApiDelta.isChanged("org/ide/Annotated")
+  }
+
+  private fun scheduledForRemoval(inVersion: String) =
+      AnnotationNode("Lorg/jetbrains/annotations/ApiStatus\$ScheduledForRemoval;").apply {
+        values = mutableListOf<Any>("inVersion", inVersion)
+      }
+
+  @Test
+  fun `classes with changed deprecation or experimental status are changed`() {
+    assertFalse(isAnnotatedClassChanged())
+    assertFalse(isAnnotatedClassChanged(
+        oldMethodAnnotations = listOf(scheduledForRemoval("2018.3")),
+        newMethodAnnotations = listOf(scheduledForRemoval("2018.3"))
+    ))
+
+    val experimental = AnnotationNode("Lorg/jetbrains/annotations/ApiStatus\$Experimental;")
+    assertTrue(isAnnotatedClassChanged(newClassAnnotations = listOf(experimental)))
+    assertTrue(isAnnotatedClassChanged(oldMethodAnnotations = listOf(experimental)))
+    assertTrue(isAnnotatedClassChanged(newMethodAnnotations = listOf(scheduledForRemoval("2018.3"))))
+    assertTrue(isAnnotatedClassChanged(
+        oldMethodAnnotations = listOf(scheduledForRemoval("2018.3")),
+        newMethodAnnotations = listOf(scheduledForRemoval("2019.1"))
+    ))
+  }
+
+}
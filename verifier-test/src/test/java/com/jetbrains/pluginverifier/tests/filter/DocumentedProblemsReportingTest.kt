@@ -1,5 +1,7 @@
 package com.jetbrains.pluginverifier.tests.filter
 
+import com.jetbrains.pluginverifier.parameters.filtering.DocumentedProblemsFilter
+import com.jetbrains.pluginverifier.parameters.filtering.ProblemsFilter
 import com.jetbrains.pluginverifier.parameters.filtering.documented.DocClassRemoved
 import com.jetbrains.pluginverifier.parameters.filtering.documented.DocMethodParameterTypeChanged
 import com.jetbrains.pluginverifier.parameters.filtering.documented.DocMethodReturnTypeChanged
@@ -9,6 +11,7 @@ import com.jetbrains.pluginverifier.results.location.ClassLocation
 import com.jetbrains.pluginverifier.results.location.MethodLocation
 import com.jetbrains.pluginverifier.results.modifiers.Modifiers
 import com.jetbrains.pluginverifier.results.modifiers.Modifiers.Modifier.*
+import com.jetbrains.pluginverifier.results.problems.ClassNotFoundProblem
 import com.jetbrains.pluginverifier.results.problems.FieldNotFoundProblem
 import com.jetbrains.pluginverifier.results.problems.MethodNotFoundProblem
 import com.jetbrains.pluginverifier.results.problems.MethodNotImplementedProblem
@@ -16,7 +19,9 @@ import com.jetbrains.pluginverifier.results.reference.ClassReference
 import com.jetbrains.pluginverifier.results.reference.FieldReference
 import com.jetbrains.pluginverifier.results.reference.MethodReference
 import com.jetbrains.pluginverifier.tests.mocks.MOCK_METHOD_LOCATION
+import com.jetbrains.pluginverifier.tests.mocks.createSimpleVerificationContext
 import com.jetbrains.pluginverifier.verifiers.logic.hierarchy.ClassHierarchyBuilder
+import org.junit.Assert.assertEquals
 import org.junit.Test
 
 class DocumentedProblemsReportingTest : BaseDocumentedProblemsReportingTest() {
@@ -142,4 +147,27 @@ class DocumentedProblemsReportingTest : BaseDocumentedProblemsReportingTest() {
         createSimpleVerificationContext()
     )
   }
-}
\ No newline at end of file
+
+  /**
+   * Asserts that `org.example package removed` documentation covers
+   * classes of subpackages of `org.example` but not classes of
+   * packages having `org.example` as a string prefix, like `org.examples`.
+   */
+  @Test
+  fun `documented deletion of a package covers its subpackages only`() {
+    val classNotFoundProblem = { className: String -> ClassNotFoundProblem(ClassReference(className), MOCK_METHOD_LOCATION) }
+    val docPackageRemoved = DocPackageRemoved("org/example")
+
+    assertProblemsDocumented(
+        listOf(
+            classNotFoundProblem("org/example/Class") to docPackageRemoved,
+            classNotFoundProblem("org/example/sub/package/Class") to docPackageRemoved
+        ),
+        createSimpleVerificationContext()
+    )
+
+    val problemsFilter = DocumentedProblemsFilter(listOf(docPackageRemoved))
+    val shouldReportProblem = problemsFilter.shouldReportProblem(classNotFoundProblem("org/examples/Class"), createSimpleVerificationContext())
+    assertEquals(ProblemsFilter.Result.Report, shouldReportProblem)
+  }
+}
@@ -15,6 +15,7 @@ import com.jetbrains.pluginverifier.results.reference.MethodReference
 import com.jetbrains.pluginverifier.tests.bytecode.createClassNode
 import com.jetbrains.pluginverifier.tests.mocks.MOCK_METHOD_LOCATION
 import com.jetbrains.pluginverifier.tests.mocks.PUBLIC_MODIFIERS
+import com.jetbrains.pluginverifier.tests.mocks.createSimpleVerificationContext
 import com.jetbrains.pluginverifier.verifiers.VerificationContext
 import com.jetbrains.pluginverifier.verifiers.logic.hierarchy.ClassHierarchyBuilder
 import com.jetbrains.pluginverifier.verifiers.resolution.DefaultClsResolver
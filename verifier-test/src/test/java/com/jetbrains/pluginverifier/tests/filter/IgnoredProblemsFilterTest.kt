@@ -0,0 +1,43 @@
+package com.jetbrains.pluginverifier.tests.filter
+
+import com.jetbrains.pluginverifier.parameters.filtering.IgnoreCondition
+import com.jetbrains.pluginverifier.parameters.filtering.IgnoredProblemsFilter
+import com.jetbrains.pluginverifier.parameters.filtering.ProblemsFilter
+import com.jetbrains.pluginverifier.results.problems.ClassNotFoundProblem
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.tests.mocks.MOCK_METHOD_LOCATION
+import com.jetbrains.pluginverifier.tests.mocks.createSimpleVerificationContext
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class IgnoredProblemsFilterTest {
+
+  private val problem = ClassNotFoundProblem(ClassReference("org/some/Class"), MOCK_METHOD_LOCATION)
+
+  private fun getIgnoringPattern(vararg conditions: String): String? {
+    val filter = IgnoredProblemsFilter(conditions.map { IgnoreCondition.parseCondition(it) })
+    val result = filter.shouldReportProblem(problem, createSimpleVerificationContext())
+    return (result as? ProblemsFilter.Result.Ignore)?.reason?.substringAfter("\"")?.substringBeforeLast("\"")
+  }
+
+  @Test
+  fun `conditions are matched against short description ignoring case`() {
+    assertEquals("access to unresolved class org.some.*", getIgnoringPattern("access to unresolved class org.some.*"))
+    assertEquals("Access to unresolved classe?s? org.*", getIgnoringPattern("Access to unresolved classe?s? org.*"))
+    assertEquals(null, getIgnoringPattern("access to unresolved class org.other.*"))
+    assertEquals(null, getIgnoringPattern("access to unresolved class"))
+  }
+
+  @Test
+  fun `conditions of other plugins and versions are not applied`() {
+    assertEquals(null, getIgnoringPattern("otherPlugin:.*", "pluginId:2.0:.*"))
+    assertEquals(".*", getIgnoringPattern("otherPlugin:access.*", "pluginId:1.0:.*"))
+    assertEquals(".*", getIgnoringPattern("otherPlugin:access.*", "pluginId:.*"))
+  }
+
+  @Test
+  fun `first matching condition is reported`() {
+    assertEquals("access.*", getIgnoringPattern("pluginId:1.0:access.*", "pluginId:.*", ".*"))
+    assertEquals(".*", getIgnoringPattern("pluginId:other.*", ".*", "pluginId:1.0:access.*"))
+  }
+}
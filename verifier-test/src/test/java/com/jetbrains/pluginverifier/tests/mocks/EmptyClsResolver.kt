@@ -1,8 +1,10 @@
 package com.jetbrains.pluginverifier.tests.mocks
 
 import com.jetbrains.pluginverifier.verifiers.resolution.ClassFileOrigin
+import com.jetbrains.pluginverifier.verifiers.resolution.ClassHierarchyCache
 import com.jetbrains.pluginverifier.verifiers.resolution.ClsResolution
 import com.jetbrains.pluginverifier.verifiers.resolution.ClsResolver
+import com.jetbrains.pluginverifier.verifiers.resolution.MemberResolutionCache
 
 object EmptyClsResolver : ClsResolver {
   override fun resolveClass(className: String) = ClsResolution.NotFound
@@ -13,6 +15,10 @@ object EmptyClsResolver : ClsResolver {
 
   override fun packageExists(packageName: String) = false
 
+  override val classHierarchy = ClassHierarchyCache(this)
+
+  override val memberResolutionCache = MemberResolutionCache()
+
   override fun getOriginOfClass(className: String): ClassFileOrigin? = null
 
   override fun close() = Unit
@@ -0,0 +1,20 @@
+package com.jetbrains.pluginverifier.tests.mocks
+
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.ResultHolder
+import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
+import com.jetbrains.pluginverifier.verifiers.VerificationContext
+
+/**
+ * Creates [VerificationContext] of plugin `pluginId:1.0`
+ * against `IU-145.1` that resolves no classes.
+ */
+fun createSimpleVerificationContext() = VerificationContext(
+    PluginIdAndVersion("pluginId", "1.0"),
+    VerificationTarget.Ide(IdeVersion.createIdeVersion("IU-145.1")),
+    ResultHolder(),
+    false,
+    emptyList(),
+    EmptyClsResolver
+)
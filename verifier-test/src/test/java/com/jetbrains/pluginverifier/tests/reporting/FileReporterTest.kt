@@ -0,0 +1,86 @@
+package com.jetbrains.pluginverifier.tests.reporting
+
+import com.jetbrains.pluginverifier.misc.readLines
+import com.jetbrains.pluginverifier.reporting.common.BatchingFileWriter
+import com.jetbrains.pluginverifier.reporting.common.FileReporter
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Files
+import kotlin.concurrent.thread
+
+class FileReporterTest {
+
+  @JvmField
+  @Rule
+  val tempFolder = TemporaryFolder()
+
+  /**
+   * Reports lines to several files from several threads
+   * through a writer with a small queue and checks that
+   * all lines are written in the order of their reporting.
+   */
+  @Test
+  fun `concurrently reported lines are written in order`() {
+    val fileWriter = BatchingFileWriter(queueCapacity = 16)
+    val threadsNumber = 4
+    val linesNumber = 5000
+
+    val files = (0 until threadsNumber).map { tempFolder.root.toPath().resolve("dir$it").resolve("file.txt") }
+    val threads = files.map { file ->
+      thread {
+        FileReporter<Int>(file, fileWriter = fileWriter).use { reporter ->
+          repeat(linesNumber) { reporter.report(it) }
+        }
+      }
+    }
+    threads.forEach { it.join() }
+
+    for (file in files) {
+      assertEquals((0 until linesNumber).map { it.toString() }, file.readLines())
+    }
+  }
+
+  @Test
+  fun `file is not created if nothing is reported`() {
+    val file = tempFolder.root.toPath().resolve("empty.txt")
+    FileReporter<String>(file).close()
+    assertFalse(Files.exists(file))
+  }
+
+  @Test
+  fun `lines reported after close are ignored`() {
+    val file = tempFolder.root.toPath().resolve("file.txt")
+    val reporter = FileReporter<String>(file)
+    reporter.report("first")
+    reporter.close()
+    reporter.report("second")
+    reporter.close()
+    assertEquals(listOf("first"), file.readLines())
+  }
+
+  private fun isWriterThreadRunning() =
+      Thread.getAllStackTraces().keys.any { it.name == "batching-file-writer" && it.isAlive }
+
+  @Test
+  fun `background thread is stopped once all files are closed`() {
+    val fileWriter = BatchingFileWriter()
+    val reporters = (0 until 2).map { FileReporter<String>(tempFolder.root.toPath().resolve("file$it.txt"), fileWriter = fileWriter) }
+    reporters.forEach { it.report("line") }
+    assertTrue(isWriterThreadRunning())
+
+    reporters.forEach { it.close() }
+    val deadline = System.currentTimeMillis() + 10_000
+    while (isWriterThreadRunning() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10)
+    }
+    assertFalse(isWriterThreadRunning())
+
+    val file = tempFolder.root.toPath().resolve("reopened.txt")
+    FileReporter<String>(file, fileWriter = fileWriter).use { it.report("again") }
+    assertEquals(listOf("again"), file.readLines())
+  }
+}
@@ -11,6 +11,8 @@ import org.junit.Assert.*
 import org.junit.Test
 import java.io.Closeable
 import java.time.Clock
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
 import java.util.concurrent.atomic.AtomicInteger
 
 class ResourceRepositoryImplTest {
@@ -49,6 +51,24 @@ class ResourceRepositoryImplTest {
     assertEquals(setOf(1, 2, 3, 4, 5), releasedResources)
   }
 
+  @Test
+  fun `accessed resource is evicted after the resources not accessed since then`() {
+    val releasedResources = arrayListOf<Int>()
+    val repo = createSizedResourceRepository(3) { id ->
+      Closeable {
+        releasedResources.add(id)
+      }
+    }
+
+    for (i in listOf(1, 2, 3, 1, 4, 5)) {
+      val result = repo.get(i) as ResourceRepositoryResult.Found
+      result.lockedResource.release()
+    }
+
+    assertEquals(listOf(2, 3), releasedResources)
+    assertEquals(setOf(1, 4, 5), repo.getAllExistingKeys())
+  }
+
   @Test
   fun `getAllExistingKeys must return an immutable copy`() {
     val size = 10
@@ -138,4 +158,37 @@ class ResourceRepositoryImplTest {
     assertFalse(resourceRepository.has(key))
   }
 
-}
\ No newline at end of file
+  @Test
+  fun `concurrently requested resources are provided once per key and evicted after release`() {
+    val keysNumber = 20
+    val providedTimes = ConcurrentHashMap<Int, AtomicInteger>()
+    val disposedResources = ConcurrentHashMap.newKeySet<Int>()
+    val resourceRepository = createSizedResourceRepository(keysNumber) { key ->
+      providedTimes.computeIfAbsent(key) { AtomicInteger() }.incrementAndGet()
+      Closeable { disposedResources.add(key) }
+    }
+
+    val executor = Executors.newFixedThreadPool(8)
+    try {
+      val tasks = (0 until 1000).map { index ->
+        executor.submit {
+          val key = index % keysNumber
+          val lockedResource = (resourceRepository.get(key) as ResourceRepositoryResult.Found).lockedResource
+          assertFalse(key in disposedResources)
+          lockedResource.release()
+        }
+      }
+      tasks.forEach { it.get() }
+    } finally {
+      executor.shutdownNow()
+    }
+
+    assertEquals((0 until keysNumber).toSet(), providedTimes.keys)
+    assertTrue(providedTimes.values.all { it.get() == 1 })
+    assertEquals((0 until keysNumber).toSet(), resourceRepository.getAllExistingKeys())
+
+    resourceRepository.removeAll()
+    assertEquals((0 until keysNumber).toSet(), disposedResources)
+  }
+
+}
@@ -0,0 +1,83 @@
+package com.jetbrains.pluginverifier.tests.resolution
+
+import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.results.deprecated.DeprecatedApiUsage
+import com.jetbrains.pluginverifier.results.experimental.ExperimentalApiUsage
+import com.jetbrains.pluginverifier.results.problems.ClassNotFoundProblem
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.tests.bytecode.createClassNode
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+import com.jetbrains.pluginverifier.verifiers.isSubclassOf
+import com.jetbrains.pluginverifier.verifiers.resolution.DefaultClsResolver
+import net.bytebuddy.ByteBuddy
+import org.junit.Assert.*
+import org.junit.Test
+
+class ClassHierarchyCacheTest {
+
+  private class CollectingProblemRegistrar : ProblemRegistrar {
+    val problems = arrayListOf<CompatibilityProblem>()
+
+    override fun registerProblem(problem: CompatibilityProblem) {
+      problems.add(problem)
+    }
+
+    override fun registerDeprecatedUsage(deprecatedApiUsage: DeprecatedApiUsage) = Unit
+
+    override fun registerExperimentalApiUsage(experimentalApiUsage: ExperimentalApiUsage) = Unit
+  }
+
+  /**
+   * public interface I { }
+   *
+   * public class A implements I { }
+   *
+   * public class B extends A { }
+   *
+   * public class Missing { } // is not available to the resolver
+   *
+   * public class C extends Missing { }
+   */
+  private val classNodes = run {
+    val interfaceI = ByteBuddy().makeInterface().name("org.test.I").make()
+    val classA = ByteBuddy().subclass(interfaceI.typeDescription).name("org.test.A").make()
+    val classB = ByteBuddy().subclass(classA.typeDescription).name("org.test.B").make()
+    val classMissing = ByteBuddy().subclass(Any::class.java).name("org.test.Missing").make()
+    val classC = ByteBuddy().subclass(classMissing.typeDescription).name("org.test.C").make()
+    listOf(interfaceI, classA, classB, classC).map { it.bytes.createClassNode() }.associateBy { it.name }
+  }
+
+  private val clsResolver = DefaultClsResolver(
+      FixedClassesResolver.create(classNodes.values),
+      EmptyResolver,
+      EmptyResolver,
+      EmptyResolver,
+      PackageFilter(listOf(PackageFilter.Descriptor(true, "java"))),
+      emptyList()
+  )
+
+  @Test
+  fun `transitive supertypes are found`() {
+    val classB = classNodes.getValue("org/test/B")
+    repeat(2) {
+      val problemRegistrar = CollectingProblemRegistrar()
+      assertTrue(clsResolver.isSubclassOf(classB, "org/test/A", problemRegistrar))
+      assertTrue(clsResolver.isSubclassOf(classB, "org/test/I", problemRegistrar))
+      assertFalse(clsResolver.isSubclassOf(classB, "org/test/C", problemRegistrar))
+      assertTrue(problemRegistrar.problems.isEmpty())
+    }
+  }
+
+  @Test
+  fun `problems of unresolved supertypes are reported on every check`() {
+    val classC = classNodes.getValue("org/test/C")
+    repeat(2) {
+      val problemRegistrar = CollectingProblemRegistrar()
+      assertFalse(clsResolver.isSubclassOf(classC, "org/test/I", problemRegistrar))
+      val problem = problemRegistrar.problems.single() as ClassNotFoundProblem
+      assertEquals("org/test/Missing", problem.unresolved.className)
+    }
+  }
+}
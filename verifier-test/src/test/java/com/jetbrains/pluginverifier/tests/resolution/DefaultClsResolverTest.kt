@@ -0,0 +1,68 @@
+package com.jetbrains.pluginverifier.tests.resolution
+
+import com.jetbrains.plugin.structure.classes.resolvers.CacheResolver
+import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.plugin.structure.classes.resolvers.Resolver
+import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.verifiers.resolution.ClsResolution
+import com.jetbrains.pluginverifier.verifiers.resolution.DefaultClsResolver
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+
+class DefaultClsResolverTest {
+
+  private fun classNode(className: String) = ClassNode().apply {
+    version = Opcodes.V1_8
+    access = Opcodes.ACC_PUBLIC
+    name = className
+    superName = "java/lang/Object"
+  }
+
+  private val pluginClass = classNode("org/shared/Shared")
+
+  private val ideClass = classNode("org/ide/IdeClass")
+
+  private val ideSharedClass = classNode("org/shared/Shared")
+
+  private val ideResolver = CacheResolver(FixedClassesResolver.create(listOf(ideClass, ideSharedClass)))
+
+  private fun createClsResolver(dependenciesResolver: Resolver) = DefaultClsResolver(
+      FixedClassesResolver.create(listOf(pluginClass)),
+      dependenciesResolver,
+      EmptyResolver,
+      ideResolver,
+      PackageFilter(emptyList()),
+      emptyList()
+  )
+
+  private fun resolveClassNode(clsResolver: DefaultClsResolver, className: String) =
+      (clsResolver.resolveClass(className) as ClsResolution.Found).node
+
+  @Test
+  fun `IDE classes are read through the shared IDE cache by all verifications`() {
+    repeat(2) {
+      val clsResolver = createClsResolver(EmptyResolver)
+      assertSame(ideClass, resolveClassNode(clsResolver, "org/ide/IdeClass"))
+    }
+    val cacheStats = ideResolver.cacheStats
+    assertEquals(1, cacheStats.missCount())
+    assertEquals(1, cacheStats.hitCount())
+  }
+
+  @Test
+  fun `classes are resolved in order of plugin, IDE and dependencies`() {
+    val dependencyIdeClass = classNode("org/ide/IdeClass")
+    val dependencyClass = classNode("org/dependency/Dependency")
+    val clsResolver = createClsResolver(FixedClassesResolver.create(listOf(dependencyIdeClass, dependencyClass)))
+
+    assertSame(pluginClass, resolveClassNode(clsResolver, "org/shared/Shared"))
+    assertSame(ideClass, resolveClassNode(clsResolver, "org/ide/IdeClass"))
+    assertSame(dependencyClass, resolveClassNode(clsResolver, "org/dependency/Dependency"))
+    assertEquals(ClsResolution.NotFound, clsResolver.resolveClass("org/missing/Missing"))
+  }
+
+}
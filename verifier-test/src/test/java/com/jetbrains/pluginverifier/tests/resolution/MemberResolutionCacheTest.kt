@@ -0,0 +1,232 @@
+package com.jetbrains.pluginverifier.tests.resolution
+
+import com.jetbrains.plugin.structure.classes.resolvers.EmptyResolver
+import com.jetbrains.plugin.structure.classes.resolvers.FixedClassesResolver
+import com.jetbrains.pluginverifier.parameters.packages.PackageFilter
+import com.jetbrains.pluginverifier.results.deprecated.DeprecatedApiUsage
+import com.jetbrains.pluginverifier.results.experimental.ExperimentalApiUsage
+import com.jetbrains.pluginverifier.results.instruction.Instruction
+import com.jetbrains.pluginverifier.results.problems.ClassNotFoundProblem
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.results.problems.InvokeInterfaceMethodOnClassProblem
+import com.jetbrains.pluginverifier.results.reference.SymbolicReference
+import com.jetbrains.pluginverifier.verifiers.ProblemRegistrar
+import com.jetbrains.pluginverifier.verifiers.createMethodLocation
+import com.jetbrains.pluginverifier.verifiers.resolution.*
+import org.junit.Assert.*
+import org.junit.Test
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.FieldNode
+import org.objectweb.asm.tree.MethodNode
+
+/**
+ * Checks that methods and fields resolved through the [MemberResolutionCache]
+ * and [ClassMembers] are the same as resolved by a resolver with an empty cache,
+ * and that problems of resolution are reported on every reference.
+ */
+class MemberResolutionCacheTest {
+
+  private class CollectingProblemRegistrar : ProblemRegistrar {
+    val problems = arrayListOf<CompatibilityProblem>()
+
+    override fun registerProblem(problem: CompatibilityProblem) {
+      problems.add(problem)
+    }
+
+    override fun registerDeprecatedUsage(deprecatedApiUsage: DeprecatedApiUsage) = Unit
+
+    override fun registerExperimentalApiUsage(experimentalApiUsage: ExperimentalApiUsage) = Unit
+  }
+
+  private fun createClassNode(
+      className: String,
+      superName: String?,
+      interfaces: List<String> = emptyList(),
+      isInterface: Boolean = false,
+      methods: List<MethodNode> = emptyList(),
+      fields: List<FieldNode> = emptyList()
+  ) = ClassNode().apply {
+    version = Opcodes.V1_8
+    access = Opcodes.ACC_PUBLIC or (if (isInterface) Opcodes.ACC_INTERFACE or Opcodes.ACC_ABSTRACT else 0)
+    name = className
+    this.superName = superName
+    this.interfaces.addAll(interfaces)
+    this.methods.addAll(methods)
+    this.fields.addAll(fields)
+  }
+
+  private fun method(name: String, descriptor: String = "()V", access: Int = Opcodes.ACC_PUBLIC) =
+      MethodNode(access, name, descriptor, null, null)
+
+  /**
+   * public class Object { public int hashCode() }
+   *
+   * public interface I {
+   *   int CONSTANT = 0;
+   *   default void def() { }
+   * }
+   *
+   * public class A implements I {
+   *   public int field;
+   *   public void inherited() { }
+   *   public void overloaded(int) { }
+   *   public void overloaded(long) { }
+   * }
+   *
+   * public class B extends A { public void own() { } }
+   *
+   * public class C extends Missing { } // Missing is not available to the resolver
+   */
+  private val classNodes = listOf(
+      createClassNode("java/lang/Object", null, methods = listOf(method("hashCode", "()I"))),
+      createClassNode(
+          "ide/I",
+          "java/lang/Object",
+          isInterface = true,
+          methods = listOf(method("def")),
+          fields = listOf(FieldNode(Opcodes.ACC_PUBLIC or Opcodes.ACC_STATIC or Opcodes.ACC_FINAL, "CONSTANT", "I", null, 0))
+      ),
+      createClassNode(
+          "ide/A",
+          "java/lang/Object",
+          interfaces = listOf("ide/I"),
+          methods = listOf(method("inherited"), method("overloaded", "(I)V"), method("overloaded", "(J)V")),
+          fields = listOf(FieldNode(Opcodes.ACC_PUBLIC, "field", "I", null, null))
+      ),
+      createClassNode("ide/B", "ide/A", methods = listOf(method("own"))),
+      createClassNode("ide/C", "ide/Missing")
+  ).associateBy { it.name }
+
+  private val callerClass = classNodes.getValue("ide/B")
+
+  private val callerLocation = createMethodLocation(callerClass, callerClass.methods.single())
+
+  private fun createClsResolver() = DefaultClsResolver(
+      FixedClassesResolver.create(classNodes.values),
+      EmptyResolver,
+      EmptyResolver,
+      EmptyResolver,
+      PackageFilter(emptyList()),
+      emptyList()
+  )
+
+  private data class Resolved<out R>(val result: R, val problems: List<CompatibilityProblem>)
+
+  private fun resolveMethod(
+      clsResolver: ClsResolver,
+      ownerName: String,
+      methodName: String,
+      instruction: Instruction = Instruction.INVOKE_VIRTUAL
+  ): Resolved<MethodResolutionResult> {
+    val problemRegistrar = CollectingProblemRegistrar()
+    val methodReference = SymbolicReference.methodOf(ownerName, methodName, "()V")
+    val result = MethodResolution(methodReference, instruction, callerLocation, problemRegistrar, clsResolver)
+        .resolveMethod(classNodes.getValue(ownerName))
+    return Resolved(result, problemRegistrar.problems)
+  }
+
+  private fun resolveField(clsResolver: ClsResolver, ownerName: String, fieldName: String): Resolved<FieldResolutionResult> {
+    val problemRegistrar = CollectingProblemRegistrar()
+    val result = FieldResolution(fieldName, "I", clsResolver, problemRegistrar).resolveField(classNodes.getValue(ownerName))
+    return Resolved(result, problemRegistrar.problems)
+  }
+
+  /**
+   * Resolves the member twice by a shared resolver, whose cache is
+   * populated by the first resolution, and compares both results
+   * with the result of a resolver with an empty cache.
+   */
+  private fun <R> assertCachedEqualsUncached(resolve: (ClsResolver) -> Resolved<R>): Resolved<R> {
+    val uncached = resolve(createClsResolver())
+    val sharedResolver = createClsResolver()
+    assertEquals(uncached, resolve(sharedResolver))
+    assertEquals(uncached, resolve(sharedResolver))
+    return uncached
+  }
+
+  @Test
+  fun `declared method is resolved`() {
+    val resolved = assertCachedEqualsUncached { resolveMethod(it, "ide/B", "own") }
+    val found = resolved.result as MethodResolutionResult.Found
+    assertEquals("ide/B", found.definingClass.name)
+    assertEquals("own", found.methodNode.name)
+    assertTrue(resolved.problems.isEmpty())
+  }
+
+  @Test
+  fun `inherited method is resolved in superclass`() {
+    val resolved = assertCachedEqualsUncached { resolveMethod(it, "ide/B", "inherited") }
+    val found = resolved.result as MethodResolutionResult.Found
+    assertEquals("ide/A", found.definingClass.name)
+    assertEquals("inherited", found.methodNode.name)
+    assertTrue(resolved.problems.isEmpty())
+  }
+
+  @Test
+  fun `interface default method is resolved for implementing class`() {
+    val resolved = assertCachedEqualsUncached { resolveMethod(it, "ide/B", "def") }
+    val found = resolved.result as MethodResolutionResult.Found
+    assertEquals("ide/I", found.definingClass.name)
+    assertEquals("def", found.methodNode.name)
+    assertTrue(resolved.problems.isEmpty())
+
+    val interfaceResolved = assertCachedEqualsUncached { resolveMethod(it, "ide/I", "def", Instruction.INVOKE_INTERFACE) }
+    assertEquals(found, interfaceResolved.result)
+  }
+
+  @Test
+  fun `not found method is resolved as not found`() {
+    val resolved = assertCachedEqualsUncached { resolveMethod(it, "ide/B", "removed") }
+    assertEquals(MethodResolutionResult.NotFound, resolved.result)
+    assertTrue(resolved.problems.isEmpty())
+  }
+
+  @Test
+  fun `problems of method resolution are reported on every reference`() {
+    val unresolvedSuper = assertCachedEqualsUncached { resolveMethod(it, "ide/C", "inherited") }
+    assertEquals(MethodResolutionResult.Abort, unresolvedSuper.result)
+    assertEquals("ide/Missing", (unresolvedSuper.problems.single() as ClassNotFoundProblem).unresolved.className)
+
+    val interfaceOnClass = assertCachedEqualsUncached { resolveMethod(it, "ide/A", "inherited", Instruction.INVOKE_INTERFACE) }
+    assertEquals(MethodResolutionResult.Abort, interfaceOnClass.result)
+    assertTrue(interfaceOnClass.problems.single() is InvokeInterfaceMethodOnClassProblem)
+  }
+
+  @Test
+  fun `fields are resolved in superclasses and superinterfaces`() {
+    val inherited = assertCachedEqualsUncached { resolveField(it, "ide/B", "field") }
+    assertEquals("ide/A", (inherited.result as FieldResolutionResult.Found).definingClass.name)
+    assertTrue(inherited.problems.isEmpty())
+
+    val interfaceConstant = assertCachedEqualsUncached { resolveField(it, "ide/B", "CONSTANT") }
+    assertEquals("ide/I", (interfaceConstant.result as FieldResolutionResult.Found).definingClass.name)
+    assertTrue(interfaceConstant.problems.isEmpty())
+
+    val notFound = assertCachedEqualsUncached { resolveField(it, "ide/B", "removed") }
+    assertEquals(FieldResolutionResult.NotFound, notFound.result)
+    assertTrue(notFound.problems.isEmpty())
+
+    val unresolvedSuper = assertCachedEqualsUncached { resolveField(it, "ide/C", "field") }
+    assertEquals(FieldResolutionResult.Abort, unresolvedSuper.result)
+    assertEquals("ide/Missing", (unresolvedSuper.problems.single() as ClassNotFoundProblem).unresolved.className)
+  }
+
+  @Test
+  fun `class members are indexed by name in order of declaration`() {
+    val classA = classNodes.getValue("ide/A")
+    val classMembers = ClassMembers.of(classA)
+    assertSame(classMembers, ClassMembers.of(classA))
+
+    assertEquals(listOf("(I)V", "(J)V"), classMembers.getMethods("overloaded").map { it.desc })
+    assertEquals(listOf("(J)V"), classMembers.getMethods("overloaded", "(J)V").map { it.desc })
+    assertSame(classA.methods[0], classMembers.findMethod("inherited", "()V"))
+    assertNull(classMembers.findMethod("inherited", "(I)V"))
+    assertNull(classMembers.findMethod("own", "()V"))
+    assertTrue(classMembers.getMethods("removed").isEmpty())
+
+    assertSame(classA.fields.single(), classMembers.findField("field", "I"))
+    assertNull(classMembers.findField("field", "J"))
+    assertNull(classMembers.findField("CONSTANT", "I"))
+  }
+}
@@ -238,7 +238,9 @@ class CheckTrunkApiTaskDependenciesResolutionTest {
         false,
         IdleFileLock(Paths.get("unnecessary")),
         createLocalPluginRepository(releaseSomeJetBrainsMockPlugin, releaseVersion),
-        createLocalPluginRepository(trunkSomeJetBrainsMockPlugin, trunkVersion)
+        createLocalPluginRepository(trunkSomeJetBrainsMockPlugin, trunkVersion),
+        false,
+        null
     )
   }
 
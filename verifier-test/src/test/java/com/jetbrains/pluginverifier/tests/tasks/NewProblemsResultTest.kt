@@ -0,0 +1,80 @@
+package com.jetbrains.pluginverifier.tests.tasks
+
+import com.jetbrains.plugin.structure.intellij.version.IdeVersion
+import com.jetbrains.pluginverifier.VerificationTarget
+import com.jetbrains.pluginverifier.repository.PluginIdAndVersion
+import com.jetbrains.pluginverifier.results.VerificationResult
+import com.jetbrains.pluginverifier.results.location.ClassLocation
+import com.jetbrains.pluginverifier.results.modifiers.Modifiers
+import com.jetbrains.pluginverifier.results.problems.ClassNotFoundProblem
+import com.jetbrains.pluginverifier.results.problems.CompatibilityProblem
+import com.jetbrains.pluginverifier.results.problems.PackageNotFoundProblem
+import com.jetbrains.pluginverifier.results.reference.ClassReference
+import com.jetbrains.pluginverifier.tasks.common.NewProblemsResult
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Checks that the same missing classes grouped differently
+ * into [ClassNotFoundProblem]s and [PackageNotFoundProblem]s
+ * are not reported as new problems by the [NewProblemsResult].
+ */
+class NewProblemsResultTest {
+
+  private val plugin = PluginIdAndVersion("plugin", "1.0")
+
+  private val baseTarget = VerificationTarget.Ide(IdeVersion.createIdeVersion("IU-181.1"))
+
+  private val newTarget = VerificationTarget.Ide(IdeVersion.createIdeVersion("IU-182.1"))
+
+  private val usage = ClassLocation("plugin/Usage", "", Modifiers(0))
+
+  private val missingFirst = classNotFound("removed/First")
+
+  private val missingSecond = classNotFound("removed/Second")
+
+  private fun classNotFound(className: String) =
+      ClassNotFoundProblem(ClassReference(className), usage)
+
+  private fun createResult(target: VerificationTarget, problems: Set<CompatibilityProblem>) =
+      VerificationResult.CompatibilityProblems().apply {
+        plugin = this@NewProblemsResultTest.plugin
+        verificationTarget = target
+        compatibilityProblems = problems
+      }
+
+  private fun getNewProblems(baseProblems: Set<CompatibilityProblem>, newProblems: Set<CompatibilityProblem>): Set<CompatibilityProblem> {
+    val newProblemsResult = NewProblemsResult.create(
+        baseTarget,
+        listOf(createResult(baseTarget, baseProblems)),
+        newTarget,
+        listOf(createResult(newTarget, newProblems))
+    )
+    return newProblemsResult.resultsComparisons.getValue(plugin).newProblems
+  }
+
+  @Test
+  fun `class not found is old if its package was not found`() {
+    val basePackageNotFound = PackageNotFoundProblem("removed", setOf(missingFirst, missingSecond))
+    assertEquals(emptySet<CompatibilityProblem>(), getNewProblems(setOf(basePackageNotFound), setOf(missingFirst)))
+  }
+
+  @Test
+  fun `package not found is old if all its classes were not found`() {
+    val newPackageNotFound = PackageNotFoundProblem("removed", setOf(missingFirst, missingSecond))
+    assertEquals(
+        emptySet<CompatibilityProblem>(),
+        getNewProblems(setOf(missingFirst, missingSecond), setOf(newPackageNotFound))
+    )
+  }
+
+  @Test
+  fun `package not found is new if some of its classes were found`() {
+    val newPackageNotFound = PackageNotFoundProblem("removed", setOf(missingFirst, missingSecond))
+    assertEquals(setOf(newPackageNotFound), getNewProblems(setOf(missingFirst), setOf(newPackageNotFound)))
+
+    val missingThird = classNotFound("removed/Third")
+    assertEquals(setOf(missingThird), getNewProblems(setOf(newPackageNotFound), setOf(missingFirst, missingThird)))
+  }
+
+}